@@ -0,0 +1,146 @@
+package com.kaelenx.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.NoBenchmarksException;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.openjdk.jmh.util.Statistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the JMH benchmarks and prints a combined throughput/percentile report.
+ * 
+ * Every included benchmark runs single-threaded. Benchmarks in classes named
+ * {@code *ContentionBenchmark} are additionally run at each configured thread
+ * count. Each configuration is measured twice: once in throughput mode (ops/s)
+ * and once in sample-time mode (latency percentiles in ns/op). Secondary
+ * throughput results (e.g. {@code @AuxCounters} such as tokens/s) get a row
+ * of their own, named {@code benchmark:result}.
+ * 
+ * Arguments are {@code key=value} options or benchmark include patterns:
+ * - threads: comma-separated thread counts, default 1,2,4,8,16,32,64
+ * - forks: JVM forks per benchmark, default 1
+ * - warmup: warmup iterations, default 3
+ * - iterations: measurement iterations, default 5
+ * - time: seconds per iteration, default 1
+ * 
+ * Example: {@code mvn -pl benchmarks -am -P jmh verify -Djmh.args="threads=1,8 nextId"}
+ */
+public final class BenchmarkRunner {
+    
+    // Excludes every benchmark whose name does not contain "ContentionBenchmark"
+    private static final String SINGLE_THREAD_ONLY = "^(?!.*ContentionBenchmark)";
+    
+    private BenchmarkRunner() {
+        // Utility class - prevent instantiation
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        Map<String, String> options = new HashMap<>();
+        List<String> includes = new ArrayList<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator > 0) {
+                options.put(arg.substring(0, separator), arg.substring(separator + 1));
+            } else if (!arg.isBlank()) {
+                includes.add(arg);
+            }
+        }
+        if (includes.isEmpty()) {
+            includes.add(".*Benchmark.*");
+        }
+        int[] threadCounts = Arrays.stream(options.getOrDefault("threads", "1,2,4,8,16,32,64").split(","))
+                .mapToInt(value -> Integer.parseInt(value.trim()))
+                .toArray();
+        
+        List<Row> rows = new ArrayList<>();
+        for (int threads : threadCounts) {
+            for (Mode mode : new Mode[] {Mode.Throughput, Mode.SampleTime}) {
+                ChainedOptionsBuilder builder = new OptionsBuilder()
+                        .mode(mode)
+                        .timeUnit(mode == Mode.Throughput ? TimeUnit.SECONDS : TimeUnit.NANOSECONDS)
+                        .threads(threads)
+                        .forks(Integer.parseInt(options.getOrDefault("forks", "1")))
+                        .warmupIterations(Integer.parseInt(options.getOrDefault("warmup", "3")))
+                        .warmupTime(TimeValue.seconds(Long.parseLong(options.getOrDefault("time", "1"))))
+                        .measurementIterations(Integer.parseInt(options.getOrDefault("iterations", "5")))
+                        .measurementTime(TimeValue.seconds(Long.parseLong(options.getOrDefault("time", "1"))))
+                        .shouldFailOnError(true);
+                includes.forEach(builder::include);
+                if (threads > 1) {
+                    builder.exclude(SINGLE_THREAD_ONLY);
+                }
+                try {
+                    for (RunResult result : new Runner(builder.build()).run()) {
+                        rows.add(Row.of(result, threads, mode));
+                        if (mode == Mode.Throughput) {
+                            result.getSecondaryResults().values()
+                                    .forEach(secondary -> rows.add(Row.of(result, secondary, threads, mode)));
+                        }
+                    }
+                } catch (NoBenchmarksException e) {
+                    // Nothing included at this thread count
+                }
+            }
+        }
+        printReport(rows);
+    }
+    
+    private static void printReport(List<Row> rows) {
+        System.out.println();
+        System.out.printf("%-80s %8s %16s %12s %12s %12s%n",
+                "Benchmark", "Threads", "ops/s", "p50 ns", "p99 ns", "p99.9 ns");
+        rows.stream()
+                .filter(row -> row.mode == Mode.Throughput)
+                .forEach(throughput -> {
+                    Row latency = rows.stream()
+                            .filter(row -> row.mode == Mode.SampleTime
+                                    && row.name.equals(throughput.name)
+                                    && row.threads == throughput.threads)
+                            .findFirst()
+                            .orElse(null);
+                    System.out.printf("%-80s %8d %16.0f %12s %12s %12s%n",
+                            throughput.name, throughput.threads, throughput.score,
+                            latency != null ? format(latency.statistics.getPercentile(50)) : "-",
+                            latency != null ? format(latency.statistics.getPercentile(99)) : "-",
+                            latency != null ? format(latency.statistics.getPercentile(99.9)) : "-");
+                });
+    }
+    
+    private static String format(double value) {
+        return String.format("%.0f", value);
+    }
+    
+    private record Row(String name, int threads, Mode mode, double score, Statistics statistics) {
+        
+        static Row of(RunResult result, int threads, Mode mode) {
+            Result<?> primary = result.getPrimaryResult();
+            return new Row(name(result, ""), threads, mode, primary.getScore(), primary.getStatistics());
+        }
+        
+        static Row of(RunResult result, Result<?> secondary, int threads, Mode mode) {
+            return new Row(name(result, ":" + secondary.getLabel()), threads, mode, 
+                    secondary.getScore(), secondary.getStatistics());
+        }
+        
+        private static String name(RunResult result, String suffix) {
+            String benchmark = result.getParams().getBenchmark();
+            String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1) + suffix;
+            for (String key : result.getParams().getParamsKeys()) {
+                name += " " + key + "=" + result.getParams().getParam(key);
+            }
+            return name;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.kaelenx.benchmarks;
+
+import com.kaelenx.common.tokenizer.BpeTokenizer;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Token counting and encoding throughput of the BPE tokenizer on a chat
+ * prompt. Besides ops/s, the {@code tokens} secondary result reports
+ * tokens/s. The prompt size in characters and tokens is printed at setup.
+ */
+@State(Scope.Thread)
+public class BpeTokenizerBenchmark {
+    
+    private static final String[] TURNS = {
+            "Hi! I'd like to practice ordering food at a restaurant.",
+            "Of course! Imagine you've just sat down and the waiter hands you the menu. What would you say?",
+            "Could I have the chicken salad, please? And a glass of orange juice.",
+            "Great job! That was very polite. You could also say \"I'd like the chicken salad\". What about dessert?",
+            "I think I will take the chocolate cake. How much is it cost?",
+            "Nice try! The correct question is \"How much does it cost?\" or \"How much is it?\". Shall we continue?"
+    };
+    
+    @Param({"1", "16"})
+    public int turns;
+    
+    private BpeTokenizer tokenizer;
+    private String prompt;
+    
+    /**
+     * Tokens processed, reported per second
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class TokenCounter {
+        
+        public long tokens;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+        }
+    }
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        tokenizer = BpeTokenizer.fromClasspath(BpeTokenizer.DEFAULT_MERGES);
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < turns; i++) {
+            builder.append(TURNS[i % TURNS.length]).append('\n');
+        }
+        prompt = builder.toString();
+        System.out.printf("%nturns=%d prompt: %d chars, %d tokens%n",
+                turns, prompt.length(), tokenizer.countTokens(prompt));
+    }
+    
+    @Benchmark
+    public int countTokens(TokenCounter counter) {
+        int tokens = tokenizer.countTokens(prompt);
+        counter.tokens += tokens;
+        return tokens;
+    }
+    
+    @Benchmark
+    public int[] encode(TokenCounter counter) {
+        int[] tokens = tokenizer.encode(prompt);
+        counter.tokens += tokens.length;
+        return tokens;
+    }
+}
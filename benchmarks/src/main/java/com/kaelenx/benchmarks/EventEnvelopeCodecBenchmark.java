@@ -0,0 +1,67 @@
+package com.kaelenx.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.events.EventTypes;
+import com.kaelenx.common.events.codec.BinaryEventEnvelopeCodec;
+import com.kaelenx.common.events.codec.EventEnvelopeCodec;
+import com.kaelenx.common.events.codec.JacksonPayloadCodec;
+import com.kaelenx.common.events.codec.JsonEventEnvelopeCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Encode/decode throughput of the JSON and binary event envelope codecs.
+ * The encoded size of the sample envelope is printed at setup.
+ */
+@State(Scope.Thread)
+public class EventEnvelopeCodecBenchmark {
+    
+    @Param({"JSON", "BINARY"})
+    public String codec;
+    
+    private EventEnvelopeCodec<Map<String, Object>> envelopeCodec;
+    private EventEnvelope<Map<String, Object>> envelope;
+    private byte[] encoded;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        JavaType payloadType = objectMapper.getTypeFactory()
+                .constructType(new TypeReference<Map<String, Object>>() { });
+        envelopeCodec = "JSON".equals(codec)
+                ? new JsonEventEnvelopeCodec<>(objectMapper, payloadType)
+                : new BinaryEventEnvelopeCodec<>(new JacksonPayloadCodec<>(objectMapper, payloadType));
+        envelope = EventEnvelope.<Map<String, Object>>builder()
+                .eventId("1786543219876543210")
+                .eventType(EventTypes.AI_REQUEST_COMPLETED)
+                .source("ai-orchestrator-service")
+                .timestamp(Instant.now())
+                .version("1.0")
+                .payload(Map.of("conversationId", 1786543219876543211L, "latencyMs", 182, "model", "qwen-turbo"))
+                .metadata(Map.of("userId", "42", "correlationId", "corr-7f3a", "planTier", "FREE"))
+                .build();
+        encoded = envelopeCodec.encode(envelope);
+        System.out.printf("%n%s envelope size: %d bytes%n", codec, encoded.length);
+    }
+    
+    @Benchmark
+    public byte[] encode() {
+        return envelopeCodec.encode(envelope);
+    }
+    
+    @Benchmark
+    public EventEnvelope<Map<String, Object>> decode() {
+        return envelopeCodec.decode(encoded);
+    }
+}
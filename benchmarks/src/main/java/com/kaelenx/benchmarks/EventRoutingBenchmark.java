@@ -0,0 +1,59 @@
+package com.kaelenx.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.events.EventTypes;
+import com.kaelenx.common.events.codec.BinaryEventEnvelopeCodec;
+import com.kaelenx.common.events.codec.JacksonPayloadCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Routing a binary envelope on its event type, with the payload decoded
+ * eagerly versus left encoded by {@link BinaryEventEnvelopeCodec#decodeLazy}.
+ */
+@State(Scope.Thread)
+public class EventRoutingBenchmark {
+    
+    private BinaryEventEnvelopeCodec<Map<String, Object>> codec;
+    private ByteBuffer encoded;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        JavaType payloadType = objectMapper.getTypeFactory()
+                .constructType(new TypeReference<Map<String, Object>>() { });
+        codec = new BinaryEventEnvelopeCodec<>(new JacksonPayloadCodec<>(objectMapper, payloadType));
+        EventEnvelope<Map<String, Object>> envelope = EventEnvelope.<Map<String, Object>>builder()
+                .eventId("1786543219876543210")
+                .eventType(EventTypes.MESSAGE_SENT)
+                .source("conversation-service")
+                .timestamp(Instant.now())
+                .version("1.0")
+                .payload(Map.of("conversationId", 1786543219876543211L, "role", "USER",
+                        "text", "How do I ask for directions to the train station?"))
+                .metadata(Map.of("userId", "42", "correlationId", "corr-7f3a"))
+                .build();
+        encoded = ByteBuffer.wrap(codec.encode(envelope));
+    }
+    
+    @Benchmark
+    public boolean routeEager() {
+        return EventTypes.MESSAGE_SENT.equals(codec.decode(encoded).getEventType());
+    }
+    
+    @Benchmark
+    public boolean routeLazy() {
+        return EventTypes.MESSAGE_SENT.equals(codec.decodeLazy(encoded).getEventType());
+    }
+}
@@ -0,0 +1,72 @@
+package com.kaelenx.benchmarks;
+
+import com.kaelenx.common.id.AbstractSnowflakeIdGenerator;
+import com.kaelenx.common.id.BufferedSnowflakeIdGenerator;
+import com.kaelenx.common.id.LockFreeSnowflakeIdGenerator;
+import com.kaelenx.common.id.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ID generation throughput and latency under contention.
+ * 
+ * All benchmark threads share one generator, the same way request threads
+ * share the generator bean in the services. {@link BenchmarkRunner} runs this
+ * class at every configured thread count.
+ */
+@State(Scope.Benchmark)
+public class SnowflakeIdContentionBenchmark {
+    
+    /**
+     * Two milliseconds worth of sequence space, so every burst exhausts the sequence at least once.
+     */
+    static final int BURST = 8192;
+    
+    @Param({"SYNCHRONIZED", "LOCK_FREE", "BUFFERED"})
+    public String generator;
+    
+    private AbstractSnowflakeIdGenerator idGenerator;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        idGenerator = switch (generator) {
+            case "SYNCHRONIZED" -> new SnowflakeIdGenerator(1);
+            case "LOCK_FREE" -> new LockFreeSnowflakeIdGenerator(1);
+            case "BUFFERED" -> new BufferedSnowflakeIdGenerator(new LockFreeSnowflakeIdGenerator(1), 8192);
+            default -> throw new IllegalArgumentException("Unknown generator: " + generator);
+        };
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (idGenerator instanceof BufferedSnowflakeIdGenerator buffered) {
+            buffered.close();
+        }
+    }
+    
+    @Benchmark
+    public long nextId() {
+        return idGenerator.nextId();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void sequenceExhaustionBurst(Blackhole blackhole) {
+        for (int i = 0; i < BURST; i++) {
+            blackhole.consume(idGenerator.nextId());
+        }
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public long[] bulkReservation() {
+        return idGenerator.nextIds(BURST);
+    }
+}
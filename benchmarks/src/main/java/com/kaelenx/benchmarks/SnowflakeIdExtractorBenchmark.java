@@ -0,0 +1,45 @@
+package com.kaelenx.benchmarks;
+
+import com.kaelenx.common.id.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of the static Snowflake ID extractor methods.
+ */
+@State(Scope.Thread)
+public class SnowflakeIdExtractorBenchmark {
+    
+    private static final int ID_COUNT = 1024;
+    
+    private long[] ids;
+    private int index;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        ids = new SnowflakeIdGenerator(42).nextIds(ID_COUNT);
+    }
+    
+    private long next() {
+        index = (index + 1) & (ID_COUNT - 1);
+        return ids[index];
+    }
+    
+    @Benchmark
+    public long extractTimestamp() {
+        return SnowflakeIdGenerator.extractTimestamp(next());
+    }
+    
+    @Benchmark
+    public long extractWorkerId() {
+        return SnowflakeIdGenerator.extractWorkerId(next());
+    }
+    
+    @Benchmark
+    public long extractSequence() {
+        return SnowflakeIdGenerator.extractSequence(next());
+    }
+}
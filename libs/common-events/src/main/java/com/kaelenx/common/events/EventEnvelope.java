@@ -1,10 +1,13 @@
 package com.kaelenx.common.events;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.Instant;
 import java.util.Map;
@@ -12,6 +15,11 @@ import java.util.Map;
 /**
  * Generic event envelope for message queue integration.
  * This structure provides a consistent format for all events in the system.
+ * 
+ * Producers that fill pre-allocated event bus slots can set the event ID and
+ * timestamp as numbers ({@link #setNumericEventId}, {@link #setTimestampMillis})
+ * without allocating; {@link #getEventId()} and {@link #getTimestamp()}
+ * render them when read.
  */
 @Data
 @Builder
@@ -55,6 +63,56 @@ public class EventEnvelope<T> {
      */
     private Map<String, String> metadata;
     
+    /**
+     * Event ID as a number, or 0 if {@link #eventId} holds it
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private long numericEventId;
+    
+    /**
+     * Timestamp in epoch milliseconds, or 0 if {@link #timestamp} holds it
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private long timestampMillis;
+    
+    public String getEventId() {
+        return eventId == null && numericEventId != 0 ? String.valueOf(numericEventId) : eventId;
+    }
+    
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+        this.numericEventId = 0;
+    }
+    
+    /**
+     * Sets the event ID as a number, replacing any string event ID
+     */
+    public void setNumericEventId(long numericEventId) {
+        this.numericEventId = numericEventId;
+        this.eventId = null;
+    }
+    
+    public Instant getTimestamp() {
+        return timestamp == null && timestampMillis != 0 ? Instant.ofEpochMilli(timestampMillis) : timestamp;
+    }
+    
+    public void setTimestamp(Instant timestamp) {
+        this.timestamp = timestamp;
+        this.timestampMillis = 0;
+    }
+    
+    /**
+     * Sets the timestamp in epoch milliseconds, replacing any {@link Instant} timestamp
+     */
+    public void setTimestampMillis(long timestampMillis) {
+        this.timestampMillis = timestampMillis;
+        this.timestamp = null;
+    }
+    
     /**
      * Creates an event envelope with the given payload and type.
      */
@@ -1,5 +1,8 @@
 package com.kaelenx.common.events;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Constants for event types used across the system.
  * These will be used when integrating with message queues in the future.
@@ -18,9 +21,54 @@ public final class EventTypes {
     // Message events
     public static final String MESSAGE_SENT = "message.sent";
     public static final String MESSAGE_RECEIVED = "message.received";
+    public static final String MESSAGE_FAILED = "message.failed";
     
     // AI orchestrator events
     public static final String AI_REQUEST_INITIATED = "ai.request.initiated";
     public static final String AI_REQUEST_COMPLETED = "ai.request.completed";
     public static final String AI_REQUEST_FAILED = "ai.request.failed";
+    
+    // Compact integer codes used by the binary envelope format.
+    // Codes are part of the wire format: append new types, never reorder or reuse.
+    private static final String[] TYPES_BY_CODE = {
+        null,
+        CONVERSATION_CREATED,
+        CONVERSATION_UPDATED,
+        CONVERSATION_DELETED,
+        MESSAGE_SENT,
+        MESSAGE_RECEIVED,
+        AI_REQUEST_INITIATED,
+        AI_REQUEST_COMPLETED,
+        AI_REQUEST_FAILED,
+        MESSAGE_FAILED
+    };
+    
+    private static final Map<String, Integer> CODES_BY_TYPE = new HashMap<>();
+    
+    static {
+        for (int code = 1; code < TYPES_BY_CODE.length; code++) {
+            CODES_BY_TYPE.put(TYPES_BY_CODE[code], code);
+        }
+    }
+    
+    /**
+     * Returns the compact code for a known event type.
+     * 
+     * @param eventType Event type string
+     * @return Code greater than 0, or 0 if the type is not a known constant
+     */
+    public static int codeOf(String eventType) {
+        Integer code = CODES_BY_TYPE.get(eventType);
+        return code != null ? code : 0;
+    }
+    
+    /**
+     * Returns the event type for a compact code.
+     * 
+     * @param code Code returned by {@link #codeOf(String)}
+     * @return Event type string, or null if the code is unknown
+     */
+    public static String typeOf(int code) {
+        return code > 0 && code < TYPES_BY_CODE.length ? TYPES_BY_CODE[code] : null;
+    }
 }
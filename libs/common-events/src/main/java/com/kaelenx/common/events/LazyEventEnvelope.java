@@ -0,0 +1,141 @@
+package com.kaelenx.common.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kaelenx.common.events.codec.PayloadCodec;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Event envelope whose payload stays in its encoded form until it is read.
+ * 
+ * Routing and filtering consumers can inspect {@code eventType}, {@code source}
+ * and {@code metadata} without paying for payload deserialization. The payload
+ * is decoded on the first call to {@link #getPayload()} and cached afterwards.
+ * 
+ * The raw payload is a view of the buffer the envelope was decoded from, so
+ * that buffer must not be modified while the envelope is in use.
+ * 
+ * {@link #equals}, {@link #hashCode} and {@link #toString} never decode the
+ * payload: they compare the header fields and the encoded payload bytes, and
+ * fall back to the payload itself only once it has been replaced. A lazy
+ * envelope is therefore never equal to an eagerly decoded one.
+ */
+public class LazyEventEnvelope<T> extends EventEnvelope<T> {
+    
+    private final PayloadCodec<T> payloadCodec;
+    private volatile ByteBuffer rawPayload;
+    private volatile boolean payloadDecoded;
+    
+    /**
+     * Creates an envelope with an encoded payload.
+     * 
+     * @param rawPayload Encoded payload bytes, or null if the envelope has no payload
+     * @param payloadCodec Codec used to materialize the payload
+     */
+    public LazyEventEnvelope(ByteBuffer rawPayload, PayloadCodec<T> payloadCodec) {
+        this.rawPayload = rawPayload;
+        this.payloadCodec = payloadCodec;
+        this.payloadDecoded = rawPayload == null;
+    }
+    
+    /**
+     * Returns the payload, decoding it on first access.
+     */
+    @Override
+    public T getPayload() {
+        if (!payloadDecoded) {
+            synchronized (this) {
+                if (!payloadDecoded) {
+                    super.setPayload(payloadCodec.decode(rawPayload.duplicate()));
+                    payloadDecoded = true;
+                }
+            }
+        }
+        return super.getPayload();
+    }
+    
+    /**
+     * Replaces the payload and discards the encoded form.
+     */
+    @Override
+    public synchronized void setPayload(T payload) {
+        super.setPayload(payload);
+        rawPayload = null;
+        payloadDecoded = true;
+    }
+    
+    /**
+     * Returns a read-only view of the encoded payload, or null if there is none
+     * or the payload has been replaced.
+     */
+    @JsonIgnore
+    public ByteBuffer getRawPayload() {
+        ByteBuffer raw = rawPayload;
+        return raw != null ? raw.asReadOnlyBuffer() : null;
+    }
+    
+    /**
+     * Whether the payload has been materialized.
+     */
+    @JsonIgnore
+    public boolean isPayloadDecoded() {
+        return payloadDecoded;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof LazyEventEnvelope<?> other) || !other.canEqual(this)) {
+            return false;
+        }
+        ByteBuffer raw = rawPayload;
+        ByteBuffer otherRaw = other.rawPayload;
+        if (raw != null || otherRaw != null) {
+            if (!Objects.equals(raw, otherRaw)) {
+                return false;
+            }
+        } else if (!Objects.equals(super.getPayload(), other.decodedPayload())) {
+            return false;
+        }
+        return Objects.equals(getEventId(), other.getEventId())
+                && Objects.equals(getEventType(), other.getEventType())
+                && Objects.equals(getSource(), other.getSource())
+                && Objects.equals(getTimestamp(), other.getTimestamp())
+                && Objects.equals(getVersion(), other.getVersion())
+                && Objects.equals(getMetadata(), other.getMetadata());
+    }
+    
+    @Override
+    protected boolean canEqual(Object other) {
+        return other instanceof LazyEventEnvelope;
+    }
+    
+    @Override
+    public int hashCode() {
+        ByteBuffer raw = rawPayload;
+        return Objects.hash(getEventId(), getEventType(), getSource(), getTimestamp(), getVersion(), getMetadata(),
+                raw != null ? raw : super.getPayload());
+    }
+    
+    @Override
+    public String toString() {
+        ByteBuffer raw = rawPayload;
+        return "LazyEventEnvelope(eventId=" + getEventId()
+                + ", eventType=" + getEventType()
+                + ", source=" + getSource()
+                + ", timestamp=" + getTimestamp()
+                + ", version=" + getVersion()
+                + ", metadata=" + getMetadata()
+                + ", payload=" + (raw != null ? "<" + raw.remaining() + " encoded bytes>" : super.getPayload()) + ")";
+    }
+    
+    /**
+     * Payload as currently held, without decoding it
+     */
+    private Object decodedPayload() {
+        return super.getPayload();
+    }
+}
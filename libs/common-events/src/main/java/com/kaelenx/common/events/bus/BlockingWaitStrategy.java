@@ -0,0 +1,53 @@
+package com.kaelenx.common.events.bus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Parks idle subscribers on a condition. Uses no CPU while idle.
+ * 
+ * Producers only take the lock when a subscriber is actually parked, so
+ * publishing to a busy bus costs a single volatile read.
+ */
+public class BlockingWaitStrategy implements WaitStrategy {
+    
+    private static final long MAX_PARK_MS = 10;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition eventsAvailable = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+    
+    @Override
+    public void waitFor(BooleanSupplier ready) {
+        lock.lock();
+        try {
+            waiters.incrementAndGet();
+            try {
+                if (!ready.getAsBoolean()) {
+                    eventsAvailable.await(MAX_PARK_MS, TimeUnit.MILLISECONDS);
+                }
+            } finally {
+                waiters.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public void signalAll() {
+        if (waiters.get() > 0) {
+            lock.lock();
+            try {
+                eventsAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.kaelenx.common.events.bus;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Spins on the CPU. Lowest latency, but each subscriber occupies a core.
+ */
+public class BusySpinWaitStrategy implements WaitStrategy {
+    
+    private static final int SPIN_TRIES = 1000;
+    
+    @Override
+    public void waitFor(BooleanSupplier ready) {
+        for (int i = 0; i < SPIN_TRIES && !ready.getAsBoolean(); i++) {
+            Thread.onSpinWait();
+        }
+    }
+}
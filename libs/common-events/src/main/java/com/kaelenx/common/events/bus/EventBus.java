@@ -0,0 +1,374 @@
+package com.kaelenx.common.events.bus;
+
+import com.kaelenx.common.events.EventEnvelope;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * In-process event bus backed by a pre-allocated ring buffer of
+ * {@link EventEnvelope} slots.
+ * 
+ * Producers claim a sequence with a CAS on the cursor, fill the slot through
+ * an {@link EventTranslator} and mark it available. Publishing never
+ * allocates. When the slowest subscriber is a full ring behind,
+ * {@link #tryPublish} drops the event and returns false, while
+ * {@link #publish} applies backpressure: it waits for a free slot for up to
+ * the publish timeout. Use {@link #publish} when a subscriber must see every
+ * event (the durable event log), {@link #tryPublish} where losing events
+ * under overload is acceptable.
+ * 
+ * Each subscription runs on its own thread and tracks its own sequence. It
+ * hands every event published since its last pass to the handler in one
+ * batch, then advances its sequence, which frees the slots for producers.
+ * The last subscription to handle an event clears its slot, so the ring does
+ * not keep payloads alive after they are consumed.
+ * 
+ * @param <T> Payload type
+ */
+@Slf4j
+public class EventBus<T> implements AutoCloseable {
+    
+    private static final AtomicInteger BUS_COUNTER = new AtomicInteger();
+    
+    static final long DEFAULT_PUBLISH_TIMEOUT_MS = 5000L;
+    
+    private static final long PUBLISH_BACKOFF_NANOS = 100_000L;
+    
+    private final EventEnvelope<T>[] entries;
+    private final int mask;
+    private final int indexShift;
+    
+    /**
+     * Round number ({@code sequence >>> indexShift}) of the event last
+     * published into each slot. Lets consumers see exactly which claimed
+     * sequences have been published when several producers race.
+     */
+    private final AtomicIntegerArray availableRounds;
+    
+    /**
+     * Number of subscriptions yet to handle the event in each slot
+     */
+    private final AtomicIntegerArray pendingReads;
+    
+    private final WaitStrategy waitStrategy;
+    private final long publishTimeoutNanos;
+    private final AtomicLong cursor = new AtomicLong(-1);
+    private final AtomicLong gatingSequenceCache = new AtomicLong(-1);
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final int busId = BUS_COUNTER.incrementAndGet();
+    
+    @SuppressWarnings("unchecked")
+    private volatile Subscription[] subscriptions = (Subscription[]) new EventBus.Subscription[0];
+    private volatile boolean running = true;
+    
+    /**
+     * Creates an event bus whose {@link #publish} waits up to
+     * {@value #DEFAULT_PUBLISH_TIMEOUT_MS} ms for a free slot.
+     * 
+     * @param capacity Number of slots, rounded up to a power of two
+     * @param waitStrategy How idle subscribers wait for events
+     */
+    public EventBus(int capacity, WaitStrategy waitStrategy) {
+        this(capacity, waitStrategy, DEFAULT_PUBLISH_TIMEOUT_MS);
+    }
+    
+    /**
+     * Creates an event bus.
+     * 
+     * @param capacity Number of slots, rounded up to a power of two
+     * @param waitStrategy How idle subscribers wait for events
+     * @param publishTimeoutMs How long {@link #publish} waits for a free slot
+     */
+    @SuppressWarnings("unchecked")
+    public EventBus(int capacity, WaitStrategy waitStrategy, long publishTimeoutMs) {
+        if (publishTimeoutMs < 0) {
+            throw new IllegalArgumentException("Publish timeout must not be negative: " + publishTimeoutMs);
+        }
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.entries = new EventEnvelope[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new EventEnvelope<>();
+        }
+        this.mask = size - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(size);
+        this.availableRounds = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            availableRounds.set(i, -1);
+        }
+        this.pendingReads = new AtomicIntegerArray(size);
+        this.waitStrategy = waitStrategy;
+        this.publishTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(publishTimeoutMs);
+    }
+    
+    /**
+     * Publishes an event if there is a free slot.
+     * 
+     * @param translator Fills the claimed slot
+     * @param arg Argument handed to the translator
+     * @return true if the event was published, false if the ring was full
+     */
+    public <A> boolean tryPublish(EventTranslator<T, A> translator, A arg) {
+        if (offer(translator, arg)) {
+            return true;
+        }
+        droppedCount.incrementAndGet();
+        return false;
+    }
+    
+    /**
+     * Publishes an event, waiting while the ring is full until a subscriber
+     * frees a slot.
+     * 
+     * @param translator Fills the claimed slot
+     * @param arg Argument handed to the translator
+     * @return true if the event was published, false if the bus is closed, no
+     *         slot freed up within the publish timeout or the thread was interrupted
+     */
+    public <A> boolean publish(EventTranslator<T, A> translator, A arg) {
+        long deadline = System.nanoTime() + publishTimeoutNanos;
+        while (!offer(translator, arg)) {
+            if (!running || System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+            LockSupport.parkNanos(this, PUBLISH_BACKOFF_NANOS);
+        }
+        return true;
+    }
+    
+    /**
+     * Claims a slot and publishes into it, without waiting or counting drops.
+     */
+    private <A> boolean offer(EventTranslator<T, A> translator, A arg) {
+        if (!running) {
+            return false;
+        }
+        
+        long current;
+        long next;
+        do {
+            current = cursor.get();
+            next = current + 1;
+            long wrapPoint = next - entries.length;
+            if (wrapPoint > gatingSequenceCache.get()) {
+                long gatingSequence = minimumSequence(current);
+                gatingSequenceCache.set(gatingSequence);
+                if (wrapPoint > gatingSequence) {
+                    return false;
+                }
+            }
+        } while (!cursor.compareAndSet(current, next));
+        
+        int index = (int) next & mask;
+        // Read after the claim, so a concurrent subscribe() either counts here or starts after this sequence
+        pendingReads.set(index, subscriptions.length);
+        try {
+            translator.translateTo(entries[index], next, arg);
+        } finally {
+            // Publish even if the translator failed; an unpublished slot would stall every subscriber
+            availableRounds.set(index, (int) (next >>> indexShift));
+            waitStrategy.signalAll();
+        }
+        return true;
+    }
+    
+    /**
+     * Registers a handler and starts delivering events published from now on.
+     * 
+     * @param name Subscription name, used for the consumer thread name
+     * @param handler Event handler
+     * @return Subscription handle exposing its progress
+     */
+    public synchronized Subscription subscribe(String name, EventHandler<T> handler) {
+        if (!running) {
+            throw new IllegalStateException("Event bus is closed");
+        }
+        Subscription subscription = new Subscription(name, handler, cursor.get());
+        gatingSequenceCache.accumulateAndGet(subscription.sequence.get(), Math::min);
+        Subscription[] updated = Arrays.copyOf(subscriptions, subscriptions.length + 1);
+        updated[updated.length - 1] = subscription;
+        subscriptions = updated;
+        // Events claimed before the new array was visible do not count this subscription; skip them
+        subscription.sequence.set(cursor.get());
+        subscription.thread.start();
+        return subscription;
+    }
+    
+    /**
+     * Stops accepting events, lets subscribers drain what was already
+     * published and waits for their threads to finish.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        waitStrategy.signalAll();
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Returns the ring size.
+     */
+    public int getCapacity() {
+        return entries.length;
+    }
+    
+    /**
+     * Returns the highest sequence claimed by a producer, or -1 if none.
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+    
+    /**
+     * Returns the number of events rejected because the ring was full or the
+     * bus was closed.
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    /**
+     * Returns the active subscriptions.
+     */
+    public Subscription[] getSubscriptions() {
+        return subscriptions.clone();
+    }
+    
+    private long minimumSequence(long defaultSequence) {
+        long minimum = defaultSequence;
+        for (Subscription subscription : subscriptions) {
+            minimum = Math.min(minimum, subscription.sequence.get());
+        }
+        return minimum;
+    }
+    
+    private static void clear(EventEnvelope<?> event) {
+        event.setEventId(null);
+        event.setEventType(null);
+        event.setSource(null);
+        event.setTimestamp(null);
+        event.setVersion(null);
+        event.setPayload(null);
+        event.setMetadata(null);
+    }
+    
+    /**
+     * Returns the highest sequence in [lowerBound, upperBound] up to which
+     * every event has been published, or lowerBound - 1 if none has.
+     */
+    private long highestPublished(long lowerBound, long upperBound) {
+        for (long sequence = lowerBound; sequence <= upperBound; sequence++) {
+            if (availableRounds.get((int) sequence & mask) != (int) (sequence >>> indexShift)) {
+                return sequence - 1;
+            }
+        }
+        return upperBound;
+    }
+    
+    /**
+     * A subscriber's position in the ring and the thread that advances it.
+     */
+    public final class Subscription {
+        
+        private final String name;
+        private final EventHandler<T> handler;
+        private final AtomicLong sequence;
+        private final AtomicLong processedCount = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final BooleanSupplier hasBacklog;
+        private final Thread thread;
+        
+        private Subscription(String name, EventHandler<T> handler, long initialSequence) {
+            this.name = name;
+            this.handler = handler;
+            this.sequence = new AtomicLong(initialSequence);
+            this.hasBacklog = () -> !running || cursor.get() > sequence.get();
+            this.thread = new Thread(this::run, "event-bus-" + busId + "-" + name);
+            this.thread.setDaemon(true);
+        }
+        
+        private void run() {
+            long nextSequence = sequence.get() + 1;
+            while (true) {
+                long available = highestPublished(nextSequence, cursor.get());
+                if (available >= nextSequence) {
+                    for (long s = nextSequence; s <= available; s++) {
+                        int index = (int) s & mask;
+                        try {
+                            handler.onEvent(entries[index], s, s == available);
+                        } catch (Exception e) {
+                            errorCount.incrementAndGet();
+                            log.warn("Event handler {} failed on sequence {}", name, s, e);
+                        }
+                        // Before the sequence advances, so no producer can be refilling the slot
+                        if (pendingReads.decrementAndGet(index) == 0) {
+                            clear(entries[index]);
+                        }
+                    }
+                    processedCount.addAndGet(available - nextSequence + 1);
+                    sequence.set(available);
+                    nextSequence = available + 1;
+                } else if (!running || Thread.currentThread().isInterrupted()) {
+                    return;
+                } else {
+                    waitStrategy.waitFor(hasBacklog);
+                }
+            }
+        }
+        
+        /**
+         * Returns the subscription name.
+         */
+        public String getName() {
+            return name;
+        }
+        
+        /**
+         * Returns the sequence of the last event handled.
+         */
+        public long getSequence() {
+            return sequence.get();
+        }
+        
+        /**
+         * Returns the number of published events not yet handled.
+         */
+        public long getLag() {
+            return Math.max(0, cursor.get() - sequence.get());
+        }
+        
+        /**
+         * Returns the number of events handled.
+         */
+        public long getProcessedCount() {
+            return processedCount.get();
+        }
+        
+        /**
+         * Returns the number of events whose handler threw.
+         */
+        public long getErrorCount() {
+            return errorCount.get();
+        }
+    }
+}
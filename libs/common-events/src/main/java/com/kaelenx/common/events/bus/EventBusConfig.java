@@ -0,0 +1,35 @@
+package com.kaelenx.common.events.bus;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the in-process event bus.
+ * 
+ * Properties:
+ * - events.bus.capacity: Ring buffer slots, rounded up to a power of two, default 4096
+ * - events.bus.wait-strategy: BLOCKING, YIELDING or BUSY_SPIN, default BLOCKING
+ * - events.bus.log-events: Subscribe a DEBUG logger to every event, default false
+ * - events.bus.publish-timeout-ms: How long {@link EventBus#publish} waits for ring space, default 5000
+ */
+@Slf4j
+@Configuration
+public class EventBusConfig {
+    
+    @Bean(destroyMethod = "close")
+    public EventBus<Object> eventBus(
+            @Value("${events.bus.capacity:4096}") int capacity,
+            @Value("${events.bus.wait-strategy:BLOCKING}") WaitStrategyType waitStrategy,
+            @Value("${events.bus.log-events:false}") boolean logEvents,
+            @Value("${events.bus.publish-timeout-ms:5000}") long publishTimeoutMs) {
+        EventBus<Object> eventBus = new EventBus<>(capacity, waitStrategy.create(), publishTimeoutMs);
+        if (logEvents) {
+            eventBus.subscribe("debug-logger", (event, sequence, endOfBatch) ->
+                    log.debug("Event published: sequence={}, type={}, eventId={}, source={}",
+                            sequence, event.getEventType(), event.getEventId(), event.getSource()));
+        }
+        return eventBus;
+    }
+}
@@ -0,0 +1,25 @@
+package com.kaelenx.common.events.bus;
+
+import com.kaelenx.common.events.EventEnvelope;
+
+/**
+ * Callback for events delivered by an {@link EventBus} subscription.
+ * 
+ * The envelope is a ring buffer slot that will be overwritten once every
+ * subscriber has moved past it, so handlers must copy anything they keep.
+ * 
+ * @param <T> Payload type
+ */
+@FunctionalInterface
+public interface EventHandler<T> {
+    
+    /**
+     * Handles one event.
+     * 
+     * @param event Event envelope (valid only for the duration of the call)
+     * @param sequence Sequence number of the event
+     * @param endOfBatch Whether this is the last event currently available,
+     *                   which is a good point to flush batched work
+     */
+    void onEvent(EventEnvelope<T> event, long sequence, boolean endOfBatch) throws Exception;
+}
@@ -0,0 +1,26 @@
+package com.kaelenx.common.events.bus;
+
+import com.kaelenx.common.events.EventEnvelope;
+
+/**
+ * Copies an event into a pre-allocated ring buffer slot.
+ * 
+ * Slots are reused, so implementations should set every envelope field they
+ * care about rather than relying on previous values. Translators are
+ * typically stateless constants, which keeps publishing allocation-free.
+ * 
+ * @param <T> Payload type
+ * @param <A> Argument type passed to {@link EventBus#tryPublish}
+ */
+@FunctionalInterface
+public interface EventTranslator<T, A> {
+    
+    /**
+     * Fills {@code event} from {@code arg}.
+     * 
+     * @param event Slot to fill
+     * @param sequence Sequence number assigned to the event
+     * @param arg Argument passed to {@link EventBus#tryPublish}
+     */
+    void translateTo(EventEnvelope<T> event, long sequence, A arg);
+}
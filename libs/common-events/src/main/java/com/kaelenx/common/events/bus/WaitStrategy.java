@@ -0,0 +1,25 @@
+package com.kaelenx.common.events.bus;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * How an idle subscriber waits for new events.
+ * 
+ * Implementations trade CPU usage for wake-up latency. {@link #waitFor} may
+ * return early; the subscriber re-checks for events and calls it again.
+ */
+public interface WaitStrategy {
+    
+    /**
+     * Waits until {@code ready} may have become true.
+     * 
+     * @param ready Reports whether events may be available
+     */
+    void waitFor(BooleanSupplier ready);
+    
+    /**
+     * Called by producers after publishing an event.
+     */
+    default void signalAll() {
+    }
+}
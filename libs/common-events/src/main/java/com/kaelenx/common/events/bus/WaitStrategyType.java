@@ -0,0 +1,36 @@
+package com.kaelenx.common.events.bus;
+
+/**
+ * Wait strategies selectable through configuration.
+ */
+public enum WaitStrategyType {
+    
+    /**
+     * {@link BlockingWaitStrategy}
+     */
+    BLOCKING,
+    
+    /**
+     * {@link YieldingWaitStrategy}
+     */
+    YIELDING,
+    
+    /**
+     * {@link BusySpinWaitStrategy}
+     */
+    BUSY_SPIN;
+    
+    /**
+     * Creates a new strategy instance of this type.
+     */
+    public WaitStrategy create() {
+        switch (this) {
+            case YIELDING:
+                return new YieldingWaitStrategy();
+            case BUSY_SPIN:
+                return new BusySpinWaitStrategy();
+            default:
+                return new BlockingWaitStrategy();
+        }
+    }
+}
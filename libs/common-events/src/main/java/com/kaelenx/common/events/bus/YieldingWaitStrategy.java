@@ -0,0 +1,22 @@
+package com.kaelenx.common.events.bus;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Spins briefly, then yields the CPU to other threads between checks.
+ */
+public class YieldingWaitStrategy implements WaitStrategy {
+    
+    private static final int SPIN_TRIES = 100;
+    
+    @Override
+    public void waitFor(BooleanSupplier ready) {
+        for (int i = 0; i < SPIN_TRIES; i++) {
+            if (ready.getAsBoolean()) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        Thread.yield();
+    }
+}
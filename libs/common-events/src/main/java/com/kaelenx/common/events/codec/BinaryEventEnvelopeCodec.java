@@ -0,0 +1,240 @@
+package com.kaelenx.common.events.codec;
+
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.events.EventTypes;
+import com.kaelenx.common.events.LazyEventEnvelope;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compact binary codec for {@link EventEnvelope}.
+ * 
+ * Layout (format version 1, big-endian):
+ * - 2 bytes: magic 0x4B45 ("KE")
+ * - 1 byte: format version
+ * - 1 byte: presence flags for the optional fields below
+ * - varint: event type code from {@link EventTypes#codeOf(String)}; 0 is followed by the type string
+ * - string: event ID (if present)
+ * - string: source (if present)
+ * - 8 bytes + varint: timestamp as epoch seconds and nano adjustment (if present)
+ * - string: schema version (if present)
+ * - varint count, then key/value strings: metadata (if present)
+ * - varint length, then bytes: payload encoded by the {@link PayloadCodec} (if present)
+ * 
+ * Strings are varint length-prefixed UTF-8. The payload is always the last
+ * field so readers can stop before it; see {@link #decodeLazy(ByteBuffer)}.
+ * Metadata keys and values must not be null. Malformed or truncated input,
+ * including an unknown event type code, is rejected with
+ * {@link IllegalArgumentException}.
+ * 
+ * @param <T> Payload type
+ */
+public class BinaryEventEnvelopeCodec<T> implements EventEnvelopeCodec<T> {
+    
+    public static final int MAGIC = 0x4B45;
+    public static final int FORMAT_VERSION = 1;
+    
+    static final int FLAG_EVENT_ID = 1;
+    static final int FLAG_SOURCE = 1 << 1;
+    static final int FLAG_TIMESTAMP = 1 << 2;
+    static final int FLAG_VERSION = 1 << 3;
+    static final int FLAG_METADATA = 1 << 4;
+    static final int FLAG_PAYLOAD = 1 << 5;
+    static final int FLAG_EVENT_TYPE = 1 << 6;
+    
+    private final PayloadCodec<T> payloadCodec;
+    
+    public BinaryEventEnvelopeCodec(PayloadCodec<T> payloadCodec) {
+        this.payloadCodec = payloadCodec;
+    }
+    
+    @Override
+    public byte[] encode(EventEnvelope<T> envelope) {
+        BinaryWriter out = new BinaryWriter(128);
+        int flags = (envelope.getEventId() != null ? FLAG_EVENT_ID : 0)
+                | (envelope.getSource() != null ? FLAG_SOURCE : 0)
+                | (envelope.getTimestamp() != null ? FLAG_TIMESTAMP : 0)
+                | (envelope.getVersion() != null ? FLAG_VERSION : 0)
+                | (envelope.getMetadata() != null ? FLAG_METADATA : 0)
+                | (envelope.getPayload() != null ? FLAG_PAYLOAD : 0)
+                | (envelope.getEventType() != null ? FLAG_EVENT_TYPE : 0);
+        
+        out.writeShort(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(flags);
+        
+        if (envelope.getEventType() != null) {
+            int code = EventTypes.codeOf(envelope.getEventType());
+            out.writeVarInt(code);
+            if (code == 0) {
+                out.writeString(envelope.getEventType());
+            }
+        }
+        if (envelope.getEventId() != null) {
+            out.writeString(envelope.getEventId());
+        }
+        if (envelope.getSource() != null) {
+            out.writeString(envelope.getSource());
+        }
+        if (envelope.getTimestamp() != null) {
+            out.writeLong(envelope.getTimestamp().getEpochSecond());
+            out.writeVarInt(envelope.getTimestamp().getNano());
+        }
+        if (envelope.getVersion() != null) {
+            out.writeString(envelope.getVersion());
+        }
+        if (envelope.getMetadata() != null) {
+            out.writeVarInt(envelope.getMetadata().size());
+            for (Map.Entry<String, String> entry : envelope.getMetadata().entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    throw new IllegalArgumentException("Event envelope metadata must not contain null keys or values: "
+                            + entry.getKey() + "=" + entry.getValue());
+                }
+                out.writeString(entry.getKey());
+                out.writeString(entry.getValue());
+            }
+        }
+        if (envelope.getPayload() != null) {
+            out.writeBytes(payloadCodec.encode(envelope.getPayload()));
+        }
+        return out.toByteArray();
+    }
+    
+    @Override
+    public EventEnvelope<T> decode(ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate();
+        EventEnvelope<T> envelope = new EventEnvelope<>();
+        int flags = readHeader(in, envelope);
+        if ((flags & FLAG_PAYLOAD) != 0) {
+            envelope.setPayload(payloadCodec.decode(readSlice(in)));
+        }
+        return envelope;
+    }
+    
+    /**
+     * Decodes the envelope fields but leaves the payload encoded until it is
+     * first accessed. The returned envelope holds a view of {@code buffer}
+     * rather than a copy.
+     * 
+     * @param buffer Buffer positioned at the start of an encoded envelope
+     * @return Envelope with a lazily decoded payload
+     */
+    public LazyEventEnvelope<T> decodeLazy(ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate();
+        EventEnvelope<T> header = new EventEnvelope<>();
+        int flags = readHeader(in, header);
+        
+        LazyEventEnvelope<T> envelope = new LazyEventEnvelope<>(
+                (flags & FLAG_PAYLOAD) != 0 ? readSlice(in) : null, payloadCodec);
+        envelope.setEventId(header.getEventId());
+        envelope.setEventType(header.getEventType());
+        envelope.setSource(header.getSource());
+        envelope.setTimestamp(header.getTimestamp());
+        envelope.setVersion(header.getVersion());
+        envelope.setMetadata(header.getMetadata());
+        return envelope;
+    }
+    
+    /**
+     * Reads every field except the payload into {@code envelope}.
+     * 
+     * @return Presence flags; if {@link #FLAG_PAYLOAD} is set, {@code in} is
+     *         positioned at the payload length prefix
+     * @throws IllegalArgumentException if the bytes are not a supported envelope
+     */
+    static int readHeader(ByteBuffer in, EventEnvelope<?> envelope) {
+        if (in.remaining() < 4 || (in.getShort() & 0xFFFF) != MAGIC) {
+            throw new IllegalArgumentException("Not a binary event envelope");
+        }
+        int formatVersion = in.get() & 0xFF;
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported envelope format version: " + formatVersion);
+        }
+        int flags = in.get() & 0xFF;
+        
+        if ((flags & FLAG_EVENT_TYPE) != 0) {
+            int code = readVarInt(in);
+            String eventType = code == 0 ? readString(in) : EventTypes.typeOf(code);
+            if (eventType == null) {
+                throw new IllegalArgumentException("Unknown event type code: " + code);
+            }
+            envelope.setEventType(eventType);
+        }
+        if ((flags & FLAG_EVENT_ID) != 0) {
+            envelope.setEventId(readString(in));
+        }
+        if ((flags & FLAG_SOURCE) != 0) {
+            envelope.setSource(readString(in));
+        }
+        if ((flags & FLAG_TIMESTAMP) != 0) {
+            require(in, Long.BYTES);
+            long seconds = in.getLong();
+            envelope.setTimestamp(Instant.ofEpochSecond(seconds, readVarInt(in)));
+        }
+        if ((flags & FLAG_VERSION) != 0) {
+            envelope.setVersion(readString(in));
+        }
+        if ((flags & FLAG_METADATA) != 0) {
+            int count = readVarInt(in);
+            // Each entry takes at least two length bytes
+            if (count < 0 || count > in.remaining() / 2) {
+                throw new IllegalArgumentException("Truncated event envelope");
+            }
+            Map<String, String> metadata = new HashMap<>(Math.max(4, count * 2));
+            for (int i = 0; i < count; i++) {
+                metadata.put(readString(in), readString(in));
+            }
+            envelope.setMetadata(metadata);
+        }
+        return flags;
+    }
+    
+    /**
+     * Reads a varint length prefix and returns a view of that many bytes,
+     * advancing {@code in} past them.
+     */
+    static ByteBuffer readSlice(ByteBuffer in) {
+        int length = readVarInt(in);
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Truncated event envelope");
+        }
+        ByteBuffer slice = in.slice();
+        slice.limit(length);
+        in.position(in.position() + length);
+        return slice;
+    }
+    
+    static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            require(in, 1);
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in event envelope");
+    }
+    
+    private static void require(ByteBuffer in, int bytes) {
+        if (in.remaining() < bytes) {
+            throw new IllegalArgumentException("Truncated event envelope");
+        }
+    }
+    
+    static String readString(ByteBuffer in) {
+        ByteBuffer slice = readSlice(in);
+        if (slice.hasArray()) {
+            return new String(slice.array(), slice.arrayOffset() + slice.position(),
+                    slice.remaining(), StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[slice.remaining()];
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
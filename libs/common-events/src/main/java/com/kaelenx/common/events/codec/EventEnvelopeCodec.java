@@ -0,0 +1,30 @@
+package com.kaelenx.common.events.codec;
+
+import com.kaelenx.common.events.EventEnvelope;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializes event envelopes to and from bytes for transport or storage.
+ * 
+ * @param <T> Payload type
+ */
+public interface EventEnvelopeCodec<T> {
+    
+    /**
+     * Encode an envelope
+     */
+    byte[] encode(EventEnvelope<T> envelope);
+    
+    /**
+     * Decode an envelope from the remaining bytes of the buffer
+     */
+    EventEnvelope<T> decode(ByteBuffer buffer);
+    
+    /**
+     * Decode an envelope from a byte array
+     */
+    default EventEnvelope<T> decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+}
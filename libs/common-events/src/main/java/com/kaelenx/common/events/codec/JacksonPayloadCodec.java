@@ -0,0 +1,52 @@
+package com.kaelenx.common.events.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Payload codec that stores payloads as JSON bytes.
+ * 
+ * @param <T> Payload type
+ */
+public class JacksonPayloadCodec<T> implements PayloadCodec<T> {
+    
+    private final ObjectMapper objectMapper;
+    private final JavaType payloadType;
+    
+    public JacksonPayloadCodec(ObjectMapper objectMapper, Class<T> payloadType) {
+        this(objectMapper, objectMapper.constructType(payloadType));
+    }
+    
+    public JacksonPayloadCodec(ObjectMapper objectMapper, JavaType payloadType) {
+        this.objectMapper = objectMapper;
+        this.payloadType = payloadType;
+    }
+    
+    @Override
+    public byte[] encode(T payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode event payload", e);
+        }
+    }
+    
+    @Override
+    public T decode(ByteBuffer buffer) {
+        try {
+            if (buffer.hasArray()) {
+                return objectMapper.readValue(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                        buffer.remaining(), payloadType);
+            }
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return objectMapper.readValue(bytes, payloadType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode event payload", e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.kaelenx.common.events.codec;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kaelenx.common.events.EventEnvelope;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Envelope codec for the JSON form of {@link EventEnvelope}.
+ * The ObjectMapper must have the Java time module registered.
+ * 
+ * @param <T> Payload type
+ */
+public class JsonEventEnvelopeCodec<T> implements EventEnvelopeCodec<T> {
+    
+    private final ObjectMapper objectMapper;
+    private final JavaType envelopeType;
+    
+    public JsonEventEnvelopeCodec(ObjectMapper objectMapper, Class<T> payloadType) {
+        this(objectMapper, objectMapper.constructType(payloadType));
+    }
+    
+    public JsonEventEnvelopeCodec(ObjectMapper objectMapper, JavaType payloadType) {
+        this.objectMapper = objectMapper;
+        this.envelopeType = objectMapper.getTypeFactory()
+                .constructParametricType(EventEnvelope.class, payloadType);
+    }
+    
+    @Override
+    public byte[] encode(EventEnvelope<T> envelope) {
+        try {
+            return objectMapper.writeValueAsBytes(envelope);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode event envelope", e);
+        }
+    }
+    
+    @Override
+    public EventEnvelope<T> decode(ByteBuffer buffer) {
+        try {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.duplicate().get(bytes);
+            return objectMapper.readValue(bytes, envelopeType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode event envelope", e);
+        }
+    }
+}
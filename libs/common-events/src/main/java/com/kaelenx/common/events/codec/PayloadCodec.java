@@ -0,0 +1,21 @@
+package com.kaelenx.common.events.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializes event payloads for {@link BinaryEventEnvelopeCodec}.
+ * 
+ * @param <T> Payload type
+ */
+public interface PayloadCodec<T> {
+    
+    /**
+     * Encode a payload
+     */
+    byte[] encode(T payload);
+    
+    /**
+     * Decode a payload from the remaining bytes of the buffer
+     */
+    T decode(ByteBuffer buffer);
+}
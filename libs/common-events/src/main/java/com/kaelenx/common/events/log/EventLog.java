@@ -0,0 +1,270 @@
+package com.kaelenx.common.events.log;
+
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.events.codec.EventEnvelopeCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable append-only event log stored in memory-mapped segment files.
+ * 
+ * An offset is the byte position of a record in the log as a whole. Segment
+ * files are named after the offset of their first record, so any offset maps
+ * to a segment and a position inside it without an index. When a record does
+ * not fit in the active segment, a new segment starts at the current end
+ * offset, and segments beyond {@code maxSegments} or older than
+ * {@code retentionMs} are deleted.
+ * 
+ * Appends are serialized; reads run concurrently and hand out slices of the
+ * mapped segments instead of copies. A segment being read is pinned for the
+ * duration of the call, so retention defers deleting its file until the
+ * reader is done. On open, the last segment is scanned and truncated after
+ * the last record with a valid CRC.
+ * 
+ * Writes land in the OS page cache as soon as {@link #append} returns, so
+ * they survive a process crash. {@link #flush()} forces them to disk; it is
+ * called when a segment is sealed and on {@link #close()}.
+ */
+@Slf4j
+public class EventLog implements AutoCloseable {
+    
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final Pattern CONSUMER_NAME = Pattern.compile("[A-Za-z0-9._-]+");
+    
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final long retentionMs;
+    
+    private final ConcurrentSkipListMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+    private final CRC32 crc = new CRC32();
+    private LogSegment activeSegment;
+    private volatile long endOffset;
+    private volatile boolean closed;
+    
+    /**
+     * Opens or creates a log.
+     * 
+     * @param directory Directory holding the segment files
+     * @param segmentBytes Segment file size; also the maximum record size plus 8 bytes of framing
+     * @param maxSegments Number of segments to keep, or 0 for no limit
+     * @param retentionMs Age after which sealed segments are deleted, or 0 to keep them
+     */
+    public EventLog(Path directory, int segmentBytes, int maxSegments, long retentionMs) throws IOException {
+        if (segmentBytes <= LogSegment.RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.retentionMs = retentionMs;
+        
+        Files.createDirectories(directory);
+        List<Long> baseOffsets = listSegmentBaseOffsets();
+        if (baseOffsets.isEmpty()) {
+            baseOffsets.add(0L);
+        }
+        for (int i = 0; i < baseOffsets.size(); i++) {
+            long baseOffset = baseOffsets.get(i);
+            boolean last = i == baseOffsets.size() - 1;
+            int size = last ? -1 : (int) (baseOffsets.get(i + 1) - baseOffset);
+            segments.put(baseOffset, LogSegment.open(segmentFile(baseOffset), baseOffset, segmentBytes, size));
+        }
+        activeSegment = segments.lastEntry().getValue();
+        endOffset = activeSegment.endOffset();
+        log.info("Event log opened: directory={}, segments={}, startOffset={}, endOffset={}",
+                directory, segments.size(), getStartOffset(), endOffset);
+    }
+    
+    /**
+     * Appends a record.
+     * 
+     * @param record Record bytes (the buffer's remaining bytes; its position is not changed)
+     * @return Offset of the record
+     */
+    public synchronized long append(ByteBuffer record) {
+        if (closed) {
+            throw new IllegalStateException("Event log is closed");
+        }
+        if (record.remaining() == 0 || record.remaining() > segmentBytes - LogSegment.RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("Record size must be between 1 and "
+                    + (segmentBytes - LogSegment.RECORD_HEADER_BYTES) + " bytes: " + record.remaining());
+        }
+        
+        if (!activeSegment.append(record, crc)) {
+            roll();
+            activeSegment.append(record, crc);
+        }
+        long offset = endOffset;
+        endOffset = activeSegment.endOffset();
+        return offset;
+    }
+    
+    /**
+     * Appends a record.
+     */
+    public long append(byte[] record) {
+        return append(ByteBuffer.wrap(record));
+    }
+    
+    /**
+     * Encodes and appends an event.
+     */
+    public <T> long append(EventEnvelope<T> event, EventEnvelopeCodec<T> codec) {
+        return append(codec.encode(event));
+    }
+    
+    /**
+     * Reads records starting at {@code offset}.
+     * 
+     * An offset below {@link #getStartOffset()} (for example one whose
+     * segment was removed by retention) continues from the oldest record.
+     * 
+     * @param offset Offset of the first record to read
+     * @param maxRecords Maximum number of records to hand to the handler
+     * @param handler Record callback
+     * @return Offset after the last record read, to pass to the next call
+     */
+    public long read(long offset, int maxRecords, EventLogRecordHandler handler) {
+        long end = endOffset;
+        long next = Math.max(offset, getStartOffset());
+        int count = 0;
+        while (count < maxRecords && next < end) {
+            Map.Entry<Long, LogSegment> entry = segments.floorEntry(next);
+            if (entry == null) {
+                break;
+            }
+            LogSegment segment = entry.getValue();
+            if (!segment.pin()) {
+                // Removed by retention since the lookup; continue from the oldest retained record
+                next = Math.max(next, getStartOffset());
+                continue;
+            }
+            try {
+                long segmentEnd = Math.min(end, segment.endOffset());
+                while (count < maxRecords && next < segmentEnd) {
+                    ByteBuffer record = segment.read((int) (next - segment.baseOffset()));
+                    int length = record.remaining();
+                    handler.onRecord(next, record);
+                    next += LogSegment.RECORD_HEADER_BYTES + length;
+                    count++;
+                }
+            } finally {
+                segment.unpin();
+            }
+        }
+        return next;
+    }
+    
+    /**
+     * Opens a consumer that resumes from its last committed offset.
+     * 
+     * @param name Consumer name (letters, digits, '.', '_' or '-')
+     */
+    public EventLogConsumer consumer(String name) throws IOException {
+        if (!CONSUMER_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid consumer name: " + name);
+        }
+        Path offsetsDirectory = directory.resolve("consumers");
+        Files.createDirectories(offsetsDirectory);
+        return new EventLogConsumer(this, offsetsDirectory.resolve(name + ".offset"));
+    }
+    
+    /**
+     * Forces written records to disk.
+     */
+    public synchronized void flush() {
+        activeSegment.flush();
+    }
+    
+    /**
+     * Returns the offset of the oldest retained record.
+     */
+    public long getStartOffset() {
+        Map.Entry<Long, LogSegment> first = segments.firstEntry();
+        return first != null ? first.getKey() : endOffset;
+    }
+    
+    /**
+     * Returns the offset the next record will be written at.
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+    
+    /**
+     * Returns the number of segment files.
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (LogSegment segment : segments.values()) {
+            segment.close();
+        }
+    }
+    
+    private void roll() {
+        try {
+            activeSegment.flush();
+            long baseOffset = activeSegment.endOffset();
+            LogSegment segment = LogSegment.open(segmentFile(baseOffset), baseOffset, segmentBytes, 0);
+            segments.put(baseOffset, segment);
+            activeSegment = segment;
+            log.debug("Event log rolled: directory={}, baseOffset={}", directory, baseOffset);
+            enforceRetention();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll event log segment", e);
+        }
+    }
+    
+    private void enforceRetention() throws IOException {
+        long now = System.currentTimeMillis();
+        while (segments.size() > 1) {
+            LogSegment oldest = segments.firstEntry().getValue();
+            boolean overCount = maxSegments > 0 && segments.size() > maxSegments;
+            boolean expired = retentionMs > 0 && now - oldest.lastModifiedMillis() > retentionMs;
+            if (!overCount && !expired) {
+                break;
+            }
+            segments.remove(oldest.baseOffset());
+            oldest.retire();
+            log.debug("Event log segment deleted: directory={}, baseOffset={}, deferredForReaders={}",
+                    directory, oldest.baseOffset(), oldest.isPinned());
+        }
+    }
+    
+    private List<Long> listSegmentBaseOffsets() throws IOException {
+        List<Long> baseOffsets = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .forEach(baseOffsets::add);
+        }
+        return baseOffsets;
+    }
+    
+    private Path segmentFile(long baseOffset) {
+        return directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX));
+    }
+}
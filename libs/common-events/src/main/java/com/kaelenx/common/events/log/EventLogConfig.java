@@ -0,0 +1,53 @@
+package com.kaelenx.common.events.log;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kaelenx.common.events.bus.EventBus;
+import com.kaelenx.common.events.codec.BinaryEventEnvelopeCodec;
+import com.kaelenx.common.events.codec.JacksonPayloadCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Configuration for the local event log.
+ * 
+ * When enabled, every event published to the in-process {@link EventBus} is
+ * appended to the log in the binary envelope format, with the payload as JSON,
+ * by an {@link EventLogWriter}. Producers that can afford to wait for ring
+ * space (background relays) publish with {@link EventBus#publish}
+ * (backpressure); producers on a request thread use
+ * {@link EventBus#tryPublish}, and their events are dropped rather than
+ * recorded while the bus is saturated. The writer closes the bus before the log is
+ * closed, so events still in the ring at shutdown are recorded.
+ * 
+ * Properties:
+ * - events.log.enabled: Record bus events to the log, default false
+ * - events.log.directory: Segment directory, default ./data/event-log/${spring.application.name}
+ * - events.log.segment-bytes: Segment file size, default 67108864 (64 MB)
+ * - events.log.max-segments: Segments to keep (0 = no limit), default 16
+ * - events.log.retention-ms: Delete sealed segments older than this (0 = keep), default 604800000 (7 days)
+ */
+@Configuration
+@ConditionalOnProperty(name = "events.log.enabled", havingValue = "true")
+public class EventLogConfig {
+    
+    @Bean(destroyMethod = "close")
+    public EventLog eventLog(
+            @Value("${events.log.directory:./data/event-log/${spring.application.name:app}}") String directory,
+            @Value("${events.log.segment-bytes:67108864}") int segmentBytes,
+            @Value("${events.log.max-segments:16}") int maxSegments,
+            @Value("${events.log.retention-ms:604800000}") long retentionMs) throws IOException {
+        return new EventLog(Path.of(directory), segmentBytes, maxSegments, retentionMs);
+    }
+    
+    @Bean
+    public EventLogWriter<Object> eventLogWriter(EventBus<Object> eventBus, EventLog eventLog,
+                                                 ObjectMapper objectMapper) {
+        return new EventLogWriter<>(eventBus, eventLog,
+                new BinaryEventEnvelopeCodec<>(new JacksonPayloadCodec<>(objectMapper, Object.class)));
+    }
+}
@@ -0,0 +1,103 @@
+package com.kaelenx.common.events.log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Named reader of an {@link EventLog} with a persisted offset.
+ * 
+ * {@link #poll} advances the in-memory position; {@link #commit()} writes it
+ * to the consumer's offset file. After a restart the consumer resumes from the
+ * last committed offset, so records handled after the last commit are
+ * delivered again. Not thread-safe; use one consumer per thread.
+ */
+public class EventLogConsumer {
+    
+    private final EventLog eventLog;
+    private final Path offsetFile;
+    private long position;
+    private long committedPosition;
+    
+    private EventLogRecordHandler delegate;
+    private int polled;
+    private final EventLogRecordHandler countingHandler = (offset, record) -> {
+        polled++;
+        delegate.onRecord(offset, record);
+    };
+    
+    EventLogConsumer(EventLog eventLog, Path offsetFile) throws IOException {
+        this.eventLog = eventLog;
+        this.offsetFile = offsetFile;
+        this.committedPosition = Files.exists(offsetFile)
+                ? ByteBuffer.wrap(Files.readAllBytes(offsetFile)).getLong()
+                : eventLog.getStartOffset();
+        this.position = committedPosition;
+    }
+    
+    /**
+     * Hands up to {@code maxRecords} records after the current position to
+     * {@code handler}. If the handler throws, the position is left unchanged.
+     * 
+     * @return Number of records handled
+     */
+    public int poll(int maxRecords, EventLogRecordHandler handler) {
+        delegate = handler;
+        polled = 0;
+        try {
+            position = eventLog.read(position, maxRecords, countingHandler);
+            return polled;
+        } finally {
+            delegate = null;
+        }
+    }
+    
+    /**
+     * Persists the current position. The offset file is replaced atomically.
+     */
+    public void commit() {
+        if (position == committedPosition) {
+            return;
+        }
+        try {
+            Path temp = offsetFile.resolveSibling(offsetFile.getFileName() + ".tmp");
+            Files.write(temp, ByteBuffer.allocate(Long.BYTES).putLong(position).array());
+            Files.move(temp, offsetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            committedPosition = position;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to commit event log offset: " + offsetFile, e);
+        }
+    }
+    
+    /**
+     * Moves the position, e.g. to replay from {@link EventLog#getStartOffset()}.
+     * The offset must be a record boundary returned by the log.
+     */
+    public void seek(long offset) {
+        position = offset;
+    }
+    
+    /**
+     * Returns the offset of the next record to read.
+     */
+    public long getPosition() {
+        return position;
+    }
+    
+    /**
+     * Returns the last committed offset.
+     */
+    public long getCommittedPosition() {
+        return committedPosition;
+    }
+    
+    /**
+     * Returns the number of bytes between this consumer and the end of the log.
+     */
+    public long getLag() {
+        return Math.max(0, eventLog.getEndOffset() - Math.max(position, eventLog.getStartOffset()));
+    }
+}
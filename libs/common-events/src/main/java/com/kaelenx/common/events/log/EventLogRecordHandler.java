@@ -0,0 +1,19 @@
+package com.kaelenx.common.events.log;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Callback for records read from an {@link EventLog}.
+ */
+@FunctionalInterface
+public interface EventLogRecordHandler {
+    
+    /**
+     * Handles one record.
+     * 
+     * @param offset Offset of the record in the log
+     * @param record Read-only view of the record bytes in the mapped segment
+     *               (no copy); valid only for the duration of the call
+     */
+    void onRecord(long offset, ByteBuffer record);
+}
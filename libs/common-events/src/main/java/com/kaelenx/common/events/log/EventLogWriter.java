@@ -0,0 +1,60 @@
+package com.kaelenx.common.events.log;
+
+import com.kaelenx.common.events.bus.EventBus;
+import com.kaelenx.common.events.codec.EventEnvelopeCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+/**
+ * Records every event published to an {@link EventBus} in an {@link EventLog}.
+ * 
+ * Subscribes on {@link #start()}. On {@link #stop()} it closes the bus, which
+ * drains the events already published into the log, and then flushes the
+ * log. Lifecycle beans stop before any bean is destroyed, so the log is
+ * still open while the bus drains and the tail is not lost. The phase is
+ * below the web server's, so in-flight requests have finished publishing by
+ * then.
+ * 
+ * @param <T> Payload type
+ */
+@Slf4j
+public class EventLogWriter<T> implements SmartLifecycle {
+    
+    static final int PHASE = 0;
+    
+    private final EventBus<T> eventBus;
+    private final EventLog eventLog;
+    private final EventEnvelopeCodec<T> codec;
+    private volatile boolean running;
+    
+    public EventLogWriter(EventBus<T> eventBus, EventLog eventLog, EventEnvelopeCodec<T> codec) {
+        this.eventBus = eventBus;
+        this.eventLog = eventLog;
+        this.codec = codec;
+    }
+    
+    @Override
+    public void start() {
+        eventBus.subscribe("event-log-writer", (event, sequence, endOfBatch) -> eventLog.append(event, codec));
+        running = true;
+    }
+    
+    @Override
+    public void stop() {
+        eventBus.close();
+        eventLog.flush();
+        running = false;
+        log.info("Event log writer stopped: endOffset={}, droppedEvents={}",
+                eventLog.getEndOffset(), eventBus.getDroppedCount());
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
@@ -0,0 +1,193 @@
+package com.kaelenx.common.events.log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * One memory-mapped segment file of an {@link EventLog}.
+ * 
+ * Records are framed as {@code [int length][int crc32][payload]}. The file is
+ * mapped at its full size up front; a zero length marks the end of the data.
+ * 
+ * Readers {@link #pin()} the segment while they hold slices of it. A segment
+ * removed by retention is {@link #retire() retired}: its file is deleted once
+ * the last reader unpins it.
+ */
+class LogSegment {
+    
+    static final int RECORD_HEADER_BYTES = 8;
+    
+    private final long baseOffset;
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    
+    /**
+     * Bytes of valid records. Written only by the appending thread; readers
+     * stay below {@link EventLog}'s end offset, which is published after it.
+     */
+    private volatile int size;
+    
+    private final AtomicInteger pins = new AtomicInteger();
+    private final AtomicBoolean deleted = new AtomicBoolean();
+    private volatile boolean retired;
+    
+    private LogSegment(long baseOffset, Path file, FileChannel channel, MappedByteBuffer buffer, int size) {
+        this.baseOffset = baseOffset;
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.size = size;
+    }
+    
+    /**
+     * Maps a segment file, creating it if needed.
+     * 
+     * @param size Known size of a sealed segment, or -1 to recover it by
+     *             scanning records and checking their CRCs
+     */
+    static LogSegment open(Path file, long baseOffset, int capacity, int size) throws IOException {
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long mappedBytes = Math.max(capacity, channel.size());
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedBytes);
+        LogSegment segment = new LogSegment(baseOffset, file, channel, buffer, Math.max(size, 0));
+        if (size < 0) {
+            segment.size = segment.recover();
+        }
+        return segment;
+    }
+    
+    /**
+     * Returns the length of the valid prefix: records up to the first zero
+     * length, truncated frame or CRC mismatch.
+     */
+    private int recover() {
+        CRC32 crc = new CRC32();
+        int position = 0;
+        while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(position + RECORD_HEADER_BYTES, length));
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return position;
+    }
+    
+    /**
+     * Appends a record if it fits.
+     * 
+     * @return true if written, false if the segment is full
+     */
+    boolean append(ByteBuffer record, CRC32 crc) {
+        int length = record.remaining();
+        int position = size;
+        if (position + RECORD_HEADER_BYTES + length > buffer.capacity()) {
+            return false;
+        }
+        crc.reset();
+        crc.update(record.duplicate());
+        buffer.put(position + RECORD_HEADER_BYTES, record, record.position(), length);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position, length);
+        size = position + RECORD_HEADER_BYTES + length;
+        return true;
+    }
+    
+    /**
+     * Returns a read-only view of the payload of the record at {@code position}.
+     */
+    ByteBuffer read(int position) {
+        int length = buffer.getInt(position);
+        return buffer.slice(position + RECORD_HEADER_BYTES, length).asReadOnlyBuffer();
+    }
+    
+    /**
+     * Writes dirty pages back to the file.
+     */
+    void flush() {
+        buffer.force();
+    }
+    
+    void close() throws IOException {
+        flush();
+        channel.close();
+    }
+    
+    /**
+     * Keeps the segment's file until {@link #unpin()}.
+     * 
+     * @return false if the segment has been retired; the caller must not read it
+     */
+    boolean pin() {
+        pins.incrementAndGet();
+        if (retired) {
+            unpin();
+            return false;
+        }
+        return true;
+    }
+    
+    void unpin() {
+        if (pins.decrementAndGet() == 0 && retired) {
+            delete();
+        }
+    }
+    
+    /**
+     * Deletes the file now, or once the last reader unpins it.
+     */
+    void retire() {
+        retired = true;
+        if (pins.get() == 0) {
+            delete();
+        }
+    }
+    
+    boolean isPinned() {
+        return pins.get() > 0;
+    }
+    
+    private void delete() {
+        if (!deleted.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete event log segment: " + file, e);
+        }
+    }
+    
+    long lastModifiedMillis() throws IOException {
+        return Files.getLastModifiedTime(file).toMillis();
+    }
+    
+    long baseOffset() {
+        return baseOffset;
+    }
+    
+    long endOffset() {
+        return baseOffset + size;
+    }
+    
+    int size() {
+        return size;
+    }
+}
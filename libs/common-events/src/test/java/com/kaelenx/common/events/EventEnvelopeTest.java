@@ -49,6 +49,30 @@ class EventEnvelopeTest {
         assertEquals(2, envelope.getMetadata().size());
     }
     
+    @Test
+    void testNumericIdAndTimestampAreRenderedOnRead() throws Exception {
+        EventEnvelope<String> envelope = new EventEnvelope<>();
+        envelope.setEventId("stale");
+        envelope.setTimestamp(Instant.EPOCH);
+        
+        envelope.setNumericEventId(123L);
+        envelope.setTimestampMillis(1_704_067_200_000L);
+        
+        assertEquals("123", envelope.getEventId());
+        assertEquals(Instant.parse("2024-01-01T00:00:00Z"), envelope.getTimestamp());
+        assertEquals(EventEnvelope.<String>builder().eventId("123").timestamp(Instant.parse("2024-01-01T00:00:00Z")).build(),
+                envelope);
+        
+        String json = objectMapper.writeValueAsString(envelope);
+        assertTrue(json.contains("\"eventId\":\"123\""), json);
+        assertFalse(json.contains("numericEventId"), json);
+        assertFalse(json.contains("timestampMillis"), json);
+        
+        envelope.setEventId("evt-1");
+        assertEquals("evt-1", envelope.getEventId());
+        assertEquals(0, envelope.getNumericEventId());
+    }
+    
     @Test
     void testJsonSerialization() throws Exception {
         EventEnvelope<Map<String, Object>> envelope = EventEnvelope.<Map<String, Object>>builder()
@@ -0,0 +1,141 @@
+package com.kaelenx.common.events;
+
+import com.kaelenx.common.events.codec.BinaryEventEnvelopeCodec;
+import com.kaelenx.common.events.codec.PayloadCodec;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyEventEnvelopeTest {
+    
+    private final CountingPayloadCodec payloadCodec = new CountingPayloadCodec();
+    
+    private final BinaryEventEnvelopeCodec<String> codec = new BinaryEventEnvelopeCodec<>(payloadCodec);
+    
+    @Test
+    void testRoutingFieldsDoNotDecodePayload() {
+        EventEnvelope<String> envelope = sampleEnvelope();
+        
+        LazyEventEnvelope<String> lazy = codec.decodeLazy(ByteBuffer.wrap(codec.encode(envelope)));
+        
+        assertEquals(EventTypes.MESSAGE_SENT, lazy.getEventType());
+        assertEquals("conversation-service", lazy.getSource());
+        assertEquals("42", lazy.getMetadata().get("userId"));
+        assertEquals(envelope.getTimestamp(), lazy.getTimestamp());
+        assertFalse(lazy.isPayloadDecoded());
+        assertEquals(0, payloadCodec.decodeCount.get());
+    }
+    
+    @Test
+    void testPayloadIsDecodedOnceAndCached() {
+        LazyEventEnvelope<String> lazy = codec.decodeLazy(ByteBuffer.wrap(codec.encode(sampleEnvelope())));
+        
+        assertEquals("Hello", lazy.getPayload());
+        assertEquals("Hello", lazy.getPayload());
+        assertTrue(lazy.isPayloadDecoded());
+        assertEquals(1, payloadCodec.decodeCount.get());
+    }
+    
+    @Test
+    void testEqualsHashCodeAndToStringDoNotDecodePayload() {
+        byte[] bytes = codec.encode(sampleEnvelope());
+        LazyEventEnvelope<String> lazy = codec.decodeLazy(ByteBuffer.wrap(bytes));
+        LazyEventEnvelope<String> same = codec.decodeLazy(ByteBuffer.wrap(bytes.clone()));
+        
+        assertEquals(lazy, same);
+        assertEquals(lazy.hashCode(), same.hashCode());
+        assertTrue(lazy.toString().contains(EventTypes.MESSAGE_SENT), lazy.toString());
+        assertTrue(lazy.toString().contains("<5 encoded bytes>"), lazy.toString());
+        assertFalse(lazy.isPayloadDecoded());
+        assertEquals(0, payloadCodec.decodeCount.get());
+        assertNotEquals(lazy, codec.decode(bytes));
+        
+        // Decoding one side does not change equality
+        lazy.getPayload();
+        assertEquals(lazy, same);
+        assertEquals(lazy.hashCode(), same.hashCode());
+    }
+    
+    @Test
+    void testEqualsComparesEncodedPayload() {
+        EventEnvelope<String> other = sampleEnvelope();
+        other.setPayload("Goodbye");
+        LazyEventEnvelope<String> lazy = codec.decodeLazy(ByteBuffer.wrap(codec.encode(sampleEnvelope())));
+        
+        assertNotEquals(lazy, codec.decodeLazy(ByteBuffer.wrap(codec.encode(other))));
+        
+        LazyEventEnvelope<String> replaced = codec.decodeLazy(ByteBuffer.wrap(codec.encode(other)));
+        replaced.setPayload("Hello");
+        LazyEventEnvelope<String> alsoReplaced = codec.decodeLazy(ByteBuffer.wrap(codec.encode(sampleEnvelope())));
+        alsoReplaced.setPayload("Hello");
+        assertEquals(replaced, alsoReplaced);
+        assertEquals(0, payloadCodec.decodeCount.get());
+    }
+    
+    @Test
+    void testRawPayloadIsReadOnlyView() {
+        LazyEventEnvelope<String> lazy = codec.decodeLazy(ByteBuffer.wrap(codec.encode(sampleEnvelope())));
+        
+        ByteBuffer raw = lazy.getRawPayload();
+        assertTrue(raw.isReadOnly());
+        assertEquals("Hello", StandardCharsets.UTF_8.decode(raw).toString());
+        assertEquals("Hello", StandardCharsets.UTF_8.decode(lazy.getRawPayload()).toString());
+    }
+    
+    @Test
+    void testSetPayloadDiscardsEncodedForm() {
+        LazyEventEnvelope<String> lazy = codec.decodeLazy(ByteBuffer.wrap(codec.encode(sampleEnvelope())));
+        
+        lazy.setPayload("Replaced");
+        
+        assertEquals("Replaced", lazy.getPayload());
+        assertNull(lazy.getRawPayload());
+        assertEquals(0, payloadCodec.decodeCount.get());
+    }
+    
+    @Test
+    void testMissingPayload() {
+        EventEnvelope<String> envelope = sampleEnvelope();
+        envelope.setPayload(null);
+        
+        LazyEventEnvelope<String> lazy = codec.decodeLazy(ByteBuffer.wrap(codec.encode(envelope)));
+        
+        assertTrue(lazy.isPayloadDecoded());
+        assertNull(lazy.getRawPayload());
+        assertNull(lazy.getPayload());
+    }
+    
+    private EventEnvelope<String> sampleEnvelope() {
+        return EventEnvelope.<String>builder()
+                .eventId("1786543219876543210")
+                .eventType(EventTypes.MESSAGE_SENT)
+                .source("conversation-service")
+                .timestamp(Instant.parse("2025-06-01T12:34:56.123Z"))
+                .version("1.0")
+                .payload("Hello")
+                .metadata(Map.of("userId", "42"))
+                .build();
+    }
+    
+    private static class CountingPayloadCodec implements PayloadCodec<String> {
+        
+        private final AtomicInteger decodeCount = new AtomicInteger();
+        
+        @Override
+        public byte[] encode(String payload) {
+            return payload.getBytes(StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public String decode(ByteBuffer buffer) {
+            decodeCount.incrementAndGet();
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.kaelenx.common.events.bus;
+
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.events.EventTypes;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventBusTest {
+    
+    private static final EventTranslator<Long, Long> MESSAGE_SENT = (event, sequence, messageId) -> {
+        event.setEventType(EventTypes.MESSAGE_SENT);
+        event.setPayload(messageId);
+    };
+    
+    @Test
+    void testCapacityRoundsUpToPowerOfTwo() {
+        try (EventBus<Long> bus = new EventBus<>(1000, new BlockingWaitStrategy())) {
+            assertEquals(1024, bus.getCapacity());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new EventBus<Long>(0, new BlockingWaitStrategy()));
+    }
+    
+    @ParameterizedTest
+    @EnumSource(WaitStrategyType.class)
+    void testSubscriberReceivesEventsInOrder(WaitStrategyType waitStrategy) throws InterruptedException {
+        int eventCount = 10_000;
+        List<Long> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(eventCount);
+        
+        try (EventBus<Long> bus = new EventBus<>(256, waitStrategy.create())) {
+            bus.subscribe("collector", (event, sequence, endOfBatch) -> {
+                received.add(event.getPayload());
+                done.countDown();
+            });
+            
+            for (long i = 0; i < eventCount; i++) {
+                while (!bus.tryPublish(MESSAGE_SENT, i)) {
+                    Thread.onSpinWait();
+                }
+            }
+            
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+        
+        for (int i = 0; i < eventCount; i++) {
+            assertEquals(i, received.get(i));
+        }
+    }
+    
+    @Test
+    void testEachSubscriberSeesEveryEvent() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(200);
+        
+        try (EventBus<Long> bus = new EventBus<>(128, new BlockingWaitStrategy())) {
+            EventBus<Long>.Subscription first = bus.subscribe("first", (event, sequence, endOfBatch) -> done.countDown());
+            EventBus<Long>.Subscription second = bus.subscribe("second", (event, sequence, endOfBatch) -> done.countDown());
+            
+            for (long i = 0; i < 100; i++) {
+                assertTrue(bus.tryPublish(MESSAGE_SENT, i));
+            }
+            
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            waitUntilCaughtUp(first);
+            waitUntilCaughtUp(second);
+            assertEquals(100, first.getProcessedCount());
+            assertEquals(100, second.getProcessedCount());
+            assertEquals(99, first.getSequence());
+        }
+    }
+    
+    @Test
+    void testBacklogIsDeliveredAsBatch() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(11);
+        AtomicInteger batchEnds = new AtomicInteger();
+        
+        try (EventBus<Long> bus = new EventBus<>(64, new BlockingWaitStrategy())) {
+            bus.subscribe("batching", (event, sequence, endOfBatch) -> {
+                release.await();
+                if (endOfBatch) {
+                    batchEnds.incrementAndGet();
+                }
+                done.countDown();
+            });
+            
+            // The first event blocks the handler while the next ten pile up
+            assertTrue(bus.tryPublish(MESSAGE_SENT, 0L));
+            Thread.sleep(50);
+            for (long i = 1; i <= 10; i++) {
+                assertTrue(bus.tryPublish(MESSAGE_SENT, i));
+            }
+            release.countDown();
+            
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(2, batchEnds.get());
+        }
+    }
+    
+    @Test
+    void testFullRingDropsInsteadOfBlocking() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        
+        try (EventBus<Long> bus = new EventBus<>(8, new BlockingWaitStrategy())) {
+            EventBus<Long>.Subscription slow = bus.subscribe("slow", (event, sequence, endOfBatch) -> release.await());
+            
+            for (long i = 0; i < 8; i++) {
+                assertTrue(bus.tryPublish(MESSAGE_SENT, i));
+            }
+            assertFalse(bus.tryPublish(MESSAGE_SENT, 8L));
+            assertEquals(1, bus.getDroppedCount());
+            
+            release.countDown();
+            waitUntilCaughtUp(slow);
+            assertTrue(bus.tryPublish(MESSAGE_SENT, 9L));
+        }
+    }
+    
+    @Test
+    void testSlotIsClearedOnceEverySubscriberHandledIt() throws InterruptedException {
+        CountDownLatch releaseSecond = new CountDownLatch(1);
+        List<EventEnvelope<Long>> slots = Collections.synchronizedList(new ArrayList<>());
+        
+        try (EventBus<Long> bus = new EventBus<>(8, new BlockingWaitStrategy())) {
+            EventBus<Long>.Subscription first = bus.subscribe("first", (event, sequence, endOfBatch) -> slots.add(event));
+            EventBus<Long>.Subscription second = bus.subscribe("second",
+                    (event, sequence, endOfBatch) -> releaseSecond.await());
+            assertTrue(bus.tryPublish(MESSAGE_SENT, 42L));
+            
+            waitUntilCaughtUp(first);
+            // The slower subscriber has not handled it yet
+            assertEquals(42L, slots.get(0).getPayload());
+            
+            releaseSecond.countDown();
+            waitUntilCaughtUp(second);
+            assertNull(slots.get(0).getPayload());
+            assertNull(slots.get(0).getEventType());
+        }
+    }
+    
+    @Test
+    void testPublishWaitsForRingSpace() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        
+        try (EventBus<Long> bus = new EventBus<>(8, new BlockingWaitStrategy())) {
+            EventBus<Long>.Subscription slow = bus.subscribe("slow", (event, sequence, endOfBatch) -> release.await());
+            for (long i = 0; i < 8; i++) {
+                assertTrue(bus.publish(MESSAGE_SENT, i));
+            }
+            
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            Future<Boolean> blocked = executor.submit(() -> bus.publish(MESSAGE_SENT, 8L));
+            Thread.sleep(50);
+            assertFalse(blocked.isDone(), "publish should wait while the ring is full");
+            
+            release.countDown();
+            assertTrue(blocked.get(5, TimeUnit.SECONDS));
+            executor.shutdown();
+            waitUntilCaughtUp(slow);
+            assertEquals(9, slow.getProcessedCount());
+            assertEquals(0, bus.getDroppedCount());
+        }
+    }
+    
+    @Test
+    void testPublishGivesUpAfterTimeout() {
+        CountDownLatch release = new CountDownLatch(1);
+        
+        try (EventBus<Long> bus = new EventBus<>(2, new BlockingWaitStrategy(), 20)) {
+            bus.subscribe("stuck", (event, sequence, endOfBatch) -> release.await());
+            assertTrue(bus.publish(MESSAGE_SENT, 0L));
+            assertTrue(bus.publish(MESSAGE_SENT, 1L));
+            
+            assertFalse(bus.publish(MESSAGE_SENT, 2L));
+            assertEquals(1, bus.getDroppedCount());
+            release.countDown();
+        }
+    }
+    
+    @Test
+    void testConcurrentProducers() throws Exception {
+        int producers = 4;
+        int perProducer = 25_000;
+        AtomicInteger received = new AtomicInteger();
+        long[] sums = new long[1];
+        
+        EventBus<Long> bus = new EventBus<>(1024, new YieldingWaitStrategy());
+        EventBus<Long>.Subscription subscription = bus.subscribe("sum", (event, sequence, endOfBatch) -> {
+            sums[0] += event.getPayload();
+            received.incrementAndGet();
+        });
+        
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int p = 0; p < producers; p++) {
+            executor.submit(() -> {
+                start.await();
+                for (long i = 1; i <= perProducer; i++) {
+                    while (!bus.tryPublish(MESSAGE_SENT, i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        bus.close();
+        
+        assertEquals(producers * perProducer, received.get());
+        assertEquals(producers * (long) perProducer * (perProducer + 1) / 2, sums[0]);
+        assertEquals(0, subscription.getLag());
+    }
+    
+    @Test
+    void testHandlerErrorsDoNotStopSubscription() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(3);
+        
+        try (EventBus<Long> bus = new EventBus<>(16, new BlockingWaitStrategy())) {
+            EventBus<Long>.Subscription subscription = bus.subscribe("flaky", (event, sequence, endOfBatch) -> {
+                done.countDown();
+                if (event.getPayload() == 1L) {
+                    throw new IllegalStateException("boom");
+                }
+            });
+            
+            for (long i = 0; i < 3; i++) {
+                bus.tryPublish(MESSAGE_SENT, i);
+            }
+            
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            waitUntilCaughtUp(subscription);
+            assertEquals(1, subscription.getErrorCount());
+        }
+    }
+    
+    @Test
+    void testClosedBusRejectsEvents() {
+        EventBus<Long> bus = new EventBus<>(16, new BlockingWaitStrategy());
+        bus.close();
+        
+        assertFalse(bus.tryPublish(MESSAGE_SENT, 1L));
+        assertFalse(bus.publish(MESSAGE_SENT, 2L));
+        assertThrows(IllegalStateException.class,
+                () -> bus.subscribe("late", (event, sequence, endOfBatch) -> { }));
+    }
+    
+    private static void waitUntilCaughtUp(EventBus<Long>.Subscription subscription) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (subscription.getLag() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, subscription.getLag());
+    }
+}
@@ -0,0 +1,138 @@
+package com.kaelenx.common.events.codec;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.events.EventTypes;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryEventEnvelopeCodecTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    
+    private final JavaType payloadType = objectMapper.getTypeFactory()
+            .constructType(new TypeReference<Map<String, Object>>() { });
+    
+    private final BinaryEventEnvelopeCodec<Map<String, Object>> codec =
+            new BinaryEventEnvelopeCodec<>(new JacksonPayloadCodec<>(objectMapper, payloadType));
+    
+    @Test
+    void testRoundTrip() {
+        EventEnvelope<Map<String, Object>> envelope = sampleEnvelope();
+        
+        EventEnvelope<Map<String, Object>> decoded = codec.decode(codec.encode(envelope));
+        
+        assertEquals(envelope, decoded);
+    }
+    
+    @Test
+    void testRoundTripWithNullFieldsAndCustomType() {
+        EventEnvelope<Map<String, Object>> envelope = EventEnvelope.<Map<String, Object>>builder()
+                .eventType("billing.invoice.created")
+                .source("billing-service – 中文")
+                .build();
+        
+        EventEnvelope<Map<String, Object>> decoded = codec.decode(codec.encode(envelope));
+        
+        assertEquals(envelope, decoded);
+        assertNull(decoded.getPayload());
+        assertNull(decoded.getTimestamp());
+        assertNull(decoded.getMetadata());
+    }
+    
+    @Test
+    void testHeaderIsVersioned() {
+        byte[] bytes = codec.encode(sampleEnvelope());
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        
+        assertEquals(BinaryEventEnvelopeCodec.MAGIC, buffer.getShort() & 0xFFFF);
+        assertEquals(BinaryEventEnvelopeCodec.FORMAT_VERSION, buffer.get());
+        
+        bytes[2] = 99;
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(bytes));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(new byte[] {'{', '}', 0, 0}));
+    }
+    
+    @Test
+    void testNullMetadataValueIsRejected() {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("userId", null);
+        EventEnvelope<Map<String, Object>> envelope = EventEnvelope.<Map<String, Object>>builder()
+                .eventType(EventTypes.MESSAGE_SENT)
+                .metadata(metadata)
+                .build();
+        
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> codec.encode(envelope));
+        assertTrue(e.getMessage().contains("userId"), e.getMessage());
+    }
+    
+    @Test
+    void testTruncatedEnvelopeIsRejected() {
+        byte[] bytes = codec.encode(sampleEnvelope());
+        
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(IllegalArgumentException.class, () -> codec.decode(truncated), "length=" + length);
+            assertThrows(IllegalArgumentException.class, () -> codec.decodeLazy(ByteBuffer.wrap(truncated)).getPayload(),
+                    "length=" + length);
+        }
+    }
+    
+    @Test
+    void testUnknownEventTypeCodeIsRejected() {
+        byte[] bytes = codec.encode(EventEnvelope.<Map<String, Object>>builder()
+                .eventType(EventTypes.MESSAGE_SENT)
+                .build());
+        // The type code follows the four header bytes
+        bytes[4] = 127;
+        
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> codec.decode(bytes));
+        assertTrue(e.getMessage().contains("127"), e.getMessage());
+    }
+    
+    @Test
+    void testKnownEventTypesAreInterned() {
+        for (String type : new String[] {EventTypes.MESSAGE_SENT, EventTypes.AI_REQUEST_COMPLETED}) {
+            int code = EventTypes.codeOf(type);
+            assertTrue(code > 0 && code < 128, "Known types should fit in a single varint byte");
+            assertEquals(type, EventTypes.typeOf(code));
+        }
+        assertEquals(0, EventTypes.codeOf("unknown.type"));
+        assertNull(EventTypes.typeOf(0));
+    }
+    
+    @Test
+    void testBinaryIsSmallerThanJson() {
+        EventEnvelope<Map<String, Object>> envelope = sampleEnvelope();
+        JsonEventEnvelopeCodec<Map<String, Object>> json = new JsonEventEnvelopeCodec<>(objectMapper, payloadType);
+        
+        int binarySize = codec.encode(envelope).length;
+        int jsonSize = json.encode(envelope).length;
+        
+        assertTrue(binarySize < jsonSize,
+                String.format("Binary envelope (%d bytes) should be smaller than JSON (%d bytes)", binarySize, jsonSize));
+        assertEquals(envelope.getEventId(), json.decode(json.encode(envelope)).getEventId());
+    }
+    
+    private EventEnvelope<Map<String, Object>> sampleEnvelope() {
+        return EventEnvelope.<Map<String, Object>>builder()
+                .eventId("1786543219876543210")
+                .eventType(EventTypes.MESSAGE_SENT)
+                .source("conversation-service")
+                .timestamp(Instant.parse("2025-06-01T12:34:56.123456789Z"))
+                .version("1.0")
+                .payload(Map.of("messageId", 1786543219876543211L, "text", "Hello"))
+                .metadata(Map.of("userId", "42", "correlationId", "corr-7f3a"))
+                .build();
+    }
+}
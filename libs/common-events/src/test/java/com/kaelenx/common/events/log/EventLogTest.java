@@ -0,0 +1,286 @@
+package com.kaelenx.common.events.log;
+
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.events.EventTypes;
+import com.kaelenx.common.events.LazyEventEnvelope;
+import com.kaelenx.common.events.bus.BlockingWaitStrategy;
+import com.kaelenx.common.events.bus.EventBus;
+import com.kaelenx.common.events.codec.BinaryEventEnvelopeCodec;
+import com.kaelenx.common.events.codec.PayloadCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLogTest {
+    
+    private static final PayloadCodec<String> STRING_CODEC = new PayloadCodec<>() {
+        @Override
+        public byte[] encode(String payload) {
+            return payload.getBytes(StandardCharsets.UTF_8);
+        }
+        
+        @Override
+        public String decode(ByteBuffer buffer) {
+            return StandardCharsets.UTF_8.decode(buffer).toString();
+        }
+    };
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void testAppendAndReadBack() throws IOException {
+        try (EventLog eventLog = new EventLog(directory, 4096, 0, 0)) {
+            long first = eventLog.append(bytes("first"));
+            long second = eventLog.append(bytes("second"));
+            
+            assertEquals(0, first);
+            assertEquals(LogSegment.RECORD_HEADER_BYTES + "first".length(), second);
+            
+            List<String> records = readAll(eventLog, 0);
+            assertEquals(List.of("first", "second"), records);
+        }
+    }
+    
+    @Test
+    void testRecordsAreReadOnlySlicesOfSegment() throws IOException {
+        try (EventLog eventLog = new EventLog(directory, 4096, 0, 0)) {
+            eventLog.append(bytes("payload"));
+            
+            eventLog.read(0, 1, (offset, record) -> {
+                assertTrue(record.isReadOnly());
+                assertTrue(record.isDirect(), "Records should be views of the mapped file, not heap copies");
+                assertEquals(7, record.remaining());
+            });
+        }
+    }
+    
+    @Test
+    void testSegmentsRollAndOffsetsStayContiguous() throws IOException {
+        try (EventLog eventLog = new EventLog(directory, 64, 0, 0)) {
+            List<Long> offsets = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                offsets.add(eventLog.append(bytes("record-" + i + "-padding")));
+            }
+            
+            assertTrue(eventLog.getSegmentCount() > 1);
+            List<Long> readOffsets = new ArrayList<>();
+            eventLog.read(0, 100, (offset, record) -> readOffsets.add(offset));
+            assertEquals(offsets, readOffsets);
+            assertEquals(10, readAll(eventLog, 0).size());
+        }
+    }
+    
+    @Test
+    void testRetentionDeletesOldestSegments() throws IOException {
+        try (EventLog eventLog = new EventLog(directory, 64, 2, 0)) {
+            for (int i = 0; i < 20; i++) {
+                eventLog.append(bytes("record-" + i + "-padding"));
+            }
+            
+            assertEquals(2, eventLog.getSegmentCount());
+            assertTrue(eventLog.getStartOffset() > 0);
+            assertEquals(2, segmentFiles().size());
+            
+            // Reading from a deleted offset continues from the oldest retained record
+            List<String> records = readAll(eventLog, 0);
+            assertFalse(records.isEmpty());
+            assertEquals("record-19-padding", records.get(records.size() - 1));
+        }
+    }
+    
+    @Test
+    void testRetentionKeepsSegmentFileWhileReaderHoldsIt() throws IOException {
+        try (EventLog eventLog = new EventLog(directory, 64, 2, 0)) {
+            eventLog.append(bytes("record-0-padding"));
+            Path first = segmentFiles().get(0);
+            
+            List<String> seen = new ArrayList<>();
+            eventLog.read(0, 1, (offset, record) -> {
+                // Retention runs while the reader still holds a slice of the first segment
+                for (int i = 1; i < 20; i++) {
+                    eventLog.append(bytes("record-" + i + "-padding"));
+                }
+                assertTrue(Files.exists(first), "Segment being read must not be deleted yet");
+                seen.add(string(record));
+            });
+            
+            assertEquals(List.of("record-0-padding"), seen);
+            assertFalse(Files.exists(first), "Deferred deletion should run once the reader is done");
+            assertEquals(2, segmentFiles().size());
+        }
+    }
+    
+    @Test
+    void testWriterDrainsBusIntoLogOnStop() throws IOException {
+        BinaryEventEnvelopeCodec<String> codec = new BinaryEventEnvelopeCodec<>(STRING_CODEC);
+        EventBus<String> eventBus = new EventBus<>(1024, new BlockingWaitStrategy());
+        try (EventLog eventLog = new EventLog(directory, 1 << 20, 0, 0)) {
+            EventLogWriter<String> writer = new EventLogWriter<>(eventBus, eventLog, codec);
+            writer.start();
+            for (int i = 0; i < 500; i++) {
+                String payload = "event-" + i;
+                assertTrue(eventBus.publish((event, sequence, arg) -> {
+                    event.setEventType(EventTypes.MESSAGE_SENT);
+                    event.setPayload(arg);
+                }, payload));
+            }
+            
+            // Stopping closes the bus first, so everything still in the ring reaches the open log
+            writer.stop();
+            
+            List<String> payloads = new ArrayList<>();
+            eventLog.read(0, Integer.MAX_VALUE, (offset, record) -> payloads.add(codec.decode(record).getPayload()));
+            assertEquals(500, payloads.size());
+            assertEquals("event-499", payloads.get(499));
+            assertFalse(writer.isRunning());
+        }
+    }
+    
+    @Test
+    void testReopenRecoversRecordsAndTruncatesTornWrite() throws IOException {
+        long end;
+        try (EventLog eventLog = new EventLog(directory, 4096, 0, 0)) {
+            eventLog.append(bytes("kept-1"));
+            eventLog.append(bytes("kept-2"));
+            end = eventLog.getEndOffset();
+        }
+        
+        // Simulate a crash in the middle of an append: header written, payload CRC wrong
+        Path segment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(12).putInt(4).putInt(12345).put(bytes("torn"));
+            channel.write(torn.flip(), end);
+        }
+        
+        try (EventLog eventLog = new EventLog(directory, 4096, 0, 0)) {
+            assertEquals(end, eventLog.getEndOffset());
+            assertEquals(List.of("kept-1", "kept-2"), readAll(eventLog, 0));
+            
+            eventLog.append(bytes("after"));
+            assertEquals(List.of("kept-1", "kept-2", "after"), readAll(eventLog, 0));
+        }
+    }
+    
+    @Test
+    void testReopenWithMultipleSegments() throws IOException {
+        try (EventLog eventLog = new EventLog(directory, 64, 0, 0)) {
+            for (int i = 0; i < 10; i++) {
+                eventLog.append(bytes("record-" + i + "-padding"));
+            }
+        }
+        
+        try (EventLog eventLog = new EventLog(directory, 64, 0, 0)) {
+            List<String> records = readAll(eventLog, 0);
+            assertEquals(10, records.size());
+            assertEquals("record-9-padding", records.get(9));
+        }
+    }
+    
+    @Test
+    void testConsumerResumesFromCommittedOffset() throws IOException {
+        try (EventLog eventLog = new EventLog(directory, 4096, 0, 0)) {
+            for (int i = 0; i < 5; i++) {
+                eventLog.append(bytes("event-" + i));
+            }
+            
+            EventLogConsumer consumer = eventLog.consumer("router");
+            List<String> seen = new ArrayList<>();
+            assertEquals(3, consumer.poll(3, (offset, record) -> seen.add(string(record))));
+            consumer.commit();
+            assertEquals(1, consumer.poll(1, (offset, record) -> seen.add(string(record))));
+            assertEquals(List.of("event-0", "event-1", "event-2", "event-3"), seen);
+        }
+        
+        try (EventLog eventLog = new EventLog(directory, 4096, 0, 0)) {
+            EventLogConsumer consumer = eventLog.consumer("router");
+            List<String> seen = new ArrayList<>();
+            assertEquals(2, consumer.poll(10, (offset, record) -> seen.add(string(record))));
+            assertEquals(List.of("event-3", "event-4"), seen);
+            assertEquals(0, consumer.getLag());
+            
+            EventLogConsumer other = eventLog.consumer("audit");
+            assertEquals(5, other.poll(10, (offset, record) -> { }));
+        }
+        
+        assertThrows(IllegalArgumentException.class, () -> {
+            try (EventLog eventLog = new EventLog(directory, 4096, 0, 0)) {
+                eventLog.consumer("../escape");
+            }
+        });
+    }
+    
+    @Test
+    void testHandlerFailureDoesNotAdvanceConsumer() throws IOException {
+        try (EventLog eventLog = new EventLog(directory, 4096, 0, 0)) {
+            eventLog.append(bytes("poison"));
+            EventLogConsumer consumer = eventLog.consumer("retrying");
+            
+            assertThrows(IllegalStateException.class, () -> consumer.poll(10, (offset, record) -> {
+                throw new IllegalStateException("handler failed");
+            }));
+            
+            assertEquals(0, consumer.getPosition());
+            assertEquals(1, consumer.poll(10, (offset, record) -> { }));
+        }
+    }
+    
+    @Test
+    void testEnvelopesDecodeLazilyFromLog() throws IOException {
+        BinaryEventEnvelopeCodec<String> codec = new BinaryEventEnvelopeCodec<>(STRING_CODEC);
+        
+        try (EventLog eventLog = new EventLog(directory, 4096, 0, 0)) {
+            eventLog.append(EventEnvelope.of(EventTypes.MESSAGE_SENT, "hello"), codec);
+            eventLog.append(EventEnvelope.of(EventTypes.AI_REQUEST_COMPLETED, "done"), codec);
+            
+            List<String> types = new ArrayList<>();
+            eventLog.read(0, 10, (offset, record) -> {
+                LazyEventEnvelope<String> event = codec.decodeLazy(record);
+                types.add(event.getEventType());
+                assertFalse(event.isPayloadDecoded());
+            });
+            assertEquals(List.of(EventTypes.MESSAGE_SENT, EventTypes.AI_REQUEST_COMPLETED), types);
+        }
+    }
+    
+    @Test
+    void testRejectsOversizedRecords() throws IOException {
+        try (EventLog eventLog = new EventLog(directory, 64, 0, 0)) {
+            assertThrows(IllegalArgumentException.class, () -> eventLog.append(new byte[57]));
+            assertThrows(IllegalArgumentException.class, () -> eventLog.append(new byte[0]));
+            eventLog.append(new byte[56]);
+        }
+    }
+    
+    private List<String> readAll(EventLog eventLog, long from) {
+        List<String> records = new ArrayList<>();
+        eventLog.read(from, Integer.MAX_VALUE, (offset, record) -> records.add(string(record)));
+        return records;
+    }
+    
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".log")).sorted().toList();
+        }
+    }
+    
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static String string(ByteBuffer record) {
+        return StandardCharsets.UTF_8.decode(record).toString();
+    }
+}
@@ -0,0 +1,248 @@
+package com.kaelenx.common.id;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Base of the Snowflake ID generators: bit layout, worker ID lease and
+ * clock-regression metrics. How the last issued timestamp and sequence are
+ * kept is up to the implementation.
+ * 
+ * Structure (64 bits):
+ * - 1 bit: unused (always 0)
+ * - 41 bits: timestamp (milliseconds since custom epoch)
+ * - 10 bits: worker ID (0-1023)
+ * - 12 bits: sequence number (0-4095)
+ * 
+ * This layout allows up to 4096 unique IDs per millisecond per worker.
+ * 
+ * How a generator reacts to the wall clock moving backwards is controlled by
+ * {@link ClockRegressionPolicy}. In {@link ClockRegressionPolicy#LOGICAL} mode
+ * IDs keep being issued against the last-seen timestamp, borrowing sequence
+ * space from future milliseconds until the wall clock catches up.
+ * 
+ * With a worker ID lease ({@link #setWorkerIdLease}), IDs are refused once
+ * the lease is no longer held, since another instance may take the worker ID
+ * over.
+ * 
+ * Implementations:
+ * - {@link SnowflakeIdGenerator}: guarded by a lock
+ * - {@link LockFreeSnowflakeIdGenerator}: compare-and-set on a packed state word
+ * - {@link BufferedSnowflakeIdGenerator}: pre-filled ring buffer over another generator
+ */
+@Slf4j
+public abstract class AbstractSnowflakeIdGenerator {
+    
+    // Custom epoch (2024-01-01 00:00:00 UTC)
+    static final long CUSTOM_EPOCH = 1704067200000L;
+    
+    // Bit lengths
+    static final long WORKER_ID_BITS = 10L;
+    static final long SEQUENCE_BITS = 12L;
+    
+    // Max values
+    static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
+    static final long MAX_SEQUENCE = ~(-1L << SEQUENCE_BITS);
+    
+    // Bit shifts
+    static final long WORKER_ID_SHIFT = SEQUENCE_BITS;
+    static final long TIMESTAMP_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS;
+    
+    // Maximum tolerated clock regression before refusing to generate IDs
+    static final long MAX_BACKWARD_MS = 5L;
+    
+    final long workerId;
+    final Clock clock;
+    final ClockRegressionPolicy clockRegressionPolicy;
+    private volatile WorkerIdLeaseManager workerIdLease;
+    
+    // Wall-clock time at which IDs started being issued ahead of the wall clock, -1 if not borrowing
+    private final AtomicLong borrowingSince = new AtomicLong(-1L);
+    private final LongAdder clockRegressions = new LongAdder();
+    private final LongAdder borrowedMillis = new LongAdder();
+    private final AtomicLong maxBorrowedMillis = new AtomicLong(0L);
+    
+    /**
+     * @param workerId Worker ID (0-1023)
+     * @param clock Clock used as the time source
+     * @param clockRegressionPolicy How to react when the clock moves backwards
+     * @throws IllegalArgumentException if workerId is out of range
+     */
+    AbstractSnowflakeIdGenerator(long workerId, Clock clock, ClockRegressionPolicy clockRegressionPolicy) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException(
+                String.format("Worker ID must be between 0 and %d", MAX_WORKER_ID));
+        }
+        this.workerId = workerId;
+        this.clock = clock;
+        this.clockRegressionPolicy = clockRegressionPolicy;
+        log.info("{} initialized with workerId={}, clockRegressionPolicy={}",
+                getClass().getSimpleName(), workerId, clockRegressionPolicy);
+    }
+    
+    /**
+     * For generators that wrap {@code delegate}: same worker ID, clock and
+     * policy, without logging an initialization of their own.
+     */
+    AbstractSnowflakeIdGenerator(AbstractSnowflakeIdGenerator delegate) {
+        this.workerId = delegate.workerId;
+        this.clock = delegate.clock;
+        this.clockRegressionPolicy = delegate.clockRegressionPolicy;
+    }
+    
+    /**
+     * Generates a new unique ID.
+     * 
+     * @return Unique 64-bit ID
+     */
+    public abstract long nextId();
+    
+    /**
+     * Generates a block of unique IDs. IDs in the returned array are strictly
+     * increasing.
+     * 
+     * @param count Number of IDs to generate (must be positive)
+     * @return Array of {@code count} unique IDs in ascending order
+     * @throws IllegalArgumentException if count is not positive
+     */
+    public abstract long[] nextIds(int count);
+    
+    /**
+     * Refuse IDs unless {@code lease} holds this generator's worker ID.
+     * 
+     * @param lease Lease of the worker ID, or null to issue IDs unconditionally
+     * @throws IllegalArgumentException if the lease is for another worker ID
+     */
+    public void setWorkerIdLease(WorkerIdLeaseManager lease) {
+        if (lease != null && lease.getWorkerId() != workerId) {
+            throw new IllegalArgumentException(String.format(
+                    "Lease is for workerId=%d, generator uses workerId=%d", lease.getWorkerId(), workerId));
+        }
+        this.workerIdLease = lease;
+    }
+    
+    /**
+     * Throws if a worker ID lease is set and no longer held.
+     */
+    void checkWorkerIdLease() {
+        WorkerIdLeaseManager lease = workerIdLease;
+        if (lease != null && !lease.isLeaseValid()) {
+            throw new IllegalStateException(String.format(
+                    "Worker ID lease for workerId=%d is not held. Refusing to generate ID", workerId));
+        }
+    }
+    
+    /**
+     * Records that an ID is being issued at {@code logicalTimestamp} while the
+     * wall clock reads {@code wallTimestamp}.
+     * 
+     * @param regression Whether the wall clock was observed moving backwards
+     */
+    void recordBorrow(long wallTimestamp, long logicalTimestamp, boolean regression) {
+        long borrowed = logicalTimestamp - wallTimestamp;
+        if (borrowed > maxBorrowedMillis.get()) {
+            maxBorrowedMillis.accumulateAndGet(borrowed, Math::max);
+        }
+        if (borrowingSince.get() < 0 && borrowingSince.compareAndSet(-1L, wallTimestamp) && regression) {
+            clockRegressions.increment();
+            log.warn("Clock moved backwards by {} ms. Issuing IDs against logical clock", borrowed);
+        }
+    }
+    
+    /**
+     * Records that the wall clock has caught up with the issued timestamps.
+     */
+    void recordCatchUp(long wallTimestamp) {
+        long since = borrowingSince.get();
+        if (since >= 0 && borrowingSince.compareAndSet(since, -1L)) {
+            borrowedMillis.add(wallTimestamp - since);
+            log.info("Clock caught up after {} ms of logical time", wallTimestamp - since);
+        }
+    }
+    
+    /**
+     * Number of times the clock was observed moving backwards and IDs were
+     * issued against the logical clock instead.
+     */
+    public long getClockRegressionCount() {
+        return clockRegressions.sum();
+    }
+    
+    /**
+     * Largest distance, in milliseconds, by which issued timestamps ran ahead
+     * of the wall clock.
+     */
+    public long getMaxBorrowedMillis() {
+        return maxBorrowedMillis.get();
+    }
+    
+    /**
+     * Total wall-clock time, in milliseconds, spent issuing IDs ahead of the
+     * wall clock. Does not include an episode that is still in progress.
+     */
+    public long getBorrowedDurationMillis() {
+        return borrowedMillis.sum();
+    }
+    
+    /**
+     * Whether IDs are currently being issued ahead of the wall clock.
+     */
+    public boolean isBorrowingTime() {
+        return borrowingSince.get() >= 0;
+    }
+    
+    /**
+     * Assembles an ID from an absolute timestamp and a sequence number
+     * using this generator's worker ID.
+     */
+    long composeId(long timestamp, long sequence) {
+        return ((timestamp - CUSTOM_EPOCH) << TIMESTAMP_SHIFT)
+                | (workerId << WORKER_ID_SHIFT)
+                | sequence;
+    }
+    
+    long currentTimeMillis() {
+        return clock.millis();
+    }
+    
+    long waitNextMillis(long lastTimestamp) {
+        long timestamp = currentTimeMillis();
+        while (timestamp <= lastTimestamp) {
+            timestamp = currentTimeMillis();
+        }
+        return timestamp;
+    }
+    
+    /**
+     * Extracts the timestamp component from a Snowflake ID.
+     * 
+     * @param id Snowflake ID
+     * @return Timestamp in milliseconds
+     */
+    public static long extractTimestamp(long id) {
+        return (id >> TIMESTAMP_SHIFT) + CUSTOM_EPOCH;
+    }
+    
+    /**
+     * Extracts the worker ID component from a Snowflake ID.
+     * 
+     * @param id Snowflake ID
+     * @return Worker ID
+     */
+    public static long extractWorkerId(long id) {
+        return (id >> WORKER_ID_SHIFT) & MAX_WORKER_ID;
+    }
+    
+    /**
+     * Extracts the sequence component from a Snowflake ID.
+     * 
+     * @param id Snowflake ID
+     * @return Sequence number
+     */
+    public static long extractSequence(long id) {
+        return id & MAX_SEQUENCE;
+    }
+}
@@ -0,0 +1,292 @@
+package com.kaelenx.common.id;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Snowflake ID generator that serves IDs from a pre-filled ring buffer.
+ * 
+ * A background producer thread keeps a fixed-size primitive ring of ready IDs
+ * topped up from a delegate generator, so waiting for the next millisecond
+ * after sequence exhaustion happens on the producer thread instead of on
+ * request threads. Consumers claim slots with compare-and-set and never block;
+ * when the ring is empty they fall back to the delegate and the miss is
+ * counted as a consumer stall.
+ * 
+ * IDs stay unique and keep the 41/10/12 layout. Their timestamp reflects the
+ * time the ID was minted by the producer, so IDs taken from the buffer are
+ * older than the moment they are handed out, but never by more than
+ * {@code maxAgeMs}: the producer discards and re-mints the buffer once its
+ * oldest ID is half that old (for example on an idle node), and consumers
+ * skip any buffered ID that is older still.
+ * 
+ * IDs handed out stay in ascending order across the buffer and the
+ * delegate: once an ID has been minted directly by the delegate (stall
+ * fallback or {@link #nextIds}), buffered IDs below it are discarded rather
+ * than handed out after it. Code that reads IDs as creation times (range
+ * scans, keyset paging) therefore sees them in time order.
+ * 
+ * Worker ID, clock, clock-regression counters and lease are the delegate's.
+ */
+@Slf4j
+public class BufferedSnowflakeIdGenerator extends AbstractSnowflakeIdGenerator implements AutoCloseable {
+    
+    private static final long IDLE_PARK_NANOS = 1_000_000L;
+    
+    static final long DEFAULT_MAX_AGE_MS = 1000L;
+    
+    private final AbstractSnowflakeIdGenerator delegate;
+    private final long[] ring;
+    private final int mask;
+    private final int refillThreshold;
+    private final long maxAgeMs;
+    
+    // Highest ID minted directly by the delegate; buffered IDs up to it are discarded
+    private final AtomicLong directFloor = new AtomicLong(-1L);
+    
+    // Next slot to be consumed (shared by consumers) and next slot to be filled (producer only)
+    private final AtomicLong head = new AtomicLong(0L);
+    private final AtomicLong tail = new AtomicLong(0L);
+    
+    private final LongAdder refilledIds = new LongAdder();
+    private final LongAdder refillBatches = new LongAdder();
+    private final LongAdder consumerStalls = new LongAdder();
+    private final LongAdder discardedIds = new LongAdder();
+    
+    private final Thread producer;
+    private volatile boolean running = true;
+    
+    /**
+     * Creates a buffered generator whose IDs are at most
+     * {@value #DEFAULT_MAX_AGE_MS} ms old, and pre-fills the ring.
+     * 
+     * @param delegate Generator used to mint IDs
+     * @param capacity Ring size, rounded up to the next power of two
+     * @throws IllegalArgumentException if capacity is not positive
+     */
+    public BufferedSnowflakeIdGenerator(AbstractSnowflakeIdGenerator delegate, int capacity) {
+        this(delegate, capacity, DEFAULT_MAX_AGE_MS);
+    }
+    
+    /**
+     * Creates a buffered generator and pre-fills the ring.
+     * 
+     * @param delegate Generator used to mint IDs
+     * @param capacity Ring size, rounded up to the next power of two
+     * @param maxAgeMs How much older than the delegate's clock a handed-out ID may be
+     * @throws IllegalArgumentException if capacity or maxAgeMs is not positive
+     */
+    public BufferedSnowflakeIdGenerator(AbstractSnowflakeIdGenerator delegate, int capacity, long maxAgeMs) {
+        super(delegate);
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        if (maxAgeMs <= 0) {
+            throw new IllegalArgumentException("maxAgeMs must be positive");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.delegate = delegate;
+        this.ring = new long[size];
+        this.mask = size - 1;
+        this.refillThreshold = Math.max(1, size / 2);
+        this.maxAgeMs = maxAgeMs;
+        
+        refill(size);
+        
+        this.producer = new Thread(this::refillLoop, "snowflake-id-refill-" + workerId);
+        this.producer.setDaemon(true);
+        this.producer.start();
+        log.info("BufferedSnowflakeIdGenerator started with workerId={}, capacity={}, maxAgeMs={}",
+                workerId, size, maxAgeMs);
+    }
+    
+    /**
+     * Takes the next ID from the buffer, falling back to the delegate if the
+     * buffer is empty or holds only IDs that may no longer be handed out.
+     * 
+     * @return Unique 64-bit ID
+     */
+    @Override
+    public long nextId() {
+        // IDs buffered under a lease that has since been lost must not be handed out
+        delegate.checkWorkerIdLease();
+        long oldest = delegate.currentTimeMillis() - maxAgeMs;
+        while (true) {
+            long current = head.get();
+            if (current >= tail.get()) {
+                consumerStalls.increment();
+                LockSupport.unpark(producer);
+                return direct(delegate.nextId());
+            }
+            // Read before claiming; a lost CAS means another consumer took this slot
+            long id = ring[(int) (current & mask)];
+            boolean usable = id > directFloor.get() && extractTimestamp(id) >= oldest;
+            if (head.compareAndSet(current, current + 1)) {
+                if (!usable) {
+                    discardedIds.increment();
+                    continue;
+                }
+                if (tail.get() - current - 1 < refillThreshold) {
+                    LockSupport.unpark(producer);
+                }
+                return id;
+            }
+        }
+    }
+    
+    /**
+     * The lease is checked by the delegate, which also guards the buffer.
+     */
+    @Override
+    public void setWorkerIdLease(WorkerIdLeaseManager lease) {
+        delegate.setWorkerIdLease(lease);
+    }
+    
+    /**
+     * Bulk requests bypass the buffer and are served by the delegate.
+     * Buffered IDs minted before them are discarded.
+     */
+    @Override
+    public long[] nextIds(int count) {
+        long[] ids = delegate.nextIds(count);
+        direct(ids[ids.length - 1]);
+        return ids;
+    }
+    
+    @Override
+    public long getClockRegressionCount() {
+        return delegate.getClockRegressionCount();
+    }
+    
+    @Override
+    public long getMaxBorrowedMillis() {
+        return delegate.getMaxBorrowedMillis();
+    }
+    
+    @Override
+    public long getBorrowedDurationMillis() {
+        return delegate.getBorrowedDurationMillis();
+    }
+    
+    @Override
+    public boolean isBorrowingTime() {
+        return delegate.isBorrowingTime();
+    }
+    
+    /**
+     * Number of ready IDs currently held in the buffer.
+     */
+    public long getBufferDepth() {
+        return Math.max(0L, tail.get() - head.get());
+    }
+    
+    /**
+     * Size of the ring buffer.
+     */
+    public int getCapacity() {
+        return ring.length;
+    }
+    
+    /**
+     * Total number of IDs written into the buffer by the producer.
+     */
+    public long getRefilledIdCount() {
+        return refilledIds.sum();
+    }
+    
+    /**
+     * Total number of refill batches performed by the producer.
+     */
+    public long getRefillBatchCount() {
+        return refillBatches.sum();
+    }
+    
+    /**
+     * Number of times a consumer found the buffer empty and had to mint
+     * directly from the delegate.
+     */
+    public long getConsumerStallCount() {
+        return consumerStalls.sum();
+    }
+    
+    /**
+     * Number of buffered IDs dropped because they grew too old or an ID
+     * minted directly by the delegate overtook them.
+     */
+    public long getDiscardedIdCount() {
+        return discardedIds.sum();
+    }
+    
+    /**
+     * Stops the producer thread. IDs left in the buffer are discarded.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(producer);
+        try {
+            producer.join(1000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("BufferedSnowflakeIdGenerator stopped: refilledIds={}, stalls={}",
+                getRefilledIdCount(), getConsumerStallCount());
+    }
+    
+    private void refillLoop() {
+        while (running) {
+            discardIfAged();
+            long free = ring.length - (tail.get() - head.get());
+            if (free >= refillThreshold) {
+                try {
+                    refill((int) free);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to refill ID buffer: {}", e.getMessage());
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+    
+    /**
+     * Drops the whole buffer once its oldest ID is half the maximum age, so
+     * it is re-minted before consumers have to skip it.
+     */
+    private void discardIfAged() {
+        long current = head.get();
+        long end = tail.get();
+        if (current >= end) {
+            return;
+        }
+        long age = delegate.currentTimeMillis() - extractTimestamp(ring[(int) (current & mask)]);
+        // A lost CAS means consumers moved on; the next round looks again
+        if (age >= maxAgeMs / 2 && head.compareAndSet(current, end)) {
+            discardedIds.add(end - current);
+        }
+    }
+    
+    private long direct(long id) {
+        directFloor.accumulateAndGet(id, Math::max);
+        return id;
+    }
+    
+    private void refill(int count) {
+        long[] ids = delegate.nextIds(count);
+        long position = tail.get();
+        for (long id : ids) {
+            ring[(int) (position++ & mask)] = id;
+        }
+        // Publishing the new tail makes the written slots visible to consumers
+        tail.set(position);
+        refilledIds.add(ids.length);
+        refillBatches.increment();
+    }
+}
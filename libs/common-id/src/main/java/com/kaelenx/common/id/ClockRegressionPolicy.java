@@ -0,0 +1,21 @@
+package com.kaelenx.common.id;
+
+/**
+ * How a Snowflake ID generator reacts when the wall clock moves backwards,
+ * for example after an NTP step.
+ */
+public enum ClockRegressionPolicy {
+    
+    /**
+     * Wait for small regressions (up to 5 ms) and refuse to generate IDs
+     * beyond that.
+     */
+    STRICT,
+    
+    /**
+     * Keep issuing IDs against the last-seen timestamp, borrowing sequence
+     * space from future milliseconds until the wall clock catches up.
+     * Never sleeps or throws.
+     */
+    LOGICAL
+}
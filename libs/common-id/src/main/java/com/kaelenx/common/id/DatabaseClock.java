@@ -0,0 +1,50 @@
+package com.kaelenx.common.id;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Clock that reads the current time from the database (MySQL).
+ * 
+ * Worker ID leases are compared across instances, so their times must come
+ * from one clock that every instance shares rather than from each node's
+ * wall clock. Every call is a round trip; use it only for lease bookkeeping.
+ */
+class DatabaseClock extends Clock {
+    
+    static final String NOW_MILLIS_SQL = "SELECT ROUND(UNIX_TIMESTAMP(NOW(3)) * 1000)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    DatabaseClock(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    @Override
+    public long millis() {
+        Long millis = jdbcTemplate.queryForObject(NOW_MILLIS_SQL, Long.class);
+        if (millis == null) {
+            throw new IllegalStateException("Database returned no current time");
+        }
+        return millis;
+    }
+    
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis());
+    }
+    
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+    
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+}
@@ -1,18 +1,77 @@
 package com.kaelenx.common.id;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.util.UUID;
 
 /**
  * Configuration for Snowflake ID generator.
+ * 
+ * Properties:
+ * - id.generator.worker-id: Worker ID (0-1023), default 0
+ * - id.generator.mode: SYNCHRONIZED or LOCK_FREE, default SYNCHRONIZED
+ * - id.generator.clock-regression: STRICT or LOGICAL, default STRICT
+ * - id.generator.buffer.enabled: Serve IDs from a pre-filled ring buffer, default false
+ * - id.generator.buffer.capacity: Ring buffer size, default 8192
+ * - id.generator.buffer.max-age-ms: Oldest a buffered ID may be when handed out, default 1000
+ * - id.generator.worker-lease.enabled: Lease the worker ID from the database
+ *   instead of using id.generator.worker-id, default false. IDs are refused
+ *   while the lease is not held
+ * - id.generator.worker-lease.lease-duration-ms: Lease validity, default 30000
+ * - id.generator.worker-lease.renew-interval-ms: Heartbeat interval, default 10000
  */
 @Configuration
 public class IdGeneratorConfig {
     
     @Bean
-    public SnowflakeIdGenerator snowflakeIdGenerator(
-            @Value("${id.generator.worker-id:0}") long workerId) {
-        return new SnowflakeIdGenerator(workerId);
+    public AbstractSnowflakeIdGenerator snowflakeIdGenerator(
+            @Value("${id.generator.worker-id:0}") long workerId,
+            @Value("${id.generator.mode:SYNCHRONIZED}") IdGeneratorMode mode,
+            @Value("${id.generator.clock-regression:STRICT}") ClockRegressionPolicy clockRegressionPolicy,
+            @Value("${id.generator.buffer.enabled:false}") boolean bufferEnabled,
+            @Value("${id.generator.buffer.capacity:8192}") int bufferCapacity,
+            @Value("${id.generator.buffer.max-age-ms:1000}") long bufferMaxAgeMs,
+            ObjectProvider<WorkerIdLeaseManager> workerIdLeaseManager) {
+        WorkerIdLeaseManager leaseManager = workerIdLeaseManager.getIfAvailable();
+        if (leaseManager != null) {
+            workerId = leaseManager.getWorkerId();
+        }
+        AbstractSnowflakeIdGenerator generator = mode == IdGeneratorMode.LOCK_FREE
+                ? new LockFreeSnowflakeIdGenerator(workerId, Clock.systemUTC(), clockRegressionPolicy)
+                : new SnowflakeIdGenerator(workerId, Clock.systemUTC(), clockRegressionPolicy);
+        if (leaseManager != null) {
+            generator.setWorkerIdLease(leaseManager);
+        }
+        if (bufferEnabled) {
+            return new BufferedSnowflakeIdGenerator(generator, bufferCapacity, bufferMaxAgeMs);
+        }
+        return generator;
+    }
+    
+    /**
+     * Database-backed worker ID leasing for horizontally scaled instances.
+     */
+    @Configuration
+    @ConditionalOnProperty(name = "id.generator.worker-lease.enabled", havingValue = "true")
+    static class WorkerIdLeaseConfig {
+        
+        @Bean
+        public WorkerIdLeaseManager workerIdLeaseManager(
+                JdbcTemplate jdbcTemplate,
+                @Value("${id.generator.worker-lease.lease-duration-ms:30000}") long leaseDurationMs,
+                @Value("${id.generator.worker-lease.renew-interval-ms:10000}") long renewIntervalMs) {
+            String ownerId = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+            WorkerIdLeaseManager manager = new WorkerIdLeaseManager(
+                    jdbcTemplate, new DatabaseClock(jdbcTemplate), ownerId, leaseDurationMs, renewIntervalMs);
+            manager.start();
+            return manager;
+        }
     }
 }
@@ -0,0 +1,18 @@
+package com.kaelenx.common.id;
+
+/**
+ * Concurrency strategy used by the Snowflake ID generator bean.
+ */
+public enum IdGeneratorMode {
+    
+    /**
+     * Lock-based generator ({@link SnowflakeIdGenerator}); the name is kept
+     * for configuration compatibility.
+     */
+    SYNCHRONIZED,
+    
+    /**
+     * CAS-based generator ({@link LockFreeSnowflakeIdGenerator}).
+     */
+    LOCK_FREE
+}
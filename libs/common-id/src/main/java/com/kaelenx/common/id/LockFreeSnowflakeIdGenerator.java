@@ -0,0 +1,172 @@
+package com.kaelenx.common.id;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free variant of {@link SnowflakeIdGenerator}.
+ * 
+ * The last issued timestamp and sequence are packed into a single atomic word
+ * and advanced with compare-and-set, so concurrent callers never queue on a
+ * lock. The generated IDs use the same 41/10/12 bit layout and remain
+ * compatible with the static extractor methods of {@link AbstractSnowflakeIdGenerator}.
+ * Clock metrics are updated only once a compare-and-set has succeeded, so
+ * retried attempts are not counted.
+ * 
+ * State layout (53 bits used):
+ * - upper bits: timestamp (milliseconds since custom epoch)
+ * - lower 12 bits: sequence number
+ */
+public class LockFreeSnowflakeIdGenerator extends AbstractSnowflakeIdGenerator {
+    
+    private final AtomicLong state = new AtomicLong(0L);
+    
+    /**
+     * Creates a new lock-free Snowflake ID generator using the system clock
+     * and the {@link ClockRegressionPolicy#STRICT} policy.
+     * 
+     * @param workerId Worker ID (0-1023)
+     * @throws IllegalArgumentException if workerId is out of range
+     */
+    public LockFreeSnowflakeIdGenerator(long workerId) {
+        this(workerId, Clock.systemUTC(), ClockRegressionPolicy.STRICT);
+    }
+    
+    /**
+     * Creates a new lock-free Snowflake ID generator.
+     * 
+     * @param workerId Worker ID (0-1023)
+     * @param clock Clock used as the time source
+     * @param clockRegressionPolicy How to react when the clock moves backwards
+     * @throws IllegalArgumentException if workerId is out of range
+     */
+    public LockFreeSnowflakeIdGenerator(long workerId, Clock clock, ClockRegressionPolicy clockRegressionPolicy) {
+        super(workerId, clock, clockRegressionPolicy);
+    }
+    
+    /**
+     * Generates a new unique ID without taking a lock.
+     * 
+     * @return Unique 64-bit ID
+     */
+    @Override
+    public long nextId() {
+        checkWorkerIdLease();
+        while (true) {
+            long current = state.get();
+            long timestamp = currentTimeMillis();
+            long next = nextState(current, timestamp);
+            if (next >= 0 && state.compareAndSet(current, next)) {
+                recordClaimed(current, next, timestamp);
+                return toId(next);
+            }
+        }
+    }
+    
+    /**
+     * Generates a block of unique IDs with one compare-and-set per
+     * millisecond of sequence space instead of one per ID.
+     * 
+     * @param count Number of IDs to generate (must be positive)
+     * @return Array of {@code count} unique IDs in ascending order
+     * @throws IllegalArgumentException if count is not positive
+     */
+    @Override
+    public long[] nextIds(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        checkWorkerIdLease();
+        long[] ids = new long[count];
+        int filled = 0;
+        
+        while (filled < count) {
+            long current = state.get();
+            long timestamp = currentTimeMillis();
+            long first = nextState(current, timestamp);
+            if (first < 0) {
+                continue;
+            }
+            // Claim the rest of this millisecond's sequence space, up to what is still needed
+            long available = MAX_SEQUENCE - (first & MAX_SEQUENCE) + 1;
+            int take = (int) Math.min(available, count - filled);
+            if (state.compareAndSet(current, first + take - 1)) {
+                recordClaimed(current, first, timestamp);
+                for (int i = 0; i < take; i++) {
+                    ids[filled++] = toId(first + i);
+                }
+            }
+        }
+        return ids;
+    }
+    
+    /**
+     * Computes the packed state that follows {@code current}.
+     * 
+     * <p>With the {@link ClockRegressionPolicy#LOGICAL} policy the state keeps
+     * advancing from the last-seen timestamp; once a millisecond's sequence
+     * space is used up, {@code current + 1} carries into the next one.
+     * 
+     * @return The next state, or -1 if the caller should retry because the
+     *         clock is slightly behind or the sequence space is exhausted
+     */
+    private long nextState(long current, long timestamp) {
+        long lastTimestamp = timestampOf(current);
+        boolean logical = clockRegressionPolicy == ClockRegressionPolicy.LOGICAL;
+        
+        // Clock moved backwards - keep issuing against the last-seen timestamp
+        if (timestamp < lastTimestamp && logical) {
+            return current + 1;
+        }
+        
+        // Clock moved backwards - spin until it's back
+        if (timestamp < lastTimestamp) {
+            long offset = lastTimestamp - timestamp;
+            if (offset > MAX_BACKWARD_MS) {
+                throw new RuntimeException(
+                    String.format("Clock moved backwards by %d ms. Refusing to generate ID", offset));
+            }
+            Thread.onSpinWait();
+            return -1L;
+        }
+        
+        if (timestamp == lastTimestamp) {
+            // Sequence overflow - borrow the next millisecond
+            if ((current & MAX_SEQUENCE) == MAX_SEQUENCE && logical) {
+                return current + 1;
+            }
+            // Sequence overflow - spin until the next millisecond
+            if ((current & MAX_SEQUENCE) == MAX_SEQUENCE) {
+                Thread.onSpinWait();
+                return -1L;
+            }
+            return current + 1;
+        }
+        
+        // New millisecond - reset sequence
+        return (timestamp - CUSTOM_EPOCH) << SEQUENCE_BITS;
+    }
+    
+    /**
+     * Updates the clock metrics once {@code claimed} has replaced
+     * {@code previous}, with the wall clock reading {@code timestamp}.
+     */
+    private void recordClaimed(long previous, long claimed, long timestamp) {
+        long claimedTimestamp = timestampOf(claimed);
+        if (claimedTimestamp > timestamp) {
+            recordBorrow(timestamp, claimedTimestamp, timestamp < timestampOf(previous));
+        } else {
+            recordCatchUp(timestamp);
+        }
+    }
+    
+    private static long timestampOf(long packedState) {
+        return (packedState >>> SEQUENCE_BITS) + CUSTOM_EPOCH;
+    }
+    
+    private long toId(long packedState) {
+        return ((packedState >>> SEQUENCE_BITS) << TIMESTAMP_SHIFT)
+                | (workerId << WORKER_ID_SHIFT)
+                | (packedState & MAX_SEQUENCE);
+    }
+}
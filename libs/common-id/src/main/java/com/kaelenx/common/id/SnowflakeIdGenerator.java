@@ -1,53 +1,45 @@
 package com.kaelenx.common.id;
 
-import lombok.extern.slf4j.Slf4j;
+import java.time.Clock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Snowflake ID generator for distributed systems.
  * 
- * Structure (64 bits):
- * - 1 bit: unused (always 0)
- * - 41 bits: timestamp (milliseconds since custom epoch)
- * - 10 bits: worker ID (0-1023)
- * - 12 bits: sequence number (0-4095)
+ * Uses the 41/10/12 layout and clock-regression handling described in
+ * {@link AbstractSnowflakeIdGenerator}.
  * 
- * This generator can produce up to 4096 unique IDs per millisecond per worker.
+ * Generation is guarded by a {@link ReentrantLock} rather than a monitor: the
+ * strict policy may sleep while holding it, and a virtual thread blocked
+ * inside {@code synchronized} would pin its carrier thread.
  */
-@Slf4j
-public class SnowflakeIdGenerator {
+public class SnowflakeIdGenerator extends AbstractSnowflakeIdGenerator {
     
-    // Custom epoch (2024-01-01 00:00:00 UTC)
-    private static final long CUSTOM_EPOCH = 1704067200000L;
-    
-    // Bit lengths
-    private static final long WORKER_ID_BITS = 10L;
-    private static final long SEQUENCE_BITS = 12L;
-    
-    // Max values
-    private static final long MAX_WORKER_ID = ~(-1L << WORKER_ID_BITS);
-    private static final long MAX_SEQUENCE = ~(-1L << SEQUENCE_BITS);
-    
-    // Bit shifts
-    private static final long WORKER_ID_SHIFT = SEQUENCE_BITS;
-    private static final long TIMESTAMP_SHIFT = SEQUENCE_BITS + WORKER_ID_BITS;
-    
-    private final long workerId;
+    private final ReentrantLock lock = new ReentrantLock();
     private long sequence = 0L;
     private long lastTimestamp = -1L;
     
     /**
-     * Creates a new Snowflake ID generator.
+     * Creates a new Snowflake ID generator using the system clock and
+     * the {@link ClockRegressionPolicy#STRICT} policy.
      * 
      * @param workerId Worker ID (0-1023)
      * @throws IllegalArgumentException if workerId is out of range
      */
     public SnowflakeIdGenerator(long workerId) {
-        if (workerId < 0 || workerId > MAX_WORKER_ID) {
-            throw new IllegalArgumentException(
-                String.format("Worker ID must be between 0 and %d", MAX_WORKER_ID));
-        }
-        this.workerId = workerId;
-        log.info("SnowflakeIdGenerator initialized with workerId={}", workerId);
+        this(workerId, Clock.systemUTC(), ClockRegressionPolicy.STRICT);
+    }
+    
+    /**
+     * Creates a new Snowflake ID generator.
+     * 
+     * @param workerId Worker ID (0-1023)
+     * @param clock Clock used as the time source
+     * @param clockRegressionPolicy How to react when the clock moves backwards
+     * @throws IllegalArgumentException if workerId is out of range
+     */
+    public SnowflakeIdGenerator(long workerId, Clock clock, ClockRegressionPolicy clockRegressionPolicy) {
+        super(workerId, clock, clockRegressionPolicy);
     }
     
     /**
@@ -55,14 +47,94 @@ public class SnowflakeIdGenerator {
      * 
      * @return Unique 64-bit ID
      */
-    public synchronized long nextId() {
-        long timestamp = currentTimeMillis();
-        
-        // Clock moved backwards - wait until it's back
+    @Override
+    public long nextId() {
+        checkWorkerIdLease();
+        lock.lock();
+        try {
+            long timestamp = awaitClock(currentTimeMillis());
+            
+            // Same millisecond - increment sequence
+            if (timestamp == lastTimestamp) {
+                sequence = (sequence + 1) & MAX_SEQUENCE;
+                // Sequence overflow - move to next millisecond
+                if (sequence == 0) {
+                    timestamp = nextMillis(lastTimestamp);
+                }
+            } else {
+                // New millisecond - reset sequence
+                sequence = 0L;
+            }
+            
+            lastTimestamp = timestamp;
+            
+            // Generate and return ID
+            return composeId(timestamp, sequence);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Generates a block of unique IDs while taking the lock only once.
+     * 
+     * The remaining sequence space of the current millisecond is handed out
+     * in one go; larger blocks roll over into the following milliseconds.
+     * IDs in the returned array are strictly increasing.
+     * 
+     * @param count Number of IDs to generate (must be positive)
+     * @return Array of {@code count} unique IDs in ascending order
+     * @throws IllegalArgumentException if count is not positive
+     */
+    @Override
+    public long[] nextIds(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        checkWorkerIdLease();
+        long[] ids = new long[count];
+        int filled = 0;
+        lock.lock();
+        try {
+            long timestamp = awaitClock(currentTimeMillis());
+            
+            while (filled < count) {
+                // Current millisecond exhausted - move to the next one
+                if (timestamp == lastTimestamp && sequence == MAX_SEQUENCE) {
+                    timestamp = nextMillis(lastTimestamp);
+                }
+                long first = timestamp == lastTimestamp ? sequence + 1 : 0L;
+                long last = Math.min(MAX_SEQUENCE, first + (count - filled) - 1);
+                for (long seq = first; seq <= last; seq++) {
+                    ids[filled++] = composeId(timestamp, seq);
+                }
+                sequence = last;
+                lastTimestamp = timestamp;
+            }
+        } finally {
+            lock.unlock();
+        }
+        return ids;
+    }
+    
+    /**
+     * Guards against the clock moving backwards relative to the last issued
+     * timestamp. Must be called while holding the lock.
+     * 
+     * @return A timestamp that is not before the last issued one
+     */
+    private long awaitClock(long timestamp) {
         if (timestamp < lastTimestamp) {
+            // Clock moved backwards - keep issuing against the last-seen timestamp
+            if (clockRegressionPolicy == ClockRegressionPolicy.LOGICAL) {
+                recordBorrow(timestamp, lastTimestamp, true);
+                return lastTimestamp;
+            }
+            
+            // Clock moved backwards - wait until it's back
             long offset = lastTimestamp - timestamp;
             // Refuse to generate IDs if clock moved backwards significantly
-            if (offset > 5) {
+            if (offset > MAX_BACKWARD_MS) {
                 throw new RuntimeException(
                     String.format("Clock moved backwards by %d ms. Refusing to generate ID", offset));
             }
@@ -78,66 +150,24 @@ public class SnowflakeIdGenerator {
                 throw new RuntimeException("Interrupted while waiting for clock to catch up", e);
             }
         }
-        
-        // Same millisecond - increment sequence
-        if (timestamp == lastTimestamp) {
-            sequence = (sequence + 1) & MAX_SEQUENCE;
-            // Sequence overflow - wait for next millisecond
-            if (sequence == 0) {
-                timestamp = waitNextMillis(lastTimestamp);
-            }
-        } else {
-            // New millisecond - reset sequence
-            sequence = 0L;
-        }
-        
-        lastTimestamp = timestamp;
-        
-        // Generate and return ID
-        return ((timestamp - CUSTOM_EPOCH) << TIMESTAMP_SHIFT)
-                | (workerId << WORKER_ID_SHIFT)
-                | sequence;
-    }
-    
-    private long currentTimeMillis() {
-        return System.currentTimeMillis();
-    }
-    
-    private long waitNextMillis(long lastTimestamp) {
-        long timestamp = currentTimeMillis();
-        while (timestamp <= lastTimestamp) {
-            timestamp = currentTimeMillis();
-        }
+        recordCatchUp(timestamp);
         return timestamp;
     }
     
     /**
-     * Extracts the timestamp component from a Snowflake ID.
-     * 
-     * @param id Snowflake ID
-     * @return Timestamp in milliseconds
+     * Returns the timestamp to use once the current millisecond's sequence
+     * space is exhausted. The logical clock borrows the next millisecond
+     * immediately; the strict clock waits for it.
      */
-    public static long extractTimestamp(long id) {
-        return (id >> TIMESTAMP_SHIFT) + CUSTOM_EPOCH;
-    }
-    
-    /**
-     * Extracts the worker ID component from a Snowflake ID.
-     * 
-     * @param id Snowflake ID
-     * @return Worker ID
-     */
-    public static long extractWorkerId(long id) {
-        return (id >> WORKER_ID_SHIFT) & MAX_WORKER_ID;
-    }
-    
-    /**
-     * Extracts the sequence component from a Snowflake ID.
-     * 
-     * @param id Snowflake ID
-     * @return Sequence number
-     */
-    public static long extractSequence(long id) {
-        return id & MAX_SEQUENCE;
+    private long nextMillis(long lastTimestamp) {
+        if (clockRegressionPolicy == ClockRegressionPolicy.LOGICAL) {
+            long timestamp = currentTimeMillis();
+            if (timestamp <= lastTimestamp) {
+                recordBorrow(timestamp, lastTimestamp + 1, false);
+                return lastTimestamp + 1;
+            }
+            return timestamp;
+        }
+        return waitNextMillis(lastTimestamp);
     }
 }
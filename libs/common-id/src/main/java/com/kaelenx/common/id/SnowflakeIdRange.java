@@ -0,0 +1,57 @@
+package com.kaelenx.common.id;
+
+import java.time.Instant;
+
+/**
+ * Inclusive range of Snowflake IDs covering a time interval.
+ * 
+ * Because the timestamp occupies the most significant bits of a Snowflake ID,
+ * every ID created within {@code [from, to)} lies between {@link #minId()} and
+ * {@link #maxId()} regardless of worker ID or sequence. Tables keyed by
+ * Snowflake IDs can therefore answer time-range queries with a primary key
+ * range scan instead of a secondary index on {@code created_at}.
+ * 
+ * Precision is one millisecond; sub-millisecond parts of the bounds are truncated.
+ * 
+ * @param minId Smallest ID that can be generated at or after {@code from}
+ * @param maxId Largest ID that can be generated before {@code to}
+ */
+public record SnowflakeIdRange(long minId, long maxId) {
+    
+    /**
+     * Creates the ID range for the half-open interval {@code [from, to)}.
+     * 
+     * @param from Inclusive lower bound
+     * @param to Exclusive upper bound
+     * @return ID range; empty ({@code minId > maxId}) if {@code to} is not after {@code from}
+     */
+    public static SnowflakeIdRange between(Instant from, Instant to) {
+        return new SnowflakeIdRange(minIdAt(from), minIdAt(to) - 1);
+    }
+    
+    /**
+     * Returns the smallest ID whose timestamp is at or after the given instant.
+     * Instants before the custom epoch map to 0.
+     * 
+     * @param instant Point in time
+     * @return Smallest Snowflake ID for that millisecond
+     */
+    public static long minIdAt(Instant instant) {
+        long offset = instant.toEpochMilli() - AbstractSnowflakeIdGenerator.CUSTOM_EPOCH;
+        return offset <= 0 ? 0L : offset << AbstractSnowflakeIdGenerator.TIMESTAMP_SHIFT;
+    }
+    
+    /**
+     * Whether the range contains no IDs.
+     */
+    public boolean isEmpty() {
+        return minId > maxId;
+    }
+    
+    /**
+     * Whether the given ID falls within this range.
+     */
+    public boolean contains(long id) {
+        return id >= minId && id <= maxId;
+    }
+}
@@ -0,0 +1,205 @@
+package com.kaelenx.common.id;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Clock;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Leases a Snowflake worker ID from the {@code worker_id_lease} table.
+ * 
+ * At startup the instance claims the lowest expired or never-used worker ID,
+ * then renews its lease with a periodic heartbeat. A lease that is not renewed
+ * before it expires can be taken over by another instance, so crashed pods
+ * free their slot automatically. The lease is released on shutdown.
+ * 
+ * Lease times are stored as epoch milliseconds so the table stays
+ * database-neutral. They are read from the database clock
+ * ({@link DatabaseClock}), so instances with skewed wall clocks agree on
+ * when a lease has expired.
+ * 
+ * Locally the lease counts as held for the lease duration after the start of
+ * the last successful claim or renewal, measured on the monotonic clock. That
+ * deadline is never later than the expiry stored in the database, so once
+ * {@link #isLeaseValid()} turns false no other instance can have taken the
+ * worker ID over yet. Generators given this manager
+ * ({@link AbstractSnowflakeIdGenerator#setWorkerIdLease}) refuse to issue IDs while
+ * the lease is not valid.
+ */
+@Slf4j
+public class WorkerIdLeaseManager implements AutoCloseable {
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final String ownerId;
+    private final long leaseDurationMs;
+    private final long renewIntervalMs;
+    private final LongSupplier nanoTime;
+    
+    private volatile long workerId = -1L;
+    private volatile boolean leaseHeld;
+    private volatile long validUntilNanos;
+    private ScheduledExecutorService heartbeat;
+    
+    /**
+     * Creates a lease manager.
+     * 
+     * @param jdbcTemplate JDBC access to the service database
+     * @param clock Clock used for lease times, shared by all instances (see {@link DatabaseClock})
+     * @param ownerId Unique identifier of this instance
+     * @param leaseDurationMs How long a lease stays valid without renewal
+     * @param renewIntervalMs Heartbeat interval, must be shorter than the lease duration
+     */
+    public WorkerIdLeaseManager(JdbcTemplate jdbcTemplate, Clock clock, String ownerId,
+                                long leaseDurationMs, long renewIntervalMs) {
+        this(jdbcTemplate, clock, ownerId, leaseDurationMs, renewIntervalMs, System::nanoTime);
+    }
+    
+    WorkerIdLeaseManager(JdbcTemplate jdbcTemplate, Clock clock, String ownerId,
+                         long leaseDurationMs, long renewIntervalMs, LongSupplier nanoTime) {
+        if (renewIntervalMs <= 0 || renewIntervalMs >= leaseDurationMs) {
+            throw new IllegalArgumentException("renewIntervalMs must be positive and shorter than leaseDurationMs");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        this.ownerId = ownerId;
+        this.leaseDurationMs = leaseDurationMs;
+        this.renewIntervalMs = renewIntervalMs;
+        this.nanoTime = nanoTime;
+    }
+    
+    /**
+     * Claims a worker ID and starts the heartbeat.
+     * 
+     * @throws IllegalStateException if every worker ID is leased
+     */
+    public synchronized void start() {
+        long startNanos = nanoTime.getAsLong();
+        workerId = claim();
+        held(startNanos);
+        log.info("Leased workerId={} for owner={}", workerId, ownerId);
+        
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "worker-id-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::renew, renewIntervalMs, renewIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Returns the leased worker ID.
+     * 
+     * @throws IllegalStateException if no lease has been claimed yet
+     */
+    public long getWorkerId() {
+        if (workerId < 0) {
+            throw new IllegalStateException("Worker ID lease has not been claimed");
+        }
+        return workerId;
+    }
+    
+    /**
+     * Whether this instance still holds the lease: the last heartbeat renewed
+     * it and the lease duration has not run out since.
+     */
+    public boolean isLeaseValid() {
+        return leaseHeld && nanoTime.getAsLong() - validUntilNanos < 0;
+    }
+    
+    /**
+     * Extends the lease. If the lease was lost (for example after a long GC
+     * pause), tries to take the same worker ID back while nobody else holds it.
+     */
+    void renew() {
+        try {
+            long startNanos = nanoTime.getAsLong();
+            long now = clock.millis();
+            int updated = jdbcTemplate.update(
+                    "UPDATE worker_id_lease SET owner_id = ?, expires_at = ?, heartbeat_at = ? "
+                            + "WHERE worker_id = ? AND (owner_id = ? OR expires_at < ?)",
+                    ownerId, now + leaseDurationMs, now, workerId, ownerId, now);
+            if (updated == 1) {
+                if (!leaseHeld) {
+                    log.warn("Recovered worker ID lease: workerId={}", workerId);
+                }
+                held(startNanos);
+            } else {
+                if (leaseHeld) {
+                    log.error("Worker ID lease lost to another instance: workerId={}", workerId);
+                }
+                leaseHeld = false;
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to renew worker ID lease: workerId={}", workerId, e);
+        }
+    }
+    
+    /**
+     * Stops the heartbeat and releases the lease.
+     */
+    @Override
+    public synchronized void close() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+            heartbeat = null;
+        }
+        if (workerId >= 0) {
+            jdbcTemplate.update("DELETE FROM worker_id_lease WHERE worker_id = ? AND owner_id = ?", workerId, ownerId);
+            log.info("Released workerId={} for owner={}", workerId, ownerId);
+            leaseHeld = false;
+        }
+    }
+    
+    /**
+     * Marks the lease held until the lease duration after {@code startNanos},
+     * the moment before the database time of the claim or renewal was read.
+     */
+    private void held(long startNanos) {
+        validUntilNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(leaseDurationMs);
+        leaseHeld = true;
+    }
+    
+    private long claim() {
+        long now = clock.millis();
+        long expiresAt = now + leaseDurationMs;
+        
+        // Take over an expired lease
+        List<Long> expired = jdbcTemplate.queryForList(
+                "SELECT worker_id FROM worker_id_lease WHERE expires_at < ? ORDER BY worker_id", Long.class, now);
+        for (Long candidate : expired) {
+            int updated = jdbcTemplate.update(
+                    "UPDATE worker_id_lease SET owner_id = ?, expires_at = ?, heartbeat_at = ? "
+                            + "WHERE worker_id = ? AND expires_at < ?",
+                    ownerId, expiresAt, now, candidate, now);
+            if (updated == 1) {
+                return candidate;
+            }
+        }
+        
+        // Insert a never-used worker ID; a duplicate key means another instance won the race
+        Set<Long> used = new HashSet<>(jdbcTemplate.queryForList("SELECT worker_id FROM worker_id_lease", Long.class));
+        for (long candidate = 0; candidate <= AbstractSnowflakeIdGenerator.MAX_WORKER_ID; candidate++) {
+            if (used.contains(candidate)) {
+                continue;
+            }
+            try {
+                jdbcTemplate.update(
+                        "INSERT INTO worker_id_lease (worker_id, owner_id, expires_at, heartbeat_at) VALUES (?, ?, ?, ?)",
+                        candidate, ownerId, expiresAt, now);
+                return candidate;
+            } catch (DuplicateKeyException e) {
+                log.debug("Worker ID {} claimed concurrently, trying next", candidate);
+            }
+        }
+        throw new IllegalStateException("No free worker ID available");
+    }
+}
@@ -0,0 +1,140 @@
+package com.kaelenx.common.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferedSnowflakeIdGeneratorTest {
+    
+    @Test
+    void testBufferIsPrefilled() {
+        try (BufferedSnowflakeIdGenerator generator =
+                     new BufferedSnowflakeIdGenerator(new SnowflakeIdGenerator(1), 1000)) {
+            assertEquals(1024, generator.getCapacity(), "Capacity should round up to a power of two");
+            assertEquals(1024, generator.getBufferDepth(), "Buffer should be full after construction");
+            assertEquals(1024, generator.getRefilledIdCount());
+            
+            long id = generator.nextId();
+            assertEquals(1, SnowflakeIdGenerator.extractWorkerId(id));
+            assertEquals(0, generator.getConsumerStallCount());
+        }
+    }
+    
+    @Test
+    void testCapacityValidation() {
+        SnowflakeIdGenerator delegate = new SnowflakeIdGenerator(1);
+        assertThrows(IllegalArgumentException.class, () -> new BufferedSnowflakeIdGenerator(delegate, 0));
+    }
+    
+    @Test
+    void testProducerRefillsBuffer() throws InterruptedException {
+        try (BufferedSnowflakeIdGenerator generator =
+                     new BufferedSnowflakeIdGenerator(new LockFreeSnowflakeIdGenerator(1), 256)) {
+            for (int i = 0; i < 200; i++) {
+                generator.nextId();
+            }
+            
+            long deadline = System.currentTimeMillis() + 2000;
+            while (generator.getBufferDepth() < 256 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            
+            assertEquals(256, generator.getBufferDepth(), "Producer should top the buffer back up");
+            assertTrue(generator.getRefillBatchCount() >= 2);
+        }
+    }
+    
+    @Test
+    void testConcurrentConsumersGetUniqueIds() throws InterruptedException {
+        SnowflakeIdGenerator delegate = new SnowflakeIdGenerator(1);
+        int threadCount = 8;
+        int idsPerThread = 5000;
+        
+        Set<Long> allIds = new HashSet<>();
+        AtomicInteger duplicates = new AtomicInteger(0);
+        
+        try (BufferedSnowflakeIdGenerator generator = new BufferedSnowflakeIdGenerator(delegate, 64)) {
+            CountDownLatch latch = new CountDownLatch(threadCount);
+            ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+            
+            for (int i = 0; i < threadCount; i++) {
+                executor.submit(() -> {
+                    long[] threadIds = new long[idsPerThread];
+                    for (int j = 0; j < idsPerThread; j++) {
+                        threadIds[j] = generator.nextId();
+                    }
+                    synchronized (allIds) {
+                        for (long id : threadIds) {
+                            if (!allIds.add(id)) {
+                                duplicates.incrementAndGet();
+                            }
+                        }
+                    }
+                    latch.countDown();
+                });
+            }
+            
+            latch.await();
+            executor.shutdown();
+            
+            // Every ID came either from the buffer or from a stall fallback
+            assertTrue(generator.getRefilledIdCount() - generator.getBufferDepth()
+                    + generator.getConsumerStallCount() >= threadCount * idsPerThread);
+        }
+        
+        assertEquals(0, duplicates.get(), "Should have no duplicate IDs");
+        assertEquals(threadCount * idsPerThread, allIds.size());
+    }
+    
+    @Test
+    void testAgedIdsAreNotHandedOut() {
+        MutableClock clock = new MutableClock(System.currentTimeMillis());
+        SnowflakeIdGenerator delegate = new SnowflakeIdGenerator(1, clock, ClockRegressionPolicy.LOGICAL);
+        try (BufferedSnowflakeIdGenerator generator = new BufferedSnowflakeIdGenerator(delegate, 64, 100)) {
+            // Idle node: the buffer ages
+            clock.advance(60_000);
+            
+            long id = generator.nextId();
+            
+            assertTrue(SnowflakeIdGenerator.extractTimestamp(id) >= clock.millis() - 100,
+                    "Handed-out ID must not be older than maxAgeMs");
+            assertTrue(generator.getDiscardedIdCount() > 0);
+        }
+    }
+    
+    @Test
+    void testIdsStayAscendingAcrossStallsAndBulkRequests() {
+        try (BufferedSnowflakeIdGenerator generator =
+                     new BufferedSnowflakeIdGenerator(new SnowflakeIdGenerator(1), 16)) {
+            long previous = -1;
+            for (int i = 0; i < 20_000; i++) {
+                long id = i % 1000 == 999 ? generator.nextIds(4)[3] : generator.nextId();
+                assertTrue(id > previous, "IDs must be handed out in ascending order");
+                previous = id;
+            }
+            assertTrue(generator.getConsumerStallCount() > 0, "Small buffer should have stalled");
+        }
+    }
+    
+    @Test
+    void testClockStatisticsComeFromDelegate() {
+        MutableClock clock = new MutableClock(System.currentTimeMillis());
+        SnowflakeIdGenerator delegate = new SnowflakeIdGenerator(1, clock, ClockRegressionPolicy.LOGICAL);
+        try (BufferedSnowflakeIdGenerator generator = new BufferedSnowflakeIdGenerator(delegate, 16)) {
+            clock.advance(-50);
+            generator.nextIds(1);
+            
+            assertEquals(1, generator.getClockRegressionCount());
+            assertEquals(delegate.getMaxBorrowedMillis(), generator.getMaxBorrowedMillis());
+            assertTrue(generator.getMaxBorrowedMillis() >= 50);
+            assertTrue(generator.isBorrowingTime());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.kaelenx.common.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LockFreeSnowflakeIdGeneratorTest extends SnowflakeIdGeneratorContractTest {
+    
+    @Override
+    protected AbstractSnowflakeIdGenerator create(long workerId) {
+        return new LockFreeSnowflakeIdGenerator(workerId);
+    }
+    
+    @Override
+    protected AbstractSnowflakeIdGenerator create(long workerId, Clock clock, ClockRegressionPolicy clockRegressionPolicy) {
+        return new LockFreeSnowflakeIdGenerator(workerId, clock, clockRegressionPolicy);
+    }
+    
+    @Test
+    void testCompareAndSetRetriesUnderHighContention() throws InterruptedException {
+        // Frozen clock: every caller races for the same state word and borrows sequence space
+        MutableClock clock = new MutableClock(1735689600000L);
+        AbstractSnowflakeIdGenerator generator = create(1, clock, ClockRegressionPolicy.LOGICAL);
+        int threadCount = 16;
+        int idsPerThread = 5000;
+        
+        Set<Long> allIds = new HashSet<>();
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        AtomicInteger duplicates = new AtomicInteger(0);
+        AtomicInteger outOfOrder = new AtomicInteger(0);
+        
+        for (int i = 0; i < threadCount; i++) {
+            executor.submit(() -> {
+                long[] threadIds = new long[idsPerThread];
+                for (int j = 0; j < idsPerThread; j++) {
+                    threadIds[j] = generator.nextId();
+                    if (j > 0 && threadIds[j] <= threadIds[j - 1]) {
+                        outOfOrder.incrementAndGet();
+                    }
+                }
+                
+                synchronized (allIds) {
+                    for (long id : threadIds) {
+                        if (!allIds.add(id)) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                }
+                latch.countDown();
+            });
+        }
+        
+        latch.await();
+        executor.shutdown();
+        
+        assertEquals(0, duplicates.get(), "Should have no duplicate IDs");
+        assertEquals(0, outOfOrder.get(), "Each thread should see increasing IDs");
+        assertEquals(threadCount * idsPerThread, allIds.size());
+        assertTrue(generator.isBorrowingTime());
+    }
+    
+    @Test
+    void testLostCompareAndSetDoesNotRecordBorrow() {
+        MutableClock wallClock = new MutableClock(1735689600000L);
+        AtomicBoolean interfere = new AtomicBoolean(false);
+        LockFreeSnowflakeIdGenerator generator =
+                new LockFreeSnowflakeIdGenerator(1, wallClock, ClockRegressionPolicy.LOGICAL) {
+                    @Override
+                    long currentTimeMillis() {
+                        long now = super.currentTimeMillis();
+                        if (interfere.compareAndSet(true, false)) {
+                            // Another caller moves on to the next millisecond before this attempt's compare-and-set
+                            wallClock.advance(1);
+                            nextId();
+                        }
+                        return now;
+                    }
+                };
+        generator.nextIds(4096);
+        
+        // The first attempt would borrow the next millisecond but loses the race; the retry needs no borrowing
+        interfere.set(true);
+        generator.nextId();
+        
+        assertEquals(0, generator.getMaxBorrowedMillis());
+        assertFalse(generator.isBorrowingTime());
+    }
+}
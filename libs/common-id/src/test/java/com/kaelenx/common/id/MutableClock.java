@@ -0,0 +1,46 @@
+package com.kaelenx.common.id;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Test clock whose time is set explicitly.
+ */
+class MutableClock extends Clock {
+    
+    private volatile long millis;
+    
+    MutableClock(long millis) {
+        this.millis = millis;
+    }
+    
+    void set(long millis) {
+        this.millis = millis;
+    }
+    
+    void advance(long deltaMillis) {
+        this.millis += deltaMillis;
+    }
+    
+    @Override
+    public long millis() {
+        return millis;
+    }
+    
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+    
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+    
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+}
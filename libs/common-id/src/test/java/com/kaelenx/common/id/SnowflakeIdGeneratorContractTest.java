@@ -0,0 +1,239 @@
+package com.kaelenx.common.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link AbstractSnowflakeIdGenerator} implementation must share.
+ * Subclasses supply the implementation and add their own cases.
+ */
+abstract class SnowflakeIdGeneratorContractTest {
+    
+    protected abstract AbstractSnowflakeIdGenerator create(long workerId);
+    
+    protected abstract AbstractSnowflakeIdGenerator create(long workerId, Clock clock, ClockRegressionPolicy clockRegressionPolicy);
+    
+    @Test
+    void testGenerateUniqueIds() {
+        AbstractSnowflakeIdGenerator generator = create(1);
+        Set<Long> ids = new HashSet<>();
+        
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > 0, "ID should be positive");
+            assertTrue(ids.add(id), "ID should be unique");
+        }
+        
+        assertEquals(10000, ids.size(), "Should generate 10000 unique IDs");
+    }
+    
+    @Test
+    void testWorkerIdValidation() {
+        assertThrows(IllegalArgumentException.class, () -> create(-1));
+        assertThrows(IllegalArgumentException.class, () -> create(1024));
+        assertDoesNotThrow(() -> create(0));
+        assertDoesNotThrow(() -> create(1023));
+    }
+    
+    @Test
+    void testIdComponentExtraction() {
+        long before = System.currentTimeMillis();
+        AbstractSnowflakeIdGenerator generator = create(42);
+        long id = generator.nextId();
+        
+        assertEquals(42, SnowflakeIdGenerator.extractWorkerId(id), "Extracted worker ID should match");
+        
+        long timestamp = SnowflakeIdGenerator.extractTimestamp(id);
+        assertTrue(timestamp >= before, "Timestamp should not be before generation");
+        assertTrue(timestamp <= System.currentTimeMillis(), "Timestamp should not be in the future");
+        
+        long sequence = SnowflakeIdGenerator.extractSequence(id);
+        assertTrue(sequence >= 0 && sequence < 4096, "Sequence should be in valid range");
+    }
+    
+    @Test
+    void testMonotonicAcrossSequenceOverflow() {
+        AbstractSnowflakeIdGenerator generator = create(7);
+        long previous = generator.nextId();
+        
+        // More than one millisecond worth of sequence space
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous, "IDs should be monotonically increasing");
+            previous = id;
+        }
+    }
+    
+    @Test
+    void testConcurrentGeneration() throws InterruptedException {
+        AbstractSnowflakeIdGenerator generator = create(1);
+        int threadCount = 10;
+        int idsPerThread = 1000;
+        
+        Set<Long> allIds = new HashSet<>();
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        AtomicInteger duplicates = new AtomicInteger(0);
+        
+        for (int i = 0; i < threadCount; i++) {
+            executor.submit(() -> {
+                Set<Long> threadIds = new HashSet<>();
+                for (int j = 0; j < idsPerThread; j++) {
+                    long id = generator.nextId();
+                    threadIds.add(id);
+                }
+                
+                synchronized (allIds) {
+                    for (Long id : threadIds) {
+                        if (!allIds.add(id)) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                }
+                latch.countDown();
+            });
+        }
+        
+        latch.await();
+        executor.shutdown();
+        
+        assertEquals(0, duplicates.get(), "Should have no duplicate IDs");
+        assertEquals(threadCount * idsPerThread, allIds.size(), 
+            "Should generate expected number of unique IDs");
+    }
+    
+    @Test
+    void testNextIdsRollsOverMilliseconds() {
+        AbstractSnowflakeIdGenerator generator = create(3);
+        long before = generator.nextId();
+        
+        long[] ids = generator.nextIds(10000);
+        
+        assertEquals(10000, ids.length);
+        assertTrue(ids[0] > before, "Block should start after previously issued IDs");
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i] > ids[i - 1], "Block IDs should be strictly increasing");
+            assertEquals(3, SnowflakeIdGenerator.extractWorkerId(ids[i]));
+        }
+        assertTrue(SnowflakeIdGenerator.extractTimestamp(ids[ids.length - 1])
+                > SnowflakeIdGenerator.extractTimestamp(ids[0]), "Block larger than 4096 should span milliseconds");
+        assertTrue(generator.nextId() > ids[ids.length - 1], "Next ID should follow the block");
+    }
+    
+    @Test
+    void testNextIdsRejectsNonPositiveCount() {
+        AbstractSnowflakeIdGenerator generator = create(1);
+        assertThrows(IllegalArgumentException.class, () -> generator.nextIds(0));
+        assertThrows(IllegalArgumentException.class, () -> generator.nextIds(-1));
+    }
+    
+    @Test
+    void testConcurrentBlocksAndSingleIds() throws InterruptedException {
+        AbstractSnowflakeIdGenerator generator = create(1);
+        int threadCount = 8;
+        
+        Set<Long> allIds = new HashSet<>();
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        AtomicInteger duplicates = new AtomicInteger(0);
+        
+        for (int i = 0; i < threadCount; i++) {
+            boolean bulk = i % 2 == 0;
+            executor.submit(() -> {
+                long[] threadIds = bulk ? generator.nextIds(3000) : new long[3000];
+                if (!bulk) {
+                    for (int j = 0; j < threadIds.length; j++) {
+                        threadIds[j] = generator.nextId();
+                    }
+                }
+                synchronized (allIds) {
+                    for (long id : threadIds) {
+                        if (!allIds.add(id)) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                }
+                latch.countDown();
+            });
+        }
+        
+        latch.await();
+        executor.shutdown();
+        
+        assertEquals(0, duplicates.get(), "Should have no duplicate IDs");
+        assertEquals(threadCount * 3000, allIds.size());
+    }
+    
+    @Test
+    void testLogicalClockToleratesRegression() {
+        long start = 1735689600000L;
+        MutableClock clock = new MutableClock(start);
+        AbstractSnowflakeIdGenerator generator = create(1, clock, ClockRegressionPolicy.LOGICAL);
+        long before = generator.nextId();
+        
+        // NTP step far beyond the strict tolerance
+        clock.set(start - 50);
+        long during = generator.nextId();
+        
+        assertTrue(during > before, "IDs should stay monotonic while the clock is behind");
+        assertEquals(start, SnowflakeIdGenerator.extractTimestamp(during), "ID should use the last-seen timestamp");
+        assertTrue(generator.isBorrowingTime());
+        assertEquals(1, generator.getClockRegressionCount());
+        assertEquals(50, generator.getMaxBorrowedMillis());
+        
+        // Further calls within the same episode are not new regressions
+        clock.advance(20);
+        generator.nextId();
+        assertEquals(1, generator.getClockRegressionCount());
+        
+        clock.set(start + 1);
+        long after = generator.nextId();
+        
+        assertTrue(after > during);
+        assertFalse(generator.isBorrowingTime());
+        assertEquals(51, generator.getBorrowedDurationMillis(), "Borrowed for 51 ms of wall-clock time");
+    }
+    
+    @Test
+    void testLogicalClockBorrowsFutureSequenceSpace() {
+        long start = 1735689600000L;
+        MutableClock clock = new MutableClock(start);
+        AbstractSnowflakeIdGenerator generator = create(1, clock, ClockRegressionPolicy.LOGICAL);
+        
+        // Frozen clock: more IDs than one millisecond can hold, without spinning
+        long previous = generator.nextId();
+        for (int i = 0; i < 10000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous, "IDs should be monotonically increasing");
+            previous = id;
+        }
+        long[] block = generator.nextIds(5000);
+        assertTrue(block[0] > previous);
+        
+        assertEquals(start + 3, SnowflakeIdGenerator.extractTimestamp(block[block.length - 1]));
+        assertEquals(3, generator.getMaxBorrowedMillis());
+        assertEquals(0, generator.getClockRegressionCount(), "Sequence overflow is not a clock regression");
+        assertTrue(generator.isBorrowingTime());
+    }
+    
+    @Test
+    void testStrictClockRefusesLargeRegression() {
+        long start = 1735689600000L;
+        MutableClock clock = new MutableClock(start);
+        AbstractSnowflakeIdGenerator generator = create(1, clock, ClockRegressionPolicy.STRICT);
+        generator.nextId();
+        
+        clock.set(start - 50);
+        
+        assertThrows(RuntimeException.class, generator::nextId);
+    }
+}
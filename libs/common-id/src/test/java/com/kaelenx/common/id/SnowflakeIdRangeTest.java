@@ -0,0 +1,54 @@
+package com.kaelenx.common.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeIdRangeTest {
+    
+    @Test
+    void testRangeCoversIdsCreatedInInterval() {
+        long now = 1735689600000L;
+        MutableClock clock = new MutableClock(now);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1023, clock, ClockRegressionPolicy.STRICT);
+        
+        clock.set(now - 1);
+        long before = generator.nextId();
+        clock.set(now);
+        long first = generator.nextId();
+        clock.set(now + 999);
+        long last = generator.nextIds(4096)[4095];
+        clock.set(now + 1000);
+        long after = generator.nextId();
+        
+        SnowflakeIdRange range = SnowflakeIdRange.between(
+                Instant.ofEpochMilli(now), Instant.ofEpochMilli(now + 1000));
+        
+        assertFalse(range.contains(before), "ID before the interval should be excluded");
+        assertTrue(range.contains(first), "ID at the lower bound should be included");
+        assertTrue(range.contains(last), "Highest ID in the last millisecond should be included");
+        assertFalse(range.contains(after), "ID at the upper bound should be excluded");
+    }
+    
+    @Test
+    void testBoundsMatchExtractedTimestamps() {
+        Instant from = Instant.parse("2025-06-01T00:00:00Z");
+        Instant to = Instant.parse("2025-06-02T00:00:00Z");
+        
+        SnowflakeIdRange range = SnowflakeIdRange.between(from, to);
+        
+        assertEquals(from.toEpochMilli(), SnowflakeIdGenerator.extractTimestamp(range.minId()));
+        assertEquals(to.toEpochMilli() - 1, SnowflakeIdGenerator.extractTimestamp(range.maxId()));
+        assertEquals(1023, SnowflakeIdGenerator.extractWorkerId(range.maxId()));
+        assertEquals(4095, SnowflakeIdGenerator.extractSequence(range.maxId()));
+    }
+    
+    @Test
+    void testEmptyAndPreEpochRanges() {
+        Instant instant = Instant.parse("2025-06-01T00:00:00Z");
+        assertTrue(SnowflakeIdRange.between(instant, instant).isEmpty());
+        assertEquals(0L, SnowflakeIdRange.minIdAt(Instant.parse("2020-01-01T00:00:00Z")));
+    }
+}
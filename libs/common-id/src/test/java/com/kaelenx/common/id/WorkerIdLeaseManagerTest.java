@@ -0,0 +1,167 @@
+package com.kaelenx.common.id;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkerIdLeaseManagerTest {
+    
+    private static final long LEASE_MS = 30000L;
+    private static final long RENEW_MS = 10000L;
+    
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private MutableClock clock;
+    
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("worker_id_lease.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        clock = new MutableClock(1735689600000L);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+    
+    @Test
+    void testInstancesClaimDistinctWorkerIds() {
+        WorkerIdLeaseManager first = newManager("pod-a");
+        WorkerIdLeaseManager second = newManager("pod-b");
+        first.start();
+        second.start();
+        
+        assertEquals(0, first.getWorkerId());
+        assertEquals(1, second.getWorkerId());
+        assertTrue(first.isLeaseValid());
+        assertTrue(second.isLeaseValid());
+        
+        first.close();
+        second.close();
+    }
+    
+    @Test
+    void testReleasedWorkerIdIsReused() {
+        WorkerIdLeaseManager first = newManager("pod-a");
+        first.start();
+        first.close();
+        
+        WorkerIdLeaseManager second = newManager("pod-b");
+        second.start();
+        
+        assertEquals(0, second.getWorkerId());
+        second.close();
+    }
+    
+    @Test
+    void testExpiredLeaseIsTakenOver() {
+        WorkerIdLeaseManager crashed = newManager("pod-a");
+        crashed.start();
+        
+        // pod-a stops heartbeating; its lease expires
+        clock.advance(LEASE_MS + 1);
+        WorkerIdLeaseManager replacement = newManager("pod-b");
+        replacement.start();
+        
+        assertEquals(0, replacement.getWorkerId(), "Expired worker ID should be reused");
+        
+        // A late heartbeat from the old owner must not steal it back
+        crashed.renew();
+        assertFalse(crashed.isLeaseValid());
+        
+        replacement.close();
+    }
+    
+    @Test
+    void testHeartbeatKeepsLeaseAlive() {
+        WorkerIdLeaseManager holder = newManager("pod-a");
+        holder.start();
+        
+        clock.advance(RENEW_MS);
+        holder.renew();
+        clock.advance(LEASE_MS - 1);
+        
+        WorkerIdLeaseManager other = newManager("pod-b");
+        other.start();
+        
+        assertEquals(1, other.getWorkerId(), "Renewed lease should not be taken over");
+        assertTrue(holder.isLeaseValid());
+        
+        holder.close();
+        other.close();
+    }
+    
+    @Test
+    void testLeaseExpiresWithoutHeartbeat() {
+        WorkerIdLeaseManager holder = newManager("pod-a");
+        holder.start();
+        
+        // Heartbeats fail (database unreachable); the lease runs out locally before anyone can take it over
+        clock.advance(LEASE_MS - 1);
+        assertTrue(holder.isLeaseValid());
+        clock.advance(1);
+        assertFalse(holder.isLeaseValid());
+        
+        holder.close();
+    }
+    
+    @Test
+    void testGeneratorRefusesIdsOnceLeaseIsLost() {
+        WorkerIdLeaseManager crashed = newManager("pod-a");
+        crashed.start();
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(crashed.getWorkerId());
+        generator.setWorkerIdLease(crashed);
+        generator.nextId();
+        
+        clock.advance(LEASE_MS + 1);
+        WorkerIdLeaseManager replacement = newManager("pod-b");
+        replacement.start();
+        crashed.renew();
+        
+        IllegalStateException e = assertThrows(IllegalStateException.class, generator::nextId);
+        assertTrue(e.getMessage().contains("workerId=0"));
+        assertThrows(IllegalStateException.class, () -> generator.nextIds(8));
+        
+        replacement.close();
+    }
+    
+    @Test
+    void testLeaseMustMatchGeneratorWorkerId() {
+        WorkerIdLeaseManager holder = newManager("pod-a");
+        holder.start();
+        
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(5).setWorkerIdLease(holder));
+        holder.close();
+    }
+    
+    @Test
+    void testWorkerIdUnavailableBeforeStart() {
+        WorkerIdLeaseManager manager = newManager("pod-a");
+        assertThrows(IllegalStateException.class, manager::getWorkerId);
+    }
+    
+    @Test
+    void testRenewIntervalValidation() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new WorkerIdLeaseManager(jdbcTemplate, clock, "pod-a", 1000L, 1000L));
+    }
+    
+    private WorkerIdLeaseManager newManager(String ownerId) {
+        // One test clock stands in for both the database clock and the local monotonic clock
+        return new WorkerIdLeaseManager(jdbcTemplate, clock, ownerId, LEASE_MS, RENEW_MS,
+                () -> TimeUnit.MILLISECONDS.toNanos(clock.millis()));
+    }
+}
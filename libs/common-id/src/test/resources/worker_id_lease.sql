@@ -0,0 +1,11 @@
+-- Mirrors the services' worker_id_lease Flyway migration for embedded database tests
+
+CREATE TABLE worker_id_lease (
+    worker_id BIGINT PRIMARY KEY,
+    owner_id VARCHAR(255) NOT NULL,
+    expires_at BIGINT NOT NULL,
+    heartbeat_at BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_expires_at ON worker_id_lease (expires_at);
@@ -0,0 +1,348 @@
+package com.kaelenx.common.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Byte-level BPE tokenizer.
+ * 
+ * Text is first split into chunks: runs of letters, of digits, of other
+ * symbols, and of whitespace, where a single space before a word belongs to
+ * the word (" hello"). Each chunk is encoded as UTF-8 bytes (token IDs
+ * 0-255), and adjacent tokens are merged by the merge table, lowest rank
+ * first, until no mergeable pair is left. Merge number {@code r} produces
+ * token {@code 256 + r}. Chunks longer than {@value #MAX_CHUNK_BYTES} bytes
+ * are split, which bounds the quadratic merge loop.
+ * 
+ * The merge table is a text file with one {@code left right} pair of token
+ * IDs per line, in rank order; lines starting with {@code #} are comments.
+ * 
+ * Counting allocates one small scratch array per call and no objects per
+ * chunk; merge ranks are looked up in an open-addressing table of primitive
+ * arrays. Instances are immutable and thread-safe.
+ */
+public final class BpeTokenizer {
+    
+    /**
+     * Merge table bundled with this library (4000 merges trained on English prose)
+     */
+    public static final String DEFAULT_MERGES = "tokenizer/bpe-merges.txt";
+    
+    static final int MAX_CHUNK_BYTES = 64;
+    
+    private static final int BYTE_TOKENS = 256;
+    private static final long EMPTY = -1L;
+    
+    private static final int LETTER = 0;
+    private static final int DIGIT = 1;
+    private static final int SPACE = 2;
+    private static final int OTHER = 3;
+    
+    private final int mergeCount;
+    private final long[] pairKeys;
+    private final int[] pairRanks;
+    private final int mask;
+    private final byte[][] tokenBytes;
+    
+    private BpeTokenizer(int[] lefts, int[] rights, int mergeCount) {
+        this.mergeCount = mergeCount;
+        int capacity = Integer.highestOneBit(Math.max(2, mergeCount) * 4 - 1);
+        this.pairKeys = new long[capacity];
+        this.pairRanks = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(pairKeys, EMPTY);
+        
+        this.tokenBytes = new byte[BYTE_TOKENS + mergeCount][];
+        for (int b = 0; b < BYTE_TOKENS; b++) {
+            tokenBytes[b] = new byte[] {(byte) b};
+        }
+        for (int rank = 0; rank < mergeCount; rank++) {
+            int left = lefts[rank];
+            int right = rights[rank];
+            if (left >= BYTE_TOKENS + rank || right >= BYTE_TOKENS + rank) {
+                throw new IllegalArgumentException("Merge " + rank + " refers to a later token");
+            }
+            long key = pairKey(left, right);
+            int slot = slot(key);
+            if (pairKeys[slot] == EMPTY) {
+                pairKeys[slot] = key;
+                pairRanks[slot] = rank;
+            }
+            byte[] merged = Arrays.copyOf(tokenBytes[left], tokenBytes[left].length + tokenBytes[right].length);
+            System.arraycopy(tokenBytes[right], 0, merged, tokenBytes[left].length, tokenBytes[right].length);
+            tokenBytes[BYTE_TOKENS + rank] = merged;
+        }
+    }
+    
+    /**
+     * Load a merge table from the classpath
+     * 
+     * @throws IllegalArgumentException If the resource does not exist or is malformed
+     */
+    public static BpeTokenizer fromClasspath(String resource) {
+        InputStream in = BpeTokenizer.class.getClassLoader().getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalArgumentException("Merge table not found on classpath: " + resource);
+        }
+        try (in) {
+            return load(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read merge table " + resource, e);
+        }
+    }
+    
+    /**
+     * Load a merge table from a stream (not closed)
+     * 
+     * @throws IllegalArgumentException If the table is malformed
+     */
+    public static BpeTokenizer load(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        int[] lefts = new int[1024];
+        int[] rights = new int[1024];
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            if (space < 0) {
+                throw new IllegalArgumentException("Malformed merge: " + line);
+            }
+            if (count == lefts.length) {
+                lefts = Arrays.copyOf(lefts, count * 2);
+                rights = Arrays.copyOf(rights, count * 2);
+            }
+            lefts[count] = Integer.parseInt(line.substring(0, space));
+            rights[count] = Integer.parseInt(line.substring(space + 1).trim());
+            count++;
+        }
+        return new BpeTokenizer(lefts, rights, count);
+    }
+    
+    /**
+     * Returns the number of distinct tokens (256 bytes plus one per merge)
+     */
+    public int vocabularySize() {
+        return BYTE_TOKENS + mergeCount;
+    }
+    
+    /**
+     * Count the tokens of {@code text} without building them
+     */
+    public int countTokens(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return 0;
+        }
+        return tokenize(text, null);
+    }
+    
+    /**
+     * Encode {@code text} into token IDs
+     */
+    public int[] encode(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return new int[0];
+        }
+        TokenBuffer out = new TokenBuffer(text.length() / 3 + 8);
+        tokenize(text, out);
+        return out.toArray();
+    }
+    
+    /**
+     * Decode token IDs back into text
+     */
+    public String decode(int[] tokens) {
+        int length = 0;
+        for (int token : tokens) {
+            length += tokenBytes[token].length;
+        }
+        byte[] bytes = new byte[length];
+        int position = 0;
+        for (int token : tokens) {
+            byte[] piece = tokenBytes[token];
+            System.arraycopy(piece, 0, bytes, position, piece.length);
+            position += piece.length;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Split into chunks and merge each one
+     * 
+     * @param out Receives the tokens, or null to only count them
+     * @return Number of tokens
+     */
+    private int tokenize(CharSequence text, TokenBuffer out) {
+        // Room for one more code point (4 bytes) after a chunk reaches the limit
+        int[] chunk = new int[MAX_CHUNK_BYTES + 4];
+        int tokens = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int size = 0;
+            int cp = Character.codePointAt(text, i);
+            
+            // A single space before a non-space belongs to the following chunk
+            if (cp == ' ' && i + 1 < length && !Character.isWhitespace(Character.codePointAt(text, i + 1))) {
+                chunk[size++] = ' ';
+                i++;
+                cp = Character.codePointAt(text, i);
+            }
+            int kind = kindOf(cp);
+            int runStart = i;
+            while (i < length && size < MAX_CHUNK_BYTES) {
+                cp = Character.codePointAt(text, i);
+                if (kindOf(cp) != kind) {
+                    break;
+                }
+                // Leave the last space of a whitespace run to the word after it
+                if (kind == SPACE && cp == ' ' && i > runStart && i + 1 < length
+                        && !Character.isWhitespace(Character.codePointAt(text, i + 1))) {
+                    break;
+                }
+                size = putUtf8(chunk, size, cp);
+                i += Character.charCount(cp);
+            }
+            
+            size = merge(chunk, size);
+            tokens += size;
+            if (out != null) {
+                out.add(chunk, size);
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * Apply merges to {@code chunk[0, size)} in place
+     * 
+     * @return Number of tokens left
+     */
+    private int merge(int[] chunk, int size) {
+        while (size > 1) {
+            int bestRank = Integer.MAX_VALUE;
+            for (int i = 0; i < size - 1; i++) {
+                int rank = rankOf(chunk[i], chunk[i + 1]);
+                if (rank < bestRank) {
+                    bestRank = rank;
+                }
+            }
+            if (bestRank == Integer.MAX_VALUE) {
+                return size;
+            }
+            
+            // Merge every occurrence of the best pair, left to right
+            int written = 0;
+            for (int read = 0; read < size; read++) {
+                if (read + 1 < size && rankOf(chunk[read], chunk[read + 1]) == bestRank) {
+                    chunk[written++] = BYTE_TOKENS + bestRank;
+                    read++;
+                } else {
+                    chunk[written++] = chunk[read];
+                }
+            }
+            size = written;
+        }
+        return size;
+    }
+    
+    private int rankOf(int left, int right) {
+        long key = pairKey(left, right);
+        int slot = slot(key);
+        while (true) {
+            long candidate = pairKeys[slot];
+            if (candidate == key) {
+                return pairRanks[slot];
+            }
+            if (candidate == EMPTY) {
+                return Integer.MAX_VALUE;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+    
+    /**
+     * First free or matching slot for {@code key}
+     */
+    private int slot(long key) {
+        int slot = (int) (mix(key) & mask);
+        while (pairKeys[slot] != EMPTY && pairKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+    
+    private static long pairKey(int left, int right) {
+        return ((long) left << 32) | right;
+    }
+    
+    private static long mix(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return key ^ (key >>> 29);
+    }
+    
+    private static int kindOf(int cp) {
+        if (Character.isLetter(cp)) {
+            return LETTER;
+        }
+        if (Character.isDigit(cp)) {
+            return DIGIT;
+        }
+        if (Character.isWhitespace(cp)) {
+            return SPACE;
+        }
+        return OTHER;
+    }
+    
+    private static int putUtf8(int[] bytes, int size, int cp) {
+        if (cp < 0x80) {
+            bytes[size++] = cp;
+        } else if (cp < 0x800) {
+            bytes[size++] = 0xC0 | (cp >> 6);
+            bytes[size++] = 0x80 | (cp & 0x3F);
+        } else if (cp < 0x10000) {
+            bytes[size++] = 0xE0 | (cp >> 12);
+            bytes[size++] = 0x80 | ((cp >> 6) & 0x3F);
+            bytes[size++] = 0x80 | (cp & 0x3F);
+        } else {
+            bytes[size++] = 0xF0 | (cp >> 18);
+            bytes[size++] = 0x80 | ((cp >> 12) & 0x3F);
+            bytes[size++] = 0x80 | ((cp >> 6) & 0x3F);
+            bytes[size++] = 0x80 | (cp & 0x3F);
+        }
+        return size;
+    }
+    
+    /**
+     * Growable int array
+     */
+    private static final class TokenBuffer {
+        
+        private int[] tokens;
+        private int size;
+        
+        private TokenBuffer(int capacity) {
+            this.tokens = new int[capacity];
+        }
+        
+        private void add(int[] chunk, int count) {
+            if (size + count > tokens.length) {
+                tokens = Arrays.copyOf(tokens, Math.max(tokens.length * 2, size + count));
+            }
+            System.arraycopy(chunk, 0, tokens, size, count);
+            size += count;
+        }
+        
+        private int[] toArray() {
+            return Arrays.copyOf(tokens, size);
+        }
+    }
+}
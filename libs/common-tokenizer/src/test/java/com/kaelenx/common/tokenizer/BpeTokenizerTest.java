@@ -0,0 +1,82 @@
+package com.kaelenx.common.tokenizer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BpeTokenizerTest {
+    
+    private static final BpeTokenizer TOKENIZER = BpeTokenizer.fromClasspath(BpeTokenizer.DEFAULT_MERGES);
+    
+    @Test
+    void testEncodesWithBundledMerges() {
+        String text = "Hello! I have been learning English every day, and my pronunciation is getting better.";
+        
+        int[] tokens = TOKENIZER.encode(text);
+        
+        // Reference encoding produced by the script that trained the merge table
+        assertArrayEquals(new int[] {4191, 33, 360, 509, 1353, 673, 2938, 2883, 1281, 300, 450, 44, 315, 4010,
+                952, 265, 2717, 105, 369, 311, 752, 944, 2943, 46}, tokens);
+        assertEquals(tokens.length, TOKENIZER.countTokens(text));
+        assertEquals(4256, TOKENIZER.vocabularySize());
+    }
+    
+    @Test
+    void testSpaceBeforeWordJoinsTheWord() {
+        // "  x  = 42;" -> " ", " x", " ", " =", " 42"... as chunks, then merged
+        assertArrayEquals(new int[] {32, 966, 32, 998, 1166, 50, 59}, TOKENIZER.encode("  x  = 42;"));
+    }
+    
+    @Test
+    void testRoundTrip() {
+        String[] texts = {
+                "Could you correct my sentence: \"He go to school yesterday\"?",
+                "Café naïve résumé 你好世界 😀\n\n\tindented   spaces",
+                "a".repeat(1000),
+                "1234567890".repeat(20) + "!!!???..."
+        };
+        for (String text : texts) {
+            int[] tokens = TOKENIZER.encode(text);
+            assertEquals(text, TOKENIZER.decode(tokens));
+            assertEquals(tokens.length, TOKENIZER.countTokens(text));
+        }
+    }
+    
+    @Test
+    void testEnglishIsCompressed() {
+        String text = "Of course! I'm here to help you improve your English. What would you like to practice today?";
+        
+        int tokens = TOKENIZER.countTokens(text);
+        
+        assertTrue(tokens * 3 < text.length(), "tokens=" + tokens + ", chars=" + text.length());
+    }
+    
+    @Test
+    void testEmptyText() {
+        assertEquals(0, TOKENIZER.countTokens(""));
+        assertEquals(0, TOKENIZER.countTokens(null));
+        assertArrayEquals(new int[0], TOKENIZER.encode(""));
+    }
+    
+    @Test
+    void testLoadsCustomTable() throws Exception {
+        // 256 = "ab", 257 = "abc"
+        String table = "# test\n97 98\n256 99\n";
+        BpeTokenizer tokenizer = BpeTokenizer.load(new ByteArrayInputStream(table.getBytes(StandardCharsets.UTF_8)));
+        
+        assertArrayEquals(new int[] {257, 32, 256, 100}, tokenizer.encode("abc abd"));
+        assertEquals(258, tokenizer.vocabularySize());
+    }
+    
+    @Test
+    void testRejectsMalformedTable() {
+        assertThrows(IllegalArgumentException.class,
+                () -> BpeTokenizer.load(new ByteArrayInputStream("97 300\n".getBytes(StandardCharsets.UTF_8))));
+        assertThrows(IllegalArgumentException.class,
+                () -> BpeTokenizer.load(new ByteArrayInputStream("97\n".getBytes(StandardCharsets.UTF_8))));
+        assertThrows(IllegalArgumentException.class, () -> BpeTokenizer.fromClasspath("tokenizer/missing.txt"));
+    }
+}
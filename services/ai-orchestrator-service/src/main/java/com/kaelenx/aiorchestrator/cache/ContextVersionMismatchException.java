@@ -0,0 +1,16 @@
+package com.kaelenx.aiorchestrator.cache;
+
+/**
+ * Thrown when a session-mode request sends no history and the cached history
+ * of its conversation is missing or has a different version. The caller
+ * should resend the request with full history.
+ */
+public class ContextVersionMismatchException extends RuntimeException {
+    
+    public ContextVersionMismatchException(Long conversationId, long expectedVersion, Long cachedVersion) {
+        super(cachedVersion == null
+                ? "No cached context for conversation " + conversationId + ", resend with full history"
+                : "Cached context of conversation " + conversationId + " is at version " + cachedVersion
+                        + ", not " + expectedVersion + ", resend with full history");
+    }
+}
@@ -0,0 +1,222 @@
+package com.kaelenx.aiorchestrator.cache;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory history of recent conversations, so callers in session
+ * mode can send only the new turn.
+ * 
+ * A session-mode request carries {@code contextVersion}: the Snowflake ID of
+ * the last history message before its user text, or 0 if there is none. If
+ * it sends no history, the cached history is used when it was stored under
+ * exactly that version; otherwise the request is rejected with
+ * {@link ContextVersionMismatchException} and the caller resends it with
+ * full history. After a successful turn, the history plus the user text and
+ * reply is stored under {@code replyMessageId}, the ID the caller saves the
+ * reply under. A turn the caller never saves (its call timed out, say)
+ * leaves an entry no later request names, so it cannot be served in place
+ * of the history the caller actually has. Requests without
+ * {@code contextVersion} bypass the cache.
+ * 
+ * Entries expire {@code idleTtlMs} after their last use, and are evicted
+ * least recently used first once their combined weight (approximate heap
+ * bytes of the messages) exceeds {@code maxWeightBytes}.
+ * 
+ * Metrics:
+ * - ai.context.session.requests{result=hit|miss|mismatch|full}: session-mode lookups
+ * - ai.context.session.evictions{reason=idle|size}: conversations dropped
+ * - ai.context.session.size / ai.context.session.weight: cached conversations and bytes
+ */
+@Slf4j
+@Component
+public class ConversationContextCache {
+    
+    private record Entry(long version, List<ChatRequest.HistoryMessage> history, int weight, long lastUsedNanos) {
+    }
+    
+    private final boolean enabled;
+    private final long idleTtlNanos;
+    private final long maxWeightBytes;
+    
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+    
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter mismatches;
+    private final Counter full;
+    private final Counter idleEvictions;
+    private final Counter sizeEvictions;
+    
+    public ConversationContextCache(MeterRegistry meterRegistry,
+                                    @Value("${ai.context.session.enabled:true}") boolean enabled,
+                                    @Value("${ai.context.session.idle-ttl-ms:1800000}") long idleTtlMs,
+                                    @Value("${ai.context.session.max-weight-bytes:67108864}") long maxWeightBytes) {
+        this.enabled = enabled;
+        this.idleTtlNanos = TimeUnit.MILLISECONDS.toNanos(idleTtlMs);
+        this.maxWeightBytes = maxWeightBytes;
+        
+        this.hits = meterRegistry.counter("ai.context.session.requests", "result", "hit");
+        this.misses = meterRegistry.counter("ai.context.session.requests", "result", "miss");
+        this.mismatches = meterRegistry.counter("ai.context.session.requests", "result", "mismatch");
+        this.full = meterRegistry.counter("ai.context.session.requests", "result", "full");
+        this.idleEvictions = meterRegistry.counter("ai.context.session.evictions", "reason", "idle");
+        this.sizeEvictions = meterRegistry.counter("ai.context.session.evictions", "reason", "size");
+        Gauge.builder("ai.context.session.size", this, ConversationContextCache::size)
+                .register(meterRegistry);
+        Gauge.builder("ai.context.session.weight", this, ConversationContextCache::getWeight)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        
+        log.info("ConversationContextCache initialized: enabled={}, idleTtlMs={}, maxWeightBytes={}",
+                enabled, idleTtlMs, maxWeightBytes);
+    }
+    
+    /**
+     * Fill in the cached history of a session-mode request that sent none
+     * 
+     * @return The request itself, or a copy with the cached history
+     * @throws ContextVersionMismatchException If the cache does not hold the history the request expects
+     */
+    public ChatRequest resolve(ChatRequest request) {
+        Long version = request.getContextVersion();
+        if (version == null) {
+            return request;
+        }
+        if (request.getHistory() != null && !request.getHistory().isEmpty()) {
+            full.increment();
+            return request;
+        }
+        if (version == 0) {
+            // First turn: there is no history to miss
+            hits.increment();
+            return request;
+        }
+        
+        Entry entry = enabled ? get(request.getConversationId()) : null;
+        if (entry == null) {
+            misses.increment();
+            throw new ContextVersionMismatchException(request.getConversationId(), version, null);
+        }
+        if (entry.version() != version) {
+            mismatches.increment();
+            throw new ContextVersionMismatchException(request.getConversationId(), version, entry.version());
+        }
+        hits.increment();
+        return ChatRequest.builder()
+                .conversationId(request.getConversationId())
+                .userId(request.getUserId())
+                .sceneId(request.getSceneId())
+                .difficulty(request.getDifficulty())
+                .planTier(request.getPlanTier())
+                .userText(request.getUserText())
+                .history(entry.history())
+                .contextVersion(version)
+                .replyMessageId(request.getReplyMessageId())
+                .build();
+    }
+    
+    /**
+     * Store the history after a successful turn of a session-mode request
+     * 
+     * @param request Request as resolved by {@link #resolve}
+     * @param replyText Reply to the request's user text
+     */
+    public void advance(ChatRequest request, String replyText) {
+        Long replyMessageId = request.getReplyMessageId();
+        List<ChatRequest.HistoryMessage> history = request.getHistory() != null ? request.getHistory() : List.of();
+        if (!enabled || request.getContextVersion() == null || replyMessageId == null || replyText == null) {
+            return;
+        }
+        
+        List<ChatRequest.HistoryMessage> next = new ArrayList<>(history.size() + 2);
+        next.addAll(history);
+        next.add(new ChatRequest.HistoryMessage("user", request.getUserText()));
+        next.add(new ChatRequest.HistoryMessage("assistant", replyText));
+        int entryWeight = 64;
+        for (ChatRequest.HistoryMessage message : next) {
+            entryWeight += 48 + 2 * (message.getContent() != null ? message.getContent().length() : 0);
+        }
+        
+        synchronized (this) {
+            remove(request.getConversationId());
+            if (entryWeight > maxWeightBytes) {
+                return;
+            }
+            entries.put(request.getConversationId(),
+                    new Entry(replyMessageId, List.copyOf(next), entryWeight, System.nanoTime()));
+            weight += entryWeight;
+            
+            // Access order: the first entries are the least recently used
+            Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+            while (weight > maxWeightBytes && eldest.hasNext()) {
+                Map.Entry<Long, Entry> victim = eldest.next();
+                weight -= victim.getValue().weight();
+                eldest.remove();
+                sizeEvictions.increment();
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of cached conversations
+     */
+    public synchronized int size() {
+        evictIdle();
+        return entries.size();
+    }
+    
+    /**
+     * Returns the approximate heap bytes held by cached histories
+     */
+    public synchronized long getWeight() {
+        evictIdle();
+        return weight;
+    }
+    
+    private synchronized Entry get(Long conversationId) {
+        evictIdle();
+        Entry entry = entries.get(conversationId);
+        if (entry != null) {
+            entries.put(conversationId, new Entry(entry.version(), entry.history(), entry.weight(), System.nanoTime()));
+        }
+        return entry;
+    }
+    
+    /**
+     * Drop entries unused for longer than the idle TTL (the least recently used come first)
+     */
+    private void evictIdle() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+        while (eldest.hasNext()) {
+            Map.Entry<Long, Entry> entry = eldest.next();
+            if (now - entry.getValue().lastUsedNanos() < idleTtlNanos) {
+                break;
+            }
+            weight -= entry.getValue().weight();
+            eldest.remove();
+            idleEvictions.increment();
+        }
+    }
+    
+    private void remove(Long conversationId) {
+        Entry removed = entries.remove(conversationId);
+        if (removed != null) {
+            weight -= removed.weight();
+        }
+    }
+}
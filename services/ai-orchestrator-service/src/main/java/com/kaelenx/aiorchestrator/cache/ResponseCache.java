@@ -0,0 +1,194 @@
+package com.kaelenx.aiorchestrator.cache;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Bounded in-memory cache of replies to single-turn prompts.
+ * 
+ * Only requests without conversation history are cached, since a reply to a
+ * later turn depends on everything said before it. Entries are keyed on the
+ * normalized user text, scene, difficulty and model, expire after
+ * {@code ttlMs}, and are evicted least recently used first once their
+ * combined weight (approximate heap bytes of key and reply) exceeds
+ * {@code maxWeightBytes}. Caching is opt-in per plan tier.
+ * 
+ * Metrics:
+ * - ai.response.cache.requests{result=hit|miss}: cache lookups
+ * - ai.response.cache.hit.ratio: hits / lookups since startup
+ * - ai.response.cache.latency.saved: provider latency avoided per hit (ms)
+ * - ai.response.cache.evictions: entries evicted to stay under the weight limit
+ * - ai.response.cache.size / ai.response.cache.weight: current entries and bytes
+ */
+@Slf4j
+@Component
+public class ResponseCache {
+    
+    /**
+     * Cached reply
+     * 
+     * @param replyText Reply text
+     * @param providerLatencyMs Provider latency of the call that produced the reply
+     */
+    public record CachedResponse(String replyText, long providerLatencyMs) {
+    }
+    
+    private record Entry(CachedResponse response, long expiresAtNanos, int weight) {
+    }
+    
+    private final Set<String> planTiers;
+    private final long ttlNanos;
+    private final long maxWeightBytes;
+    
+    private final LinkedHashMap<ResponseCacheKey, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+    
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final DistributionSummary latencySaved;
+    
+    public ResponseCache(MeterRegistry meterRegistry,
+                         @Value("${ai.cache.plan-tiers:}") String planTiers,
+                         @Value("${ai.cache.ttl-ms:600000}") long ttlMs,
+                         @Value("${ai.cache.max-weight-bytes:16777216}") long maxWeightBytes) {
+        this.planTiers = Stream.of(planTiers.split(","))
+                .map(String::trim)
+                .filter(tier -> !tier.isEmpty())
+                .map(tier -> tier.toUpperCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.maxWeightBytes = maxWeightBytes;
+        
+        this.hits = meterRegistry.counter("ai.response.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("ai.response.cache.requests", "result", "miss");
+        this.evictions = meterRegistry.counter("ai.response.cache.evictions");
+        this.latencySaved = DistributionSummary.builder("ai.response.cache.latency.saved")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("ai.response.cache.hit.ratio", this, ResponseCache::getHitRatio)
+                .register(meterRegistry);
+        Gauge.builder("ai.response.cache.size", this, ResponseCache::size)
+                .register(meterRegistry);
+        Gauge.builder("ai.response.cache.weight", this, ResponseCache::getWeight)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        
+        log.info("ResponseCache initialized: planTiers={}, ttlMs={}, maxWeightBytes={}",
+                this.planTiers, ttlMs, maxWeightBytes);
+    }
+    
+    /**
+     * Whether replies to this request may be served from and stored in the cache
+     */
+    public boolean isCacheable(ChatRequest request) {
+        return request.getPlanTier() != null
+                && planTiers.contains(request.getPlanTier().toUpperCase(Locale.ROOT))
+                && (request.getHistory() == null || request.getHistory().isEmpty())
+                && request.getUserText() != null;
+    }
+    
+    /**
+     * Build the cache key for a request
+     */
+    public ResponseCacheKey keyFor(ChatRequest request, String model) {
+        return new ResponseCacheKey(ResponseCacheKey.normalize(request.getUserText()),
+                request.getSceneId(), request.getDifficulty(), model);
+    }
+    
+    /**
+     * Look up a reply, recording a hit or miss
+     * 
+     * @return Cached reply, or null if absent or expired
+     */
+    public CachedResponse get(ResponseCacheKey key) {
+        CachedResponse response = null;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAtNanos() - System.nanoTime() > 0) {
+                    response = entry.response();
+                } else {
+                    remove(key);
+                }
+            }
+        }
+        
+        if (response == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        latencySaved.record(response.providerLatencyMs());
+        return response;
+    }
+    
+    /**
+     * Store a reply. Replies heavier than the whole cache are not stored.
+     */
+    public void put(ResponseCacheKey key, CachedResponse response) {
+        int entryWeight = key.weight() + 48 + 2 * response.replyText().length();
+        if (entryWeight > maxWeightBytes) {
+            return;
+        }
+        
+        synchronized (this) {
+            remove(key);
+            entries.put(key, new Entry(response, System.nanoTime() + ttlNanos, entryWeight));
+            weight += entryWeight;
+            
+            // Access order: the first entries are the least recently used
+            Iterator<Map.Entry<ResponseCacheKey, Entry>> eldest = entries.entrySet().iterator();
+            while (weight > maxWeightBytes && eldest.hasNext()) {
+                Map.Entry<ResponseCacheKey, Entry> victim = eldest.next();
+                weight -= victim.getValue().weight();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of cached replies
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Returns the approximate heap bytes held by cached entries
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+    
+    /**
+     * Returns hits / lookups since startup, or 0 before the first lookup
+     */
+    public double getHitRatio() {
+        double lookups = hits.count() + misses.count();
+        return lookups == 0 ? 0 : hits.count() / lookups;
+    }
+    
+    private void remove(ResponseCacheKey key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            weight -= removed.weight();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.kaelenx.aiorchestrator.cache;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Cache key for a single-turn prompt.
+ * 
+ * @param text Normalized user text (see {@link #normalize})
+ * @param sceneId Scene ID
+ * @param difficulty Difficulty level
+ * @param model Model that generated the reply
+ */
+public record ResponseCacheKey(String text, Long sceneId, String difficulty, String model) {
+    
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\p{Punct}\\s]+$");
+    
+    /**
+     * Normalize user text so trivially different openers share an entry:
+     * Unicode NFKC, lower case, collapsed whitespace, no trailing punctuation.
+     * "Hello!", "hello" and "  HELLO " all normalize to "hello".
+     */
+    public static String normalize(String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        return TRAILING_PUNCTUATION.matcher(normalized).replaceAll("");
+    }
+    
+    /**
+     * Approximate heap footprint of the key in bytes
+     */
+    int weight() {
+        return 64 + 2 * (length(text) + length(difficulty) + length(model));
+    }
+    
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+}
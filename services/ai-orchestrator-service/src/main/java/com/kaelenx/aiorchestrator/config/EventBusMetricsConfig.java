@@ -0,0 +1,24 @@
+package com.kaelenx.aiorchestrator.config;
+
+import com.kaelenx.common.events.bus.EventBus;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics of the in-process event bus.
+ * 
+ * Request outcome events are published with {@link EventBus#tryPublish}, so
+ * a saturated bus drops them instead of delaying the HTTP response.
+ * 
+ * Metrics:
+ * - events.bus.dropped: events rejected because the ring was full or the bus was closed
+ */
+@Configuration
+public class EventBusMetricsConfig {
+    
+    public EventBusMetricsConfig(EventBus<Object> eventBus, MeterRegistry meterRegistry) {
+        FunctionCounter.builder("events.bus.dropped", eventBus, EventBus::getDroppedCount)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,65 @@
+package com.kaelenx.aiorchestrator.config;
+
+import com.kaelenx.aiorchestrator.provider.LlmProvider;
+import com.kaelenx.aiorchestrator.provider.LoadSimulationLlmProvider;
+import com.kaelenx.aiorchestrator.provider.QwenLlmProvider;
+import com.kaelenx.aiorchestrator.provider.RoutingLlmProvider;
+import com.kaelenx.aiorchestrator.provider.RoutingStrategy;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Latency-aware routing across several models.
+ * 
+ * When enabled, the service talks to a {@link RoutingLlmProvider} instead of
+ * the single configured provider. Backends are listed in
+ * {@code ai.routing.backends} as comma-separated {@code model[:weight]}
+ * entries, e.g. {@code qwen-turbo:3,qwen-plus:1}. Backends are mock
+ * providers, or load-simulation providers when load simulation is enabled.
+ */
+@Configuration
+@ConditionalOnProperty(name = "ai.routing.enabled", havingValue = "true")
+public class LlmRoutingConfig {
+    
+    @Bean
+    @Primary
+    public LlmProvider routingLlmProvider(
+            MeterRegistry meterRegistry,
+            @Value("${ai.routing.backends}") String backends,
+            @Value("${ai.routing.strategy:power-of-two-choices}") String strategy,
+            @Value("${ai.routing.initial-latency-ms:500}") double initialLatencyMs,
+            @Value("${ai.routing.decay-time-ms:10000}") long decayTimeMs,
+            @Value("${qwen.api.mock-responses:Hello! How can I assist you today?|That's a great question!|Let me help you with that.}")
+            String mockResponses,
+            @Value("${qwen.api.mock-token-delay-ms:30}") long mockTokenDelayMs,
+            ObjectProvider<LoadSimulationLlmProvider.Settings> loadSimulation) {
+        LoadSimulationLlmProvider.Settings simulation = loadSimulation.getIfAvailable();
+        List<RoutingLlmProvider.Backend> routed = new ArrayList<>();
+        for (String entry : backends.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":");
+            double weight = parts.length > 1 ? Double.parseDouble(parts[1].trim()) : 1.0;
+            String model = parts[0].trim();
+            LlmProvider provider = simulation != null
+                    ? new LoadSimulationLlmProvider(model, simulation, meterRegistry)
+                    : new QwenLlmProvider(model, mockResponses, mockTokenDelayMs);
+            routed.add(new RoutingLlmProvider.Backend(provider, weight, initialLatencyMs, decayTimeMs));
+        }
+        return new RoutingLlmProvider(routed, parseStrategy(strategy), meterRegistry);
+    }
+    
+    private static RoutingStrategy parseStrategy(String strategy) {
+        return RoutingStrategy.valueOf(strategy.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,69 @@
+package com.kaelenx.aiorchestrator.config;
+
+import com.kaelenx.aiorchestrator.provider.LatencyDistribution;
+import com.kaelenx.aiorchestrator.provider.LlmProvider;
+import com.kaelenx.aiorchestrator.provider.LoadSimulationLlmProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.Locale;
+
+/**
+ * Load-simulation provider for capacity testing.
+ * 
+ * When enabled, the service talks to a {@link LoadSimulationLlmProvider}
+ * instead of the mock provider. With routing also enabled, every routing
+ * backend is simulated with the same settings (see {@link LlmRoutingConfig}).
+ */
+@Configuration
+@ConditionalOnProperty(name = "ai.load-simulation.enabled", havingValue = "true")
+public class LoadSimulationConfig {
+    
+    @Bean
+    public LoadSimulationLlmProvider.Settings loadSimulationSettings(
+            @Value("${ai.load-simulation.latency-distribution:log-normal}") String distribution,
+            @Value("${ai.load-simulation.median-latency-ms:400}") long medianLatencyMs,
+            @Value("${ai.load-simulation.latency-sigma:0.5}") double latencySigma,
+            @Value("${ai.load-simulation.slow-median-latency-ms:4000}") long slowMedianLatencyMs,
+            @Value("${ai.load-simulation.slow-fraction:0.05}") double slowFraction,
+            @Value("${ai.load-simulation.stall-rate:0}") double stallRate,
+            @Value("${ai.load-simulation.stall-ms:10000}") long stallMs,
+            @Value("${ai.load-simulation.token-delay-ms:20}") long tokenDelayMs,
+            @Value("${ai.load-simulation.median-output-tokens:80}") int medianOutputTokens,
+            @Value("${ai.load-simulation.error-rate:0}") double errorRate,
+            @Value("${ai.load-simulation.timeout-rate:0}") double timeoutRate,
+            @Value("${ai.load-simulation.timeout-ms:30000}") long timeoutMs,
+            @Value("${ai.load-simulation.max-concurrent:0}") int maxConcurrent,
+            @Value("${ai.load-simulation.seed:0}") long seed) {
+        return LoadSimulationLlmProvider.Settings.builder()
+                .distribution(LatencyDistribution.valueOf(distribution.trim().replace('-', '_').toUpperCase(Locale.ROOT)))
+                .medianLatencyMs(medianLatencyMs)
+                .latencySigma(latencySigma)
+                .slowMedianLatencyMs(slowMedianLatencyMs)
+                .slowFraction(slowFraction)
+                .stallRate(stallRate)
+                .stallMs(stallMs)
+                .tokenDelayMs(tokenDelayMs)
+                .medianOutputTokens(medianOutputTokens)
+                .errorRate(errorRate)
+                .timeoutRate(timeoutRate)
+                .timeoutMs(timeoutMs)
+                .maxConcurrent(maxConcurrent)
+                .seed(seed)
+                .build();
+    }
+    
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "ai.routing.enabled", havingValue = "false", matchIfMissing = true)
+    public LlmProvider loadSimulationLlmProvider(
+            LoadSimulationLlmProvider.Settings settings,
+            MeterRegistry meterRegistry,
+            @Value("${qwen.api.model:qwen-turbo}") String model) {
+        return new LoadSimulationLlmProvider(model, settings, meterRegistry);
+    }
+}
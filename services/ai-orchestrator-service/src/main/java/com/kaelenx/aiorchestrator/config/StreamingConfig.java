@@ -0,0 +1,42 @@
+package com.kaelenx.aiorchestrator.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor for streaming chat requests.
+ * 
+ * A streamed reply holds a thread for the whole generation, so streams run on
+ * their own bounded pool instead of the servlet request threads. When the pool
+ * and its queue are full, new streams are rejected.
+ * 
+ * With {@code spring.threads.virtual.enabled} on Java 21+, the pool's workers
+ * are virtual threads: the bound and the rejection still apply, but streams
+ * blocked on I/O no longer hold platform threads.
+ */
+@Configuration
+public class StreamingConfig {
+    
+    @Bean
+    public ThreadPoolTaskExecutor streamingExecutor(
+            @Value("${ai.streaming.max-concurrent:64}") int maxConcurrent,
+            @Value("${ai.streaming.queue-capacity:64}") int queueCapacity,
+            Environment environment) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("chat-stream-");
+        if (Threading.VIRTUAL.isActive(environment)) {
+            executor.setThreadFactory(new VirtualThreadTaskExecutor("chat-stream-").getVirtualThreadFactory());
+        }
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -1,30 +1,145 @@
 package com.kaelenx.aiorchestrator.controller;
 
+import com.kaelenx.aiorchestrator.cache.ContextVersionMismatchException;
+import com.kaelenx.aiorchestrator.dto.ChatChunk;
 import com.kaelenx.aiorchestrator.dto.ChatRequest;
 import com.kaelenx.aiorchestrator.dto.ChatResponse;
 import com.kaelenx.aiorchestrator.service.AiOrchestratorService;
+import com.kaelenx.aiorchestrator.service.ContextTooLargeException;
+import com.kaelenx.aiorchestrator.service.ProviderOverloadedException;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
 
 /**
  * Internal API controller for AI orchestration.
  * These endpoints are intended to be called by other internal services.
  */
+@Slf4j
 @RestController
 @RequestMapping("/internal/ai")
-@RequiredArgsConstructor
 public class InternalAiController {
     
     private final AiOrchestratorService aiOrchestratorService;
+    private final TaskExecutor streamingExecutor;
+    private final long streamTimeoutMs;
+    
+    public InternalAiController(AiOrchestratorService aiOrchestratorService,
+                                @Qualifier("streamingExecutor") TaskExecutor streamingExecutor,
+                                @Value("${ai.streaming.timeout-ms:60000}") long streamTimeoutMs) {
+        this.aiOrchestratorService = aiOrchestratorService;
+        this.streamingExecutor = streamingExecutor;
+        this.streamTimeoutMs = streamTimeoutMs;
+    }
     
     /**
      * Process a chat request and return AI completion
      */
     @PostMapping("/chat")
     public ResponseEntity<ChatResponse> chat(@Valid @RequestBody ChatRequest request) {
-        ChatResponse response = aiOrchestratorService.chat(request);
+        ChatResponse response = aiOrchestratorService.chat(aiOrchestratorService.resolveContext(request));
         return ResponseEntity.ok(response);
     }
+    
+    /**
+     * Process a chat request and stream the completion as Server-Sent Events.
+     * 
+     * Events:
+     * - token: {"text": "..."} for each chunk of reply text
+     * - done: the full {@link ChatResponse}, including firstTokenMs and latencyMs
+     * - error: {"message": "..."} if generation fails, the prompt is too
+     *   large or the provider is overloaded
+     * 
+     * A session-mode request whose cached context is missing or out of date
+     * gets 409 without a stream, like {@link #chat}. When the streaming pool
+     * and its queue are full, the request gets 503 with Retry-After, also
+     * without a stream.
+     */
+    @PostMapping(value = "/chat:stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> chatStream(@Valid @RequestBody ChatRequest body) {
+        ChatRequest request;
+        try {
+            request = aiOrchestratorService.resolveContext(body);
+        } catch (ContextVersionMismatchException e) {
+            // No body: an event stream was asked for, and the status is all the caller needs
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        try {
+            streamingExecutor.execute(() -> stream(request, emitter));
+        } catch (TaskRejectedException e) {
+            log.warn("Streaming pool full, rejecting chat stream: conversationId={}", request.getConversationId());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
+    /**
+     * Provider concurrency limit reached: 503 so callers back off and retry
+     */
+    @ExceptionHandler(ProviderOverloadedException.class)
+    public ResponseEntity<Map<String, String>> overloaded(ProviderOverloadedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("message", e.getMessage()));
+    }
+    
+    /**
+     * Session-mode context missing or out of date: 409, resend with full history
+     */
+    @ExceptionHandler(ContextVersionMismatchException.class)
+    public ResponseEntity<Map<String, String>> contextVersionMismatch(ContextVersionMismatchException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+    }
+    
+    /**
+     * Prompt over the plan tier's token limit: 400, retrying will not help
+     */
+    @ExceptionHandler(ContextTooLargeException.class)
+    public ResponseEntity<Map<String, String>> contextTooLarge(ContextTooLargeException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+    
+    private void stream(ChatRequest request, SseEmitter emitter) {
+        try {
+            ChatResponse response = aiOrchestratorService.chatStream(request,
+                    token -> send(emitter, SseEmitter.event().name("token").data(new ChatChunk(token))));
+            send(emitter, SseEmitter.event().name("done").data(response));
+            emitter.complete();
+        } catch (Exception e) {
+            log.warn("Streaming chat request failed: conversationId={}", request.getConversationId(), e);
+            try {
+                String message = e instanceof ProviderOverloadedException || e instanceof ContextTooLargeException
+                        ? e.getMessage() : "Failed to process chat request";
+                emitter.send(SseEmitter.event().name("error").data(Map.of("message", message)));
+                emitter.complete();
+            } catch (Exception sendFailure) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+    
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Client disconnected", e);
+        }
+    }
 }
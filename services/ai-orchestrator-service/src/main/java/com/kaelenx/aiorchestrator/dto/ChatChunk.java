@@ -0,0 +1,16 @@
+package com.kaelenx.aiorchestrator.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Chunk of reply text sent as a "token" event on the streaming chat endpoint
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatChunk {
+    
+    private String text;
+}
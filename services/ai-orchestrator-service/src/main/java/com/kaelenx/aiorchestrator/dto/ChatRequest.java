@@ -41,6 +41,19 @@ public class ChatRequest {
      */
     private List<HistoryMessage> history;
     
+    /**
+     * Session mode: ID of the last history message before userText (0 if
+     * none). With no history, the orchestrator uses its cached copy of that
+     * version.
+     */
+    private Long contextVersion;
+    
+    /**
+     * Session mode: ID the caller will save the reply under, and so the
+     * context version of the next turn. Without it the turn is not cached.
+     */
+    private Long replyMessageId;
+    
     @Data
     @Builder
     @NoArgsConstructor
@@ -43,4 +43,14 @@ public class ChatResponse {
      * Latency in milliseconds
      */
     private Long latencyMs;
+    
+    /**
+     * Time to first streamed token in milliseconds (streaming requests only)
+     */
+    private Long firstTokenMs;
+    
+    /**
+     * Reply source: PROVIDER, CACHED (response cache) or COALESCED (shared an in-flight call)
+     */
+    private String responseSource;
 }
@@ -44,10 +44,20 @@ public class AiRequestLog {
     private String model;
     
     /**
-     * Request status (e.g., "SUCCESS", "FAILED")
+     * Request status (e.g., "SUCCESS", "FAILED", "CANCELLED")
      */
     private String status;
     
+    /**
+     * Reply source (PROVIDER, CACHED, COALESCED)
+     */
+    private String responseSource;
+    
+    /**
+     * Provider call attempt (1 = first attempt, 2 = hedge)
+     */
+    private Integer attempt;
+    
     /**
      * Input tokens (nullable for mock responses)
      */
@@ -63,6 +73,11 @@ public class AiRequestLog {
      */
     private Long latencyMs;
     
+    /**
+     * Time to first streamed token in milliseconds (streaming requests only)
+     */
+    private Long firstTokenMs;
+    
     /**
      * Error message if request failed
      */
@@ -0,0 +1,18 @@
+package com.kaelenx.aiorchestrator.provider;
+
+/**
+ * Shape of the time to first token simulated by {@link LoadSimulationLlmProvider}
+ */
+public enum LatencyDistribution {
+    
+    /**
+     * Log-normal around the median latency (long right tail, like most real providers)
+     */
+    LOG_NORMAL,
+    
+    /**
+     * Mostly log-normal around the median latency, with a fraction of calls
+     * log-normal around the slow median (e.g. cold replicas or long queues)
+     */
+    BIMODAL
+}
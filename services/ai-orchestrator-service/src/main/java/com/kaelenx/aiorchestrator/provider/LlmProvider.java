@@ -2,6 +2,8 @@ package com.kaelenx.aiorchestrator.provider;
 
 import com.kaelenx.aiorchestrator.dto.ChatRequest;
 
+import java.util.function.Consumer;
+
 /**
  * Interface for LLM providers.
  * Implementations should handle the actual interaction with AI services.
@@ -27,12 +29,46 @@ public interface LlmProvider {
     LlmResponse chat(ChatRequest request);
     
     /**
-     * Response from LLM provider
+     * Generate a chat completion, emitting reply text as it is generated.
+     * Blocks until generation finishes. The default implementation emits the
+     * whole reply of {@link #chat} as a single chunk.
+     * 
+     * @param request Chat request with user message and context
+     * @param onToken Called with each chunk of reply text, in order
+     * @return LlmResponse with the full reply text and token usage
+     */
+    default LlmResponse chatStream(ChatRequest request, Consumer<String> onToken) {
+        LlmResponse response = chat(request);
+        onToken.accept(response.replyText());
+        return response;
+    }
+    
+    /**
+     * Response from LLM provider.
+     * 
+     * {@code provider} and {@code model} name the backend that generated the
+     * reply when it differs from {@link #getProviderName()} and
+     * {@link #getModelName()} (e.g. behind a routing provider); they are null
+     * otherwise.
      */
     record LlmResponse(
         String replyText,
         Integer tokenIn,
         Integer tokenOut,
-        Long latencyMs
-    ) {}
+        Long latencyMs,
+        String provider,
+        String model
+    ) {
+        
+        public LlmResponse(String replyText, Integer tokenIn, Integer tokenOut, Long latencyMs) {
+            this(replyText, tokenIn, tokenOut, latencyMs, null, null);
+        }
+        
+        /**
+         * Returns a copy attributed to the given backend
+         */
+        public LlmResponse withBackend(String provider, String model) {
+            return new LlmResponse(replyText, tokenIn, tokenOut, latencyMs, provider, model);
+        }
+    }
 }
@@ -0,0 +1,231 @@
+package com.kaelenx.aiorchestrator.provider;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Provider that simulates a real LLM backend under load, for capacity testing.
+ * 
+ * A call waits for a time to first token drawn from {@link LatencyDistribution}
+ * (plus an occasional stall), then "decodes" a reply of a log-normal number
+ * of tokens at {@code tokenDelayMs} per token, streamed one token at a time by
+ * {@link #chatStream}. Input tokens are estimated from the prompt size. Faults
+ * are injected at configurable rates:
+ * - error: the call fails at once
+ * - timeout: the call hangs for {@code timeoutMs}, then fails
+ * - throttle: more than {@code maxConcurrent} calls in flight fail at once,
+ *   like a provider answering 429
+ * 
+ * Interrupting a call (e.g. a cancelled hedge) aborts it.
+ * 
+ * Metrics:
+ * - ai.loadsim.in.flight{model}: simulated calls in progress
+ * - ai.loadsim.faults{model, fault=error|timeout|throttle|stall}: injected faults
+ */
+@Slf4j
+public class LoadSimulationLlmProvider implements LlmProvider {
+    
+    /**
+     * Rough prompt size per token, and tokens of framing per message
+     */
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int TOKENS_PER_MESSAGE = 4;
+    
+    /**
+     * Spread of the reply length around its median
+     */
+    private static final double OUTPUT_TOKEN_SIGMA = 0.5;
+    
+    private static final String[] WORDS = {
+            "Great", "question", "let's", "practice", "this", "sentence", "together", "you", "could", "say",
+            "it", "more", "naturally", "by", "using", "the", "present", "perfect", "tense", "here",
+            "for", "example", "I", "have", "been", "learning", "English", "every", "day", "and",
+            "your", "pronunciation", "is", "getting", "better", "try", "again", "with", "a", "slower", "pace"
+    };
+    
+    /**
+     * Simulation parameters. Rates are probabilities per call; zero disables
+     * the corresponding fault, and {@code maxConcurrent} zero disables
+     * throttling.
+     * 
+     * @param distribution Shape of the time to first token (null for log-normal)
+     * @param medianLatencyMs Median time to first token
+     * @param latencySigma Log-normal sigma of the time to first token (0 for a constant)
+     * @param slowMedianLatencyMs Median time to first token of the slow mode (bimodal only)
+     * @param slowFraction Share of calls in the slow mode (bimodal only)
+     * @param stallRate Rate of calls delayed by an extra {@code stallMs}
+     * @param stallMs Length of an injected stall
+     * @param tokenDelayMs Decoding time per output token
+     * @param medianOutputTokens Median reply length in tokens
+     * @param errorRate Rate of calls that fail at once
+     * @param timeoutRate Rate of calls that hang for {@code timeoutMs}, then fail
+     * @param timeoutMs Length of an injected hang
+     * @param maxConcurrent Calls in flight beyond which calls are throttled
+     * @param seed Random seed (0 for a random one)
+     */
+    @Builder
+    public record Settings(
+            LatencyDistribution distribution,
+            long medianLatencyMs,
+            double latencySigma,
+            long slowMedianLatencyMs,
+            double slowFraction,
+            double stallRate,
+            long stallMs,
+            long tokenDelayMs,
+            int medianOutputTokens,
+            double errorRate,
+            double timeoutRate,
+            long timeoutMs,
+            int maxConcurrent,
+            long seed
+    ) {
+    }
+    
+    private final String model;
+    private final Settings settings;
+    private final Random random;
+    private final Semaphore slots;
+    
+    private final Counter errors;
+    private final Counter timeouts;
+    private final Counter throttles;
+    private final Counter stalls;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    
+    public LoadSimulationLlmProvider(String model, Settings settings, MeterRegistry meterRegistry) {
+        if (settings.medianOutputTokens() < 1) {
+            throw new IllegalArgumentException("Median output tokens must be positive");
+        }
+        this.model = model;
+        this.settings = settings;
+        this.random = settings.seed() == 0 ? new Random() : new Random(settings.seed());
+        this.slots = settings.maxConcurrent() > 0 ? new Semaphore(settings.maxConcurrent()) : null;
+        
+        this.errors = meterRegistry.counter("ai.loadsim.faults", "model", model, "fault", "error");
+        this.timeouts = meterRegistry.counter("ai.loadsim.faults", "model", model, "fault", "timeout");
+        this.throttles = meterRegistry.counter("ai.loadsim.faults", "model", model, "fault", "throttle");
+        this.stalls = meterRegistry.counter("ai.loadsim.faults", "model", model, "fault", "stall");
+        Gauge.builder("ai.loadsim.in.flight", this, LoadSimulationLlmProvider::getInFlight)
+                .tag("model", model)
+                .register(meterRegistry);
+        
+        log.info("LoadSimulationLlmProvider initialized: model={}, settings={}", model, settings);
+    }
+    
+    @Override
+    public String getProviderName() {
+        return "load-simulation";
+    }
+    
+    @Override
+    public String getModelName() {
+        return model;
+    }
+    
+    @Override
+    public LlmResponse chat(ChatRequest request) {
+        return chatStream(request, token -> {
+        });
+    }
+    
+    @Override
+    public LlmResponse chatStream(ChatRequest request, Consumer<String> onToken) {
+        long startTime = System.currentTimeMillis();
+        if (slots != null && !slots.tryAcquire()) {
+            throttles.increment();
+            throw new IllegalStateException("Simulated provider throttling: " + settings.maxConcurrent() + " calls in flight");
+        }
+        inFlight.incrementAndGet();
+        try {
+            double fault = random.nextDouble();
+            if (fault < settings.errorRate()) {
+                errors.increment();
+                throw new IllegalStateException("Simulated provider error");
+            }
+            if (fault < settings.errorRate() + settings.timeoutRate()) {
+                timeouts.increment();
+                sleep(settings.timeoutMs());
+                throw new IllegalStateException("Simulated provider timeout after " + settings.timeoutMs() + "ms");
+            }
+            
+            sleep(firstTokenDelayMs());
+            int tokenOut = sampleOutputTokens();
+            StringBuilder reply = new StringBuilder();
+            for (int i = 0; i < tokenOut; i++) {
+                if (i > 0) {
+                    sleep(settings.tokenDelayMs());
+                }
+                String token = WORDS[random.nextInt(WORDS.length)] + (i < tokenOut - 1 ? " " : ".");
+                reply.append(token);
+                onToken.accept(token);
+            }
+            
+            long latencyMs = System.currentTimeMillis() - startTime;
+            log.debug("Simulated chat completion: conversationId={}, tokenOut={}, latency={}ms",
+                    request.getConversationId(), tokenOut, latencyMs);
+            return new LlmResponse(reply.toString(), estimateInputTokens(request), tokenOut, latencyMs);
+        } finally {
+            inFlight.decrementAndGet();
+            if (slots != null) {
+                slots.release();
+            }
+        }
+    }
+    
+    /**
+     * Returns the number of simulated calls in progress
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    long firstTokenDelayMs() {
+        long median = settings.distribution() == LatencyDistribution.BIMODAL && random.nextDouble() < settings.slowFraction()
+                ? settings.slowMedianLatencyMs()
+                : settings.medianLatencyMs();
+        long delay = Math.round(median * Math.exp(settings.latencySigma() * random.nextGaussian()));
+        if (random.nextDouble() < settings.stallRate()) {
+            stalls.increment();
+            delay += settings.stallMs();
+        }
+        return delay;
+    }
+    
+    private int sampleOutputTokens() {
+        return Math.max(1, (int) Math.round(settings.medianOutputTokens() * Math.exp(OUTPUT_TOKEN_SIGMA * random.nextGaussian())));
+    }
+    
+    private static int estimateInputTokens(ChatRequest request) {
+        long chars = request.getUserText() == null ? 0 : request.getUserText().length();
+        int messages = 1;
+        if (request.getHistory() != null) {
+            for (ChatRequest.HistoryMessage message : request.getHistory()) {
+                chars += message.getContent() == null ? 0 : message.getContent().length();
+                messages++;
+            }
+        }
+        return (int) ((chars + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN) + TOKENS_PER_MESSAGE * messages;
+    }
+    
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulated provider call interrupted", e);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.stereotype.Component;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.function.Consumer;
 
 /**
  * Mock implementation of Qwen LLM provider.
@@ -25,16 +26,19 @@ public class QwenLlmProvider implements LlmProvider {
     
     private final String model;
     private final List<String> mockResponses;
+    private final long mockTokenDelayMs;
     private final Random random = new Random();
     
     public QwenLlmProvider(
             @Value("${qwen.api.model:qwen-turbo}") String model,
             @Value("${qwen.api.mock-responses:Hello! How can I assist you today?|That's a great question!|Let me help you with that.}") 
-            String mockResponsesStr) {
+            String mockResponsesStr,
+            @Value("${qwen.api.mock-token-delay-ms:30}") long mockTokenDelayMs) {
         this.model = model;
         this.mockResponses = Arrays.asList(mockResponsesStr.split("\\|"));
-        log.info("QwenLlmProvider initialized with model={}, mockResponseCount={}", 
-                model, mockResponses.size());
+        this.mockTokenDelayMs = mockTokenDelayMs;
+        log.info("QwenLlmProvider initialized with model={}, mockResponseCount={}, mockTokenDelayMs={}", 
+                model, mockResponses.size(), mockTokenDelayMs);
     }
     
     @Override
@@ -62,11 +66,7 @@ public class QwenLlmProvider implements LlmProvider {
         String mockResponse = selectMockResponse(request);
         
         // Simulate processing time
-        try {
-            Thread.sleep(100 + random.nextInt(200));
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+        sleep(100 + random.nextInt(200));
         
         long latencyMs = System.currentTimeMillis() - startTime;
         
@@ -81,6 +81,49 @@ public class QwenLlmProvider implements LlmProvider {
         );
     }
     
+    @Override
+    public LlmResponse chatStream(ChatRequest request, Consumer<String> onToken) {
+        long startTime = System.currentTimeMillis();
+        
+        // Mock stream: the canned reply in whitespace-delimited chunks. The real
+        // integration belongs with the Qwen SDK call (see the class comment).
+        String mockResponse = selectMockResponse(request);
+        
+        // Simulate prompt processing before the first token, then per-token decoding
+        sleep(100 + random.nextInt(200));
+        String[] tokens = mockResponse.split("(?<=\\s)");
+        for (int i = 0; i < tokens.length; i++) {
+            if (i > 0) {
+                sleep(mockTokenDelayMs);
+            }
+            onToken.accept(tokens[i]);
+        }
+        
+        long latencyMs = System.currentTimeMillis() - startTime;
+        
+        log.info("Mock streaming chat completion: conversationId={}, chunks={}, latency={}ms", 
+                request.getConversationId(), tokens.length, latencyMs);
+        
+        return new LlmResponse(
+                mockResponse,
+                null,  // Token counts are null for mock
+                null,
+                latencyMs
+        );
+    }
+    
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Mock provider call interrupted", e);
+        }
+    }
+    
     private String selectMockResponse(ChatRequest request) {
         // Simple mock logic - can be enhanced based on request context
         String userText = request.getUserText().toLowerCase();
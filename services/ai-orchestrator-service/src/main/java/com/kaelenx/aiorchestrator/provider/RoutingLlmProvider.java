@@ -0,0 +1,311 @@
+package com.kaelenx.aiorchestrator.provider;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Routes each request to one of several backend providers by observed load.
+ * 
+ * Every backend tracks a peak-sensitive EWMA of its latency (a slower
+ * response replaces the average at once, faster ones pull it down
+ * gradually, weighted by the time between samples but by at least
+ * {@value #LATENCY_SMOOTHING} each, so a slow cold-start sample is
+ * forgotten within a few calls), the number of requests
+ * it has outstanding and an EWMA of its error rate over recent calls. Failed
+ * calls do not feed the latency average, so a backend that fails fast does
+ * not look fast. The score of a backend with nothing in flight decays
+ * towards zero, so a backend that has been idle looks cheap again and gets
+ * probed. The load score is
+ * 
+ *     ewmaLatency * (outstanding + 1) / ((1 - errorRate)^2 * weight)
+ * 
+ * so a backend that keeps failing soon looks far more expensive than a slow
+ * healthy one, however fast it fails. The {@link RoutingStrategy} decides
+ * which scores are compared.
+ * 
+ * Responses are attributed to the backend that produced them
+ * ({@link LlmResponse#provider()}, {@link LlmResponse#model()}). Failed
+ * calls are not retried here.
+ * 
+ * Metrics (tagged with backend):
+ * - ai.routing.requests{outcome=success|error}: calls per backend
+ * - ai.routing.latency.ewma: current latency estimate (ms)
+ * - ai.routing.outstanding: calls in flight
+ * - ai.routing.error.rate: current error rate estimate
+ */
+@Slf4j
+public class RoutingLlmProvider implements LlmProvider {
+    
+    /**
+     * Floor of the success rate in the score, keeping it finite
+     */
+    private static final double MIN_SUCCESS_RATE = 0.01;
+    
+    /**
+     * Weight of the latest call in the error rate average
+     */
+    private static final double ERROR_SMOOTHING = 0.2;
+    
+    /**
+     * Minimum weight of a faster response in the latency average
+     */
+    private static final double LATENCY_SMOOTHING = 0.2;
+    
+    private final List<Backend> backends;
+    private final RoutingStrategy strategy;
+    private final String modelName;
+    private final AtomicLong roundRobin = new AtomicLong();
+    
+    /**
+     * @param backends Backends to route between
+     * @param strategy Selection strategy
+     * @param meterRegistry Registry for per-backend metrics, or null
+     */
+    public RoutingLlmProvider(List<Backend> backends, RoutingStrategy strategy, MeterRegistry meterRegistry) {
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("At least one backend is required");
+        }
+        this.backends = List.copyOf(backends);
+        this.strategy = strategy;
+        this.modelName = backends.stream()
+                .map(backend -> backend.provider.getModelName())
+                .distinct()
+                .collect(Collectors.joining("|"));
+        if (meterRegistry != null) {
+            this.backends.forEach(backend -> backend.registerMetrics(meterRegistry));
+        }
+        log.info("RoutingLlmProvider initialized: strategy={}, backends={}", strategy,
+                this.backends.stream().map(backend -> backend.name + "x" + backend.weight).toList());
+    }
+    
+    @Override
+    public String getProviderName() {
+        return "routing";
+    }
+    
+    @Override
+    public String getModelName() {
+        return modelName;
+    }
+    
+    @Override
+    public LlmResponse chat(ChatRequest request) {
+        Backend backend = choose();
+        return backend.call(() -> backend.provider.chat(request));
+    }
+    
+    @Override
+    public LlmResponse chatStream(ChatRequest request, Consumer<String> onToken) {
+        Backend backend = choose();
+        return backend.call(() -> backend.provider.chatStream(request, onToken));
+    }
+    
+    /**
+     * Returns the backends in configuration order
+     */
+    public List<Backend> getBackends() {
+        return backends;
+    }
+    
+    Backend choose() {
+        if (backends.size() == 1) {
+            return backends.get(0);
+        }
+        return switch (strategy) {
+            case ROUND_ROBIN -> backends.get((int) (roundRobin.getAndIncrement() % backends.size()));
+            case LEAST_LOADED -> leastLoaded();
+            case POWER_OF_TWO_CHOICES -> powerOfTwoChoices();
+        };
+    }
+    
+    private Backend leastLoaded() {
+        Backend best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Backend backend : backends) {
+            double score = backend.score();
+            if (score < bestScore) {
+                best = backend;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+    
+    private Backend powerOfTwoChoices() {
+        Backend first = pickByWeight(null);
+        Backend second = pickByWeight(first);
+        return first.score() <= second.score() ? first : second;
+    }
+    
+    /**
+     * Weighted random pick, excluding {@code exclude}
+     */
+    private Backend pickByWeight(Backend exclude) {
+        double total = 0;
+        for (Backend backend : backends) {
+            if (backend != exclude) {
+                total += backend.weight;
+            }
+        }
+        double target = ThreadLocalRandom.current().nextDouble(total);
+        Backend last = null;
+        for (Backend backend : backends) {
+            if (backend == exclude) {
+                continue;
+            }
+            last = backend;
+            target -= backend.weight;
+            if (target < 0) {
+                return backend;
+            }
+        }
+        return last;
+    }
+    
+    /**
+     * A backend provider with its weight and load statistics
+     */
+    public static class Backend {
+        
+        private final LlmProvider provider;
+        private final String name;
+        private final double weight;
+        private final double decayNanos;
+        private final LongSupplier nanoClock;
+        
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private double ewmaLatencyMs;
+        private boolean sampled;
+        private double errorRate;
+        private long lastUpdateNanos;
+        
+        private Counter successes;
+        private Counter errors;
+        
+        /**
+         * @param provider Backend provider
+         * @param weight Relative share of traffic at equal load (> 0)
+         * @param initialLatencyMs Latency assumed until the first successful response
+         * @param decayTimeMs Time constant of the latency average and of the idle decay
+         */
+        public Backend(LlmProvider provider, double weight, double initialLatencyMs, long decayTimeMs) {
+            this(provider, weight, initialLatencyMs, decayTimeMs, System::nanoTime);
+        }
+        
+        Backend(LlmProvider provider, double weight, double initialLatencyMs, long decayTimeMs, LongSupplier nanoClock) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Backend weight must be positive: " + weight);
+            }
+            this.provider = provider;
+            this.name = provider.getProviderName() + "/" + provider.getModelName();
+            this.weight = weight;
+            this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayTimeMs);
+            this.nanoClock = nanoClock;
+            this.ewmaLatencyMs = initialLatencyMs;
+            this.lastUpdateNanos = nanoClock.getAsLong();
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public double getWeight() {
+            return weight;
+        }
+        
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+        
+        public synchronized double getEwmaLatencyMs() {
+            return ewmaLatencyMs * decay(nanoClock.getAsLong());
+        }
+        
+        public synchronized double getErrorRate() {
+            return errorRate * decay(nanoClock.getAsLong());
+        }
+        
+        synchronized double score() {
+            long now = nanoClock.getAsLong();
+            int inFlight = outstanding.get();
+            // Only an idle backend drifts towards zero cost; a busy one keeps its estimate
+            double decay = inFlight == 0 ? decay(now) : 1;
+            double successRate = Math.max(MIN_SUCCESS_RATE, 1 - errorRate * decay);
+            return ewmaLatencyMs * decay * (inFlight + 1) / (successRate * successRate * weight);
+        }
+        
+        LlmResponse call(Supplier<LlmResponse> call) {
+            outstanding.incrementAndGet();
+            long start = nanoClock.getAsLong();
+            try {
+                LlmResponse response = call.get();
+                record(nanoClock.getAsLong() - start, false);
+                if (successes != null) {
+                    successes.increment();
+                }
+                return response.provider() != null
+                        ? response
+                        : response.withBackend(provider.getProviderName(), provider.getModelName());
+            } catch (RuntimeException e) {
+                record(nanoClock.getAsLong() - start, true);
+                if (errors != null) {
+                    errors.increment();
+                }
+                throw e;
+            } finally {
+                outstanding.decrementAndGet();
+            }
+        }
+        
+        synchronized void record(long latencyNanos, boolean error) {
+            long now = nanoClock.getAsLong();
+            double decay = decay(now);
+            lastUpdateNanos = now;
+            
+            errorRate = errorRate * (1 - ERROR_SMOOTHING) + (error ? ERROR_SMOOTHING : 0);
+            if (!error) {
+                double latencyMs = latencyNanos / 1_000_000.0;
+                double keep = Math.min(decay, 1 - LATENCY_SMOOTHING);
+                ewmaLatencyMs = !sampled || latencyMs > ewmaLatencyMs
+                        ? latencyMs
+                        : ewmaLatencyMs * keep + latencyMs * (1 - keep);
+                sampled = true;
+            }
+        }
+        
+        /**
+         * Weight of the current averages after the time since the last update
+         */
+        private double decay(long now) {
+            return Math.exp(-Math.max(0, now - lastUpdateNanos) / decayNanos);
+        }
+        
+        private void registerMetrics(MeterRegistry meterRegistry) {
+            successes = meterRegistry.counter("ai.routing.requests", "backend", name, "outcome", "success");
+            errors = meterRegistry.counter("ai.routing.requests", "backend", name, "outcome", "error");
+            Gauge.builder("ai.routing.latency.ewma", this, Backend::getEwmaLatencyMs)
+                    .tag("backend", name)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("ai.routing.outstanding", this, Backend::getOutstanding)
+                    .tag("backend", name)
+                    .register(meterRegistry);
+            Gauge.builder("ai.routing.error.rate", this, Backend::getErrorRate)
+                    .tag("backend", name)
+                    .register(meterRegistry);
+        }
+    }
+}
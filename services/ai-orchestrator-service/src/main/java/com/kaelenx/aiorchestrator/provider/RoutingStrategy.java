@@ -0,0 +1,22 @@
+package com.kaelenx.aiorchestrator.provider;
+
+/**
+ * How {@link RoutingLlmProvider} picks a backend for each request
+ */
+public enum RoutingStrategy {
+    
+    /**
+     * Two backends drawn at random by weight; the one with the lower load score wins
+     */
+    POWER_OF_TWO_CHOICES,
+    
+    /**
+     * The backend with the lowest load score
+     */
+    LEAST_LOADED,
+    
+    /**
+     * Backends in turn, ignoring load and weight (baseline for comparison)
+     */
+    ROUND_ROBIN
+}
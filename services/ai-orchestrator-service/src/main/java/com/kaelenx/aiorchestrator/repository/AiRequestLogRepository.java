@@ -1,12 +1,56 @@
 package com.kaelenx.aiorchestrator.repository;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
 import com.kaelenx.aiorchestrator.entity.AiRequestLog;
+import com.kaelenx.common.id.SnowflakeIdRange;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.Instant;
+import java.util.List;
 
 /**
  * Repository for AI request logs
  */
 @Mapper
 public interface AiRequestLogRepository extends BaseMapper<AiRequestLog> {
+    
+    /**
+     * Insert request logs with one multi-row INSERT statement
+     * 
+     * @return Number of rows inserted
+     */
+    @Insert({"<script>",
+            "INSERT INTO ai_request_log (id, conversation_id, user_id, scene_id, difficulty, plan_tier,",
+            "provider, model, status, response_source, attempt, token_in, token_out, latency_ms, first_token_ms, error_message, created_at)",
+            "VALUES",
+            "<foreach collection='logs' item='log' separator=','>",
+            "(#{log.id}, #{log.conversationId}, #{log.userId}, #{log.sceneId}, #{log.difficulty}, #{log.planTier},",
+            "#{log.provider}, #{log.model}, #{log.status}, #{log.responseSource}, #{log.attempt}, #{log.tokenIn}, #{log.tokenOut}, #{log.latencyMs},",
+            "#{log.firstTokenMs}, #{log.errorMessage}, #{log.createdAt})",
+            "</foreach>",
+            "</script>"})
+    int insertBatch(@Param("logs") List<AiRequestLog> logs);
+    
+    /**
+     * Select request logs created in {@code [from, to)} using a primary key
+     * range scan on the Snowflake ID instead of the created_at index
+     */
+    default List<AiRequestLog> selectCreatedBetween(Instant from, Instant to) {
+        SnowflakeIdRange range = SnowflakeIdRange.between(from, to);
+        return selectList(Wrappers.<AiRequestLog>lambdaQuery()
+                .between(AiRequestLog::getId, range.minId(), range.maxId())
+                .orderByAsc(AiRequestLog::getId));
+    }
+    
+    /**
+     * Count request logs created in {@code [from, to)} using a primary key range scan
+     */
+    default Long selectCountCreatedBetween(Instant from, Instant to) {
+        SnowflakeIdRange range = SnowflakeIdRange.between(from, to);
+        return selectCount(Wrappers.<AiRequestLog>lambdaQuery()
+                .between(AiRequestLog::getId, range.minId(), range.maxId()));
+    }
 }
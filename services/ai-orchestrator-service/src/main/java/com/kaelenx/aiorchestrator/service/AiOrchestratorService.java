@@ -1,16 +1,27 @@
 package com.kaelenx.aiorchestrator.service;
 
+import com.kaelenx.aiorchestrator.cache.ConversationContextCache;
+import com.kaelenx.aiorchestrator.cache.ContextVersionMismatchException;
+import com.kaelenx.aiorchestrator.cache.ResponseCache;
+import com.kaelenx.aiorchestrator.cache.ResponseCacheKey;
 import com.kaelenx.aiorchestrator.dto.ChatRequest;
 import com.kaelenx.aiorchestrator.dto.ChatResponse;
 import com.kaelenx.aiorchestrator.entity.AiRequestLog;
 import com.kaelenx.aiorchestrator.provider.LlmProvider;
-import com.kaelenx.aiorchestrator.repository.AiRequestLogRepository;
-import com.kaelenx.common.id.SnowflakeIdGenerator;
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.events.EventTypes;
+import com.kaelenx.common.events.bus.EventBus;
+import com.kaelenx.common.events.bus.EventTranslator;
+import com.kaelenx.common.id.AbstractSnowflakeIdGenerator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Service for AI orchestration and chat completion
@@ -20,36 +31,96 @@ import java.time.LocalDateTime;
 @RequiredArgsConstructor
 public class AiOrchestratorService {
     
+    private static final String EVENT_SOURCE = "ai-orchestrator-service";
+    
+    private static final String SOURCE_PROVIDER = "PROVIDER";
+    private static final String SOURCE_CACHED = "CACHED";
+    private static final String SOURCE_COALESCED = "COALESCED";
+    
+    private static final EventTranslator<Object, AiRequestLog> AI_REQUEST_COMPLETED =
+            (event, sequence, requestLog) -> fillEvent(event, EventTypes.AI_REQUEST_COMPLETED, requestLog);
+    
+    private static final EventTranslator<Object, AiRequestLog> AI_REQUEST_FAILED =
+            (event, sequence, requestLog) -> fillEvent(event, EventTypes.AI_REQUEST_FAILED, requestLog);
+    
     private final LlmProvider llmProvider;
-    private final AiRequestLogRepository requestLogRepository;
-    private final SnowflakeIdGenerator idGenerator;
+    private final AiRequestLogWriter requestLogWriter;
+    private final AbstractSnowflakeIdGenerator idGenerator;
+    private final EventBus<Object> eventBus;
+    private final ResponseCache responseCache;
+    private final RequestCoalescer requestCoalescer;
+    private final RequestHedger requestHedger;
+    private final ProviderConcurrencyLimiter concurrencyLimiter;
+    private final PromptTokenCounter tokenCounter;
+    private final HistoryCompactor historyCompactor;
+    private final ConversationContextCache conversationContexts;
+    
+    /**
+     * Fill in the cached history of a session-mode request. Call before
+     * {@link #chat} or {@link #chatStream}, which store the next version.
+     * 
+     * @throws ContextVersionMismatchException If the caller has to resend with full history
+     */
+    public ChatRequest resolveContext(ChatRequest request) {
+        try {
+            return conversationContexts.resolve(request);
+        } catch (ContextVersionMismatchException e) {
+            log.info("Context fallback to full history: conversationId={}, reason={}", 
+                    request.getConversationId(), e.getMessage());
+            throw e;
+        }
+    }
     
     /**
      * Process a chat request and return AI response
+     * 
+     * The history is first fitted into its token budget (see {@link HistoryCompactor}).
+     * 
+     * @throws ContextTooLargeException If the prompt exceeds the plan tier's token limit
      */
-    public ChatResponse chat(ChatRequest request) {
+    public ChatResponse chat(ChatRequest original) {
         log.info("Processing chat request: conversationId={}, userId={}", 
-                request.getConversationId(), request.getUserId());
+                original.getConversationId(), original.getUserId());
+        
+        ChatRequest request = historyCompactor.compact(original);
+        int promptTokens = checkPrompt(request);
+        ResponseCacheKey cacheKey = cacheKeyFor(request);
+        if (cacheKey != null) {
+            ChatResponse cached = serveCached(request, cacheKey, null);
+            if (cached != null) {
+                return remember(original, cached);
+            }
+        }
         
         String status = "SUCCESS";
+        String source = SOURCE_PROVIDER;
         String errorMessage = null;
         LlmProvider.LlmResponse llmResponse = null;
+        AtomicInteger attempt = new AtomicInteger(1);
+        long startNanos = System.nanoTime();
         
         try {
-            // Call LLM provider
-            llmResponse = llmProvider.chat(request);
-            
-            // Build response
-            ChatResponse response = ChatResponse.builder()
-                    .provider(llmProvider.getProviderName())
-                    .model(llmProvider.getModelName())
-                    .replyText(llmResponse.replyText())
-                    .tokenIn(llmResponse.tokenIn())
-                    .tokenOut(llmResponse.tokenOut())
-                    .latencyMs(llmResponse.latencyMs())
-                    .build();
+            // Call LLM provider, or wait for an identical call already in flight
+            RequestCoalescer.Outcome outcome = requestCoalescer.execute(request, llmProvider.getModelName(), 
+                    () -> hedgedChat(request, attempt));
+            if (outcome.leader()) {
+                llmResponse = tokenCounter.fillTokens(outcome.response(), promptTokens);
+                cacheResponse(cacheKey, llmResponse);
+            } else {
+                // The leader's log row carries the tokens; this caller only waited
+                source = SOURCE_COALESCED;
+                LlmProvider.LlmResponse shared = outcome.response();
+                llmResponse = new LlmProvider.LlmResponse(shared.replyText(), 0, 0, 
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), 
+                        shared.provider(), shared.model());
+            }
+            return remember(original, buildResponse(llmResponse, null, source));
             
-            return response;
+        } catch (ProviderOverloadedException e) {
+            log.warn("Chat request rejected: conversationId={}, reason={}", request.getConversationId(), e.getMessage());
+            status = "REJECTED";
+            errorMessage = e.getMessage();
+            throw e;
             
         } catch (Exception e) {
             log.error("Error processing chat request", e);
@@ -59,12 +130,201 @@ public class AiOrchestratorService {
             
         } finally {
             // Always log the request for billing/usage tracking
-            logRequest(request, status, llmResponse, errorMessage);
+            logRequest(request, status, source, attempt.get(), llmResponse, null, errorMessage);
+        }
+    }
+    
+    /**
+     * Process a chat request, passing reply text to {@code onToken} as the
+     * provider generates it. Blocks until the reply is complete.
+     * 
+     * The returned response carries both the time to the first token and
+     * the total latency, so callers can tell a slow start from a long reply.
+     * A cached reply is emitted as a single chunk.
+     */
+    public ChatResponse chatStream(ChatRequest original, Consumer<String> onToken) {
+        log.info("Processing streaming chat request: conversationId={}, userId={}", 
+                original.getConversationId(), original.getUserId());
+        
+        ChatRequest request = historyCompactor.compact(original);
+        int promptTokens = checkPrompt(request);
+        ResponseCacheKey cacheKey = cacheKeyFor(request);
+        if (cacheKey != null) {
+            ChatResponse cached = serveCached(request, cacheKey, onToken);
+            if (cached != null) {
+                return remember(original, cached);
+            }
+        }
+        
+        String status = "SUCCESS";
+        String errorMessage = null;
+        LlmProvider.LlmResponse llmResponse = null;
+        long startNanos = System.nanoTime();
+        AtomicLong firstTokenNanos = new AtomicLong(-1);
+        ProviderConcurrencyLimiter.Permit permit = null;
+        
+        try {
+            permit = concurrencyLimiter.acquire(request.getPlanTier(), request.getUserId());
+            long callStartNanos = System.nanoTime();
+            llmResponse = tokenCounter.fillTokens(llmProvider.chatStream(request, token -> {
+                firstTokenNanos.compareAndSet(-1, System.nanoTime());
+                onToken.accept(token);
+            }), promptTokens);
+            if (firstTokenNanos.get() >= 0) {
+                permit.streamed(firstTokenNanos.get() - callStartNanos);
+            }
+            cacheResponse(cacheKey, llmResponse);
+            return remember(original, 
+                    buildResponse(llmResponse, firstTokenMs(startNanos, firstTokenNanos.get()), SOURCE_PROVIDER));
+            
+        } catch (ProviderOverloadedException e) {
+            log.warn("Streaming chat request rejected: conversationId={}, reason={}", 
+                    request.getConversationId(), e.getMessage());
+            status = "REJECTED";
+            errorMessage = e.getMessage();
+            throw e;
+            
+        } catch (Exception e) {
+            log.error("Error processing streaming chat request", e);
+            status = "FAILED";
+            errorMessage = e.getMessage();
+            throw new RuntimeException("Failed to process chat request", e);
+            
+        } finally {
+            // No-op once the stream has fed its time to the first token
+            if (permit != null) {
+                permit.ignore();
+            }
+            logRequest(request, status, SOURCE_PROVIDER, 1, llmResponse, 
+                    firstTokenMs(startNanos, firstTokenNanos.get()), errorMessage);
+        }
+    }
+    
+    /**
+     * Count the prompt tokens and enforce the plan tier's limit, logging a
+     * rejected request as REJECTED with its prompt tokens
+     * 
+     * @return Prompt tokens
+     */
+    private int checkPrompt(ChatRequest request) {
+        try {
+            return tokenCounter.checkPrompt(request);
+        } catch (ContextTooLargeException e) {
+            log.warn("Chat request rejected: conversationId={}, reason={}", request.getConversationId(), e.getMessage());
+            logRequest(request, "REJECTED", SOURCE_PROVIDER, 1, 
+                    new LlmProvider.LlmResponse(null, e.getPromptTokens(), null, null), null, e.getMessage());
+            throw e;
+        }
+    }
+    
+    /**
+     * Call the provider under the concurrency limit, hedging slow calls.
+     * Every attempt gets its own log row; this logs the ones whose result is
+     * not used.
+     * 
+     * @param attempt Set to the attempt that produced the returned response
+     */
+    private LlmProvider.LlmResponse hedgedChat(ChatRequest request, AtomicInteger attempt) {
+        RequestHedger.Outcome outcome = requestHedger.execute(
+                () -> concurrencyLimiter.execute(request.getPlanTier(), request.getUserId(), 
+                        () -> llmProvider.chat(request)), 
+                abandoned -> logRequest(request, abandoned.status(), SOURCE_PROVIDER, abandoned.attempt(), 
+                        new LlmProvider.LlmResponse(null, null, null, abandoned.elapsedMs()), 
+                        null, abandoned.errorMessage()));
+        attempt.set(outcome.attempt());
+        return outcome.response();
+    }
+    
+    /**
+     * Store the conversation's next context version after a successful turn
+     */
+    private ChatResponse remember(ChatRequest request, ChatResponse response) {
+        conversationContexts.advance(request, response.getReplyText());
+        return response;
+    }
+    
+    private ResponseCacheKey cacheKeyFor(ChatRequest request) {
+        return responseCache.isCacheable(request) ? responseCache.keyFor(request, llmProvider.getModelName()) : null;
+    }
+    
+    /**
+     * Answer from the response cache, logging the request as CACHED with zero tokens
+     * 
+     * @param onToken Stream callback, or null for a blocking request
+     * @return Response, or null on a cache miss
+     */
+    private ChatResponse serveCached(ChatRequest request, ResponseCacheKey cacheKey, Consumer<String> onToken) {
+        long startNanos = System.nanoTime();
+        ResponseCache.CachedResponse cached = responseCache.get(cacheKey);
+        if (cached == null) {
+            return null;
+        }
+        
+        String status = "SUCCESS";
+        String errorMessage = null;
+        Long firstTokenMs = null;
+        LlmProvider.LlmResponse llmResponse = null;
+        try {
+            if (onToken != null) {
+                firstTokenMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                onToken.accept(cached.replyText());
+            }
+            llmResponse = new LlmProvider.LlmResponse(cached.replyText(), 0, 0,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            log.info("Chat request served from cache: conversationId={}, providerLatencySaved={}ms", 
+                    request.getConversationId(), cached.providerLatencyMs());
+            return buildResponse(llmResponse, firstTokenMs, SOURCE_CACHED);
+            
+        } catch (Exception e) {
+            log.error("Error streaming cached chat response", e);
+            status = "FAILED";
+            errorMessage = e.getMessage();
+            throw new RuntimeException("Failed to process chat request", e);
+            
+        } finally {
+            logRequest(request, status, SOURCE_CACHED, 1, llmResponse, firstTokenMs, errorMessage);
         }
     }
     
-    private void logRequest(ChatRequest request, String status, 
-                           LlmProvider.LlmResponse llmResponse, String errorMessage) {
+    private void cacheResponse(ResponseCacheKey cacheKey, LlmProvider.LlmResponse llmResponse) {
+        if (cacheKey != null && llmResponse.replyText() != null) {
+            long latencyMs = llmResponse.latencyMs() != null ? llmResponse.latencyMs() : 0;
+            responseCache.put(cacheKey, new ResponseCache.CachedResponse(llmResponse.replyText(), latencyMs));
+        }
+    }
+    
+    private ChatResponse buildResponse(LlmProvider.LlmResponse llmResponse, Long firstTokenMs, String responseSource) {
+        return ChatResponse.builder()
+                .provider(providerName(llmResponse))
+                .model(modelName(llmResponse))
+                .replyText(llmResponse.replyText())
+                .tokenIn(llmResponse.tokenIn())
+                .tokenOut(llmResponse.tokenOut())
+                .latencyMs(llmResponse.latencyMs())
+                .firstTokenMs(firstTokenMs)
+                .responseSource(responseSource)
+                .build();
+    }
+    
+    /**
+     * Provider that generated the response: the routed backend if known, else the configured provider
+     */
+    private String providerName(LlmProvider.LlmResponse llmResponse) {
+        return llmResponse != null && llmResponse.provider() != null 
+                ? llmResponse.provider() : llmProvider.getProviderName();
+    }
+    
+    private String modelName(LlmProvider.LlmResponse llmResponse) {
+        return llmResponse != null && llmResponse.model() != null 
+                ? llmResponse.model() : llmProvider.getModelName();
+    }
+    
+    private static Long firstTokenMs(long startNanos, long firstTokenNanos) {
+        return firstTokenNanos < 0 ? null : TimeUnit.NANOSECONDS.toMillis(firstTokenNanos - startNanos);
+    }
+    
+    private void logRequest(ChatRequest request, String status, String responseSource, int attempt, 
+                           LlmProvider.LlmResponse llmResponse, Long firstTokenMs, String errorMessage) {
         try {
             AiRequestLog log = AiRequestLog.builder()
                     .id(idGenerator.nextId())
@@ -73,21 +333,45 @@ public class AiOrchestratorService {
                     .sceneId(request.getSceneId())
                     .difficulty(request.getDifficulty())
                     .planTier(request.getPlanTier())
-                    .provider(llmProvider.getProviderName())
-                    .model(llmProvider.getModelName())
+                    .provider(providerName(llmResponse))
+                    .model(modelName(llmResponse))
                     .status(status)
+                    .responseSource(responseSource)
+                    .attempt(attempt)
                     .tokenIn(llmResponse != null ? llmResponse.tokenIn() : null)
                     .tokenOut(llmResponse != null ? llmResponse.tokenOut() : null)
                     .latencyMs(llmResponse != null ? llmResponse.latencyMs() : null)
+                    .firstTokenMs(firstTokenMs)
                     .errorMessage(errorMessage)
                     .createdAt(LocalDateTime.now())
                     .build();
             
-            requestLogRepository.insert(log);
+            // Publish once the row is queued for writing (the insert itself is asynchronous)
+            requestLogWriter.write(log);
+            // A cancelled hedge attempt is billing detail, not a request outcome
+            if (!"CANCELLED".equals(status)) {
+                // Never wait for ring space on the request thread; drops are counted in events.bus.dropped
+                if (!eventBus.tryPublish("SUCCESS".equals(status) ? AI_REQUEST_COMPLETED : AI_REQUEST_FAILED, log)) {
+                    this.log.warn("Event bus full, dropped AI request event: id={}", log.getId());
+                }
+            }
             
         } catch (Exception e) {
             // Log but don't fail the request if logging fails
             this.log.error("Failed to log AI request", e);
         }
     }
+    
+    /**
+     * Fill a ring slot without allocating: the ID and timestamp are stored as numbers
+     */
+    private static void fillEvent(EventEnvelope<Object> event, String eventType, AiRequestLog requestLog) {
+        event.setNumericEventId(requestLog.getId());
+        event.setEventType(eventType);
+        event.setSource(EVENT_SOURCE);
+        event.setTimestampMillis(System.currentTimeMillis());
+        event.setVersion("1.0");
+        event.setPayload(requestLog);
+        event.setMetadata(null);
+    }
 }
@@ -0,0 +1,250 @@
+package com.kaelenx.aiorchestrator.service;
+
+import com.kaelenx.aiorchestrator.entity.AiRequestLog;
+import com.kaelenx.aiorchestrator.repository.AiRequestLogRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind pipeline for {@code ai_request_log}.
+ * 
+ * Chat requests hand their log record to {@link #write} and return without a
+ * database round-trip. A single flusher thread drains the bounded queue and
+ * inserts records with one multi-row INSERT per batch, as soon as
+ * {@code batchSize} records are waiting or {@code flushIntervalMs} after the
+ * first record of a batch arrived, whichever comes first. If a batch insert
+ * fails, its records are retried one by one so a single bad row does not take
+ * the rest of the batch with it.
+ * 
+ * When the queue is full, the {@link LogOverflowPolicy} decides whether the
+ * record is dropped, waited for or written on the calling thread. On shutdown
+ * the queue is flushed before the datasource is closed. The flusher is woken
+ * with a marker record rather than interrupted, so a batch insert in
+ * progress is never cut short.
+ * 
+ * Metrics:
+ * - ai.request.log.queue.depth: records waiting to be written
+ * - ai.request.log.batch.size: records per batch insert
+ * - ai.request.log.flush.duration: time to write a batch
+ * - ai.request.log.written: records inserted
+ * - ai.request.log.dropped: records dropped because the queue was full
+ * - ai.request.log.failed: records that could not be inserted
+ */
+@Slf4j
+@Component
+public class AiRequestLogWriter {
+    
+    /**
+     * Queued by {@link #close()} to wake the flusher; never written
+     */
+    private static final AiRequestLog STOP = new AiRequestLog();
+    
+    private final AiRequestLogRepository requestLogRepository;
+    private final BlockingQueue<AiRequestLog> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final LogOverflowPolicy overflowPolicy;
+    private final long offerTimeoutMs;
+    private final long shutdownTimeoutMs;
+    
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final DistributionSummary batchSizes;
+    private final Timer flushTimer;
+    
+    private final Thread flusher;
+    private volatile boolean running = true;
+    
+    public AiRequestLogWriter(AiRequestLogRepository requestLogRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${ai.request-log.writer.queue-capacity:10000}") int queueCapacity,
+                              @Value("${ai.request-log.writer.batch-size:200}") int batchSize,
+                              @Value("${ai.request-log.writer.flush-interval-ms:100}") long flushIntervalMs,
+                              @Value("${ai.request-log.writer.overflow-policy:caller-runs}") LogOverflowPolicy overflowPolicy,
+                              @Value("${ai.request-log.writer.offer-timeout-ms:50}") long offerTimeoutMs,
+                              @Value("${ai.request-log.writer.shutdown-timeout-ms:10000}") long shutdownTimeoutMs) {
+        if (queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("Queue capacity and batch size must be positive");
+        }
+        this.requestLogRepository = requestLogRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.overflowPolicy = overflowPolicy;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+        
+        this.written = meterRegistry.counter("ai.request.log.written");
+        this.dropped = meterRegistry.counter("ai.request.log.dropped");
+        this.failed = meterRegistry.counter("ai.request.log.failed");
+        this.batchSizes = meterRegistry.summary("ai.request.log.batch.size");
+        this.flushTimer = meterRegistry.timer("ai.request.log.flush.duration");
+        Gauge.builder("ai.request.log.queue.depth", queue, BlockingQueue::size)
+                .register(meterRegistry);
+        
+        this.flusher = new Thread(this::runFlusher, "ai-request-log-writer");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        log.info("AiRequestLogWriter started: queueCapacity={}, batchSize={}, flushIntervalMs={}, overflowPolicy={}",
+                queueCapacity, batchSize, flushIntervalMs, overflowPolicy);
+    }
+    
+    /**
+     * Queue a record for insertion
+     * 
+     * @return false if the record was dropped
+     */
+    public boolean write(AiRequestLog requestLog) {
+        if (!running) {
+            // Flusher is gone; fall back to a direct insert
+            return insertOne(requestLog);
+        }
+        if (queue.offer(requestLog)) {
+            return true;
+        }
+        
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                try {
+                    if (queue.offer(requestLog, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            case CALLER_RUNS -> {
+                return insertOne(requestLog);
+            }
+            default -> {
+            }
+        }
+        
+        dropped.increment();
+        log.warn("AI request log queue full, dropped record: id={}, conversationId={}",
+                requestLog.getId(), requestLog.getConversationId());
+        return false;
+    }
+    
+    /**
+     * Returns the number of records waiting to be written
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+    
+    /**
+     * Stop accepting queued writes and flush what is left
+     */
+    @PreDestroy
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        // Wake the flusher if it is waiting for records. If the queue is full it is not waiting.
+        queue.offer(STOP);
+        try {
+            flusher.join(shutdownTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            log.warn("AiRequestLogWriter stopped with {} records not written", queue.size());
+            return;
+        }
+        // Records queued by writers that raced with shutdown
+        AiRequestLog requestLog;
+        while ((requestLog = queue.poll()) != null) {
+            if (requestLog != STOP) {
+                insertOne(requestLog);
+            }
+        }
+        log.info("AiRequestLogWriter stopped, queue flushed");
+    }
+    
+    private void runFlusher() {
+        List<AiRequestLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AiRequestLog first = queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null || first == STOP) {
+                    continue;
+                }
+                batch.add(first);
+                
+                // Fill the batch until it is full or the first record has waited flushInterval
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    AiRequestLog next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                
+                batch.removeIf(requestLog -> requestLog == STOP);
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+            } catch (InterruptedException e) {
+                // Nothing interrupts the flusher on purpose; write what was collected and stop
+                Thread.currentThread().interrupt();
+                batch.removeIf(requestLog -> requestLog == STOP);
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                }
+                return;
+            } catch (Throwable e) {
+                log.error("AI request log flusher error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void flush(List<AiRequestLog> batch) {
+        batchSizes.record(batch.size());
+        flushTimer.record(() -> {
+            try {
+                requestLogRepository.insertBatch(batch);
+                written.increment(batch.size());
+            } catch (Exception e) {
+                log.warn("Batch insert of {} AI request logs failed, retrying row by row", batch.size(), e);
+                for (AiRequestLog requestLog : batch) {
+                    insertOne(requestLog);
+                }
+            }
+        });
+    }
+    
+    private boolean insertOne(AiRequestLog requestLog) {
+        try {
+            requestLogRepository.insert(requestLog);
+            written.increment();
+            return true;
+        } catch (Exception e) {
+            failed.increment();
+            log.error("Failed to log AI request: id={}", requestLog.getId(), e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.kaelenx.aiorchestrator.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a prompt has more tokens than its plan tier allows. Retrying
+ * the same request will not help; the caller has to shorten the history.
+ */
+@Getter
+public class ContextTooLargeException extends RuntimeException {
+    
+    private final int promptTokens;
+    private final int maxContextTokens;
+    
+    public ContextTooLargeException(int promptTokens, int maxContextTokens) {
+        super("Prompt has " + promptTokens + " tokens, more than the limit of " + maxContextTokens);
+        this.promptTokens = promptTokens;
+        this.maxContextTokens = maxContextTokens;
+    }
+}
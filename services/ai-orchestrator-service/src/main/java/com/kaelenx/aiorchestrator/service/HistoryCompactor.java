@@ -0,0 +1,378 @@
+package com.kaelenx.aiorchestrator.service;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Fits conversation history into a token budget before the provider call.
+ * 
+ * The budget is set per plan tier and scaled per difficulty (harder scenes
+ * get more context). History within budget is sent unchanged. Otherwise the
+ * most recent messages that fit are kept verbatim, and older ones are
+ * collapsed into one leading {@value #SUMMARY_ROLE} message with a line per
+ * message (its role and first sentence, cut to
+ * {@code summaryTokensPerMessage}). The summary gets at most
+ * {@code summaryMaxTokens}; the oldest lines are dropped first.
+ * 
+ * Token counts and summary lines are remembered per conversation, by
+ * position and SHA-256 digest of each message. Since history only grows at
+ * the end, the next turn reuses them for its unchanged prefix and only counts
+ * and summarizes the new messages. Conversations are evicted least recently
+ * used first once their combined weight (approximate heap bytes) exceeds
+ * {@code maxWeightBytes}.
+ * 
+ * Metrics:
+ * - ai.context.history.tokens{stage=before|after}: history tokens of each request, before and after compaction
+ * - ai.context.compactions: requests whose history was compacted
+ * - ai.context.summaries{source=cached|new}: summary lines sent, reused from an earlier turn or built for this one
+ * - ai.context.conversations / ai.context.weight: conversations with remembered history and their bytes
+ */
+@Slf4j
+@Component
+public class HistoryCompactor {
+    
+    static final String SUMMARY_ROLE = "system";
+    
+    static final String SUMMARY_HEADER = "Summary of earlier turns:";
+    
+    private static final String DEFAULT_KEY = "DEFAULT";
+    
+    private static final int DIGEST_BYTES = 32;
+    
+    /**
+     * What a conversation's previous turn learned about its history
+     * 
+     * @param digests SHA-256 digest of each message's role and content
+     * @param tokens Tokens of each message, including {@link PromptTokenCounter#TOKENS_PER_MESSAGE}
+     * @param summaries Summary line of each message, or null if not built yet
+     * @param summaryTokens Tokens of each summary line
+     */
+    private record History(byte[][] digests, int[] tokens, String[] summaries, int[] summaryTokens) {
+        
+        /**
+         * Approximate heap bytes of the arrays, digests and summary lines
+         */
+        int weight() {
+            int weight = 64;
+            for (int i = 0; i < digests.length; i++) {
+                weight += 32 + DIGEST_BYTES + 8;
+                if (summaries[i] != null) {
+                    weight += 48 + 2 * summaries[i].length();
+                }
+            }
+            return weight;
+        }
+    }
+    
+    private record Entry(History history, int weight) {
+    }
+    
+    private final PromptTokenCounter tokenCounter;
+    private final boolean enabled;
+    private final Map<String, Integer> budgets;
+    private final int defaultBudget;
+    private final Map<String, Double> difficultyFactors;
+    private final int summaryMaxTokens;
+    private final int summaryTokensPerMessage;
+    private final long maxWeightBytes;
+    private final int headerTokens;
+    
+    private final LinkedHashMap<Long, Entry> histories = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+    
+    private final DistributionSummary tokensBefore;
+    private final DistributionSummary tokensAfter;
+    private final Counter compactions;
+    private final Counter cachedSummaries;
+    private final Counter newSummaries;
+    
+    public HistoryCompactor(PromptTokenCounter tokenCounter,
+                            MeterRegistry meterRegistry,
+                            @Value("${ai.context.enabled:true}") boolean enabled,
+                            @Value("${ai.context.history-budget-tokens:FREE:1024,PREMIUM:4096}") String budgets,
+                            @Value("${ai.context.default-history-budget-tokens:2048}") int defaultBudget,
+                            @Value("${ai.context.difficulty-factors:EASY:0.5,MEDIUM:1,HARD:1.5}") String difficultyFactors,
+                            @Value("${ai.context.summary-max-tokens:256}") int summaryMaxTokens,
+                            @Value("${ai.context.summary-tokens-per-message:32}") int summaryTokensPerMessage,
+                            @Value("${ai.context.max-weight-bytes:16777216}") long maxWeightBytes) {
+        this.tokenCounter = tokenCounter;
+        this.enabled = enabled;
+        this.budgets = new HashMap<>();
+        parseTable(budgets).forEach((tier, tokens) -> this.budgets.put(tier, tokens.intValue()));
+        this.defaultBudget = defaultBudget;
+        this.difficultyFactors = parseTable(difficultyFactors);
+        this.summaryMaxTokens = summaryMaxTokens;
+        this.summaryTokensPerMessage = summaryTokensPerMessage;
+        this.maxWeightBytes = maxWeightBytes;
+        this.headerTokens = PromptTokenCounter.TOKENS_PER_MESSAGE + tokenCounter.countText(SUMMARY_HEADER);
+        
+        this.tokensBefore = historyTokens(meterRegistry, "before");
+        this.tokensAfter = historyTokens(meterRegistry, "after");
+        this.compactions = meterRegistry.counter("ai.context.compactions");
+        this.cachedSummaries = meterRegistry.counter("ai.context.summaries", "source", "cached");
+        this.newSummaries = meterRegistry.counter("ai.context.summaries", "source", "new");
+        Gauge.builder("ai.context.conversations", this, HistoryCompactor::size)
+                .register(meterRegistry);
+        Gauge.builder("ai.context.weight", this, HistoryCompactor::getWeight)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        
+        log.info("HistoryCompactor initialized: enabled={}, budgets={}, default={}, difficultyFactors={}, "
+                + "summaryMaxTokens={}, maxWeightBytes={}", enabled, this.budgets, defaultBudget, this.difficultyFactors,
+                summaryMaxTokens, maxWeightBytes);
+    }
+    
+    /**
+     * Fit the history of a request into its budget
+     * 
+     * @return The request itself if its history fits, else a copy with compacted history
+     */
+    public ChatRequest compact(ChatRequest request) {
+        List<ChatRequest.HistoryMessage> history = request.getHistory();
+        if (!enabled || history == null || history.isEmpty()) {
+            return request;
+        }
+        
+        History counted = count(request.getConversationId(), history);
+        int total = 0;
+        for (int tokens : counted.tokens()) {
+            total += tokens;
+        }
+        tokensBefore.record(total);
+        
+        int budget = budgetTokens(request.getPlanTier(), request.getDifficulty());
+        if (budget <= 0 || total <= budget) {
+            remember(request.getConversationId(), counted);
+            tokensAfter.record(total);
+            return request;
+        }
+        
+        // Newest messages first, as long as they fit next to a minimal summary
+        int[] tokens = counted.tokens();
+        int keepFrom = history.size();
+        int verbatim = 0;
+        int verbatimBudget = budget - Math.min(summaryMaxTokens, headerTokens + summaryTokensPerMessage);
+        while (keepFrom > 0 && verbatim + tokens[keepFrom - 1] <= verbatimBudget) {
+            keepFrom--;
+            verbatim += tokens[keepFrom];
+        }
+        
+        // Then summary lines for the older ones, newest first, in what is left
+        List<String> lines = new ArrayList<>();
+        int summaryBudget = Math.min(summaryMaxTokens, budget - verbatim);
+        int summary = headerTokens;
+        for (int i = keepFrom - 1; i >= 0; i--) {
+            boolean cached = counted.summaries()[i] != null;
+            String line = summaryLine(counted, history, i);
+            if (summary + counted.summaryTokens()[i] > summaryBudget) {
+                break;
+            }
+            lines.add(line);
+            summary += counted.summaryTokens()[i];
+            (cached ? cachedSummaries : newSummaries).increment();
+        }
+        remember(request.getConversationId(), counted);
+        
+        List<ChatRequest.HistoryMessage> compacted = new ArrayList<>(history.size() - keepFrom + 1);
+        if (!lines.isEmpty()) {
+            StringBuilder content = new StringBuilder(SUMMARY_HEADER);
+            for (int i = lines.size() - 1; i >= 0; i--) {
+                content.append('\n').append(lines.get(i));
+            }
+            compacted.add(new ChatRequest.HistoryMessage(SUMMARY_ROLE, content.toString()));
+        } else {
+            summary = 0;
+        }
+        compacted.addAll(history.subList(keepFrom, history.size()));
+        compactions.increment();
+        tokensAfter.record(verbatim + summary);
+        
+        return ChatRequest.builder()
+                .conversationId(request.getConversationId())
+                .userId(request.getUserId())
+                .sceneId(request.getSceneId())
+                .difficulty(request.getDifficulty())
+                .planTier(request.getPlanTier())
+                .userText(request.getUserText())
+                .history(compacted)
+                .contextVersion(request.getContextVersion())
+                .replyMessageId(request.getReplyMessageId())
+                .build();
+    }
+    
+    /**
+     * Returns the history budget for a plan tier and difficulty (0 = unlimited)
+     */
+    public int budgetTokens(String planTier, String difficulty) {
+        int budget = budgets.getOrDefault(keyOf(planTier), defaultBudget);
+        return (int) (budget * difficultyFactors.getOrDefault(keyOf(difficulty), 1.0));
+    }
+    
+    /**
+     * Returns the number of conversations with remembered history
+     */
+    public synchronized int size() {
+        return histories.size();
+    }
+    
+    /**
+     * Returns the approximate heap bytes held by remembered history
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+    
+    /**
+     * Digest and count every message, reusing the previous turn's counts and
+     * summary lines for the unchanged prefix
+     */
+    private History count(Long conversationId, List<ChatRequest.HistoryMessage> history) {
+        History previous = null;
+        synchronized (this) {
+            Entry entry = conversationId != null ? histories.get(conversationId) : null;
+            if (entry != null) {
+                previous = entry.history();
+            }
+        }
+        
+        int size = history.size();
+        History counted = new History(new byte[size][], new int[size], new String[size], new int[size]);
+        MessageDigest sha256 = sha256();
+        boolean samePrefix = previous != null;
+        for (int i = 0; i < size; i++) {
+            ChatRequest.HistoryMessage message = history.get(i);
+            byte[] digest = digest(sha256, message);
+            counted.digests()[i] = digest;
+            samePrefix = samePrefix && i < previous.digests().length && Arrays.equals(previous.digests()[i], digest);
+            if (samePrefix) {
+                counted.tokens()[i] = previous.tokens()[i];
+                counted.summaries()[i] = previous.summaries()[i];
+                counted.summaryTokens()[i] = previous.summaryTokens()[i];
+            } else {
+                counted.tokens()[i] = PromptTokenCounter.TOKENS_PER_MESSAGE + tokenCounter.countText(message.getContent());
+            }
+        }
+        return counted;
+    }
+    
+    /**
+     * Summary line of message {@code i}, built on first use. A line that does
+     * not fit is still kept, for the next turn to reuse.
+     */
+    private String summaryLine(History counted, List<ChatRequest.HistoryMessage> history, int i) {
+        if (counted.summaries()[i] != null) {
+            return counted.summaries()[i];
+        }
+        ChatRequest.HistoryMessage message = history.get(i);
+        String line = "- " + message.getRole() + ": "
+                + tokenCounter.truncate(firstSentence(message.getContent()), summaryTokensPerMessage);
+        counted.summaries()[i] = line;
+        // One more for the line break
+        counted.summaryTokens()[i] = tokenCounter.countText(line) + 1;
+        return line;
+    }
+    
+    private void remember(Long conversationId, History counted) {
+        if (conversationId == null) {
+            return;
+        }
+        int entryWeight = counted.weight();
+        synchronized (this) {
+            Entry removed = histories.remove(conversationId);
+            if (removed != null) {
+                weight -= removed.weight();
+            }
+            if (entryWeight > maxWeightBytes) {
+                return;
+            }
+            histories.put(conversationId, new Entry(counted, entryWeight));
+            weight += entryWeight;
+            
+            // Access order: the first entries are the least recently used
+            Iterator<Entry> eldest = histories.values().iterator();
+            while (weight > maxWeightBytes && eldest.hasNext()) {
+                weight -= eldest.next().weight();
+                eldest.remove();
+            }
+        }
+    }
+    
+    private static String firstSentence(String content) {
+        if (content == null) {
+            return "";
+        }
+        String text = content.strip();
+        for (int i = 0; i < text.length() - 1; i++) {
+            char c = text.charAt(i);
+            if ((c == '.' || c == '!' || c == '?') && Character.isWhitespace(text.charAt(i + 1))) {
+                return text.substring(0, i + 1);
+            }
+        }
+        return text;
+    }
+    
+    private static byte[] digest(MessageDigest sha256, ChatRequest.HistoryMessage message) {
+        if (message.getRole() != null) {
+            sha256.update(message.getRole().getBytes(StandardCharsets.UTF_8));
+        }
+        // Separates role from content, and a null content from an empty one
+        sha256.update((byte) 0);
+        if (message.getContent() != null) {
+            sha256.update((byte) 1);
+            sha256.update(message.getContent().getBytes(StandardCharsets.UTF_8));
+        }
+        return sha256.digest();
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static String keyOf(String value) {
+        return value != null ? value.toUpperCase(Locale.ROOT) : DEFAULT_KEY;
+    }
+    
+    private static DistributionSummary historyTokens(MeterRegistry meterRegistry, String stage) {
+        return DistributionSummary.builder("ai.context.history.tokens")
+                .baseUnit("tokens")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+    
+    private static Map<String, Double> parseTable(String table) {
+        Map<String, Double> values = new HashMap<>();
+        for (String entry : table.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected key:value, got " + entry);
+            }
+            values.put(parts[0].trim().toUpperCase(Locale.ROOT), Double.parseDouble(parts[1].trim()));
+        }
+        return values;
+    }
+}
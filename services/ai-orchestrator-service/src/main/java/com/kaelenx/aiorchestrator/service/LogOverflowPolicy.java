@@ -0,0 +1,22 @@
+package com.kaelenx.aiorchestrator.service;
+
+/**
+ * What {@link AiRequestLogWriter} does with a record when its queue is full
+ */
+public enum LogOverflowPolicy {
+    
+    /**
+     * Drop the record and count it in ai.request.log.dropped
+     */
+    DROP,
+    
+    /**
+     * Wait up to the configured offer timeout for space, then drop
+     */
+    BLOCK,
+    
+    /**
+     * Insert the record on the calling thread, as if there were no queue
+     */
+    CALLER_RUNS
+}
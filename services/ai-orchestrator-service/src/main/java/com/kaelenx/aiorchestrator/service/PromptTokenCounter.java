@@ -0,0 +1,162 @@
+package com.kaelenx.aiorchestrator.service;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import com.kaelenx.aiorchestrator.provider.LlmProvider;
+import com.kaelenx.common.tokenizer.BpeTokenizer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Counts prompt and reply tokens with a local BPE tokenizer, and enforces a
+ * per-plan-tier limit on prompt size before the provider is called.
+ * 
+ * The prompt is the user text plus every history message, each with a fixed
+ * overhead for its role and separators. Counts are estimates of the
+ * provider's own tokenizer: they fill token columns the provider leaves
+ * empty, but provider-reported counts always take precedence.
+ * 
+ * Metrics:
+ * - ai.prompt.tokens{tier}: prompt size of each request
+ * - ai.prompt.rejections{tier}: requests rejected as too large
+ */
+@Slf4j
+@Component
+public class PromptTokenCounter {
+    
+    /**
+     * Tokens added per message for its role and separators
+     */
+    static final int TOKENS_PER_MESSAGE = 4;
+    
+    private static final String DEFAULT_TIER = "DEFAULT";
+    
+    private final BpeTokenizer tokenizer;
+    private final Map<String, Integer> maxContextTokens;
+    private final int defaultMaxContextTokens;
+    private final MeterRegistry meterRegistry;
+    
+    public PromptTokenCounter(MeterRegistry meterRegistry,
+                              @Value("${ai.tokenizer.merges:" + BpeTokenizer.DEFAULT_MERGES + "}") String merges,
+                              @Value("${ai.tokenizer.max-context-tokens:FREE:2048,PREMIUM:8192}") String maxContextTokens,
+                              @Value("${ai.tokenizer.default-max-context-tokens:4096}") int defaultMaxContextTokens) {
+        this.tokenizer = BpeTokenizer.fromClasspath(merges);
+        this.maxContextTokens = parseLimits(maxContextTokens);
+        this.defaultMaxContextTokens = defaultMaxContextTokens;
+        this.meterRegistry = meterRegistry;
+        
+        log.info("PromptTokenCounter initialized: merges={}, vocabularySize={}, maxContextTokens={}, default={}",
+                merges, tokenizer.vocabularySize(), this.maxContextTokens, defaultMaxContextTokens);
+    }
+    
+    /**
+     * Count the prompt tokens of a request and check them against its tier's limit
+     * 
+     * @return Prompt tokens
+     * @throws ContextTooLargeException If the prompt exceeds the limit
+     */
+    public int checkPrompt(ChatRequest request) {
+        String tier = tierOf(request.getPlanTier());
+        int tokens = countPrompt(request);
+        promptTokens(tier).record(tokens);
+        
+        int limit = maxContextTokens(request.getPlanTier());
+        if (limit > 0 && tokens > limit) {
+            meterRegistry.counter("ai.prompt.rejections", "tier", tier).increment();
+            throw new ContextTooLargeException(tokens, limit);
+        }
+        return tokens;
+    }
+    
+    /**
+     * Count the prompt tokens of a request
+     */
+    public int countPrompt(ChatRequest request) {
+        int tokens = TOKENS_PER_MESSAGE + tokenizer.countTokens(request.getUserText());
+        if (request.getHistory() != null) {
+            for (ChatRequest.HistoryMessage message : request.getHistory()) {
+                tokens += TOKENS_PER_MESSAGE + tokenizer.countTokens(message.getContent());
+            }
+        }
+        return tokens;
+    }
+    
+    /**
+     * Count the tokens of a reply or any other text
+     */
+    public int countText(String text) {
+        return tokenizer.countTokens(text);
+    }
+    
+    /**
+     * Cut {@code text} to at most {@code maxTokens} tokens, marking a cut with an ellipsis
+     */
+    public String truncate(String text, int maxTokens) {
+        int[] tokens = tokenizer.encode(text);
+        if (tokens.length <= maxTokens) {
+            return text;
+        }
+        // A cut inside a multi-byte character decodes to U+FFFD
+        String cut = tokenizer.decode(Arrays.copyOf(tokens, Math.max(0, maxTokens - 1)));
+        int end = cut.length();
+        while (end > 0 && cut.charAt(end - 1) == '\uFFFD') {
+            end--;
+        }
+        return cut.substring(0, end).stripTrailing() + "...";
+    }
+    
+    /**
+     * Fill the token counts the provider did not report
+     * 
+     * @param promptTokens Prompt tokens counted for the request
+     */
+    public LlmProvider.LlmResponse fillTokens(LlmProvider.LlmResponse response, int promptTokens) {
+        if (response.tokenIn() != null && response.tokenOut() != null) {
+            return response;
+        }
+        return new LlmProvider.LlmResponse(response.replyText(),
+                response.tokenIn() != null ? response.tokenIn() : promptTokens,
+                response.tokenOut() != null ? response.tokenOut() : countText(response.replyText()),
+                response.latencyMs(), response.provider(), response.model());
+    }
+    
+    /**
+     * Returns the prompt limit of a plan tier (0 = unlimited)
+     */
+    public int maxContextTokens(String planTier) {
+        return maxContextTokens.getOrDefault(tierOf(planTier), defaultMaxContextTokens);
+    }
+    
+    private DistributionSummary promptTokens(String tier) {
+        return DistributionSummary.builder("ai.prompt.tokens")
+                .baseUnit("tokens")
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+    
+    private static String tierOf(String planTier) {
+        return planTier != null ? planTier.toUpperCase(Locale.ROOT) : DEFAULT_TIER;
+    }
+    
+    private static Map<String, Integer> parseLimits(String maxContextTokens) {
+        Map<String, Integer> limits = new HashMap<>();
+        for (String entry : maxContextTokens.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected tier:tokens, got " + entry);
+            }
+            limits.put(parts[0].trim().toUpperCase(Locale.ROOT), Integer.parseInt(parts[1].trim()));
+        }
+        return limits;
+    }
+}
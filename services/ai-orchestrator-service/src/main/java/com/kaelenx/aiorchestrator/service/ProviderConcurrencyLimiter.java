@@ -0,0 +1,390 @@
+package com.kaelenx.aiorchestrator.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Adaptive limit on concurrent provider calls.
+ * 
+ * The limit follows a gradient algorithm: a short-term and a long-term
+ * average of call latency are compared, and while recent calls are no slower
+ * than {@code tolerance} times the long-term average the limit grows by
+ * about its square root; when they are slower, the limit shrinks in
+ * proportion (at most halving per sample). The limit only grows while at
+ * least half of it is in use, so a quiet period does not inflate it.
+ * Streamed replies take as long as the reply is, so they feed their time to
+ * the first token instead, averaged apart from whole-call latencies.
+ * 
+ * A call over the limit waits up to {@code maxWaitMs} for a permit, with at
+ * most {@code maxQueued} callers per plan tier and {@code maxQueuedPerUser}
+ * per user waiting; otherwise it is rejected at once with
+ * {@link ProviderOverloadedException}. Freed permits go to waiters in
+ * {@link WeightedFairQueue} order: tiers share capacity by weight (e.g.
+ * PREMIUM:4,FREE:1), and users within a tier take turns, so a flood of FREE
+ * requests, or of one user's requests, cannot starve the others.
+ * 
+ * Metrics:
+ * - ai.limiter.limit: current concurrency limit
+ * - ai.limiter.in.flight: provider calls holding a permit
+ * - ai.limiter.queue.depth: callers waiting for a permit
+ * - ai.limiter.queue.wait{tier}: time spent waiting for a permit (zero when
+ *   one was free)
+ * - ai.limiter.rejections{tier, reason=queue-full|timeout}: calls rejected
+ */
+@Slf4j
+@Component
+public class ProviderConcurrencyLimiter {
+    
+    /**
+     * Weight of a sample in the short-term latency average (about 10 samples)
+     */
+    private static final double SHORT_SMOOTHING = 2.0 / 11;
+    
+    /**
+     * Weight of a sample in the long-term latency average (about 600 samples)
+     */
+    private static final double LONG_SMOOTHING = 2.0 / 601;
+    
+    /**
+     * Weight of a new estimate when updating the limit
+     */
+    private static final double LIMIT_SMOOTHING = 0.2;
+    
+    /**
+     * Tier of requests without a plan tier
+     */
+    private static final String DEFAULT_TIER = "DEFAULT";
+    
+    private final boolean enabled;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long maxWaitNanos;
+    private final int maxQueued;
+    private final int maxQueuedPerUser;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final WeightedFairQueue<Waiter> waiting;
+    private double limit;
+    private int inFlight;
+    private final LatencyAverage callLatency = new LatencyAverage();
+    private final LatencyAverage firstTokenLatency = new LatencyAverage();
+    
+    private final MeterRegistry meterRegistry;
+    
+    public ProviderConcurrencyLimiter(MeterRegistry meterRegistry,
+                                      @Value("${ai.limiter.enabled:true}") boolean enabled,
+                                      @Value("${ai.limiter.initial-limit:20}") int initialLimit,
+                                      @Value("${ai.limiter.min-limit:4}") int minLimit,
+                                      @Value("${ai.limiter.max-limit:200}") int maxLimit,
+                                      @Value("${ai.limiter.tolerance:1.5}") double tolerance,
+                                      @Value("${ai.limiter.max-wait-ms:100}") long maxWaitMs,
+                                      @Value("${ai.limiter.max-queued:50}") int maxQueued,
+                                      @Value("${ai.limiter.max-queued-per-user:10}") int maxQueuedPerUser,
+                                      @Value("${ai.limiter.tier-weights:PREMIUM:4,FREE:1}") String tierWeights,
+                                      @Value("${ai.limiter.fair-per-user:true}") boolean fairPerUser) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min-limit <= max-limit");
+        }
+        this.enabled = enabled;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.maxQueued = maxQueued;
+        this.maxQueuedPerUser = maxQueuedPerUser;
+        this.waiting = new WeightedFairQueue<>(parseWeights(tierWeights), fairPerUser);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("ai.limiter.limit", this, ProviderConcurrencyLimiter::getLimit)
+                .register(meterRegistry);
+        Gauge.builder("ai.limiter.in.flight", this, ProviderConcurrencyLimiter::getInFlight)
+                .register(meterRegistry);
+        Gauge.builder("ai.limiter.queue.depth", this, ProviderConcurrencyLimiter::getQueued)
+                .register(meterRegistry);
+        
+        log.info("ProviderConcurrencyLimiter initialized: enabled={}, limit={}, minLimit={}, maxLimit={}, maxWaitMs={}, "
+                + "tierWeights={}, fairPerUser={}", enabled, this.limit, minLimit, maxLimit, maxWaitMs, tierWeights, fairPerUser);
+    }
+    
+    /**
+     * A permit for one provider call. One of {@link #success},
+     * {@link #streamed} and {@link #ignore} must be called when the call ends.
+     */
+    public class Permit {
+        
+        private boolean released;
+        
+        private Permit() {
+        }
+        
+        /**
+         * Release after a successful call, feeding its latency to the limit
+         */
+        public void success(long latencyNanos) {
+            release(callLatency, latencyNanos);
+        }
+        
+        /**
+         * Release after a successful streamed reply, feeding its time to the
+         * first token to the limit
+         */
+        public void streamed(long firstTokenNanos) {
+            release(firstTokenLatency, firstTokenNanos);
+        }
+        
+        /**
+         * Release without a latency sample (failed call)
+         */
+        public void ignore() {
+            release(null, -1);
+        }
+        
+        private void release(LatencyAverage average, long latencyNanos) {
+            if (released || !enabled) {
+                return;
+            }
+            released = true;
+            ProviderConcurrencyLimiter.this.release(average, latencyNanos);
+        }
+    }
+    
+    /**
+     * Run {@code call} under a permit
+     * 
+     * @throws ProviderOverloadedException If no permit is available in time
+     */
+    public <T> T execute(String planTier, Long userId, Supplier<T> call) {
+        Permit permit = acquire(planTier, userId);
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            permit.success(System.nanoTime() - start);
+            return result;
+        } finally {
+            permit.ignore();
+        }
+    }
+    
+    /**
+     * Take a permit, waiting up to {@code maxWaitMs} in the fair queue if the
+     * limit is reached
+     * 
+     * @param planTier Caller's plan tier (null for the default tier)
+     * @param userId Caller's user ID, for fairness between users of a tier
+     * @throws ProviderOverloadedException If no permit is available in time
+     */
+    public Permit acquire(String planTier, Long userId) {
+        if (!enabled) {
+            return new Permit();
+        }
+        String tier = tierOf(planTier);
+        
+        lock.lock();
+        try {
+            // Only take a free permit directly if nobody is waiting for one
+            if (inFlight < (int) limit && waiting.size() == 0) {
+                inFlight++;
+                queueWait(tier).record(0, TimeUnit.NANOSECONDS);
+                return new Permit();
+            }
+            if (maxWaitNanos <= 0 || waiting.size(tier) >= maxQueued
+                    || waiting.size(tier, userId) >= maxQueuedPerUser) {
+                rejections(tier, "queue-full").increment();
+                throw new ProviderOverloadedException("AI provider concurrency limit reached");
+            }
+            
+            long start = System.nanoTime();
+            long remaining = maxWaitNanos;
+            Waiter waiter = new Waiter(lock.newCondition());
+            waiting.add(tier, userId, waiter);
+            try {
+                while (!waiter.granted) {
+                    if (remaining <= 0) {
+                        waiting.remove(tier, userId, waiter);
+                        rejections(tier, "timeout").increment();
+                        throw new ProviderOverloadedException("Timed out waiting for AI provider capacity");
+                    }
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+                return new Permit();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (!waiting.remove(tier, userId, waiter)) {
+                    // Granted while being interrupted; hand the permit back
+                    releasePermit();
+                }
+                throw new ProviderOverloadedException("Interrupted while waiting for AI provider capacity");
+            } finally {
+                queueWait(tier).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the current concurrency limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of calls holding a permit
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of callers waiting for a permit
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return waiting.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void release(LatencyAverage average, long latencyNanos) {
+        lock.lock();
+        try {
+            int inFlightAtCompletion = inFlight;
+            if (average != null && latencyNanos >= 0) {
+                updateLimit(average, latencyNanos, inFlightAtCompletion);
+            }
+            releasePermit();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Return a permit and grant free permits to waiters in fair order. The
+     * limit may have grown by more than one permit. Called with the lock held.
+     */
+    private void releasePermit() {
+        inFlight--;
+        while (inFlight < (int) limit) {
+            Waiter next = waiting.poll();
+            if (next == null) {
+                return;
+            }
+            inFlight++;
+            next.granted = true;
+            next.condition.signal();
+        }
+    }
+    
+    private String tierOf(String planTier) {
+        return planTier == null || planTier.isBlank() ? DEFAULT_TIER : planTier.trim().toUpperCase(Locale.ROOT);
+    }
+    
+    private Counter rejections(String tier, String reason) {
+        return meterRegistry.counter("ai.limiter.rejections", "tier", tier, "reason", reason);
+    }
+    
+    private Timer queueWait(String tier) {
+        return meterRegistry.timer("ai.limiter.queue.wait", "tier", tier);
+    }
+    
+    private static Map<String, Double> parseWeights(String tierWeights) {
+        Map<String, Double> weights = new HashMap<>();
+        for (String entry : tierWeights.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":");
+            weights.put(parts[0].trim().toUpperCase(Locale.ROOT),
+                    parts.length > 1 ? Double.parseDouble(parts[1].trim()) : 1.0);
+        }
+        return weights;
+    }
+    
+    /**
+     * Short-term and long-term average of one kind of latency sample.
+     * Guarded by the limiter's lock.
+     */
+    private static class LatencyAverage {
+        
+        private double shortNanos;
+        private double longNanos;
+        
+        /**
+         * Add a sample
+         * 
+         * @return Whether the averages can be compared yet (false for the first sample)
+         */
+        private boolean add(long latencyNanos) {
+            if (longNanos == 0) {
+                shortNanos = Math.max(1, latencyNanos);
+                longNanos = shortNanos;
+                return false;
+            }
+            shortNanos += (latencyNanos - shortNanos) * SHORT_SMOOTHING;
+            longNanos += (shortNanos - longNanos) * LONG_SMOOTHING;
+            
+            // After a long slowdown the baseline has drifted up; let it recover quickly
+            if (longNanos / shortNanos > 2) {
+                longNanos *= 0.95;
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * A caller waiting for a permit
+     */
+    private static class Waiter {
+        
+        private final Condition condition;
+        private boolean granted;
+        
+        private Waiter(Condition condition) {
+            this.condition = condition;
+        }
+    }
+    
+    private void updateLimit(LatencyAverage average, long latencyNanos, int inFlightAtCompletion) {
+        if (!average.add(latencyNanos)) {
+            return;
+        }
+        
+        // Lightly used: latency says nothing about how much more we could send
+        if (inFlightAtCompletion < limit / 2) {
+            return;
+        }
+        
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * average.longNanos / average.shortNanos));
+        double estimate = limit * gradient + Math.sqrt(limit);
+        limit = limit * (1 - LIMIT_SMOOTHING) + estimate * LIMIT_SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit));
+    }
+}
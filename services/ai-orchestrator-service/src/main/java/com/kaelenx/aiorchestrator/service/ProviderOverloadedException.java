@@ -0,0 +1,12 @@
+package com.kaelenx.aiorchestrator.service;
+
+/**
+ * Thrown when a provider call is rejected because the concurrency limit is
+ * reached. Callers should back off and retry.
+ */
+public class ProviderOverloadedException extends RuntimeException {
+    
+    public ProviderOverloadedException(String message) {
+        super(message);
+    }
+}
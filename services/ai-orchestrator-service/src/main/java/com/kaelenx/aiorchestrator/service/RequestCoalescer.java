@@ -0,0 +1,124 @@
+package com.kaelenx.aiorchestrator.service;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import com.kaelenx.aiorchestrator.provider.LlmProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical in-flight provider calls.
+ * 
+ * The first request for a prompt becomes the leader and calls the provider;
+ * requests for the same prompt that arrive while the leader's call is in
+ * flight become followers and wait for its result instead of calling the
+ * provider themselves. A prompt is identified by model, scene, difficulty,
+ * history and user text. Followers share the leader's queue wait and any
+ * overload rejection, so requests of different plan tiers are never
+ * coalesced. Once the leader's call completes, the next request for that
+ * prompt starts a new call.
+ * 
+ * Metrics:
+ * - ai.coalescing.requests{role=leader|follower}: provider calls made / avoided
+ * - ai.coalescing.in.flight: prompts with a call in flight
+ */
+@Slf4j
+@Component
+public class RequestCoalescer {
+    
+    /**
+     * Result of a coalesced call
+     * 
+     * @param response Provider response
+     * @param leader Whether this caller made the provider call
+     */
+    public record Outcome(LlmProvider.LlmResponse response, boolean leader) {
+    }
+    
+    /**
+     * Identity of a prompt. Two requests with equal keys would send the
+     * provider the same input and be admitted under the same plan tier.
+     */
+    record PromptKey(String model, String planTier, Long sceneId, String difficulty,
+                     List<ChatRequest.HistoryMessage> history, String userText) {
+    }
+    
+    private final boolean enabled;
+    private final Map<PromptKey, CompletableFuture<LlmProvider.LlmResponse>> inFlight = new ConcurrentHashMap<>();
+    
+    private final Counter leaders;
+    private final Counter followers;
+    
+    public RequestCoalescer(MeterRegistry meterRegistry,
+                            @Value("${ai.coalescing.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        this.leaders = meterRegistry.counter("ai.coalescing.requests", "role", "leader");
+        this.followers = meterRegistry.counter("ai.coalescing.requests", "role", "follower");
+        Gauge.builder("ai.coalescing.in.flight", inFlight, Map::size)
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Run {@code call} for the request, or wait for an identical call already in flight
+     * 
+     * @param request Chat request
+     * @param model Model the call goes to
+     * @param call Provider call
+     * @return Provider response and whether this caller made the call
+     */
+    public Outcome execute(ChatRequest request, String model, Supplier<LlmProvider.LlmResponse> call) {
+        if (!enabled) {
+            return new Outcome(call.get(), true);
+        }
+        
+        PromptKey key = new PromptKey(model, request.getPlanTier(), request.getSceneId(), request.getDifficulty(),
+                request.getHistory() != null ? List.copyOf(request.getHistory()) : List.of(),
+                request.getUserText());
+        CompletableFuture<LlmProvider.LlmResponse> future = new CompletableFuture<>();
+        CompletableFuture<LlmProvider.LlmResponse> existing = inFlight.putIfAbsent(key, future);
+        
+        if (existing != null) {
+            followers.increment();
+            log.debug("Coalescing chat request onto in-flight call: conversationId={}", request.getConversationId());
+            return new Outcome(await(existing), false);
+        }
+        
+        leaders.increment();
+        try {
+            LlmProvider.LlmResponse response = call.get();
+            future.complete(response);
+            return new Outcome(response, true);
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+    
+    private static LlmProvider.LlmResponse await(CompletableFuture<LlmProvider.LlmResponse> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for coalesced request", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CompletionException(cause);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.kaelenx.aiorchestrator.service;
+
+import com.kaelenx.aiorchestrator.provider.LlmProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Hedged provider calls.
+ * 
+ * The first attempt runs as usual. If it has not returned after the hedge
+ * delay (a percentile of recent provider latency, at least
+ * {@code minDelayMs}), a second attempt is started and the first successful
+ * result wins; the other attempt is cancelled. If one attempt fails, the
+ * other is still waited for.
+ * 
+ * The delay is taken over first attempts only. A first attempt that loses
+ * to its hedge is cancelled before it finishes; its time until then is
+ * recorded as a lower bound, so slow calls stay in the window and the delay
+ * does not drift down to the latency of the hedges that beat them.
+ * 
+ * Hedges are budgeted: every first attempt earns {@code budgetRatio} of a
+ * hedge (at most {@code MAX_BUDGET} saved up), and each hedge spends one, so
+ * hedging adds at most about {@code budgetRatio} extra load. No hedges are
+ * sent until {@code minSamples} latencies have been observed.
+ * 
+ * Attempts run on their own threads so the caller can wait on both. With
+ * {@code spring.threads.virtual.enabled} on Java 21+ each attempt gets a new
+ * virtual thread; otherwise idle platform threads are reused.
+ * 
+ * Metrics:
+ * - ai.hedging.hedges{result=won|lost}: hedge attempts sent and whether they won
+ * - ai.hedging.budget.exhausted: hedges skipped because the budget was spent
+ * - ai.hedging.delay: current hedge delay (ms)
+ */
+@Slf4j
+@Component
+public class RequestHedger {
+    
+    /**
+     * Number of saved-up hedges, bounding bursts after a quiet period
+     */
+    private static final double MAX_BUDGET = 10;
+    
+    /**
+     * Result of a hedged call
+     * 
+     * @param response Winning response
+     * @param attempt Attempt that produced it (1 = first attempt, 2 = hedge)
+     */
+    public record Outcome(LlmProvider.LlmResponse response, int attempt) {
+    }
+    
+    /**
+     * An attempt whose result was not used
+     * 
+     * @param attempt Attempt number (1 = first attempt, 2 = hedge)
+     * @param status CANCELLED (lost the race) or FAILED
+     * @param elapsedMs Time from the start of the attempt until it was cancelled or failed
+     * @param errorMessage Failure message, or null
+     */
+    public record Abandoned(int attempt, String status, long elapsedMs, String errorMessage) {
+    }
+    
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayMs;
+    private final double budgetRatio;
+    private final int minSamples;
+    
+    private final long[] window;
+    private int windowCount;
+    private int windowNext;
+    private long delayMs;
+    private double budget;
+    
+    private final ExecutorService executor;
+    
+    private final Counter hedgesWon;
+    private final Counter hedgesLost;
+    private final Counter budgetExhausted;
+    
+    public RequestHedger(MeterRegistry meterRegistry,
+                         @Value("${ai.hedging.enabled:false}") boolean enabled,
+                         @Value("${ai.hedging.percentile:95}") double percentile,
+                         @Value("${ai.hedging.min-delay-ms:50}") long minDelayMs,
+                         @Value("${ai.hedging.budget-ratio:0.05}") double budgetRatio,
+                         @Value("${ai.hedging.window-size:1000}") int windowSize,
+                         @Value("${ai.hedging.min-samples:20}") int minSamples,
+                         @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (percentile <= 0 || percentile > 100 || windowSize < 1) {
+            throw new IllegalArgumentException("Hedging percentile must be in (0, 100] and window size positive");
+        }
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayMs = minDelayMs;
+        this.budgetRatio = budgetRatio;
+        this.minSamples = Math.min(minSamples, windowSize);
+        this.window = new long[windowSize];
+        this.delayMs = Long.MAX_VALUE;
+        this.executor = enabled ? attemptExecutor(virtualThreads) : null;
+        
+        this.hedgesWon = meterRegistry.counter("ai.hedging.hedges", "result", "won");
+        this.hedgesLost = meterRegistry.counter("ai.hedging.hedges", "result", "lost");
+        this.budgetExhausted = meterRegistry.counter("ai.hedging.budget.exhausted");
+        Gauge.builder("ai.hedging.delay", this, RequestHedger::getDelayMs)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        
+        log.info("RequestHedger initialized: enabled={}, percentile={}, minDelayMs={}, budgetRatio={}",
+                enabled, percentile, minDelayMs, budgetRatio);
+    }
+    
+    /**
+     * Run {@code call}, hedging it with a second call if it is slow
+     * 
+     * @param call Provider call; must be safe to run twice concurrently
+     * @param onAbandoned Told about every attempt whose result is not returned
+     *                    or thrown
+     * @return Winning response and its attempt number
+     * @throws RuntimeException The first attempt's failure if no attempt succeeded
+     */
+    public Outcome execute(Supplier<LlmProvider.LlmResponse> call, Consumer<Abandoned> onAbandoned) {
+        if (!enabled) {
+            return new Outcome(call.get(), 1);
+        }
+        
+        CompletionService<LlmProvider.LlmResponse> attempts = new ExecutorCompletionService<>(executor);
+        long[] startNanos = new long[3];
+        startNanos[1] = System.nanoTime();
+        AtomicBoolean firstSampled = new AtomicBoolean();
+        Future<LlmProvider.LlmResponse> first = attempts.submit(() -> timed(call, firstSampled));
+        Future<LlmProvider.LlmResponse> hedge = null;
+        earnBudget();
+        
+        try {
+            long delay = getDelayMs();
+            Future<LlmProvider.LlmResponse> done = delay == Long.MAX_VALUE
+                    ? attempts.take()
+                    : attempts.poll(delay, TimeUnit.MILLISECONDS);
+            if (done == null) {
+                if (trySpendBudget()) {
+                    startNanos[2] = System.nanoTime();
+                    hedge = attempts.submit(call::get);
+                    log.debug("Hedging slow provider call after {}ms", delay);
+                } else {
+                    budgetExhausted.increment();
+                }
+                done = attempts.take();
+            }
+            
+            int attempt = done == first ? 1 : 2;
+            Future<LlmProvider.LlmResponse> other = done == first ? hedge : first;
+            try {
+                LlmProvider.LlmResponse response = done.get();
+                if (other != null) {
+                    other.cancel(true);
+                    if (other == first) {
+                        // Censored sample: the first attempt would have taken at least this long
+                        recordSample(firstSampled, System.nanoTime() - startNanos[1]);
+                    }
+                    onAbandoned.accept(abandoned(3 - attempt, "CANCELLED", startNanos[3 - attempt], null));
+                }
+                countHedge(hedge, attempt);
+                return new Outcome(response, attempt);
+            } catch (ExecutionException e) {
+                if (other == null) {
+                    throw e;
+                }
+                // One attempt failed; the other may still succeed
+                try {
+                    LlmProvider.LlmResponse response = other.get();
+                    onAbandoned.accept(abandoned(attempt, "FAILED", startNanos[attempt], e.getCause().getMessage()));
+                    countHedge(hedge, 3 - attempt);
+                    return new Outcome(response, 3 - attempt);
+                } catch (ExecutionException otherFailure) {
+                    // Both failed: report the hedge and throw the first attempt's failure
+                    ExecutionException hedgeFailure = attempt == 2 ? e : otherFailure;
+                    onAbandoned.accept(abandoned(2, "FAILED", startNanos[2], hedgeFailure.getCause().getMessage()));
+                    hedgesLost.increment();
+                    throw attempt == 1 ? e : otherFailure;
+                }
+            }
+            
+        } catch (InterruptedException e) {
+            first.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for provider call", e);
+            
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Provider call failed", cause);
+        }
+    }
+    
+    /**
+     * Returns the current hedge delay in milliseconds, or {@link Long#MAX_VALUE}
+     * while too few latencies have been observed
+     */
+    public synchronized long getDelayMs() {
+        return delayMs;
+    }
+    
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    private LlmProvider.LlmResponse timed(Supplier<LlmProvider.LlmResponse> call, AtomicBoolean sampled) {
+        long start = System.nanoTime();
+        LlmProvider.LlmResponse response = call.get();
+        if (!Thread.currentThread().isInterrupted()) {
+            recordSample(sampled, System.nanoTime() - start);
+        }
+        return response;
+    }
+    
+    /**
+     * Record the first attempt's latency, or a lower bound of it, once per call
+     */
+    private void recordSample(AtomicBoolean sampled, long latencyNanos) {
+        if (sampled.compareAndSet(false, true)) {
+            recordLatency(TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+        }
+    }
+    
+    private synchronized void recordLatency(long latencyMs) {
+        window[windowNext] = latencyMs;
+        windowNext = (windowNext + 1) % window.length;
+        windowCount = Math.min(windowCount + 1, window.length);
+        
+        // Recompute the percentile every tenth of a window rather than on every sample
+        if (windowCount >= minSamples && (delayMs == Long.MAX_VALUE || windowNext % Math.max(1, window.length / 10) == 0)) {
+            long[] sorted = Arrays.copyOf(window, windowCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            delayMs = Math.max(minDelayMs, sorted[Math.max(0, index)]);
+        }
+    }
+    
+    private synchronized void earnBudget() {
+        budget = Math.min(MAX_BUDGET, budget + budgetRatio);
+    }
+    
+    private synchronized boolean trySpendBudget() {
+        if (budget < 1) {
+            return false;
+        }
+        budget -= 1;
+        return true;
+    }
+    
+    private void countHedge(Future<LlmProvider.LlmResponse> hedge, int winningAttempt) {
+        if (hedge != null) {
+            (winningAttempt == 2 ? hedgesWon : hedgesLost).increment();
+        }
+    }
+    
+    private static Abandoned abandoned(int attempt, String status, long startNanos, String errorMessage) {
+        return new Abandoned(attempt, status, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), errorMessage);
+    }
+    
+    private static ExecutorService attemptExecutor(boolean virtualThreads) {
+        if (virtualThreads && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE)) {
+            // No core threads and no keep-alive: one short-lived virtual thread per attempt
+            ThreadFactory factory = new VirtualThreadTaskExecutor("provider-attempt-").getVirtualThreadFactory();
+            return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 0, TimeUnit.SECONDS, new SynchronousQueue<>(), factory);
+        }
+        return Executors.newCachedThreadPool(new AttemptThreadFactory());
+    }
+    
+    private static class AttemptThreadFactory implements ThreadFactory {
+        
+        private final AtomicInteger count = new AtomicInteger();
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "provider-attempt-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
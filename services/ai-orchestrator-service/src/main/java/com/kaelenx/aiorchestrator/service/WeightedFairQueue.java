@@ -0,0 +1,126 @@
+package com.kaelenx.aiorchestrator.service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Two-level fair queue: weighted between plan tiers, round robin between
+ * users within a tier.
+ * 
+ * Tiers are served by start-time fair queueing: each dispatch advances the
+ * tier's finish tag by {@code 1 / weight}, and the backlogged tier with the
+ * lowest tag goes next. A tier that was idle starts at the current virtual
+ * time, so it cannot save up credit. Within a tier, users take turns, one
+ * item each. Not thread-safe.
+ * 
+ * @param <T> Queued item
+ */
+class WeightedFairQueue<T> {
+    
+    private final Map<String, Double> tierWeights;
+    private final boolean perUser;
+    private final Map<String, Tier> tiers = new HashMap<>();
+    private double virtualTime;
+    private int size;
+    
+    /**
+     * @param tierWeights Relative share of each tier; unlisted tiers weigh 1
+     * @param perUser Whether users within a tier take turns (otherwise FIFO per tier)
+     */
+    WeightedFairQueue(Map<String, Double> tierWeights, boolean perUser) {
+        this.tierWeights = Map.copyOf(tierWeights);
+        this.perUser = perUser;
+    }
+    
+    void add(String tier, Long userId, T item) {
+        Tier queue = tiers.computeIfAbsent(tier, name -> new Tier(tierWeights.getOrDefault(name, 1.0)));
+        if (queue.size == 0) {
+            queue.finish = Math.max(queue.finish, virtualTime);
+        }
+        queue.users.computeIfAbsent(perUser ? userId : null, user -> new ArrayDeque<>()).addLast(item);
+        queue.size++;
+        size++;
+    }
+    
+    /**
+     * Remove and return the next item, or null if empty
+     */
+    T poll() {
+        Tier next = null;
+        for (Tier tier : tiers.values()) {
+            if (tier.size > 0 && (next == null || tier.finish < next.finish)) {
+                next = tier;
+            }
+        }
+        if (next == null) {
+            return null;
+        }
+        virtualTime = next.finish;
+        next.finish += 1 / next.weight;
+        
+        // Serve the first user in turn, then move them to the back
+        Iterator<Map.Entry<Long, ArrayDeque<T>>> users = next.users.entrySet().iterator();
+        Map.Entry<Long, ArrayDeque<T>> user = users.next();
+        T item = user.getValue().pollFirst();
+        users.remove();
+        if (!user.getValue().isEmpty()) {
+            next.users.put(user.getKey(), user.getValue());
+        }
+        next.size--;
+        size--;
+        return item;
+    }
+    
+    /**
+     * Remove an item that gave up waiting
+     * 
+     * @return Whether the item was queued
+     */
+    boolean remove(String tier, Long userId, T item) {
+        Tier queue = tiers.get(tier);
+        if (queue == null) {
+            return false;
+        }
+        Long key = perUser ? userId : null;
+        ArrayDeque<T> items = queue.users.get(key);
+        if (items == null || !items.remove(item)) {
+            return false;
+        }
+        if (items.isEmpty()) {
+            queue.users.remove(key);
+        }
+        queue.size--;
+        size--;
+        return true;
+    }
+    
+    int size() {
+        return size;
+    }
+    
+    int size(String tier) {
+        Tier queue = tiers.get(tier);
+        return queue == null ? 0 : queue.size;
+    }
+    
+    int size(String tier, Long userId) {
+        Tier queue = tiers.get(tier);
+        ArrayDeque<T> items = queue == null ? null : queue.users.get(perUser ? userId : null);
+        return items == null ? 0 : items.size();
+    }
+    
+    private class Tier {
+        
+        private final double weight;
+        private final LinkedHashMap<Long, ArrayDeque<T>> users = new LinkedHashMap<>();
+        private double finish;
+        private int size;
+        
+        private Tier(double weight) {
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+-- Worker ID Lease Table
+-- Hands out Snowflake worker IDs to service instances with heartbeat-renewed leases
+
+CREATE TABLE worker_id_lease (
+    worker_id BIGINT PRIMARY KEY COMMENT 'Snowflake worker ID (0-1023)',
+    owner_id VARCHAR(255) NOT NULL COMMENT 'Instance currently holding the lease',
+    expires_at BIGINT NOT NULL COMMENT 'Lease expiry (epoch milliseconds)',
+    heartbeat_at BIGINT NOT NULL COMMENT 'Last heartbeat (epoch milliseconds)',
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT 'Creation timestamp',
+    INDEX idx_expires_at (expires_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Snowflake worker ID leases';
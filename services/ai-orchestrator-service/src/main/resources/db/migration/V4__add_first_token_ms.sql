@@ -0,0 +1,3 @@
+-- Time to first streamed token, tracked separately from total latency
+ALTER TABLE ai_request_log
+    ADD COLUMN first_token_ms BIGINT NULL COMMENT 'Time to first streamed token in milliseconds (streaming requests only)' AFTER latency_ms;
@@ -0,0 +1,3 @@
+-- Where the reply came from: PROVIDER (LLM call) or CACHED (response cache hit)
+ALTER TABLE ai_request_log
+    ADD COLUMN response_source VARCHAR(20) NOT NULL DEFAULT 'PROVIDER' COMMENT 'Reply source (PROVIDER, CACHED)' AFTER status;
@@ -0,0 +1,3 @@
+-- Attempt number of a hedged provider call: 1 for the first attempt, 2 for the hedge
+ALTER TABLE ai_request_log
+    ADD COLUMN attempt TINYINT NOT NULL DEFAULT 1 COMMENT 'Provider call attempt (1 = first, 2 = hedge)' AFTER response_source;
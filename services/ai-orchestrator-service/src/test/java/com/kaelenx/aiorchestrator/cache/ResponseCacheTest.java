@@ -0,0 +1,96 @@
+package com.kaelenx.aiorchestrator.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+    
+    private MeterRegistry meterRegistry;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+    
+    @Test
+    void testNormalizeFoldsCaseWhitespaceAndTrailingPunctuation() {
+        assertEquals("hello", ResponseCacheKey.normalize("Hello!"));
+        assertEquals("hello", ResponseCacheKey.normalize("  HELLO  "));
+        assertEquals("help me practice", ResponseCacheKey.normalize("Help   me\tpractice?!"));
+        assertEquals("what's up", ResponseCacheKey.normalize("What's up..."));
+        assertEquals("hello", ResponseCacheKey.normalize("ｈｅｌｌｏ"));
+    }
+    
+    @Test
+    void testKeyIncludesSceneDifficultyAndModel() {
+        ResponseCache cache = new ResponseCache(meterRegistry, "FREE", 60_000, 1 << 20);
+        cache.put(key("hello", 1L, "EASY", "qwen-turbo"), reply("Hi!"));
+        
+        assertNotNull(cache.get(key("hello", 1L, "EASY", "qwen-turbo")));
+        assertNull(cache.get(key("hello", 2L, "EASY", "qwen-turbo")));
+        assertNull(cache.get(key("hello", 1L, "HARD", "qwen-turbo")));
+        assertNull(cache.get(key("hello", 1L, "EASY", "qwen-max")));
+        
+        assertEquals(1.0, meterRegistry.counter("ai.response.cache.requests", "result", "hit").count());
+        assertEquals(3.0, meterRegistry.counter("ai.response.cache.requests", "result", "miss").count());
+        assertEquals(0.25, meterRegistry.get("ai.response.cache.hit.ratio").gauge().value());
+        assertEquals(200.0, meterRegistry.summary("ai.response.cache.latency.saved").totalAmount());
+    }
+    
+    @Test
+    void testEntriesExpireAfterTtl() throws InterruptedException {
+        ResponseCache cache = new ResponseCache(meterRegistry, "FREE", 20, 1 << 20);
+        cache.put(key("hello", 1L, "EASY", "qwen-turbo"), reply("Hi!"));
+        
+        Thread.sleep(40);
+        
+        assertNull(cache.get(key("hello", 1L, "EASY", "qwen-turbo")));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+    
+    @Test
+    void testLeastRecentlyUsedEntriesAreEvictedByWeight() {
+        ResponseCache probe = new ResponseCache(meterRegistry, "FREE", 60_000, 1 << 20);
+        probe.put(key("a", 1L, "EASY", "m"), reply("x".repeat(100)));
+        long entryWeight = probe.getWeight();
+        
+        ResponseCache cache = new ResponseCache(new SimpleMeterRegistry(), "FREE", 60_000, 3 * entryWeight);
+        cache.put(key("a", 1L, "EASY", "m"), reply("x".repeat(100)));
+        cache.put(key("b", 1L, "EASY", "m"), reply("x".repeat(100)));
+        cache.put(key("c", 1L, "EASY", "m"), reply("x".repeat(100)));
+        assertNotNull(cache.get(key("a", 1L, "EASY", "m")));
+        
+        cache.put(key("d", 1L, "EASY", "m"), reply("x".repeat(100)));
+        
+        assertEquals(3, cache.size());
+        assertTrue(cache.getWeight() <= 3 * entryWeight);
+        assertNotNull(cache.get(key("a", 1L, "EASY", "m")), "Recently read entry must survive");
+        assertNull(cache.get(key("b", 1L, "EASY", "m")), "Least recently used entry must be evicted");
+        
+        // A large reply displaces several small ones
+        cache.put(key("e", 1L, "EASY", "m"), reply("x".repeat(250)));
+        assertTrue(cache.getWeight() <= 3 * entryWeight);
+        assertTrue(cache.size() < 3);
+    }
+    
+    @Test
+    void testRepliesHeavierThanCacheAreNotStored() {
+        ResponseCache cache = new ResponseCache(meterRegistry, "FREE", 60_000, 512);
+        cache.put(key("hello", 1L, "EASY", "m"), reply("x".repeat(1000)));
+        
+        assertEquals(0, cache.size());
+    }
+    
+    private static ResponseCacheKey key(String text, Long sceneId, String difficulty, String model) {
+        return new ResponseCacheKey(text, sceneId, difficulty, model);
+    }
+    
+    private static ResponseCache.CachedResponse reply(String text) {
+        return new ResponseCache.CachedResponse(text, 200);
+    }
+}
@@ -0,0 +1,110 @@
+package com.kaelenx.aiorchestrator.controller;
+
+import com.kaelenx.aiorchestrator.cache.ContextVersionMismatchException;
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import com.kaelenx.aiorchestrator.service.AiOrchestratorService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class InternalAiControllerTest {
+    
+    private static final String SESSION_BODY = "{\"conversationId\":100,\"userId\":1,\"sceneId\":1,"
+            + "\"difficulty\":\"EASY\",\"planTier\":\"FREE\",\"userText\":\"Hello\",\"contextVersion\":4}";
+    
+    @Mock
+    private AiOrchestratorService aiOrchestratorService;
+    
+    private MockMvc mockMvc;
+    
+    @BeforeEach
+    void setUp() {
+        InternalAiController controller = new InternalAiController(aiOrchestratorService, new SyncTaskExecutor(), 5000);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+    
+    @Test
+    void testStaleContextIsConflict() throws Exception {
+        staleContext();
+        
+        mockMvc.perform(post("/internal/ai/chat")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(SESSION_BODY))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value(
+                        "No cached context for conversation 100, resend with full history"));
+        
+        verify(aiOrchestratorService, never()).chat(any());
+    }
+    
+    @Test
+    void testStaleContextIsConflictBeforeStreamStarts() throws Exception {
+        staleContext();
+        
+        mockMvc.perform(post("/internal/ai/chat:stream")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content(SESSION_BODY))
+                .andExpect(status().isConflict());
+        
+        verify(aiOrchestratorService, never()).chatStream(any(), any());
+    }
+    
+    @Test
+    void testFullStreamingPoolIsServiceUnavailable() throws Exception {
+        when(aiOrchestratorService.resolveContext(any(ChatRequest.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // The only worker is busy and there is no queue
+            executor.execute(() -> awaitQuietly(release));
+            mockMvc = MockMvcBuilders.standaloneSetup(
+                    new InternalAiController(aiOrchestratorService, executor, 5000)).build();
+            
+            mockMvc.perform(post("/internal/ai/chat:stream")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .accept(MediaType.TEXT_EVENT_STREAM)
+                            .content(SESSION_BODY))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        
+        verify(aiOrchestratorService, never()).chatStream(any(), any());
+    }
+    
+    private void staleContext() {
+        when(aiOrchestratorService.resolveContext(any(ChatRequest.class)))
+                .thenThrow(new ContextVersionMismatchException(100L, 4, null));
+    }
+    
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
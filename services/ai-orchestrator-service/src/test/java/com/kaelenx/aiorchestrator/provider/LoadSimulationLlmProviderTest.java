@@ -0,0 +1,148 @@
+package com.kaelenx.aiorchestrator.provider;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadSimulationLlmProviderTest {
+    
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .conversationId(1L)
+            .userId(2L)
+            .userText("How do I use the present perfect?")
+            .history(List.of(
+                    new ChatRequest.HistoryMessage("user", "Hi there"),
+                    new ChatRequest.HistoryMessage("assistant", "Hello! What would you like to practice?")))
+            .build();
+    
+    private MeterRegistry meterRegistry;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+    
+    @Test
+    void testStreamsReplyWithTokenCounts() {
+        LoadSimulationLlmProvider provider = provider(settings().medianLatencyMs(30).tokenDelayMs(2));
+        
+        List<String> tokens = new ArrayList<>();
+        LlmProvider.LlmResponse response = provider.chatStream(REQUEST, tokens::add);
+        
+        assertEquals(response.tokenOut(), tokens.size());
+        assertEquals(response.replyText(), String.join("", tokens));
+        // 33 + 8 + 39 chars at 4 chars per token, plus 4 tokens per message
+        assertEquals(20 + 3 * 4, response.tokenIn());
+        assertTrue(response.latencyMs() >= 30 + 2L * (tokens.size() - 1), "latency=" + response.latencyMs());
+        assertEquals(0, provider.getInFlight());
+    }
+    
+    @Test
+    void testLogNormalLatency() {
+        LoadSimulationLlmProvider provider = provider(settings().medianLatencyMs(400).latencySigma(0.5));
+        
+        long[] delays = sampleDelays(provider, 10_000);
+        
+        assertEquals(400, delays[delays.length / 2], 20);
+        // exp(0.5 * 2.326) = 3.2: the p99 sits about 3x above the median
+        assertEquals(3.2 * 400, delays[delays.length * 99 / 100], 100);
+    }
+    
+    @Test
+    void testBimodalLatencyAndStalls() {
+        LoadSimulationLlmProvider provider = provider(settings()
+                .distribution(LatencyDistribution.BIMODAL)
+                .medianLatencyMs(100)
+                .slowMedianLatencyMs(5000)
+                .slowFraction(0.1)
+                .stallRate(0.01)
+                .stallMs(60_000));
+        
+        long[] delays = sampleDelays(provider, 10_000);
+        
+        long slow = Arrays.stream(delays).filter(delay -> delay >= 5000 && delay < 60_000).count();
+        long stalled = Arrays.stream(delays).filter(delay -> delay >= 60_000).count();
+        assertEquals(900, slow, 100);
+        assertEquals(100, stalled, 40);
+        assertEquals(stalled, meterRegistry.counter("ai.loadsim.faults", "model", "sim", "fault", "stall").count());
+    }
+    
+    @Test
+    void testInjectedError() {
+        LoadSimulationLlmProvider provider = provider(settings().errorRate(1));
+        
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> provider.chat(REQUEST));
+        
+        assertEquals("Simulated provider error", e.getMessage());
+        assertEquals(1.0, meterRegistry.counter("ai.loadsim.faults", "model", "sim", "fault", "error").count());
+    }
+    
+    @Test
+    void testInjectedTimeout() {
+        LoadSimulationLlmProvider provider = provider(settings().timeoutRate(1).timeoutMs(50));
+        
+        long start = System.nanoTime();
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> provider.chat(REQUEST));
+        
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals("Simulated provider timeout after 50ms", e.getMessage());
+    }
+    
+    @Test
+    void testThrottlesBeyondMaxConcurrent() throws Exception {
+        LoadSimulationLlmProvider provider = provider(settings().medianLatencyMs(500).maxConcurrent(1));
+        CompletableFuture<LlmProvider.LlmResponse> first = CompletableFuture.supplyAsync(() -> provider.chat(REQUEST));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (provider.getInFlight() == 0) {
+            assertTrue(System.nanoTime() < deadline, "First call did not start");
+            Thread.sleep(1);
+        }
+        
+        assertThrows(IllegalStateException.class, () -> provider.chat(REQUEST));
+        
+        assertNotNull(first.get(5, TimeUnit.SECONDS).replyText());
+        assertEquals(1.0, meterRegistry.counter("ai.loadsim.faults", "model", "sim", "fault", "throttle").count());
+        provider.chat(REQUEST);
+    }
+    
+    @Test
+    void testInterruptAbortsCall() {
+        LoadSimulationLlmProvider provider = provider(settings().medianLatencyMs(10_000));
+        Thread.currentThread().interrupt();
+        
+        assertThrows(IllegalStateException.class, () -> provider.chat(REQUEST));
+        
+        assertTrue(Thread.interrupted());
+        assertEquals(0, provider.getInFlight());
+    }
+    
+    private LoadSimulationLlmProvider provider(LoadSimulationLlmProvider.Settings.SettingsBuilder settings) {
+        return new LoadSimulationLlmProvider("sim", settings.build(), meterRegistry);
+    }
+    
+    private static LoadSimulationLlmProvider.Settings.SettingsBuilder settings() {
+        return LoadSimulationLlmProvider.Settings.builder()
+                .distribution(LatencyDistribution.LOG_NORMAL)
+                .medianOutputTokens(20)
+                .seed(42);
+    }
+    
+    private static long[] sampleDelays(LoadSimulationLlmProvider provider, int count) {
+        long[] delays = new long[count];
+        for (int i = 0; i < count; i++) {
+            delays[i] = provider.firstTokenDelayMs();
+        }
+        Arrays.sort(delays);
+        return delays;
+    }
+}
@@ -0,0 +1,49 @@
+package com.kaelenx.aiorchestrator.provider;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QwenLlmProviderTest {
+    
+    @Test
+    void testChatStreamEmitsReplyTokenByToken() {
+        QwenLlmProvider provider = new QwenLlmProvider("qwen-turbo", "unused", 5);
+        ChatRequest request = ChatRequest.builder()
+                .conversationId(1L)
+                .userText("hello")
+                .build();
+        
+        List<String> tokens = new ArrayList<>();
+        LlmProvider.LlmResponse response = provider.chatStream(request, tokens::add);
+        
+        assertTrue(tokens.size() > 1);
+        assertEquals(response.replyText(), String.join("", tokens));
+        assertTrue(tokens.get(0).startsWith("Hello!"));
+        assertNotNull(response.latencyMs());
+        assertTrue(response.latencyMs() >= 100 + 5L * (tokens.size() - 1));
+    }
+    
+    @Test
+    void testInterruptedStreamStopsAndKeepsInterruptFlag() {
+        QwenLlmProvider provider = new QwenLlmProvider("qwen-turbo", "unused", 5);
+        ChatRequest request = ChatRequest.builder()
+                .conversationId(1L)
+                .userText("hello")
+                .build();
+        List<String> tokens = new ArrayList<>();
+        
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(IllegalStateException.class, () -> provider.chatStream(request, tokens::add));
+            assertTrue(Thread.currentThread().isInterrupted());
+            assertTrue(tokens.isEmpty());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
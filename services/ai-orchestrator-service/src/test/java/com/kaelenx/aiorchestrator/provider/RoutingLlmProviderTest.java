@@ -0,0 +1,299 @@
+package com.kaelenx.aiorchestrator.provider;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingLlmProviderTest {
+    
+    private static final ChatRequest REQUEST = ChatRequest.builder()
+            .conversationId(1L)
+            .userId(2L)
+            .userText("Hello")
+            .build();
+    
+    @Test
+    void testResponseIsAttributedToBackend() {
+        FakeProvider fast = new FakeProvider("fast", 0);
+        RoutingLlmProvider router = new RoutingLlmProvider(
+                List.of(backend(fast, 1)), RoutingStrategy.POWER_OF_TWO_CHOICES, null);
+        
+        LlmProvider.LlmResponse response = router.chat(REQUEST);
+        
+        assertEquals("fake", response.provider());
+        assertEquals("fast", response.model());
+        assertEquals("routing", router.getProviderName());
+        assertEquals(1, fast.calls.get());
+    }
+    
+    @Test
+    void testLoadIsSplitByWeight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        FakeProvider heavy = new FakeProvider("heavy", 0, release);
+        FakeProvider light = new FakeProvider("light", 0, release);
+        RoutingLlmProvider router = new RoutingLlmProvider(
+                List.of(backend(heavy, 3), backend(light, 1)), RoutingStrategy.LEAST_LOADED, null);
+        
+        // Open 40 calls one at a time, so every choice sees the previous call in flight
+        ExecutorService executor = Executors.newFixedThreadPool(40);
+        try {
+            for (int i = 1; i <= 40; i++) {
+                executor.submit(() -> router.chat(REQUEST));
+                waitForOutstanding(router, i);
+            }
+            
+            List<RoutingLlmProvider.Backend> backends = router.getBackends();
+            assertEquals(30, backends.get(0).getOutstanding(), 1);
+            assertEquals(10, backends.get(1).getOutstanding(), 1);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+    
+    @Test
+    void testFailingBackendLosesTraffic() {
+        AtomicLong clock = new AtomicLong();
+        FakeProvider flaky = new FakeProvider("flaky", 1, clock);
+        FakeProvider steady = new FakeProvider("steady", 5, clock);
+        RoutingLlmProvider router = new RoutingLlmProvider(List.of(
+                new RoutingLlmProvider.Backend(flaky, 1, 5, 10_000, clock::get),
+                new RoutingLlmProvider.Backend(steady, 1, 5, 10_000, clock::get)), RoutingStrategy.LEAST_LOADED, null);
+        
+        for (int i = 0; i < 20; i++) {
+            router.chat(REQUEST);
+        }
+        
+        // The faster backend took the traffic until it starts failing
+        assertTrue(flaky.calls.get() > steady.calls.get());
+        flaky.failing.set(true);
+        int flakyBefore = flaky.calls.get();
+        int steadyBefore = steady.calls.get();
+        
+        int failures = 0;
+        for (int i = 0; i < 40; i++) {
+            try {
+                router.chat(REQUEST);
+            } catch (IllegalStateException e) {
+                failures++;
+            }
+        }
+        
+        // (1 - errorRate)^2 falls below 1/5 after the fourth failure in a row
+        assertEquals(4, failures);
+        assertEquals(failures, flaky.calls.get() - flakyBefore);
+        assertEquals(36, steady.calls.get() - steadyBefore);
+        assertTrue(router.getBackends().get(0).getErrorRate() > 0);
+    }
+    
+    @Test
+    void testFastFailingBackendLosesTrafficToMuchSlowerOne() {
+        // 30x faster: a linear error penalty capped at 11x would keep routing to it while it fails
+        AtomicLong clock = new AtomicLong();
+        FakeProvider flaky = new FakeProvider("flaky", 1, clock);
+        FakeProvider slow = new FakeProvider("slow", 30, clock);
+        RoutingLlmProvider router = new RoutingLlmProvider(List.of(
+                new RoutingLlmProvider.Backend(flaky, 1, 1, 10_000, clock::get),
+                new RoutingLlmProvider.Backend(slow, 1, 30, 10_000, clock::get)), RoutingStrategy.LEAST_LOADED, null);
+        
+        for (int i = 0; i < 10; i++) {
+            router.chat(REQUEST);
+        }
+        assertEquals(10, flaky.calls.get());
+        flaky.failing.set(true);
+        
+        int failures = 0;
+        for (int i = 0; i < 30; i++) {
+            try {
+                router.chat(REQUEST);
+            } catch (IllegalStateException e) {
+                failures++;
+            }
+        }
+        
+        assertTrue(failures <= 10, "failures=" + failures);
+        assertTrue(slow.calls.get() >= 20, "slow calls=" + slow.calls.get());
+    }
+    
+    @Test
+    void testMetricsAreTaggedByBackend() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RoutingLlmProvider router = new RoutingLlmProvider(
+                List.of(backend(new FakeProvider("fast", 0), 1)), RoutingStrategy.ROUND_ROBIN, meterRegistry);
+        
+        router.chat(REQUEST);
+        
+        assertEquals(1.0, meterRegistry.get("ai.routing.requests")
+                .tags("backend", "fake/fast", "outcome", "success").counter().count());
+        assertNotNull(meterRegistry.get("ai.routing.latency.ewma").tag("backend", "fake/fast").gauge());
+    }
+    
+    @Test
+    void testColdStartSampleIsForgottenWithinAFewCalls() {
+        AtomicLong clock = new AtomicLong();
+        RoutingLlmProvider.Backend backend = new RoutingLlmProvider.Backend(
+                new FakeProvider("fast", 0), 1, 100, 10_000, clock::get);
+        
+        backend.record(TimeUnit.MILLISECONDS.toNanos(500), false);
+        assertEquals(500, backend.getEwmaLatencyMs(), 0.001);
+        // Samples 1 ms apart barely decay a 10 s average by time alone
+        for (int i = 0; i < 20; i++) {
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+            backend.record(TimeUnit.MILLISECONDS.toNanos(2), false);
+        }
+        
+        assertTrue(backend.getEwmaLatencyMs() < 10, "ewma=" + backend.getEwmaLatencyMs());
+        // A slower sample still takes over at once
+        backend.record(TimeUnit.MILLISECONDS.toNanos(50), false);
+        assertEquals(50, backend.getEwmaLatencyMs(), 0.001);
+    }
+    
+    @Test
+    void testPowerOfTwoChoicesAvoidsSlowBackend() {
+        assertEquals(0, slowChoices(RoutingStrategy.POWER_OF_TWO_CHOICES));
+        assertEquals(100, slowChoices(RoutingStrategy.ROUND_ROBIN));
+    }
+    
+    @Test
+    void testLeastLoadedAvoidsSlowBackend() {
+        assertEquals(0, slowChoices(RoutingStrategy.LEAST_LOADED));
+    }
+    
+    @Test
+    void testScoreGrowsWithOutstandingCalls() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        CountDownLatch release = new CountDownLatch(1);
+        FakeProvider held = new FakeProvider("held", 0, release);
+        RoutingLlmProvider.Backend backend = new RoutingLlmProvider.Backend(held, 1, 10, 10_000, clock::get);
+        double idle = backend.score();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            executor.submit(() -> backend.call(() -> held.chat(REQUEST)));
+            executor.submit(() -> backend.call(() -> held.chat(REQUEST)));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (backend.getOutstanding() < 2) {
+                assertTrue(System.nanoTime() < deadline, "Calls did not start");
+                Thread.sleep(1);
+            }
+            
+            assertEquals(3 * idle, backend.score(), 0.001);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+    
+    /**
+     * Times the slow backend is chosen in 300 choices between two fast backends and one slow one
+     */
+    private static int slowChoices(RoutingStrategy strategy) {
+        AtomicLong clock = new AtomicLong();
+        List<RoutingLlmProvider.Backend> backends = List.of(
+                new RoutingLlmProvider.Backend(new FakeProvider("fast-1", 0), 1, 100, 10_000, clock::get),
+                new RoutingLlmProvider.Backend(new FakeProvider("fast-2", 0), 1, 100, 10_000, clock::get),
+                new RoutingLlmProvider.Backend(new FakeProvider("slow", 0), 1, 100, 10_000, clock::get));
+        backends.get(0).record(TimeUnit.MILLISECONDS.toNanos(2), false);
+        backends.get(1).record(TimeUnit.MILLISECONDS.toNanos(2), false);
+        backends.get(2).record(TimeUnit.MILLISECONDS.toNanos(50), false);
+        RoutingLlmProvider router = new RoutingLlmProvider(backends, strategy, null);
+        
+        int slow = 0;
+        for (int i = 0; i < 300; i++) {
+            if (router.choose() == backends.get(2)) {
+                slow++;
+            }
+        }
+        return slow;
+    }
+    
+    private static RoutingLlmProvider.Backend backend(LlmProvider provider, double weight) {
+        return new RoutingLlmProvider.Backend(provider, weight, 100, 10_000);
+    }
+    
+    private static void waitForOutstanding(RoutingLlmProvider router, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (router.getBackends().stream().mapToInt(RoutingLlmProvider.Backend::getOutstanding).sum() < expected) {
+            assertTrue(System.nanoTime() < deadline, "Call did not start");
+            Thread.sleep(1);
+        }
+    }
+    
+    /**
+     * Provider with a fixed latency that can be switched to failing or held until released.
+     * With a clock, the latency advances the clock instead of sleeping.
+     */
+    private static class FakeProvider implements LlmProvider {
+        
+        private final String model;
+        private final long latencyMs;
+        private final CountDownLatch release;
+        private final AtomicLong clock;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicBoolean failing = new AtomicBoolean();
+        
+        FakeProvider(String model, long latencyMs) {
+            this(model, latencyMs, null, null);
+        }
+        
+        FakeProvider(String model, long latencyMs, CountDownLatch release) {
+            this(model, latencyMs, release, null);
+        }
+        
+        FakeProvider(String model, long latencyMs, AtomicLong clock) {
+            this(model, latencyMs, null, clock);
+        }
+        
+        private FakeProvider(String model, long latencyMs, CountDownLatch release, AtomicLong clock) {
+            this.model = model;
+            this.latencyMs = latencyMs;
+            this.release = release;
+            this.clock = clock;
+        }
+        
+        @Override
+        public String getProviderName() {
+            return "fake";
+        }
+        
+        @Override
+        public String getModelName() {
+            return model;
+        }
+        
+        @Override
+        public LlmResponse chat(ChatRequest request) {
+            calls.incrementAndGet();
+            try {
+                if (release != null) {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                if (clock != null) {
+                    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+                } else {
+                    Thread.sleep(latencyMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failing.get()) {
+                throw new IllegalStateException(model + " unavailable");
+            }
+            return new LlmResponse("Hi from " + model, null, null, latencyMs);
+        }
+    }
+}
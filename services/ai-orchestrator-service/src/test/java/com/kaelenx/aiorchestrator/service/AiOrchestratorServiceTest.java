@@ -1,39 +1,73 @@
 package com.kaelenx.aiorchestrator.service;
 
+import com.kaelenx.aiorchestrator.cache.ContextVersionMismatchException;
+import com.kaelenx.aiorchestrator.cache.ConversationContextCache;
+import com.kaelenx.aiorchestrator.cache.ResponseCache;
 import com.kaelenx.aiorchestrator.dto.ChatRequest;
 import com.kaelenx.aiorchestrator.dto.ChatResponse;
 import com.kaelenx.aiorchestrator.entity.AiRequestLog;
 import com.kaelenx.aiorchestrator.provider.LlmProvider;
-import com.kaelenx.aiorchestrator.repository.AiRequestLogRepository;
-import com.kaelenx.common.id.SnowflakeIdGenerator;
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.events.EventTypes;
+import com.kaelenx.common.events.bus.EventBus;
+import com.kaelenx.common.events.bus.EventTranslator;
+import com.kaelenx.common.id.AbstractSnowflakeIdGenerator;
+import com.kaelenx.common.tokenizer.BpeTokenizer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class AiOrchestratorServiceTest {
     
+    private static final PromptTokenCounter TOKEN_COUNTER = tokenCounter("");
+    
     @Mock
     private LlmProvider llmProvider;
     
     @Mock
-    private AiRequestLogRepository requestLogRepository;
+    private AiRequestLogWriter requestLogWriter;
+    
+    @Mock
+    private AbstractSnowflakeIdGenerator idGenerator;
     
     @Mock
-    private SnowflakeIdGenerator idGenerator;
+    private EventBus<Object> eventBus;
+    
+    private ResponseCache responseCache;
+    
+    private ConversationContextCache contexts;
     
     private AiOrchestratorService service;
     
     @BeforeEach
     void setUp() {
-        service = new AiOrchestratorService(llmProvider, requestLogRepository, idGenerator);
+        responseCache = new ResponseCache(new SimpleMeterRegistry(), "FREE", 60_000, 1 << 20);
+        contexts = new ConversationContextCache(new SimpleMeterRegistry(), true, 60_000, 1 << 20);
+        RequestCoalescer requestCoalescer = new RequestCoalescer(new SimpleMeterRegistry(), true);
+        RequestHedger requestHedger = new RequestHedger(new SimpleMeterRegistry(), false, 95, 50, 0.05, 1000, 20, false);
+        service = new AiOrchestratorService(llmProvider, requestLogWriter, idGenerator, eventBus, 
+                responseCache, requestCoalescer, requestHedger, limiter(100), TOKEN_COUNTER, historyCompactor(""), contexts);
     }
     
     @Test
@@ -74,13 +108,40 @@ class AiOrchestratorServiceTest {
         
         // Verify logging
         ArgumentCaptor<AiRequestLog> logCaptor = ArgumentCaptor.forClass(AiRequestLog.class);
-        verify(requestLogRepository).insert(logCaptor.capture());
+        verify(requestLogWriter).write(logCaptor.capture());
         
         AiRequestLog capturedLog = logCaptor.getValue();
         assertEquals(1000L, capturedLog.getId());
         assertEquals(123L, capturedLog.getConversationId());
         assertEquals("SUCCESS", capturedLog.getStatus());
         assertNull(capturedLog.getErrorMessage());
+        
+        EventEnvelope<Object> event = publishedEvents(1).get(0);
+        assertEquals(EventTypes.AI_REQUEST_COMPLETED, event.getEventType());
+        assertEquals("1000", event.getEventId());
+        assertNotNull(event.getTimestamp());
+        assertSame(capturedLog, event.getPayload());
+        
+        // The outcome event follows the request log row
+        InOrder order = inOrder(requestLogWriter, eventBus);
+        order.verify(requestLogWriter).write(capturedLog);
+        order.verify(eventBus).tryPublish(any(), eq(capturedLog));
+    }
+    
+    @Test
+    void testChat_FullEventBusDropsEventWithoutWaiting() {
+        ChatRequest request = scripted(1L);
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chat(request)).thenReturn(new LlmProvider.LlmResponse("Hi Sam!", 5, 3, 20L));
+        when(idGenerator.nextId()).thenReturn(1000L);
+        when(eventBus.tryPublish(any(), any())).thenReturn(false);
+        
+        assertEquals("Hi Sam!", service.chat(request).getReplyText());
+        
+        // The request thread never waits for ring space
+        verify(eventBus, never()).publish(any(), any());
+        verify(requestLogWriter).write(any(AiRequestLog.class));
     }
     
     @Test
@@ -105,10 +166,469 @@ class AiOrchestratorServiceTest {
         
         // Verify logging still happened
         ArgumentCaptor<AiRequestLog> logCaptor = ArgumentCaptor.forClass(AiRequestLog.class);
-        verify(requestLogRepository).insert(logCaptor.capture());
+        verify(requestLogWriter).write(logCaptor.capture());
         
         AiRequestLog capturedLog = logCaptor.getValue();
         assertEquals("FAILED", capturedLog.getStatus());
         assertEquals("API Error", capturedLog.getErrorMessage());
+        
+        EventEnvelope<Object> event = publishedEvents(1).get(0);
+        assertEquals(EventTypes.AI_REQUEST_FAILED, event.getEventType());
+        assertEquals("1000", event.getEventId());
+    }
+    
+    @Test
+    void testChatStream_ForwardsTokensAndRecordsFirstTokenLatency() {
+        ChatRequest request = ChatRequest.builder()
+                .conversationId(123L)
+                .userId(1L)
+                .userText("Hello")
+                .build();
+        
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chatStream(eq(request), any())).thenAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            Thread.sleep(20);
+            onToken.accept("Hello ");
+            Thread.sleep(20);
+            onToken.accept("there!");
+            return new LlmProvider.LlmResponse("Hello there!", null, null, 45L);
+        });
+        when(idGenerator.nextId()).thenReturn(1000L);
+        
+        List<String> tokens = new ArrayList<>();
+        ChatResponse response = service.chatStream(request, tokens::add);
+        
+        assertEquals(List.of("Hello ", "there!"), tokens);
+        assertEquals("Hello there!", response.getReplyText());
+        assertEquals(45L, response.getLatencyMs());
+        assertNotNull(response.getFirstTokenMs());
+        assertTrue(response.getFirstTokenMs() >= 20);
+        assertTrue(response.getFirstTokenMs() < 40, "First token time must not include the rest of the reply");
+        
+        ArgumentCaptor<AiRequestLog> logCaptor = ArgumentCaptor.forClass(AiRequestLog.class);
+        verify(requestLogWriter).write(logCaptor.capture());
+        assertEquals("SUCCESS", logCaptor.getValue().getStatus());
+        assertEquals(response.getFirstTokenMs(), logCaptor.getValue().getFirstTokenMs());
+        assertEquals(45L, logCaptor.getValue().getLatencyMs());
+    }
+    
+    @Test
+    void testChatStream_ConsumerFailureIsLoggedAsFailed() {
+        ChatRequest request = ChatRequest.builder()
+                .conversationId(123L)
+                .userId(1L)
+                .userText("Hello")
+                .build();
+        
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chatStream(eq(request), any())).thenAnswer(invocation -> {
+            Consumer<String> onToken = invocation.getArgument(1);
+            onToken.accept("Hello ");
+            return new LlmProvider.LlmResponse("Hello", null, null, 10L);
+        });
+        when(idGenerator.nextId()).thenReturn(1000L);
+        
+        assertThrows(RuntimeException.class, () -> service.chatStream(request, token -> {
+            throw new IllegalStateException("Client disconnected");
+        }));
+        
+        ArgumentCaptor<AiRequestLog> logCaptor = ArgumentCaptor.forClass(AiRequestLog.class);
+        verify(requestLogWriter).write(logCaptor.capture());
+        assertEquals("FAILED", logCaptor.getValue().getStatus());
+        assertEquals("Client disconnected", logCaptor.getValue().getErrorMessage());
+        assertNotNull(logCaptor.getValue().getFirstTokenMs());
+    }
+    
+    @Test
+    void testChat_RepeatedOpenerIsServedFromCache() {
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chat(any(ChatRequest.class)))
+                .thenReturn(new LlmProvider.LlmResponse("Hi! Ready to practice?", 12, 6, 180L));
+        when(idGenerator.nextId()).thenReturn(1000L, 1001L);
+        
+        ChatResponse first = service.chat(opener("Hello!", "FREE"));
+        ChatResponse second = service.chat(opener("  hello ", "FREE"));
+        
+        verify(llmProvider, times(1)).chat(any(ChatRequest.class));
+        assertEquals("PROVIDER", first.getResponseSource());
+        assertEquals("CACHED", second.getResponseSource());
+        assertEquals("Hi! Ready to practice?", second.getReplyText());
+        assertEquals(0, second.getTokenIn());
+        assertEquals(0, second.getTokenOut());
+        
+        ArgumentCaptor<AiRequestLog> logCaptor = ArgumentCaptor.forClass(AiRequestLog.class);
+        verify(requestLogWriter, times(2)).write(logCaptor.capture());
+        AiRequestLog cachedLog = logCaptor.getAllValues().get(1);
+        assertEquals("SUCCESS", cachedLog.getStatus());
+        assertEquals("CACHED", cachedLog.getResponseSource());
+        assertEquals(0, cachedLog.getTokenIn());
+        assertEquals(0, cachedLog.getTokenOut());
+        assertEquals(0.5, responseCache.getHitRatio());
+    }
+    
+    @Test
+    void testChat_CacheSkipsTiersWithoutOptInAndMultiTurnRequests() {
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chat(any(ChatRequest.class)))
+                .thenReturn(new LlmProvider.LlmResponse("Hi!", 12, 6, 180L));
+        when(idGenerator.nextId()).thenReturn(1000L, 1001L, 1002L, 1003L);
+        
+        service.chat(opener("Hello", "PRO"));
+        service.chat(opener("Hello", "PRO"));
+        
+        ChatRequest followUp = opener("Hello", "FREE");
+        followUp.setHistory(List.of(new ChatRequest.HistoryMessage("assistant", "What's your name?")));
+        service.chat(followUp);
+        service.chat(followUp);
+        
+        verify(llmProvider, times(4)).chat(any(ChatRequest.class));
+        assertEquals(0, responseCache.size());
+    }
+    
+    @Test
+    void testChatStream_CachedReplyIsEmittedAsOneChunk() {
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chat(any(ChatRequest.class)))
+                .thenReturn(new LlmProvider.LlmResponse("Hi! Ready to practice?", 12, 6, 180L));
+        when(idGenerator.nextId()).thenReturn(1000L, 1001L);
+        service.chat(opener("Hello", "FREE"));
+        
+        List<String> tokens = new ArrayList<>();
+        ChatResponse response = service.chatStream(opener("hello.", "FREE"), tokens::add);
+        
+        assertEquals(List.of("Hi! Ready to practice?"), tokens);
+        assertEquals("CACHED", response.getResponseSource());
+        assertNotNull(response.getFirstTokenMs());
+        verify(llmProvider, never()).chatStream(any(), any());
+    }
+    
+    @Test
+    void testChat_IdenticalConcurrentRequestsShareOneProviderCall() throws Exception {
+        int callers = 5;
+        CountDownLatch providerEntered = new CountDownLatch(1);
+        CountDownLatch releaseProvider = new CountDownLatch(1);
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chat(any(ChatRequest.class))).thenAnswer(invocation -> {
+            providerEntered.countDown();
+            releaseProvider.await(5, TimeUnit.SECONDS);
+            return new LlmProvider.LlmResponse("Nice to meet you!", 30, 8, 250L);
+        });
+        AtomicLong ids = new AtomicLong(1000);
+        when(idGenerator.nextId()).thenAnswer(invocation -> ids.getAndIncrement());
+        
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<ChatResponse>> responses = new ArrayList<>();
+            responses.add(executor.submit(() -> service.chat(scripted(1L))));
+            assertTrue(providerEntered.await(5, TimeUnit.SECONDS));
+            for (long userId = 2; userId <= callers; userId++) {
+                long user = userId;
+                responses.add(executor.submit(() -> service.chat(scripted(user))));
+            }
+            Thread.sleep(50);
+            releaseProvider.countDown();
+            
+            for (Future<ChatResponse> response : responses) {
+                assertEquals("Nice to meet you!", response.get(5, TimeUnit.SECONDS).getReplyText());
+            }
+            assertEquals("PROVIDER", responses.get(0).get().getResponseSource());
+            assertEquals("COALESCED", responses.get(1).get().getResponseSource());
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        verify(llmProvider, times(1)).chat(any(ChatRequest.class));
+        ArgumentCaptor<AiRequestLog> logCaptor = ArgumentCaptor.forClass(AiRequestLog.class);
+        verify(requestLogWriter, times(callers)).write(logCaptor.capture());
+        List<AiRequestLog> logs = logCaptor.getAllValues();
+        assertEquals(callers, logs.stream().map(AiRequestLog::getUserId).distinct().count());
+        assertEquals(1, logs.stream().filter(log -> "PROVIDER".equals(log.getResponseSource())).count());
+        AiRequestLog leaderLog = logs.stream().filter(log -> "PROVIDER".equals(log.getResponseSource())).findFirst().get();
+        assertEquals(1L, leaderLog.getUserId());
+        assertEquals(30, leaderLog.getTokenIn());
+        logs.stream().filter(log -> "COALESCED".equals(log.getResponseSource())).forEach(log -> {
+            assertEquals(0, log.getTokenIn());
+            assertEquals(0, log.getTokenOut());
+            assertEquals("SUCCESS", log.getStatus());
+        });
+    }
+    
+    @Test
+    void testChat_SlowCallIsHedgedAndBothAttemptsAreLogged() {
+        RequestHedger requestHedger = new RequestHedger(new SimpleMeterRegistry(), true, 95, 20, 1.0, 100, 1, false);
+        service = new AiOrchestratorService(llmProvider, requestLogWriter, idGenerator, eventBus, 
+                responseCache, new RequestCoalescer(new SimpleMeterRegistry(), true), requestHedger, limiter(100), 
+                TOKEN_COUNTER, historyCompactor(""), contexts);
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chat(any(ChatRequest.class)))
+                .thenReturn(new LlmProvider.LlmResponse("Hello!", 5, 2, 1L))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(5000);
+                    return new LlmProvider.LlmResponse("Too late", 5, 2, 5000L);
+                })
+                .thenReturn(new LlmProvider.LlmResponse("Nice to meet you!", 30, 8, 25L));
+        AtomicLong ids = new AtomicLong(1000);
+        when(idGenerator.nextId()).thenAnswer(invocation -> ids.getAndIncrement());
+        
+        // The first call sets the hedge delay (20ms minimum)
+        service.chat(scripted(1L));
+        ChatResponse response = service.chat(scripted(2L));
+        
+        assertEquals("Nice to meet you!", response.getReplyText());
+        verify(llmProvider, times(3)).chat(any(ChatRequest.class));
+        ArgumentCaptor<AiRequestLog> logCaptor = ArgumentCaptor.forClass(AiRequestLog.class);
+        verify(requestLogWriter, times(3)).write(logCaptor.capture());
+        List<AiRequestLog> logs = logCaptor.getAllValues().subList(1, 3);
+        AiRequestLog cancelled = logs.stream().filter(log -> log.getAttempt() == 1).findFirst().get();
+        AiRequestLog hedge = logs.stream().filter(log -> log.getAttempt() == 2).findFirst().get();
+        assertEquals("CANCELLED", cancelled.getStatus());
+        assertNull(cancelled.getTokenIn());
+        assertTrue(cancelled.getLatencyMs() >= 20);
+        assertEquals("SUCCESS", hedge.getStatus());
+        assertEquals(30, hedge.getTokenIn());
+        assertEquals(2L, hedge.getUserId());
+        // Only the two winning attempts are request outcomes
+        assertEquals(2, publishedEvents(2).size());
+    }
+    
+    @Test
+    void testChat_RejectedWhenProviderIsAtConcurrencyLimit() {
+        ProviderConcurrencyLimiter limiter = limiter(4);
+        service = new AiOrchestratorService(llmProvider, requestLogWriter, idGenerator, eventBus, responseCache, 
+                new RequestCoalescer(new SimpleMeterRegistry(), true), 
+                new RequestHedger(new SimpleMeterRegistry(), false, 95, 50, 0.05, 1000, 20, false), limiter, 
+                TOKEN_COUNTER, historyCompactor(""), contexts);
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire("PRO", 9L);
+        }
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(idGenerator.nextId()).thenReturn(1000L);
+        
+        assertThrows(ProviderOverloadedException.class, () -> service.chat(scripted(1L)));
+        
+        verify(llmProvider, never()).chat(any());
+        ArgumentCaptor<AiRequestLog> logCaptor = ArgumentCaptor.forClass(AiRequestLog.class);
+        verify(requestLogWriter).write(logCaptor.capture());
+        assertEquals("REJECTED", logCaptor.getValue().getStatus());
+        assertEquals("AI provider concurrency limit reached", logCaptor.getValue().getErrorMessage());
+    }
+    
+    @Test
+    void testChat_FillsTokenCountsTheProviderDidNotReport() {
+        ChatRequest request = scripted(1L);
+        request.setHistory(List.of(new ChatRequest.HistoryMessage("assistant", "Hello! What's your name?")));
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chat(request)).thenReturn(new LlmProvider.LlmResponse("Nice to meet you, Sam!", null, null, 90L));
+        when(idGenerator.nextId()).thenReturn(1000L);
+        
+        ChatResponse response = service.chat(request);
+        
+        assertEquals(TOKEN_COUNTER.countPrompt(request), response.getTokenIn());
+        assertEquals(TOKEN_COUNTER.countText("Nice to meet you, Sam!"), response.getTokenOut());
+        assertTrue(response.getTokenOut() > 0);
+        ArgumentCaptor<AiRequestLog> logCaptor = ArgumentCaptor.forClass(AiRequestLog.class);
+        verify(requestLogWriter).write(logCaptor.capture());
+        assertEquals(response.getTokenIn(), logCaptor.getValue().getTokenIn());
+        assertEquals(response.getTokenOut(), logCaptor.getValue().getTokenOut());
+    }
+    
+    @Test
+    void testChatStream_FillsTokenCountsTheProviderDidNotReport() {
+        ChatRequest request = scripted(1L);
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chatStream(eq(request), any()))
+                .thenReturn(new LlmProvider.LlmResponse("Nice to meet you!", 12, null, 40L));
+        when(idGenerator.nextId()).thenReturn(1000L);
+        
+        ChatResponse response = service.chatStream(request, token -> { });
+        
+        // Provider-reported counts take precedence
+        assertEquals(12, response.getTokenIn());
+        assertEquals(TOKEN_COUNTER.countText("Nice to meet you!"), response.getTokenOut());
+    }
+    
+    @Test
+    void testChat_RejectedWhenPromptExceedsTierLimit() {
+        service = new AiOrchestratorService(llmProvider, requestLogWriter, idGenerator, eventBus, responseCache, 
+                new RequestCoalescer(new SimpleMeterRegistry(), true), 
+                new RequestHedger(new SimpleMeterRegistry(), false, 95, 50, 0.05, 1000, 20, false), limiter(100), 
+                tokenCounter("PRO:40"), historyCompactor(""), contexts);
+        ChatRequest request = scripted(1L);
+        request.setHistory(List.of(
+                new ChatRequest.HistoryMessage("user", "Can you tell me a long story about a dragon?"),
+                new ChatRequest.HistoryMessage("assistant", "Once upon a time, a dragon lived in a cave above a "
+                        + "small village, and every winter it flew down to warm the houses with its breath.")));
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(idGenerator.nextId()).thenReturn(1000L);
+        
+        ContextTooLargeException e = assertThrows(ContextTooLargeException.class, () -> service.chat(request));
+        
+        assertEquals(40, e.getMaxContextTokens());
+        verify(llmProvider, never()).chat(any());
+        ArgumentCaptor<AiRequestLog> logCaptor = ArgumentCaptor.forClass(AiRequestLog.class);
+        verify(requestLogWriter).write(logCaptor.capture());
+        assertEquals("REJECTED", logCaptor.getValue().getStatus());
+        assertEquals(TOKEN_COUNTER.countPrompt(request), logCaptor.getValue().getTokenIn());
+        assertEquals(e.getMessage(), logCaptor.getValue().getErrorMessage());
+    }
+    
+    @Test
+    void testChat_LongHistoryIsCompactedBeforeProviderCall() {
+        service = new AiOrchestratorService(llmProvider, requestLogWriter, idGenerator, eventBus, responseCache, 
+                new RequestCoalescer(new SimpleMeterRegistry(), true), 
+                new RequestHedger(new SimpleMeterRegistry(), false, 95, 50, 0.05, 1000, 20, false), limiter(100), 
+                TOKEN_COUNTER, historyCompactor("PRO:80"), contexts);
+        ChatRequest request = scripted(1L);
+        List<ChatRequest.HistoryMessage> history = new ArrayList<>();
+        for (int turn = 0; turn < 10; turn++) {
+            history.add(new ChatRequest.HistoryMessage("user", "Let me tell you about my trip number " + turn + "."));
+            history.add(new ChatRequest.HistoryMessage("assistant", "That sounds wonderful! Where did you go?"));
+        }
+        request.setHistory(history);
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chat(any(ChatRequest.class))).thenReturn(new LlmProvider.LlmResponse("Nice!", null, null, 20L));
+        when(idGenerator.nextId()).thenReturn(1000L);
+        
+        ChatResponse response = service.chat(request);
+        
+        ArgumentCaptor<ChatRequest> sent = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(llmProvider).chat(sent.capture());
+        List<ChatRequest.HistoryMessage> compacted = sent.getValue().getHistory();
+        assertTrue(compacted.size() < history.size());
+        assertEquals(HistoryCompactor.SUMMARY_ROLE, compacted.get(0).getRole());
+        assertEquals(history.get(history.size() - 1), compacted.get(compacted.size() - 1));
+        assertEquals(TOKEN_COUNTER.countPrompt(sent.getValue()), response.getTokenIn());
+        assertEquals(20, request.getHistory().size(), "The caller's request is not modified");
+    }
+    
+    @Test
+    void testSessionTurnsSendOnlyTheNewMessage() {
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chat(any(ChatRequest.class)))
+                .thenReturn(new LlmProvider.LlmResponse("Hi Sam!", 5, 3, 20L));
+        when(llmProvider.chatStream(any(ChatRequest.class), any()))
+                .thenReturn(new LlmProvider.LlmResponse("Paris is lovely.", 5, 4, 20L));
+        AtomicLong ids = new AtomicLong(1000);
+        when(idGenerator.nextId()).thenAnswer(invocation -> ids.getAndIncrement());
+        
+        ChatRequest first = scripted(1L);
+        first.setContextVersion(0L);
+        first.setReplyMessageId(11L);
+        service.chat(service.resolveContext(first));
+        ChatRequest second = scripted(1L);
+        second.setUserText("I live in Paris.");
+        second.setContextVersion(11L);
+        second.setReplyMessageId(21L);
+        service.chatStream(service.resolveContext(second), token -> { });
+        
+        ArgumentCaptor<ChatRequest> sent = ArgumentCaptor.forClass(ChatRequest.class);
+        verify(llmProvider).chatStream(sent.capture(), any());
+        assertEquals(List.of(
+                new ChatRequest.HistoryMessage("user", "Hi, my name is Sam."),
+                new ChatRequest.HistoryMessage("assistant", "Hi Sam!")), sent.getValue().getHistory());
+        
+        // The orchestrator now holds version 21; a caller that missed a turn must resend
+        ChatRequest stale = scripted(1L);
+        stale.setContextVersion(11L);
+        assertThrows(ContextVersionMismatchException.class, () -> service.resolveContext(stale));
+        ChatRequest third = scripted(1L);
+        third.setContextVersion(21L);
+        assertEquals(4, service.resolveContext(third).getHistory().size());
+    }
+    
+    @Test
+    void testTurnTheCallerNeverSavedIsNotServed() {
+        when(llmProvider.getProviderName()).thenReturn("qwen-mock");
+        when(llmProvider.getModelName()).thenReturn("qwen-turbo");
+        when(llmProvider.chat(any(ChatRequest.class)))
+                .thenReturn(new LlmProvider.LlmResponse("Hi Sam!", 5, 3, 20L));
+        AtomicLong ids = new AtomicLong(1000);
+        when(idGenerator.nextId()).thenAnswer(invocation -> ids.getAndIncrement());
+        
+        // Advanced here, but the caller timed out and never saved reply 11
+        ChatRequest failed = scripted(1L);
+        failed.setContextVersion(0L);
+        failed.setReplyMessageId(11L);
+        service.chat(service.resolveContext(failed));
+        
+        // The retry went to another instance, which answered differently and was saved as reply 21:
+        // the same number of messages, but not the history cached here
+        ChatRequest next = scripted(1L);
+        next.setUserText("I live in Paris.");
+        next.setContextVersion(21L);
+        assertThrows(ContextVersionMismatchException.class, () -> service.resolveContext(next));
+        
+        // Resent with full history, it reseeds the cache
+        next.setHistory(List.of(
+                new ChatRequest.HistoryMessage("user", "Hi, my name is Sam."),
+                new ChatRequest.HistoryMessage("assistant", "Hello Sam, welcome!")));
+        next.setReplyMessageId(31L);
+        service.chat(service.resolveContext(next));
+        ChatRequest after = scripted(1L);
+        after.setContextVersion(31L);
+        assertEquals("Hello Sam, welcome!", service.resolveContext(after).getHistory().get(1).getContent());
+    }
+    
+    private static HistoryCompactor historyCompactor(String budgets) {
+        return new HistoryCompactor(TOKEN_COUNTER, new SimpleMeterRegistry(), true, budgets, 0, "", 64, 16, 1 << 20);
+    }
+    
+    private static PromptTokenCounter tokenCounter(String maxContextTokens) {
+        return new PromptTokenCounter(new SimpleMeterRegistry(), BpeTokenizer.DEFAULT_MERGES, maxContextTokens, 0);
+    }
+    
+    private static ProviderConcurrencyLimiter limiter(int limit) {
+        return new ProviderConcurrencyLimiter(new SimpleMeterRegistry(), true, limit, limit, limit, 1.5, 0, 0, 0, "", true);
+    }
+    
+    private static ChatRequest scripted(Long userId) {
+        return ChatRequest.builder()
+                .conversationId(100L + userId)
+                .userId(userId)
+                .sceneId(1L)
+                .difficulty("EASY")
+                .planTier("PRO")
+                .userText("Hi, my name is Sam.")
+                .build();
+    }
+    
+    private static ChatRequest opener(String text, String planTier) {
+        return ChatRequest.builder()
+                .conversationId(123L)
+                .userId(1L)
+                .sceneId(1L)
+                .difficulty("EASY")
+                .planTier(planTier)
+                .userText(text)
+                .build();
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<EventEnvelope<Object>> publishedEvents(int count) {
+        ArgumentCaptor<EventTranslator> translators = ArgumentCaptor.forClass(EventTranslator.class);
+        ArgumentCaptor<Object> args = ArgumentCaptor.forClass(Object.class);
+        verify(eventBus, times(count)).tryPublish(translators.capture(), args.capture());
+        
+        List<EventEnvelope<Object>> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            EventEnvelope<Object> event = new EventEnvelope<>();
+            translators.getAllValues().get(i).translateTo(event, i, args.getAllValues().get(i));
+            events.add(event);
+        }
+        return events;
     }
 }
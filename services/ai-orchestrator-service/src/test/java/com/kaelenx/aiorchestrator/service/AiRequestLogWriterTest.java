@@ -0,0 +1,207 @@
+package com.kaelenx.aiorchestrator.service;
+
+import com.kaelenx.aiorchestrator.entity.AiRequestLog;
+import com.kaelenx.aiorchestrator.repository.AiRequestLogRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AiRequestLogWriterTest {
+    
+    @Mock
+    private AiRequestLogRepository requestLogRepository;
+    
+    private MeterRegistry meterRegistry;
+    
+    private AiRequestLogWriter writer;
+    
+    private final List<List<Long>> batches = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.close();
+        }
+    }
+    
+    @Test
+    void testRecordsAreInsertedInBatchesBySize() {
+        recordBatches();
+        writer = writer(100, 10, 60_000, LogOverflowPolicy.DROP);
+        
+        for (long id = 1; id <= 25; id++) {
+            assertTrue(writer.write(requestLog(id)));
+        }
+        writer.close();
+        
+        assertEquals(25, batches.stream().mapToInt(List::size).sum());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 10));
+        assertEquals(10, batches.get(0).size(), "A full batch must not wait for the flush interval");
+        assertEquals(25.0, meterRegistry.counter("ai.request.log.written").count());
+        assertEquals(batches.size(), meterRegistry.summary("ai.request.log.batch.size").count());
+        verify(requestLogRepository, never()).insert(any(AiRequestLog.class));
+    }
+    
+    @Test
+    void testPartialBatchIsFlushedAfterInterval() {
+        recordBatches();
+        writer = writer(100, 10, 20, LogOverflowPolicy.DROP);
+        
+        writer.write(requestLog(1));
+        writer.write(requestLog(2));
+        
+        verify(requestLogRepository, timeout(1000)).insertBatch(anyList());
+        assertEquals(List.of(List.of(1L, 2L)), batches);
+    }
+    
+    @Test
+    void testDropPolicyCountsDroppedRecords() throws InterruptedException {
+        CountDownLatch release = blockFirstBatch();
+        writer = writer(2, 1, 1, LogOverflowPolicy.DROP);
+        
+        writer.write(requestLog(1));
+        waitUntil(() -> writer.getQueueDepth() == 0);
+        assertTrue(writer.write(requestLog(2)));
+        assertTrue(writer.write(requestLog(3)));
+        assertFalse(writer.write(requestLog(4)));
+        
+        assertEquals(1.0, meterRegistry.counter("ai.request.log.dropped").count());
+        assertEquals(2.0, meterRegistry.get("ai.request.log.queue.depth").gauge().value());
+        release.countDown();
+    }
+    
+    @Test
+    void testCallerRunsPolicyInsertsOnCallingThread() throws InterruptedException {
+        CountDownLatch release = blockFirstBatch();
+        writer = writer(1, 1, 1, LogOverflowPolicy.CALLER_RUNS);
+        
+        writer.write(requestLog(1));
+        waitUntil(() -> writer.getQueueDepth() == 0);
+        writer.write(requestLog(2));
+        assertTrue(writer.write(requestLog(3)));
+        
+        verify(requestLogRepository).insert(argThat((AiRequestLog log) -> log.getId() == 3L));
+        assertEquals(0.0, meterRegistry.counter("ai.request.log.dropped").count());
+        release.countDown();
+    }
+    
+    @Test
+    void testFailedBatchIsRetriedRowByRow() {
+        when(requestLogRepository.insertBatch(anyList())).thenThrow(new RuntimeException("Data truncation"));
+        when(requestLogRepository.insert(any(AiRequestLog.class)))
+                .thenReturn(1)
+                .thenThrow(new RuntimeException("Column 'scene_id' cannot be null"));
+        writer = writer(100, 10, 60_000, LogOverflowPolicy.DROP);
+        
+        writer.write(requestLog(1));
+        writer.write(requestLog(2));
+        writer.close();
+        
+        verify(requestLogRepository, times(2)).insert(any(AiRequestLog.class));
+        assertEquals(1.0, meterRegistry.counter("ai.request.log.written").count());
+        assertEquals(1.0, meterRegistry.counter("ai.request.log.failed").count());
+    }
+    
+    @Test
+    void testCloseFlushesQueueAndLaterWritesGoDirect() {
+        recordBatches();
+        writer = writer(100, 50, 60_000, LogOverflowPolicy.DROP);
+        
+        writer.write(requestLog(1));
+        writer.write(requestLog(2));
+        writer.close();
+        
+        assertEquals(List.of(List.of(1L, 2L)), batches);
+        
+        writer.write(requestLog(3));
+        verify(requestLogRepository).insert(argThat((AiRequestLog log) -> log.getId() == 3L));
+    }
+    
+    @Test
+    void testCloseDoesNotInterruptBatchInProgress() throws InterruptedException {
+        CountDownLatch inserting = new CountDownLatch(1);
+        List<Boolean> interrupted = new ArrayList<>();
+        when(requestLogRepository.insertBatch(anyList())).thenAnswer(invocation -> {
+            inserting.countDown();
+            // A connection checkout here fails if the thread was interrupted
+            Thread.sleep(100);
+            interrupted.add(Thread.currentThread().isInterrupted());
+            List<AiRequestLog> logs = invocation.getArgument(0);
+            synchronized (batches) {
+                batches.add(logs.stream().map(AiRequestLog::getId).toList());
+            }
+            return logs.size();
+        });
+        writer = writer(100, 1, 60_000, LogOverflowPolicy.DROP);
+        
+        writer.write(requestLog(1));
+        assertTrue(inserting.await(1, TimeUnit.SECONDS));
+        writer.write(requestLog(2));
+        writer.close();
+        
+        assertEquals(List.of(false, false), interrupted);
+        assertEquals(List.of(List.of(1L), List.of(2L)), batches);
+        verify(requestLogRepository, never()).insert(any(AiRequestLog.class));
+    }
+    
+    private AiRequestLogWriter writer(int queueCapacity, int batchSize, long flushIntervalMs, LogOverflowPolicy policy) {
+        return new AiRequestLogWriter(requestLogRepository, meterRegistry, queueCapacity, batchSize,
+                flushIntervalMs, policy, 10, 5000);
+    }
+    
+    private void recordBatches() {
+        when(requestLogRepository.insertBatch(anyList())).thenAnswer(invocation -> {
+            List<AiRequestLog> logs = invocation.getArgument(0);
+            synchronized (batches) {
+                batches.add(logs.stream().map(AiRequestLog::getId).toList());
+            }
+            return logs.size();
+        });
+    }
+    
+    private CountDownLatch blockFirstBatch() {
+        CountDownLatch release = new CountDownLatch(1);
+        when(requestLogRepository.insertBatch(anyList())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 1;
+        });
+        return release;
+    }
+    
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+    
+    private static AiRequestLog requestLog(long id) {
+        return AiRequestLog.builder()
+                .id(id)
+                .conversationId(100L)
+                .status("SUCCESS")
+                .build();
+    }
+}
@@ -0,0 +1,180 @@
+package com.kaelenx.aiorchestrator.service;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import com.kaelenx.common.tokenizer.BpeTokenizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryCompactorTest {
+    
+    private static final PromptTokenCounter TOKEN_COUNTER = new PromptTokenCounter(new SimpleMeterRegistry(),
+            BpeTokenizer.DEFAULT_MERGES, "", 0);
+    
+    private MeterRegistry meterRegistry;
+    private HistoryCompactor compactor;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        compactor = new HistoryCompactor(TOKEN_COUNTER, meterRegistry, true, "FREE:120,PREMIUM:1000", 200,
+                "EASY:0.5,HARD:2", 60, 16, 1 << 20);
+    }
+    
+    @Test
+    void testHistoryWithinBudgetIsUnchanged() {
+        ChatRequest request = request(1L, "PREMIUM", 4);
+        
+        assertSame(request, compactor.compact(request));
+        assertEquals(0, meterRegistry.counter("ai.context.compactions").count());
+    }
+    
+    @Test
+    void testOlderTurnsAreSummarizedAndRecentTurnsKept() {
+        ChatRequest request = request(1L, "FREE", 20);
+        
+        ChatRequest compacted = compactor.compact(request);
+        
+        List<ChatRequest.HistoryMessage> history = compacted.getHistory();
+        ChatRequest.HistoryMessage summary = history.get(0);
+        assertEquals(HistoryCompactor.SUMMARY_ROLE, summary.getRole());
+        assertTrue(summary.getContent().startsWith(HistoryCompactor.SUMMARY_HEADER));
+        // Summary lines hold the first sentence only
+        assertTrue(summary.getContent().contains("- user: I visited city number"));
+        assertFalse(summary.getContent().contains("It was"));
+        // The newest messages are kept verbatim, in order
+        List<ChatRequest.HistoryMessage> recent = history.subList(1, history.size());
+        assertEquals(request.getHistory().subList(20 - recent.size(), 20), recent);
+        
+        int tokens = history.stream()
+                .mapToInt(message -> PromptTokenCounter.TOKENS_PER_MESSAGE + TOKEN_COUNTER.countText(message.getContent()))
+                .sum();
+        assertTrue(tokens <= 120, "tokens=" + tokens);
+        assertEquals(1, meterRegistry.counter("ai.context.compactions").count());
+        assertEquals(tokens, meterRegistry.get("ai.context.history.tokens").tag("stage", "after").summary().totalAmount(), 8);
+        assertTrue(meterRegistry.get("ai.context.history.tokens").tag("stage", "before").summary().totalAmount() > 300);
+    }
+    
+    @Test
+    void testNextTurnReusesSummaries() {
+        compactor.compact(request(1L, "FREE", 20));
+        double built = meterRegistry.counter("ai.context.summaries", "source", "new").count();
+        
+        ChatRequest next = compactor.compact(request(1L, "FREE", 22));
+        
+        // Only the two messages that just left the verbatim window need a new summary line
+        assertEquals(built + 2, meterRegistry.counter("ai.context.summaries", "source", "new").count());
+        
+        // A retried turn sends only lines built before
+        ChatRequest retried = compactor.compact(request(1L, "FREE", 22));
+        assertEquals(built + 2, meterRegistry.counter("ai.context.summaries", "source", "new").count());
+        assertEquals(summaryLines(retried), meterRegistry.counter("ai.context.summaries", "source", "cached").count());
+        assertEquals(next.getHistory(), retried.getHistory());
+        assertEquals(compactor.compact(request(2L, "FREE", 22)).getHistory(), next.getHistory());
+    }
+    
+    @Test
+    void testOnlySummaryLinesSentAreCounted() {
+        ChatRequest first = compactor.compact(request(1L, "FREE", 20));
+        ChatRequest next = compactor.compact(request(1L, "FREE", 22));
+        
+        // The line that no longer fits the summary budget is built, but not sent or counted
+        assertTrue(first.getHistory().size() - 1 + summaryLines(first) < 20, "Expected some turns dropped");
+        assertEquals(summaryLines(first) + summaryLines(next),
+                meterRegistry.counter("ai.context.summaries", "source", "new").count()
+                        + meterRegistry.counter("ai.context.summaries", "source", "cached").count());
+    }
+    
+    @Test
+    void testChangedHistoryIsNotReused() {
+        compactor.compact(request(1L, "FREE", 20));
+        double built = meterRegistry.counter("ai.context.summaries", "source", "new").count();
+        ChatRequest edited = request(1L, "FREE", 20);
+        edited.getHistory().set(0, new ChatRequest.HistoryMessage("user", "Something else entirely."));
+        
+        compactor.compact(edited);
+        
+        // Everything after the edited message is summarized again
+        assertEquals(2 * built, meterRegistry.counter("ai.context.summaries", "source", "new").count());
+        assertEquals(0, meterRegistry.counter("ai.context.summaries", "source", "cached").count());
+    }
+    
+    @Test
+    void testHashCollisionIsNotReused() {
+        // Same length, role and String.hashCode, different content
+        assertEquals("AaAaAaAa".hashCode(), "BBBBBBBB".hashCode());
+        ChatRequest first = request(1L, "FREE", 20);
+        first.getHistory().set(0, new ChatRequest.HistoryMessage("user", "AaAaAaAa"));
+        compactor.compact(first);
+        ChatRequest second = request(1L, "FREE", 20);
+        second.getHistory().set(0, new ChatRequest.HistoryMessage("user", "BBBBBBBB"));
+        
+        compactor.compact(second);
+        
+        assertEquals(0, meterRegistry.counter("ai.context.summaries", "source", "cached").count());
+    }
+    
+    @Test
+    void testBudgetPerTierAndDifficulty() {
+        assertEquals(120, compactor.budgetTokens("FREE", "MEDIUM"));
+        assertEquals(60, compactor.budgetTokens("free", "easy"));
+        assertEquals(2000, compactor.budgetTokens("PREMIUM", "HARD"));
+        assertEquals(200, compactor.budgetTokens(null, null));
+    }
+    
+    @Test
+    void testRemembersMostRecentConversationsByWeight() {
+        compactor.compact(request(1L, "FREE", 2));
+        long oneConversation = compactor.getWeight();
+        HistoryCompactor small = new HistoryCompactor(TOKEN_COUNTER, new SimpleMeterRegistry(), true,
+                "FREE:120", 200, "", 60, 16, 2 * oneConversation + oneConversation / 2);
+        
+        small.compact(request(1L, "FREE", 2));
+        small.compact(request(2L, "FREE", 2));
+        small.compact(request(1L, "FREE", 2));
+        small.compact(request(3L, "FREE", 2));
+        
+        assertEquals(2, small.size());
+        assertEquals(2 * oneConversation, small.getWeight());
+    }
+    
+    @Test
+    void testConversationHeavierThanTheCacheIsNotRemembered() {
+        HistoryCompactor tiny = new HistoryCompactor(TOKEN_COUNTER, new SimpleMeterRegistry(), true,
+                "FREE:120", 200, "", 60, 16, 100);
+        
+        tiny.compact(request(1L, "FREE", 20));
+        
+        assertEquals(0, tiny.size());
+        assertEquals(0, tiny.getWeight());
+    }
+    
+    private static long summaryLines(ChatRequest compacted) {
+        // Every line of the summary but its header
+        return compacted.getHistory().get(0).getContent().lines().count() - 1;
+    }
+    
+    private static ChatRequest request(Long conversationId, String planTier, int messages) {
+        List<ChatRequest.HistoryMessage> history = new ArrayList<>();
+        for (int i = 0; i < messages; i++) {
+            history.add(i % 2 == 0
+                    ? new ChatRequest.HistoryMessage("user", "I visited city number " + i + " last year. It was great.")
+                    : new ChatRequest.HistoryMessage("assistant", "How nice! What did you like most about it?"));
+        }
+        return ChatRequest.builder()
+                .conversationId(conversationId)
+                .userId(1L)
+                .sceneId(1L)
+                .difficulty("MEDIUM")
+                .planTier(planTier)
+                .userText("Let me tell you more.")
+                .history(history)
+                .build();
+    }
+}
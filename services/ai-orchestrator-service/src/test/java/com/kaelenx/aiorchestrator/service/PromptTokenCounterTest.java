@@ -0,0 +1,60 @@
+package com.kaelenx.aiorchestrator.service;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import com.kaelenx.common.tokenizer.BpeTokenizer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptTokenCounterTest {
+    
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    
+    private final PromptTokenCounter counter = new PromptTokenCounter(meterRegistry, BpeTokenizer.DEFAULT_MERGES,
+            "FREE:30, premium:1000", 100);
+    
+    @Test
+    void testPromptCountsEveryMessage() {
+        ChatRequest request = request("FREE", "How are you?");
+        int single = counter.countPrompt(request);
+        request.setHistory(List.of(new ChatRequest.HistoryMessage("assistant", "How are you?")));
+        
+        assertEquals(2 * single, counter.countPrompt(request));
+        assertEquals(single - PromptTokenCounter.TOKENS_PER_MESSAGE, counter.countText("How are you?"));
+    }
+    
+    @Test
+    void testLimitsPerTier() {
+        assertEquals(30, counter.maxContextTokens("FREE"));
+        assertEquals(1000, counter.maxContextTokens("PREMIUM"));
+        assertEquals(100, counter.maxContextTokens("PRO"));
+        assertEquals(100, counter.maxContextTokens(null));
+    }
+    
+    @Test
+    void testCheckPromptRejectsOverLimit() {
+        String longText = "I would like to practice ordering food in a restaurant, ".repeat(5);
+        
+        assertTrue(counter.checkPrompt(request("PREMIUM", longText)) > 30);
+        ContextTooLargeException e = assertThrows(ContextTooLargeException.class,
+                () -> counter.checkPrompt(request("FREE", longText)));
+        
+        assertEquals(30, e.getMaxContextTokens());
+        assertEquals(1.0, meterRegistry.counter("ai.prompt.rejections", "tier", "FREE").count());
+        assertEquals(2, meterRegistry.find("ai.prompt.tokens").summaries().stream()
+                .mapToLong(summary -> summary.count()).sum());
+    }
+    
+    private static ChatRequest request(String planTier, String userText) {
+        return ChatRequest.builder()
+                .conversationId(1L)
+                .userId(1L)
+                .planTier(planTier)
+                .userText(userText)
+                .build();
+    }
+}
@@ -0,0 +1,303 @@
+package com.kaelenx.aiorchestrator.service;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import com.kaelenx.aiorchestrator.provider.QwenLlmProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProviderConcurrencyLimiterTest {
+    
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    private MeterRegistry meterRegistry;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+    
+    @Test
+    void testRejectsFastWhenLimitReached() {
+        ProviderConcurrencyLimiter limiter = limiter(2, 0);
+        limiter.acquire("FREE", 1L);
+        limiter.acquire("FREE", 1L);
+        
+        ProviderOverloadedException e = assertThrows(ProviderOverloadedException.class, () -> limiter.acquire("FREE", 2L));
+        assertEquals("AI provider concurrency limit reached", e.getMessage());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(1.0, meterRegistry.counter("ai.limiter.rejections", "tier", "FREE", "reason", "queue-full").count());
+    }
+    
+    @Test
+    void testQueuedCallerGetsReleasedPermit() throws Exception {
+        ProviderConcurrencyLimiter limiter = limiter(1, 5000);
+        ProviderConcurrencyLimiter.Permit held = limiter.acquire("FREE", 1L);
+        
+        CompletableFuture<ProviderConcurrencyLimiter.Permit> waiter = CompletableFuture.supplyAsync(() -> limiter.acquire("FREE", 2L));
+        waitUntilQueued(limiter);
+        assertFalse(waiter.isDone());
+        held.ignore();
+        
+        waiter.get(5, TimeUnit.SECONDS);
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+    }
+    
+    @Test
+    void testQueuedCallerTimesOut() {
+        ProviderConcurrencyLimiter limiter = limiter(1, 20);
+        limiter.acquire("FREE", 1L);
+        
+        ProviderOverloadedException e = assertThrows(ProviderOverloadedException.class, () -> limiter.acquire("FREE", 2L));
+        assertEquals("Timed out waiting for AI provider capacity", e.getMessage());
+        assertEquals(0, limiter.getQueued());
+        assertEquals(1.0, meterRegistry.counter("ai.limiter.rejections", "tier", "FREE", "reason", "timeout").count());
+    }
+    
+    @Test
+    void testUsersOfATierTakeTurns() throws Exception {
+        ProviderConcurrencyLimiter limiter = limiter(1, 5000);
+        ProviderConcurrencyLimiter.Permit held = limiter.acquire("FREE", 1L);
+        List<CompletableFuture<ProviderConcurrencyLimiter.Permit>> flood = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            flood.add(CompletableFuture.supplyAsync(() -> limiter.acquire("FREE", 1L)));
+            waitUntilQueued(limiter, i + 1);
+        }
+        CompletableFuture<ProviderConcurrencyLimiter.Permit> other = CompletableFuture.supplyAsync(() -> limiter.acquire("FREE", 2L));
+        waitUntilQueued(limiter, 4);
+        
+        held.ignore();
+        flood.get(0).get(5, TimeUnit.SECONDS).ignore();
+        
+        // User 2 queued last but goes before user 1's second request
+        other.get(5, TimeUnit.SECONDS);
+        assertFalse(flood.get(1).isDone());
+        assertEquals(2, limiter.getQueued());
+    }
+    
+    @Test
+    void testUserQueueIsCapped() throws Exception {
+        ProviderConcurrencyLimiter limiter = new ProviderConcurrencyLimiter(meterRegistry, true, 1, 1, 1, 1.5, 5000, 10, 1,
+                "PREMIUM:4,FREE:1", true);
+        ProviderConcurrencyLimiter.Permit held = limiter.acquire("FREE", 1L);
+        CompletableFuture<ProviderConcurrencyLimiter.Permit> waiter = CompletableFuture.supplyAsync(() -> limiter.acquire("FREE", 1L));
+        waitUntilQueued(limiter, 1);
+        
+        assertThrows(ProviderOverloadedException.class, () -> limiter.acquire("FREE", 1L));
+        
+        held.ignore();
+        waiter.get(5, TimeUnit.SECONDS);
+    }
+    
+    @Test
+    void testQueueWaitIsRecordedPerTier() throws Exception {
+        ProviderConcurrencyLimiter limiter = limiter(1, 5000);
+        ProviderConcurrencyLimiter.Permit held = limiter.acquire("FREE", 1L);
+        CompletableFuture<ProviderConcurrencyLimiter.Permit> waiter = CompletableFuture.supplyAsync(() -> limiter.acquire("premium", 2L));
+        waitUntilQueued(limiter);
+        held.ignore();
+        waiter.get(5, TimeUnit.SECONDS);
+        
+        assertEquals(1, meterRegistry.get("ai.limiter.queue.wait").tag("tier", "PREMIUM").timer().count());
+    }
+    
+    @Test
+    void testPremiumStaysFastUnderFreeFlood() throws Exception {
+        ProviderConcurrencyLimiter limiter = new ProviderConcurrencyLimiter(meterRegistry, true, 4, 4, 4, 1.5, 30_000, 50, 10,
+                "PREMIUM:4,FREE:1", true);
+        QwenLlmProvider provider = new QwenLlmProvider("qwen-turbo", "Hello!", 0);
+        ExecutorService executor = Executors.newFixedThreadPool(18);
+        try {
+            // 4 FREE users with 4 concurrent callers each, against 2 PREMIUM callers
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                calls.add(executor.submit(caller(limiter, provider, "FREE", 1L + i % 4)));
+            }
+            waitUntilQueued(limiter, 8);
+            for (int i = 0; i < 2; i++) {
+                calls.add(executor.submit(caller(limiter, provider, "PREMIUM", 100L + i)));
+            }
+            for (Future<?> call : calls) {
+                call.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        Timer premium = meterRegistry.get("ai.limiter.queue.wait").tag("tier", "PREMIUM").timer();
+        Timer free = meterRegistry.get("ai.limiter.queue.wait").tag("tier", "FREE").timer();
+        assertEquals(6, premium.count());
+        assertEquals(48, free.count());
+        assertTrue(premium.mean(TimeUnit.MILLISECONDS) * 3 < free.mean(TimeUnit.MILLISECONDS),
+                "premium=" + premium.mean(TimeUnit.MILLISECONDS) + "ms, free=" + free.mean(TimeUnit.MILLISECONDS) + "ms");
+        assertEquals(0.0, meterRegistry.find("ai.limiter.rejections").counters().stream().mapToDouble(Counter::count).sum());
+    }
+    
+    @Test
+    void testPermitIsReleasedWhenCallFails() {
+        ProviderConcurrencyLimiter limiter = limiter(1, 0);
+        
+        assertThrows(IllegalStateException.class, () -> limiter.execute("FREE", 1L, () -> {
+            throw new IllegalStateException("provider down");
+        }));
+        
+        assertEquals(0, limiter.getInFlight());
+        assertEquals("ok", limiter.execute("FREE", 1L, () -> "ok"));
+    }
+    
+    @Test
+    void testLimitGrowsWhileLatencyIsSteady() {
+        ProviderConcurrencyLimiter limiter = limiter(10, 0);
+        
+        for (int i = 0; i < 50; i++) {
+            completeAtFullLoad(limiter, 100 * MS);
+        }
+        
+        assertTrue(limiter.getLimit() > 20, "limit=" + limiter.getLimit());
+    }
+    
+    @Test
+    void testLimitShrinksWhenLatencyRises() {
+        ProviderConcurrencyLimiter limiter = limiter(100, 0);
+        for (int i = 0; i < 20; i++) {
+            completeAtFullLoad(limiter, 100 * MS);
+        }
+        int before = limiter.getLimit();
+        
+        for (int i = 0; i < 20; i++) {
+            completeAtFullLoad(limiter, 1000 * MS);
+        }
+        
+        assertTrue(limiter.getLimit() < before / 2, "before=" + before + ", after=" + limiter.getLimit());
+        assertTrue(limiter.getLimit() >= 1);
+    }
+    
+    @Test
+    void testLimitGrowsUnderStreamingLoad() {
+        ProviderConcurrencyLimiter limiter = limiter(20, 0);
+        
+        for (int i = 0; i < 50; i++) {
+            completeAtFullLoad(limiter, permit -> permit.streamed(300 * MS));
+        }
+        
+        assertTrue(limiter.getLimit() > 64, "limit=" + limiter.getLimit());
+    }
+    
+    @Test
+    void testFirstTokenTimesAreNotComparedWithCallLatencies() {
+        ProviderConcurrencyLimiter limiter = limiter(20, 0);
+        for (int i = 0; i < 20; i++) {
+            completeAtFullLoad(limiter, 100 * MS);
+        }
+        int before = limiter.getLimit();
+        
+        // Long prompts start slower than short calls finish; that is not congestion
+        for (int i = 0; i < 20; i++) {
+            completeAtFullLoad(limiter, permit -> permit.streamed(1000 * MS));
+        }
+        
+        assertTrue(limiter.getLimit() > before, "before=" + before + ", after=" + limiter.getLimit());
+    }
+    
+    @Test
+    void testLimitDoesNotGrowWhenLightlyUsed() {
+        ProviderConcurrencyLimiter limiter = limiter(10, 0);
+        
+        for (int i = 0; i < 50; i++) {
+            limiter.acquire("FREE", 1L).success(100 * MS);
+        }
+        
+        assertEquals(10, limiter.getLimit());
+    }
+    
+    @Test
+    void testMetrics() {
+        ProviderConcurrencyLimiter limiter = limiter(10, 0);
+        limiter.acquire("FREE", 1L);
+        
+        assertEquals(10.0, meterRegistry.get("ai.limiter.limit").gauge().value());
+        assertEquals(1.0, meterRegistry.get("ai.limiter.in.flight").gauge().value());
+        assertEquals(0.0, meterRegistry.get("ai.limiter.queue.depth").gauge().value());
+    }
+    
+    @Test
+    void testDisabledLimiterNeverRejects() {
+        ProviderConcurrencyLimiter limiter = new ProviderConcurrencyLimiter(meterRegistry, false, 1, 1, 1, 1.5, 0, 0, 0, "", true);
+        
+        limiter.acquire("FREE", 1L);
+        limiter.acquire("FREE", 1L);
+        
+        assertEquals(0, limiter.getInFlight());
+    }
+    
+    private ProviderConcurrencyLimiter limiter(int initialLimit, long maxWaitMs) {
+        return new ProviderConcurrencyLimiter(meterRegistry, true, initialLimit, 1, 1000, 1.5, maxWaitMs, 10, 10,
+                "PREMIUM:4,FREE:1", true);
+    }
+    
+    /**
+     * Fill the limit, then complete every call with the given latency
+     */
+    private static void completeAtFullLoad(ProviderConcurrencyLimiter limiter, long latencyNanos) {
+        completeAtFullLoad(limiter, permit -> permit.success(latencyNanos));
+    }
+    
+    /**
+     * Fill the limit, then release one permit with {@code sample} and the
+     * others without one (one sample at full load is enough)
+     */
+    private static void completeAtFullLoad(ProviderConcurrencyLimiter limiter,
+                                           Consumer<ProviderConcurrencyLimiter.Permit> sample) {
+        List<ProviderConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        int limit = limiter.getLimit();
+        for (int i = 0; i < limit; i++) {
+            permits.add(limiter.acquire("FREE", 1L));
+        }
+        sample.accept(permits.get(0));
+        permits.subList(1, permits.size()).forEach(ProviderConcurrencyLimiter.Permit::ignore);
+    }
+    
+    /**
+     * Three mock provider calls in a row under the limiter
+     */
+    private static Runnable caller(ProviderConcurrencyLimiter limiter, QwenLlmProvider provider, String tier, Long userId) {
+        ChatRequest request = ChatRequest.builder()
+                .conversationId(userId)
+                .userId(userId)
+                .userText("hello")
+                .planTier(tier)
+                .build();
+        return () -> {
+            for (int i = 0; i < 3; i++) {
+                limiter.execute(tier, userId, () -> provider.chat(request));
+            }
+        };
+    }
+    
+    private static void waitUntilQueued(ProviderConcurrencyLimiter limiter) throws InterruptedException {
+        waitUntilQueued(limiter, 1);
+    }
+    
+    private static void waitUntilQueued(ProviderConcurrencyLimiter limiter, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.getQueued() < count) {
+            assertTrue(System.nanoTime() < deadline, "Caller did not queue");
+            Thread.sleep(1);
+        }
+    }
+}
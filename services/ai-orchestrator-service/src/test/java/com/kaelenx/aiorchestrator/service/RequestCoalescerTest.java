@@ -0,0 +1,153 @@
+package com.kaelenx.aiorchestrator.service;
+
+import com.kaelenx.aiorchestrator.dto.ChatRequest;
+import com.kaelenx.aiorchestrator.provider.LlmProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+    
+    private static final LlmProvider.LlmResponse REPLY = new LlmProvider.LlmResponse("Hi!", 5, 2, 100L);
+    
+    private MeterRegistry meterRegistry;
+    
+    private RequestCoalescer coalescer;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new RequestCoalescer(meterRegistry, true);
+    }
+    
+    @Test
+    void testFollowersReceiveLeaderFailure() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        CompletableFuture<RequestCoalescer.Outcome> leader = CompletableFuture.supplyAsync(() ->
+                coalescer.execute(request("hello", List.of()), "m", () -> {
+                    entered.countDown();
+                    await(release);
+                    throw new IllegalStateException("provider down");
+                }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture<RequestCoalescer.Outcome> follower = CompletableFuture.supplyAsync(() ->
+                coalescer.execute(request("hello", List.of()), "m", () -> fail("Follower must not call the provider")));
+        waitForFollower();
+        release.countDown();
+        
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertEquals("provider down", leaderFailure.getCause().getMessage());
+        assertEquals("provider down", followerFailure.getCause().getMessage());
+        
+        // The failed call is not remembered
+        assertTrue(coalescer.execute(request("hello", List.of()), "m", () -> REPLY).leader());
+    }
+    
+    @Test
+    void testDifferentPromptsAreNotCoalesced() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        
+        List<ChatRequest> requests = List.of(
+                request("hello", List.of()),
+                request("Hello", List.of()),
+                request("hello", List.of(new ChatRequest.HistoryMessage("assistant", "Welcome back!"))));
+        List<CompletableFuture<RequestCoalescer.Outcome>> outcomes = requests.stream()
+                .map(request -> CompletableFuture.supplyAsync(() -> coalescer.execute(request, "m", () -> {
+                    calls.incrementAndGet();
+                    await(release);
+                    return REPLY;
+                })))
+                .toList();
+        
+        long deadline = System.currentTimeMillis() + 5000;
+        while (calls.get() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        
+        for (CompletableFuture<RequestCoalescer.Outcome> outcome : outcomes) {
+            assertTrue(outcome.get(5, TimeUnit.SECONDS).leader());
+        }
+        assertEquals(3, calls.get());
+        assertEquals(3.0, meterRegistry.counter("ai.coalescing.requests", "role", "leader").count());
+    }
+    
+    @Test
+    void testPlanTiersAreNotCoalesced() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        CompletableFuture<RequestCoalescer.Outcome> free = CompletableFuture.supplyAsync(() ->
+                coalescer.execute(request("hello", List.of()), "m", () -> {
+                    entered.countDown();
+                    await(release);
+                    throw new ProviderOverloadedException("FREE queue full");
+                }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        
+        // Same prompt while the FREE call is in flight: PREMIUM makes its own call and is not rejected with it
+        ChatRequest premium = request("hello", List.of());
+        premium.setPlanTier("PREMIUM");
+        RequestCoalescer.Outcome outcome = coalescer.execute(premium, "m", () -> REPLY);
+        release.countDown();
+        
+        assertTrue(outcome.leader());
+        assertSame(REPLY, outcome.response());
+        assertThrows(ExecutionException.class, () -> free.get(5, TimeUnit.SECONDS));
+        assertEquals(0.0, meterRegistry.counter("ai.coalescing.requests", "role", "follower").count());
+    }
+    
+    @Test
+    void testDisabledCoalescerAlwaysCallsProvider() {
+        RequestCoalescer disabled = new RequestCoalescer(new SimpleMeterRegistry(), false);
+        
+        RequestCoalescer.Outcome outcome = disabled.execute(request("hello", List.of()), "m", () -> REPLY);
+        
+        assertTrue(outcome.leader());
+        assertSame(REPLY, outcome.response());
+    }
+    
+    private void waitForFollower() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.counter("ai.coalescing.requests", "role", "follower").count() < 1
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        // Let the follower reach future.get()
+        Thread.sleep(20);
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static ChatRequest request(String text, List<ChatRequest.HistoryMessage> history) {
+        return ChatRequest.builder()
+                .conversationId(1L)
+                .userId(1L)
+                .sceneId(1L)
+                .difficulty("EASY")
+                .planTier("FREE")
+                .userText(text)
+                .history(history)
+                .build();
+    }
+}
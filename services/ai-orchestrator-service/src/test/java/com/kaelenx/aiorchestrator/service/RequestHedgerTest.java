@@ -0,0 +1,214 @@
+package com.kaelenx.aiorchestrator.service;
+
+import com.kaelenx.aiorchestrator.provider.LlmProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestHedgerTest {
+    
+    private static final LlmProvider.LlmResponse FAST = new LlmProvider.LlmResponse("fast", 5, 2, 1L);
+    
+    private MeterRegistry meterRegistry;
+    
+    private RequestHedger hedger;
+    
+    private final List<RequestHedger.Abandoned> abandoned = new CopyOnWriteArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        if (hedger != null) {
+            hedger.close();
+        }
+    }
+    
+    @Test
+    void testDisabledHedgerCallsOnTheCallerThread() {
+        hedger = new RequestHedger(meterRegistry, false, 95, 20, 1.0, 100, 1, false);
+        Thread caller = Thread.currentThread();
+        
+        RequestHedger.Outcome outcome = hedger.execute(() -> {
+            assertSame(caller, Thread.currentThread());
+            return FAST;
+        }, abandoned::add);
+        
+        assertSame(FAST, outcome.response());
+        assertEquals(1, outcome.attempt());
+    }
+    
+    @Test
+    void testNoHedgeBeforeEnoughSamples() {
+        hedger = new RequestHedger(meterRegistry, true, 95, 20, 1.0, 100, 5, false);
+        AtomicInteger calls = new AtomicInteger();
+        
+        hedger.execute(() -> {
+            calls.incrementAndGet();
+            sleep(100);
+            return FAST;
+        }, abandoned::add);
+        
+        assertEquals(1, calls.get());
+        assertEquals(Long.MAX_VALUE, hedger.getDelayMs());
+        assertTrue(abandoned.isEmpty());
+    }
+    
+    @Test
+    void testSlowCallIsHedgedAndLoserCancelled() throws Exception {
+        hedger = new RequestHedger(meterRegistry, true, 95, 20, 1.0, 100, 1, false);
+        hedger.execute(() -> FAST, abandoned::add);
+        assertEquals(20, hedger.getDelayMs());
+        
+        CountDownLatch slowInterrupted = new CountDownLatch(1);
+        LlmProvider.LlmResponse hedged = new LlmProvider.LlmResponse("hedged", 5, 2, 1L);
+        RequestHedger.Outcome outcome = hedger.execute(script(() -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                slowInterrupted.countDown();
+            }
+            return FAST;
+        }, () -> hedged), abandoned::add);
+        
+        assertSame(hedged, outcome.response());
+        assertEquals(2, outcome.attempt());
+        assertTrue(slowInterrupted.await(5, TimeUnit.SECONDS));
+        assertEquals(1, abandoned.size());
+        assertEquals(1, abandoned.get(0).attempt());
+        assertEquals("CANCELLED", abandoned.get(0).status());
+        assertTrue(abandoned.get(0).elapsedMs() >= 20);
+        assertEquals(1.0, meterRegistry.counter("ai.hedging.hedges", "result", "won").count());
+    }
+    
+    @Test
+    void testCancelledFirstAttemptCountsAsLowerBoundSample() {
+        // Percentile 100 over a two-sample window: the delay is the slower of the last two samples
+        hedger = new RequestHedger(meterRegistry, true, 100, 20, 1.0, 2, 1, false);
+        hedger.execute(() -> FAST, abandoned::add);
+        assertEquals(20, hedger.getDelayMs());
+        
+        hedger.execute(script(() -> {
+            sleep(5000);
+            return FAST;
+        }, () -> {
+            sleep(40);
+            return FAST;
+        }), abandoned::add);
+        
+        // The hedge finished 40ms after starting, but the first attempt had been running for 60ms or more
+        assertEquals("CANCELLED", abandoned.get(0).status());
+        assertTrue(hedger.getDelayMs() >= 60, "delay=" + hedger.getDelayMs());
+    }
+    
+    @Test
+    void testHedgeIsCancelledWhenFirstAttemptWins() {
+        hedger = new RequestHedger(meterRegistry, true, 95, 20, 1.0, 100, 1, false);
+        hedger.execute(() -> FAST, abandoned::add);
+        
+        RequestHedger.Outcome outcome = hedger.execute(script(() -> {
+            sleep(60);
+            return FAST;
+        }, () -> {
+            sleep(5000);
+            return null;
+        }), abandoned::add);
+        
+        assertSame(FAST, outcome.response());
+        assertEquals(1, outcome.attempt());
+        assertEquals(2, abandoned.get(0).attempt());
+        assertEquals("CANCELLED", abandoned.get(0).status());
+        assertEquals(1.0, meterRegistry.counter("ai.hedging.hedges", "result", "lost").count());
+    }
+    
+    @Test
+    void testHedgesStayWithinBudget() {
+        hedger = new RequestHedger(meterRegistry, true, 95, 20, 0.05, 1000, 1, false);
+        AtomicInteger calls = new AtomicInteger();
+        hedger.execute(() -> FAST, abandoned::add);
+        
+        for (int i = 0; i < 10; i++) {
+            hedger.execute(() -> {
+                calls.incrementAndGet();
+                sleep(40);
+                return FAST;
+            }, abandoned::add);
+        }
+        
+        // 11 first attempts earn 0.55 of a hedge, so none is sent
+        assertEquals(10, calls.get());
+        assertTrue(abandoned.isEmpty());
+        assertEquals(10.0, meterRegistry.counter("ai.hedging.budget.exhausted").count());
+    }
+    
+    @Test
+    void testFailedFirstAttemptFallsBackToHedge() {
+        hedger = new RequestHedger(meterRegistry, true, 95, 20, 1.0, 100, 1, false);
+        hedger.execute(() -> FAST, abandoned::add);
+        
+        RequestHedger.Outcome outcome = hedger.execute(script(() -> {
+            sleep(60);
+            throw new IllegalStateException("provider timeout");
+        }, () -> {
+            sleep(100);
+            return FAST;
+        }), abandoned::add);
+        
+        assertSame(FAST, outcome.response());
+        assertEquals(2, outcome.attempt());
+        assertEquals(1, abandoned.size());
+        assertEquals(1, abandoned.get(0).attempt());
+        assertEquals("FAILED", abandoned.get(0).status());
+        assertEquals("provider timeout", abandoned.get(0).errorMessage());
+    }
+    
+    @Test
+    void testFirstFailureIsThrownWhenBothAttemptsFail() {
+        hedger = new RequestHedger(meterRegistry, true, 95, 20, 1.0, 100, 1, false);
+        hedger.execute(() -> FAST, abandoned::add);
+        
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> hedger.execute(script(() -> {
+            sleep(100);
+            throw new IllegalStateException("first down");
+        }, () -> {
+            throw new IllegalStateException("hedge down");
+        }), abandoned::add));
+        
+        assertEquals("first down", failure.getMessage());
+        assertEquals(1, abandoned.size());
+        assertEquals(2, abandoned.get(0).attempt());
+        assertEquals("FAILED", abandoned.get(0).status());
+        assertEquals("hedge down", abandoned.get(0).errorMessage());
+    }
+    
+    /**
+     * Call that runs {@code first} on its first invocation and {@code hedge} afterwards
+     */
+    private static Supplier<LlmProvider.LlmResponse> script(Supplier<LlmProvider.LlmResponse> first,
+                                                            Supplier<LlmProvider.LlmResponse> hedge) {
+        AtomicInteger invocations = new AtomicInteger();
+        return () -> invocations.getAndIncrement() == 0 ? first.get() : hedge.get();
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
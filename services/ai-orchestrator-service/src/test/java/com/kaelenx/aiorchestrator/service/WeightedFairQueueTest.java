@@ -0,0 +1,84 @@
+package com.kaelenx.aiorchestrator.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeightedFairQueueTest {
+    
+    @Test
+    void testTiersAreServedByWeight() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>(Map.of("PREMIUM", 4.0, "FREE", 1.0), false);
+        for (int i = 0; i < 20; i++) {
+            queue.add("FREE", 1L, "F" + i);
+            queue.add("PREMIUM", 2L, "P" + i);
+        }
+        
+        List<String> first10 = drain(queue, 10);
+        
+        assertEquals(8, first10.stream().filter(item -> item.startsWith("P")).count());
+        assertEquals(2, first10.stream().filter(item -> item.startsWith("F")).count());
+        // FIFO within a tier
+        assertEquals(List.of("P0", "P1", "P2", "P3"), first10.stream().filter(item -> item.startsWith("P")).limit(4).toList());
+    }
+    
+    @Test
+    void testUsersWithinTierTakeTurns() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>(Map.of(), true);
+        for (int i = 0; i < 5; i++) {
+            queue.add("FREE", 1L, "A" + i);
+        }
+        queue.add("FREE", 2L, "B0");
+        queue.add("FREE", 3L, "C0");
+        
+        assertEquals(List.of("A0", "B0", "C0", "A1", "A2", "A3", "A4"), drain(queue, 7));
+        assertNull(queue.poll());
+    }
+    
+    @Test
+    void testIdleTierDoesNotSaveUpCredit() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>(Map.of("PREMIUM", 1.0, "FREE", 1.0), false);
+        for (int i = 0; i < 10; i++) {
+            queue.add("FREE", 1L, "F" + i);
+        }
+        drain(queue, 8);
+        
+        // PREMIUM was idle while FREE was served; it gets its share from now on, not a burst
+        for (int i = 0; i < 4; i++) {
+            queue.add("PREMIUM", 2L, "P" + i);
+        }
+        
+        List<String> next4 = drain(queue, 4);
+        assertEquals("P0", next4.get(0));
+        assertTrue(next4.contains("F8"), "next4=" + next4);
+    }
+    
+    @Test
+    void testRemoveAndSizes() {
+        WeightedFairQueue<String> queue = new WeightedFairQueue<>(Map.of(), true);
+        queue.add("FREE", 1L, "A0");
+        queue.add("FREE", 1L, "A1");
+        queue.add("PREMIUM", 2L, "B0");
+        
+        assertEquals(3, queue.size());
+        assertEquals(2, queue.size("FREE"));
+        assertEquals(2, queue.size("FREE", 1L));
+        assertTrue(queue.remove("FREE", 1L, "A0"));
+        assertFalse(queue.remove("FREE", 1L, "A0"));
+        assertEquals(1, queue.size("FREE"));
+        assertEquals(List.of("A1", "B0"), drain(queue, 2).stream().sorted().toList());
+        assertEquals(0, queue.size());
+    }
+    
+    private static List<String> drain(WeightedFairQueue<String> queue, int count) {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(queue.poll());
+        }
+        return items;
+    }
+}
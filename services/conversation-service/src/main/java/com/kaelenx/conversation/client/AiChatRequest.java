@@ -24,6 +24,20 @@ public class AiChatRequest {
     private String userText;
     private List<HistoryMessage> history;
     
+    /**
+     * ID of the last history message before {@code userText}, or 0 if there
+     * is none. With no history, asks the orchestrator to use its cached
+     * context of the conversation (HTTP 409 if it has none at this version);
+     * null = history is complete
+     */
+    private Long contextVersion;
+    
+    /**
+     * ID the reply will be saved under; the orchestrator caches the turn as
+     * the context version of the next one
+     */
+    private Long replyMessageId;
+    
     @Data
     @Builder
     @NoArgsConstructor
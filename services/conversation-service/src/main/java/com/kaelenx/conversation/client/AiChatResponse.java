@@ -20,4 +20,5 @@ public class AiChatResponse {
     private Integer tokenIn;
     private Integer tokenOut;
     private Long latencyMs;
+    private Long firstTokenMs;
 }
@@ -0,0 +1,90 @@
+package com.kaelenx.conversation.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Reads the Server-Sent Events stream of the AI orchestrator's streaming chat
+ * endpoint.
+ * 
+ * Events:
+ * - token: {"text": "..."}, passed to the token callback
+ * - done: the final {@link AiChatResponse}
+ * - error: {"message": "..."}
+ */
+public class AiChatStreamReader {
+    
+    private final ObjectMapper objectMapper;
+    
+    public AiChatStreamReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Reads the stream until the done event.
+     * 
+     * @param body Response body
+     * @param onToken Called with each chunk of reply text, in order
+     * @return Final response carried by the done event
+     * @throws IOException if the stream fails, reports an error, or ends before the done event
+     */
+    public AiChatResponse read(InputStream body, Consumer<String> onToken) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String eventName = "message";
+        StringBuilder data = new StringBuilder();
+        
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                if (!data.isEmpty()) {
+                    AiChatResponse response = dispatch(eventName, data.toString(), onToken);
+                    if (response != null) {
+                        return response;
+                    }
+                }
+                eventName = "message";
+                data.setLength(0);
+            } else if (line.startsWith("event:")) {
+                eventName = fieldValue(line, 6);
+            } else if (line.startsWith("data:")) {
+                if (!data.isEmpty()) {
+                    data.append('\n');
+                }
+                data.append(fieldValue(line, 5));
+            }
+            // id:, retry: and comment lines are not used
+        }
+        throw new IOException("AI stream ended before completion");
+    }
+    
+    private AiChatResponse dispatch(String eventName, String data, Consumer<String> onToken) throws IOException {
+        switch (eventName) {
+            case "token" -> {
+                onToken.accept(objectMapper.readTree(data).path("text").asText(""));
+                return null;
+            }
+            case "done" -> {
+                return objectMapper.readValue(data, AiChatResponse.class);
+            }
+            case "error" -> {
+                JsonNode error = objectMapper.readTree(data);
+                throw new IOException("AI stream failed: " + error.path("message").asText("unknown error"));
+            }
+            default -> {
+                return null;
+            }
+        }
+    }
+    
+    private static String fieldValue(String line, int prefixLength) {
+        int start = prefixLength < line.length() && line.charAt(prefixLength) == ' ' ? prefixLength + 1 : prefixLength;
+        return line.substring(start);
+    }
+}
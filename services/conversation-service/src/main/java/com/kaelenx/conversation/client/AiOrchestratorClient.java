@@ -1,8 +1,10 @@
 package com.kaelenx.conversation.client;
 
 import feign.Feign;
+import feign.Headers;
 import feign.Logger;
 import feign.RequestLine;
+import feign.Response;
 import feign.jackson.JacksonDecoder;
 import feign.jackson.JacksonEncoder;
 import feign.slf4j.Slf4jLogger;
@@ -18,6 +20,14 @@ public interface AiOrchestratorClient {
     @RequestLine("POST /internal/ai/chat")
     AiChatResponse chat(AiChatRequest request);
     
+    /**
+     * Streaming chat completion. The body is a Server-Sent Events stream;
+     * read it with {@link AiChatStreamReader} and close the response.
+     */
+    @RequestLine("POST /internal/ai/chat:stream")
+    @Headers("Accept: text/event-stream")
+    Response chatStream(AiChatRequest request);
+    
     /**
      * Configuration for creating the Feign client
      */
@@ -0,0 +1,26 @@
+package com.kaelenx.conversation.config;
+
+import com.kaelenx.common.events.bus.EventBus;
+import com.kaelenx.conversation.service.EventBusOutboxSink;
+import com.kaelenx.conversation.service.OutboxEventSink;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Outbox relay configuration.
+ * 
+ * The relay forwards to the in-process event bus unless another
+ * {@link OutboxEventSink} bean (e.g. a message broker producer) is defined.
+ */
+@Configuration
+@EnableScheduling
+public class OutboxConfig {
+    
+    @Bean
+    @ConditionalOnMissingBean(OutboxEventSink.class)
+    public OutboxEventSink outboxEventSink(EventBus<Object> eventBus) {
+        return new EventBusOutboxSink(eventBus);
+    }
+}
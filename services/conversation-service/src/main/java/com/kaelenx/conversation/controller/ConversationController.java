@@ -1,22 +1,49 @@
 package com.kaelenx.conversation.controller;
 
 import com.kaelenx.conversation.dto.*;
+import com.kaelenx.conversation.entity.Message;
 import com.kaelenx.conversation.service.ConversationService;
+import com.kaelenx.conversation.service.StreamingConversationService;
+import com.kaelenx.conversation.service.TextMessageStreamListener;
 import jakarta.validation.Valid;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
 
 /**
  * REST API controller for conversations
  */
+@Slf4j
 @RestController
 @RequestMapping("/v1/conversations")
-@RequiredArgsConstructor
 public class ConversationController {
     
     private final ConversationService conversationService;
+    private final StreamingConversationService streamingConversationService;
+    private final TaskExecutor streamingExecutor;
+    private final long streamTimeoutMs;
+    
+    public ConversationController(ConversationService conversationService,
+                                  StreamingConversationService streamingConversationService,
+                                  @Qualifier("streamingExecutor") TaskExecutor streamingExecutor,
+                                  @Value("${conversation.streaming.timeout-ms:60000}") long streamTimeoutMs) {
+        this.conversationService = conversationService;
+        this.streamingConversationService = streamingConversationService;
+        this.streamingExecutor = streamingExecutor;
+        this.streamTimeoutMs = streamTimeoutMs;
+    }
     
     /**
      * Create a new conversation
@@ -40,4 +67,72 @@ public class ConversationController {
         SendTextMessageResponse response = conversationService.sendTextMessage(conversationId, request, userId);
         return ResponseEntity.ok(response);
     }
+    
+    /**
+     * Send a text message and stream the reply as Server-Sent Events.
+     * Selected by {@code Accept: text/event-stream}.
+     * 
+     * Events:
+     * - start: {"userMessageId": ...} once the user message is saved
+     * - token: {"text": "..."} for each chunk of reply text
+     * - done: the {@link SendTextMessageResponse} once the reply is saved
+     * - error: {"message": "..."} if the message could not be processed
+     * 
+     * When the streaming pool and its queue are full, the request gets 503
+     * with Retry-After and no stream; nothing is saved.
+     */
+    @PostMapping(value = "/{conversationId}/messages:text", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamTextMessage(
+            @PathVariable Long conversationId,
+            @Valid @RequestBody SendTextMessageRequest request,
+            @RequestHeader(value = "X-User-Id", defaultValue = "1") Long userId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        TextMessageStreamListener listener = new TextMessageStreamListener() {
+            @Override
+            public void onUserMessage(Message userMessage) {
+                send(emitter, SseEmitter.event().name("start").data(Map.of("userMessageId", userMessage.getId())));
+            }
+            
+            @Override
+            public void onToken(String text) {
+                send(emitter, SseEmitter.event().name("token").data(Map.of("text", text)));
+            }
+        };
+        
+        try {
+            streamingExecutor.execute(() -> stream(conversationId, request, userId, listener, emitter));
+        } catch (TaskRejectedException e) {
+            log.warn("Streaming pool full, rejecting text message stream: conversationId={}", conversationId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
+    private void stream(Long conversationId, SendTextMessageRequest request, Long userId,
+                        TextMessageStreamListener listener, SseEmitter emitter) {
+        try {
+            SendTextMessageResponse response = streamingConversationService.streamTextMessage(
+                    conversationId, request, userId, listener);
+            emitter.send(SseEmitter.event().name("done").data(response));
+            emitter.complete();
+        } catch (Exception e) {
+            log.warn("Streaming text message failed: conversationId={}", conversationId, e);
+            try {
+                emitter.send(SseEmitter.event().name("error").data(Map.of("message", String.valueOf(e.getMessage()))));
+                emitter.complete();
+            } catch (Exception sendFailure) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+    
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Client disconnected", e);
+        }
+    }
 }
@@ -0,0 +1,42 @@
+package com.kaelenx.conversation.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outbox event entity
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName("outbox_event")
+public class OutboxEvent {
+    
+    @TableId(type = IdType.ASSIGN_ID)
+    private Long id;
+    
+    /**
+     * Event type (see EventTypes)
+     */
+    private String eventType;
+    
+    /**
+     * ID of the conversation or message the event describes
+     */
+    private Long aggregateId;
+    
+    /**
+     * Event payload (JSON string)
+     */
+    private String payload;
+    
+    private LocalDateTime createdAt;
+}
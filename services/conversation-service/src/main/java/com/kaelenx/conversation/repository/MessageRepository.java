@@ -1,12 +1,66 @@
 package com.kaelenx.conversation.repository;
 
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.kaelenx.common.id.SnowflakeIdRange;
 import com.kaelenx.conversation.entity.Message;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.time.Instant;
+import java.util.List;
+
 /**
  * Repository for Message entities
  */
 @Mapper
 public interface MessageRepository extends BaseMapper<Message> {
+    
+    /**
+     * Select messages created in {@code [from, to)} using a primary key range
+     * scan on the Snowflake ID instead of the created_at index
+     */
+    default List<Message> selectCreatedBetween(Instant from, Instant to) {
+        SnowflakeIdRange range = SnowflakeIdRange.between(from, to);
+        return selectList(Wrappers.<Message>lambdaQuery()
+                .between(Message::getId, range.minId(), range.maxId())
+                .orderByAsc(Message::getId));
+    }
+    
+    /**
+     * Count messages created in {@code [from, to)} using a primary key range scan
+     */
+    default Long selectCountCreatedBetween(Instant from, Instant to) {
+        SnowflakeIdRange range = SnowflakeIdRange.between(from, to);
+        return selectCount(Wrappers.<Message>lambdaQuery()
+                .between(Message::getId, range.minId(), range.maxId()));
+    }
+    
+    /**
+     * Select the final messages of a conversation sent before message {@code beforeId}, oldest first
+     */
+    default List<Message> selectHistory(Long conversationId, Long beforeId) {
+        return selectList(historyQuery(conversationId, beforeId)
+                .orderByAsc(Message::getId));
+    }
+    
+    /**
+     * Select the ID of the last final message of a conversation sent before
+     * message {@code beforeId}, or 0 if there is none
+     */
+    default Long selectLastHistoryId(Long conversationId, Long beforeId) {
+        Message last = selectOne(historyQuery(conversationId, beforeId)
+                .select(Message::getId)
+                .orderByDesc(Message::getId)
+                .last("LIMIT 1"));
+        return last != null ? last.getId() : 0L;
+    }
+    
+    private static LambdaQueryWrapper<Message> historyQuery(Long conversationId, Long beforeId) {
+        return Wrappers.<Message>lambdaQuery()
+                .eq(Message::getConversationId, conversationId)
+                .eq(Message::getStatus, "FINAL")
+                .isNull(Message::getDeletedAt)
+                .lt(Message::getId, beforeId);
+    }
 }
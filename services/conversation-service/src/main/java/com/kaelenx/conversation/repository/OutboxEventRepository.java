@@ -0,0 +1,37 @@
+package com.kaelenx.conversation.repository;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.kaelenx.conversation.entity.OutboxEvent;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+/**
+ * Repository for OutboxEvent entities
+ */
+@Mapper
+public interface OutboxEventRepository extends BaseMapper<OutboxEvent> {
+    
+    /**
+     * Lock the next batch of pending events after {@code afterId} in ID order.
+     * Rows locked by another relay instance are skipped (MySQL 8.0+).
+     */
+    default List<OutboxEvent> selectBatchForRelay(long afterId, int limit) {
+        return selectList(Wrappers.<OutboxEvent>lambdaQuery()
+                .gt(OutboxEvent::getId, afterId)
+                .orderByAsc(OutboxEvent::getId)
+                .last("LIMIT " + limit + " FOR UPDATE SKIP LOCKED"));
+    }
+    
+    /**
+     * Select the ID of the oldest pending event, or null if the outbox is empty
+     */
+    default Long selectOldestPendingId() {
+        List<OutboxEvent> oldest = selectList(Wrappers.<OutboxEvent>lambdaQuery()
+                .select(OutboxEvent::getId)
+                .orderByAsc(OutboxEvent::getId)
+                .last("LIMIT 1"));
+        return oldest.isEmpty() ? null : oldest.get(0).getId();
+    }
+}
@@ -0,0 +1,150 @@
+package com.kaelenx.conversation.service;
+
+import com.kaelenx.conversation.client.AiChatRequest;
+import com.kaelenx.conversation.entity.Conversation;
+import com.kaelenx.conversation.entity.Message;
+import com.kaelenx.conversation.repository.MessageRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Builds the AI orchestrator request for a user message, with the
+ * conversation context in one of two modes:
+ * - session: only the new message and its context version (the Snowflake
+ *   ID of the last earlier message, 0 if none); the orchestrator keeps the
+ *   history from previous turns. If it has not got this version (restart,
+ *   eviction, another instance, a turn that was never saved), it answers 409
+ *   and the caller resends with {@link #buildFullHistory}
+ * - full: the whole history on every turn
+ * 
+ * Session-mode requests also carry the ID the reply will be saved under,
+ * which becomes the version of the next turn. Versions name saved messages,
+ * so a cached turn whose reply was never saved cannot match a later request.
+ * 
+ * History is the conversation's final messages before the user message,
+ * oldest first.
+ * 
+ * Metrics:
+ * - conversation.ai.context.payload{mode=session|full|fallback}: text bytes (user text and history) per request
+ */
+@Slf4j
+@Component
+public class AiContextBuilder {
+    
+    public static final String MODE_SESSION = "session";
+    public static final String MODE_FULL = "full";
+    
+    private final MessageRepository messageRepository;
+    private final boolean sessionMode;
+    
+    private final DistributionSummary sessionPayload;
+    private final DistributionSummary fullPayload;
+    private final DistributionSummary fallbackPayload;
+    
+    public AiContextBuilder(MessageRepository messageRepository,
+                            MeterRegistry meterRegistry,
+                            @Value("${ai.orchestrator.context-mode:session}") String mode) {
+        if (!MODE_SESSION.equals(mode) && !MODE_FULL.equals(mode)) {
+            throw new IllegalArgumentException("Unknown AI context mode: " + mode);
+        }
+        this.messageRepository = messageRepository;
+        this.sessionMode = MODE_SESSION.equals(mode);
+        
+        this.sessionPayload = payload(meterRegistry, MODE_SESSION);
+        this.fullPayload = payload(meterRegistry, MODE_FULL);
+        this.fallbackPayload = payload(meterRegistry, "fallback");
+        
+        log.info("AiContextBuilder initialized: mode={}", mode);
+    }
+    
+    /**
+     * Build the request for a saved user message in the configured mode
+     * 
+     * @param replyMessageId ID the reply will be saved under
+     */
+    public AiChatRequest build(Conversation conversation, Message userMessage, Long replyMessageId) {
+        if (!sessionMode) {
+            AiChatRequest request = request(conversation, userMessage,
+                    toHistory(messageRepository.selectHistory(conversation.getId(), userMessage.getId())), null, null);
+            fullPayload.record(payloadBytes(request));
+            return request;
+        }
+        
+        Long version = messageRepository.selectLastHistoryId(conversation.getId(), userMessage.getId());
+        AiChatRequest request = request(conversation, userMessage, null, version, replyMessageId);
+        sessionPayload.record(payloadBytes(request));
+        return request;
+    }
+    
+    /**
+     * Build the request with full history, after the orchestrator rejected a
+     * session-mode request. Carries the context version too, so the
+     * orchestrator caches the history for the next turn.
+     */
+    public AiChatRequest buildFullHistory(Conversation conversation, Message userMessage, Long replyMessageId) {
+        List<Message> messages = messageRepository.selectHistory(conversation.getId(), userMessage.getId());
+        Long version = messages.isEmpty() ? 0L : messages.get(messages.size() - 1).getId();
+        AiChatRequest request = request(conversation, userMessage, toHistory(messages), version, replyMessageId);
+        fallbackPayload.record(payloadBytes(request));
+        return request;
+    }
+    
+    private static List<AiChatRequest.HistoryMessage> toHistory(List<Message> messages) {
+        List<AiChatRequest.HistoryMessage> history = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            history.add(AiChatRequest.HistoryMessage.builder()
+                    .role(message.getSenderRole().toLowerCase(Locale.ROOT))
+                    .content(message.getTextContent())
+                    .build());
+        }
+        return history;
+    }
+    
+    private static AiChatRequest request(Conversation conversation, Message userMessage,
+                                         List<AiChatRequest.HistoryMessage> history, Long contextVersion,
+                                         Long replyMessageId) {
+        return AiChatRequest.builder()
+                .conversationId(conversation.getId())
+                .userId(conversation.getUserId())
+                .sceneId(conversation.getSceneId())
+                .difficulty(conversation.getDifficulty())
+                .planTier(conversation.getPlanTier())
+                .userText(userMessage.getTextContent())
+                .history(history)
+                .contextVersion(contextVersion)
+                .replyMessageId(replyMessageId)
+                .build();
+    }
+    
+    /**
+     * UTF-8 bytes of the request's texts; the JSON around them is roughly constant per message
+     */
+    private static long payloadBytes(AiChatRequest request) {
+        long bytes = utf8Length(request.getUserText());
+        if (request.getHistory() != null) {
+            for (AiChatRequest.HistoryMessage message : request.getHistory()) {
+                bytes += utf8Length(message.getContent());
+            }
+        }
+        return bytes;
+    }
+    
+    private static int utf8Length(String text) {
+        return text != null ? text.getBytes(StandardCharsets.UTF_8).length : 0;
+    }
+    
+    private static DistributionSummary payload(MeterRegistry meterRegistry, String mode) {
+        return DistributionSummary.builder("conversation.ai.context.payload")
+                .baseUnit("bytes")
+                .tag("mode", mode)
+                .register(meterRegistry);
+    }
+}
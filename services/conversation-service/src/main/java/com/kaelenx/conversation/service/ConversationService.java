@@ -10,11 +10,14 @@ import com.kaelenx.conversation.entity.Conversation;
 import com.kaelenx.conversation.entity.Message;
 import com.kaelenx.conversation.repository.ConversationRepository;
 import com.kaelenx.conversation.repository.MessageRepository;
-import com.kaelenx.common.id.SnowflakeIdGenerator;
+import com.kaelenx.common.events.EventTypes;
+import com.kaelenx.common.id.AbstractSnowflakeIdGenerator;
+import feign.FeignException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -31,8 +34,11 @@ public class ConversationService {
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
     private final AiOrchestratorClient aiOrchestratorClient;
-    private final SnowflakeIdGenerator idGenerator;
+    private final AbstractSnowflakeIdGenerator idGenerator;
     private final ObjectMapper objectMapper;
+    private final OutboxService outboxService;
+    private final AiContextBuilder aiContextBuilder;
+    private final TransactionTemplate transactionTemplate;
     
     /**
      * Create a new conversation
@@ -57,6 +63,8 @@ public class ConversationService {
         
         log.info("Conversation created: conversationId={}", conversation.getId());
         
+        outboxService.append(EventTypes.CONVERSATION_CREATED, conversation.getId(), conversation);
+        
         return CreateConversationResponse.builder()
                 .conversationId(conversation.getId())
                 .status(conversation.getStatus())
@@ -65,12 +73,45 @@ public class ConversationService {
     
     /**
      * Send a text message and get AI response
+     * 
+     * No transaction, and so no pooled connection, is held while waiting for
+     * the AI reply: the user message and the assistant message are saved in
+     * transactions of their own. If the AI call fails, the user message is
+     * marked FAILED so it drops out of the conversation history, and a
+     * MESSAGE_FAILED event follows the MESSAGE_SENT already published.
      */
-    @Transactional
     public SendTextMessageResponse sendTextMessage(Long conversationId, SendTextMessageRequest request, Long userId) {
         log.info("Sending text message: conversationId={}, userId={}", conversationId, userId);
         
-        // Verify conversation exists and belongs to user
+        Conversation conversation = getOwnedConversation(conversationId, userId);
+        Message userMessage = saveUserMessage(conversation, request.getText());
+        Long replyMessageId = nextMessageId();
+        
+        // Call AI orchestrator service
+        AiChatResponse aiResponse;
+        try {
+            aiResponse = chat(conversation, userMessage, replyMessageId);
+            log.info("AI response received: provider={}, model={}, latency={}ms", 
+                    aiResponse.getProvider(), aiResponse.getModel(), aiResponse.getLatencyMs());
+        } catch (Exception e) {
+            log.error("Failed to get AI response", e);
+            markMessageFailed(userMessage);
+            throw new RuntimeException("Failed to get AI response: " + e.getMessage(), e);
+        }
+        
+        Message assistantMessage = saveAssistantMessage(conversation, replyMessageId, aiResponse, null);
+        
+        return SendTextMessageResponse.builder()
+                .userMessageId(userMessage.getId())
+                .assistantMessageId(assistantMessage.getId())
+                .replyText(aiResponse.getReplyText())
+                .build();
+    }
+    
+    /**
+     * Load a conversation, verifying it exists and belongs to the user
+     */
+    public Conversation getOwnedConversation(Long conversationId, Long userId) {
         Conversation conversation = conversationRepository.selectById(conversationId);
         if (conversation == null) {
             throw new RuntimeException("Conversation not found: " + conversationId);
@@ -78,14 +119,23 @@ public class ConversationService {
         if (!conversation.getUserId().equals(userId)) {
             throw new RuntimeException("Conversation does not belong to user");
         }
-        
-        // Create user message with FINAL status
+        return conversation;
+    }
+    
+    /**
+     * Save a user text message with FINAL status, in a transaction of its own
+     */
+    public Message saveUserMessage(Conversation conversation, String text) {
+        return transactionTemplate.execute(status -> insertUserMessage(conversation, text));
+    }
+    
+    private Message insertUserMessage(Conversation conversation, String text) {
         Message userMessage = Message.builder()
                 .id(idGenerator.nextId())
-                .conversationId(conversationId)
+                .conversationId(conversation.getId())
                 .senderRole("USER")
                 .contentType("TEXT")
-                .textContent(request.getText())
+                .textContent(text)
                 .status("FINAL")
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
@@ -94,37 +144,40 @@ public class ConversationService {
         messageRepository.insert(userMessage);
         log.info("User message created: messageId={}", userMessage.getId());
         
-        // Call AI orchestrator service
-        AiChatRequest aiRequest = AiChatRequest.builder()
-                .conversationId(conversationId)
-                .userId(userId)
-                .sceneId(conversation.getSceneId())
-                .difficulty(conversation.getDifficulty())
-                .planTier(conversation.getPlanTier())
-                .userText(request.getText())
-                .build();
-        
-        AiChatResponse aiResponse;
-        try {
-            aiResponse = aiOrchestratorClient.chat(aiRequest);
-            log.info("AI response received: provider={}, model={}, latency={}ms", 
-                    aiResponse.getProvider(), aiResponse.getModel(), aiResponse.getLatencyMs());
-        } catch (Exception e) {
-            log.error("Failed to get AI response", e);
-            throw new RuntimeException("Failed to get AI response: " + e.getMessage(), e);
-        }
-        
-        // Create assistant message with FINAL status
-        String providerTrace = buildProviderTrace(aiResponse);
-        
+        outboxService.append(EventTypes.MESSAGE_SENT, userMessage.getId(), userMessage);
+        return userMessage;
+    }
+    
+    /**
+     * Reserve the ID of a message saved later, such as the reply to a user
+     * message, which the AI request names in advance
+     */
+    public Long nextMessageId() {
+        return idGenerator.nextId();
+    }
+    
+    /**
+     * Save the assistant reply with FINAL status and touch the conversation,
+     * in a transaction of its own
+     * 
+     * @param messageId ID reserved for the reply with {@link #nextMessageId()}
+     * @param ttfbMs Time to the first streamed byte as seen by this service, or null if not streamed
+     */
+    public Message saveAssistantMessage(Conversation conversation, Long messageId, AiChatResponse aiResponse,
+                                        Long ttfbMs) {
+        return transactionTemplate.execute(status -> insertAssistantMessage(conversation, messageId, aiResponse, ttfbMs));
+    }
+    
+    private Message insertAssistantMessage(Conversation conversation, Long messageId, AiChatResponse aiResponse,
+                                           Long ttfbMs) {
         Message assistantMessage = Message.builder()
-                .id(idGenerator.nextId())
-                .conversationId(conversationId)
+                .id(messageId)
+                .conversationId(conversation.getId())
                 .senderRole("ASSISTANT")
                 .contentType("TEXT")
                 .textContent(aiResponse.getReplyText())
                 .status("FINAL")
-                .providerTrace(providerTrace)
+                .providerTrace(buildProviderTrace(aiResponse, ttfbMs))
                 .createdAt(LocalDateTime.now())
                 .updatedAt(LocalDateTime.now())
                 .build();
@@ -136,14 +189,64 @@ public class ConversationService {
         conversation.setUpdatedAt(LocalDateTime.now());
         conversationRepository.updateById(conversation);
         
-        return SendTextMessageResponse.builder()
-                .userMessageId(userMessage.getId())
-                .assistantMessageId(assistantMessage.getId())
-                .replyText(aiResponse.getReplyText())
-                .build();
+        outboxService.append(EventTypes.MESSAGE_RECEIVED, assistantMessage.getId(), assistantMessage);
+        return assistantMessage;
+    }
+    
+    /**
+     * Mark a saved user message FAILED after its AI reply could not be
+     * obtained, so it is left out of later history. The MESSAGE_FAILED event
+     * is written in the same transaction, so consumers that saw MESSAGE_SENT
+     * learn the message failed.
+     */
+    public void markMessageFailed(Message userMessage) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            transactionTemplate.executeWithoutResult(status -> {
+                messageRepository.updateById(Message.builder()
+                        .id(userMessage.getId())
+                        .status("FAILED")
+                        .updatedAt(now)
+                        .build());
+                userMessage.setStatus("FAILED");
+                userMessage.setUpdatedAt(now);
+                outboxService.append(EventTypes.MESSAGE_FAILED, userMessage.getId(), userMessage);
+            });
+            log.info("User message marked failed: messageId={}", userMessage.getId());
+        } catch (Exception e) {
+            log.error("Failed to mark user message failed: messageId={}", userMessage.getId(), e);
+        }
+    }
+    
+    /**
+     * Build the AI orchestrator request for a saved user message
+     * 
+     * @param replyMessageId ID the reply will be saved under
+     * @see AiContextBuilder#build
+     */
+    public AiChatRequest buildAiRequest(Conversation conversation, Message userMessage, Long replyMessageId) {
+        return aiContextBuilder.build(conversation, userMessage, replyMessageId);
+    }
+    
+    /**
+     * Build the AI orchestrator request for a saved user message with full
+     * history, after the orchestrator rejected its cached context (HTTP 409)
+     */
+    public AiChatRequest buildFullHistoryAiRequest(Conversation conversation, Message userMessage,
+                                                   Long replyMessageId) {
+        log.info("AI context out of date, resending full history: conversationId={}", conversation.getId());
+        return aiContextBuilder.buildFullHistory(conversation, userMessage, replyMessageId);
+    }
+    
+    private AiChatResponse chat(Conversation conversation, Message userMessage, Long replyMessageId) {
+        try {
+            return aiOrchestratorClient.chat(buildAiRequest(conversation, userMessage, replyMessageId));
+        } catch (FeignException.Conflict e) {
+            return aiOrchestratorClient.chat(buildFullHistoryAiRequest(conversation, userMessage, replyMessageId));
+        }
     }
     
-    private String buildProviderTrace(AiChatResponse aiResponse) {
+    private String buildProviderTrace(AiChatResponse aiResponse, Long ttfbMs) {
         try {
             Map<String, Object> trace = new HashMap<>();
             trace.put("provider", aiResponse.getProvider());
@@ -151,6 +254,12 @@ public class ConversationService {
             trace.put("tokenIn", aiResponse.getTokenIn());
             trace.put("tokenOut", aiResponse.getTokenOut());
             trace.put("latencyMs", aiResponse.getLatencyMs());
+            if (aiResponse.getFirstTokenMs() != null) {
+                trace.put("firstTokenMs", aiResponse.getFirstTokenMs());
+            }
+            if (ttfbMs != null) {
+                trace.put("ttfbMs", ttfbMs);
+            }
             return objectMapper.writeValueAsString(trace);
         } catch (JsonProcessingException e) {
             log.error("Failed to serialize provider trace", e);
@@ -0,0 +1,42 @@
+package com.kaelenx.conversation.service;
+
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.events.bus.EventBus;
+import com.kaelenx.common.events.bus.EventTranslator;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Outbox sink that forwards events to the in-process {@link EventBus}.
+ * 
+ * Publishes without waiting ({@link EventBus#tryPublish}): the relay calls
+ * the sink while it holds the batch's row locks, so a full ring fails the
+ * batch at once instead of keeping those locks for the publish timeout. The
+ * batch stays in the outbox and is sent again on the next poll, including
+ * any events of it that were already published.
+ */
+@RequiredArgsConstructor
+public class EventBusOutboxSink implements OutboxEventSink {
+    
+    private static final EventTranslator<Object, EventEnvelope<String>> COPY = (event, sequence, source) -> {
+        event.setEventId(source.getEventId());
+        event.setEventType(source.getEventType());
+        event.setSource(source.getSource());
+        event.setTimestamp(source.getTimestamp());
+        event.setVersion(source.getVersion());
+        event.setPayload(source.getPayload());
+        event.setMetadata(source.getMetadata());
+    };
+    
+    private final EventBus<Object> eventBus;
+    
+    @Override
+    public void send(List<EventEnvelope<String>> events) {
+        for (EventEnvelope<String> event : events) {
+            if (!eventBus.tryPublish(COPY, event)) {
+                throw new IllegalStateException("Event bus full, retrying outbox batch later");
+            }
+        }
+    }
+}
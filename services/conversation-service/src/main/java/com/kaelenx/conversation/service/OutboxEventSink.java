@@ -0,0 +1,26 @@
+package com.kaelenx.conversation.service;
+
+import com.kaelenx.common.events.EventEnvelope;
+
+import java.util.List;
+
+/**
+ * Destination for events drained from the outbox by {@link OutboxRelay}.
+ * 
+ * Delivery is at-least-once: if {@link #send} throws, or the relay fails
+ * before deleting the batch, the same events are sent again. Consumers should
+ * deduplicate on {@code eventId}.
+ */
+public interface OutboxEventSink {
+    
+    /**
+     * Deliver a batch of events in ID order.
+     * 
+     * Called while the relay holds row locks on the batch, so implementations
+     * should fail fast rather than wait for capacity.
+     * 
+     * @param events Envelopes whose payload is the JSON written to the outbox
+     * @throws Exception to leave the batch in the outbox for the next poll
+     */
+    void send(List<EventEnvelope<String>> events) throws Exception;
+}
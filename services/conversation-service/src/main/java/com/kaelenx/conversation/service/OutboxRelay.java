@@ -0,0 +1,180 @@
+package com.kaelenx.conversation.service;
+
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.id.SnowflakeIdGenerator;
+import com.kaelenx.conversation.entity.OutboxEvent;
+import com.kaelenx.conversation.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox to an {@link OutboxEventSink}.
+ * 
+ * Each poll walks the outbox in primary key order with a keyset cursor
+ * ({@code id > lastId LIMIT batchSize}), so every batch is a short range scan
+ * regardless of table size. A batch is locked, sent and deleted in one
+ * transaction. Every poll restarts from the beginning, which picks up events
+ * whose transaction committed after a higher ID had already been relayed.
+ * 
+ * Delivery is at-least-once. The batch is sent before its delete commits, so
+ * if the sink fails partway, or the delete or commit fails after a send, the
+ * events stay in the outbox and are sent again. Consumers must deduplicate on
+ * {@code eventId}. The sink runs while the batch's rows are locked
+ * ({@code FOR UPDATE SKIP LOCKED}) and should fail fast rather than block.
+ * 
+ * Metrics:
+ * - outbox.relay.events: events delivered
+ * - outbox.relay.batches: batches delivered
+ * - outbox.relay.failures: polls aborted by a sink or database error
+ * - outbox.relay.batch.duration: time to lock, send and delete a batch
+ * - outbox.relay.lag: age of the oldest pending event (ms), from its Snowflake ID
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "outbox.relay.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+    
+    private static final String EVENT_SOURCE = "conversation-service";
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxEventSink sink;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    
+    private final Counter relayedEvents;
+    private final Counter relayedBatches;
+    private final Counter failures;
+    private final Timer batchTimer;
+    private final AtomicLong lagMillis = new AtomicLong();
+    
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OutboxEventSink sink,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:500}") int batchSize) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.sink = sink;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.relayedEvents = meterRegistry.counter("outbox.relay.events");
+        this.relayedBatches = meterRegistry.counter("outbox.relay.batches");
+        this.failures = meterRegistry.counter("outbox.relay.failures");
+        this.batchTimer = meterRegistry.timer("outbox.relay.batch.duration");
+        Gauge.builder("outbox.relay.lag", lagMillis, AtomicLong::get)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Scheduled poll
+     */
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:200}")
+    public void poll() {
+        drain();
+    }
+    
+    /**
+     * Relay every pending event
+     * 
+     * @return Number of events delivered
+     */
+    public int drain() {
+        long cursor = 0;
+        int relayed = 0;
+        try {
+            while (true) {
+                long afterId = cursor;
+                List<OutboxEvent> batch = batchTimer.record(() ->
+                        transactionTemplate.execute(status -> relayBatch(afterId)));
+                if (batch == null || batch.isEmpty()) {
+                    break;
+                }
+                relayed += batch.size();
+                relayedEvents.increment(batch.size());
+                relayedBatches.increment();
+                cursor = batch.get(batch.size() - 1).getId();
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            failures.increment();
+            log.warn("Outbox relay failed after {} events, will retry", relayed, e);
+        }
+        
+        updateLag();
+        if (relayed > 0) {
+            log.debug("Outbox relayed {} events", relayed);
+        }
+        return relayed;
+    }
+    
+    /**
+     * Returns the age of the oldest pending event as of the last poll
+     */
+    public long getLagMillis() {
+        return lagMillis.get();
+    }
+    
+    private List<OutboxEvent> relayBatch(long afterId) {
+        List<OutboxEvent> batch = outboxEventRepository.selectBatchForRelay(afterId, batchSize);
+        if (batch.isEmpty()) {
+            return batch;
+        }
+        
+        List<EventEnvelope<String>> envelopes = new ArrayList<>(batch.size());
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            envelopes.add(toEnvelope(event));
+            ids.add(event.getId());
+        }
+        
+        try {
+            sink.send(envelopes);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Outbox sink failed", e);
+        }
+        outboxEventRepository.deleteBatchIds(ids);
+        return batch;
+    }
+    
+    private EventEnvelope<String> toEnvelope(OutboxEvent event) {
+        return EventEnvelope.<String>builder()
+                .eventId(String.valueOf(event.getId()))
+                .eventType(event.getEventType())
+                .source(EVENT_SOURCE)
+                .timestamp(Instant.ofEpochMilli(SnowflakeIdGenerator.extractTimestamp(event.getId())))
+                .version("1.0")
+                .payload(event.getPayload())
+                .metadata(Map.of("aggregateId", String.valueOf(event.getAggregateId())))
+                .build();
+    }
+    
+    private void updateLag() {
+        try {
+            Long oldestId = outboxEventRepository.selectOldestPendingId();
+            lagMillis.set(oldestId == null
+                    ? 0
+                    : Math.max(0, System.currentTimeMillis() - SnowflakeIdGenerator.extractTimestamp(oldestId)));
+        } catch (Exception e) {
+            log.warn("Failed to measure outbox lag", e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.kaelenx.conversation.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kaelenx.common.id.AbstractSnowflakeIdGenerator;
+import com.kaelenx.conversation.entity.OutboxEvent;
+import com.kaelenx.conversation.repository.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Writes lifecycle events to the transactional outbox
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+    
+    private final OutboxEventRepository outboxEventRepository;
+    private final AbstractSnowflakeIdGenerator idGenerator;
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Append an event to the outbox. Joins the caller's transaction so the
+     * event commits or rolls back together with the rows it describes.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String eventType, Long aggregateId, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize outbox payload: " + eventType, e);
+        }
+        
+        outboxEventRepository.insert(OutboxEvent.builder()
+                .id(idGenerator.nextId())
+                .eventType(eventType)
+                .aggregateId(aggregateId)
+                .payload(json)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+}
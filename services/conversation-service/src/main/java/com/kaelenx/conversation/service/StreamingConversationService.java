@@ -0,0 +1,163 @@
+package com.kaelenx.conversation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kaelenx.conversation.client.AiChatResponse;
+import com.kaelenx.conversation.client.AiChatStreamReader;
+import com.kaelenx.conversation.client.AiOrchestratorClient;
+import com.kaelenx.conversation.dto.SendTextMessageRequest;
+import com.kaelenx.conversation.dto.SendTextMessageResponse;
+import com.kaelenx.conversation.entity.Conversation;
+import com.kaelenx.conversation.entity.Message;
+import feign.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends a text message and streams the AI reply back as it is generated.
+ * 
+ * No transaction is held while the reply streams: the user message is saved
+ * first, the assistant message once the reply is complete. If the listener
+ * fails (typically because the client disconnected), the rest of the reply
+ * is still read and saved, so the conversation history stays complete. If
+ * the stream itself fails, the user message is marked FAILED, as
+ * {@link ConversationService#sendTextMessage} does.
+ * 
+ * Metrics:
+ * - conversation.stream.ttfb: time from the AI request to the first reply chunk
+ * - conversation.stream.duration: time from the AI request to the complete reply
+ */
+@Slf4j
+@Service
+public class StreamingConversationService {
+    
+    private final ConversationService conversationService;
+    private final AiOrchestratorClient aiOrchestratorClient;
+    private final AiChatStreamReader streamReader;
+    private final Timer ttfbTimer;
+    private final Timer durationTimer;
+    
+    public StreamingConversationService(ConversationService conversationService,
+                                        AiOrchestratorClient aiOrchestratorClient,
+                                        ObjectMapper objectMapper,
+                                        MeterRegistry meterRegistry) {
+        this.conversationService = conversationService;
+        this.aiOrchestratorClient = aiOrchestratorClient;
+        this.streamReader = new AiChatStreamReader(objectMapper);
+        this.ttfbTimer = meterRegistry.timer("conversation.stream.ttfb");
+        this.durationTimer = meterRegistry.timer("conversation.stream.duration");
+    }
+    
+    /**
+     * Send a text message, passing the AI reply to {@code listener} as it streams.
+     * Blocks until the reply is complete and saved.
+     */
+    public SendTextMessageResponse streamTextMessage(Long conversationId, SendTextMessageRequest request,
+                                                     Long userId, TextMessageStreamListener listener) {
+        log.info("Streaming text message: conversationId={}, userId={}", conversationId, userId);
+        
+        Conversation conversation = conversationService.getOwnedConversation(conversationId, userId);
+        Message userMessage = conversationService.saveUserMessage(conversation, request.getText());
+        SafeListener safeListener = new SafeListener(listener, conversationId);
+        safeListener.onUserMessage(userMessage);
+        Long replyMessageId = conversationService.nextMessageId();
+        
+        long startNanos = System.nanoTime();
+        long[] firstTokenNanos = {-1};
+        AiChatResponse aiResponse;
+        try (Response response = openStream(conversation, userMessage, replyMessageId)) {
+            if (response.status() != 200 || response.body() == null) {
+                throw new IOException("AI orchestrator returned HTTP " + response.status());
+            }
+            try (InputStream body = response.body().asInputStream()) {
+                aiResponse = streamReader.read(body, text -> {
+                    if (firstTokenNanos[0] < 0) {
+                        firstTokenNanos[0] = System.nanoTime();
+                    }
+                    safeListener.onToken(text);
+                });
+            }
+        } catch (Exception e) {
+            log.error("Failed to stream AI response", e);
+            conversationService.markMessageFailed(userMessage);
+            throw new RuntimeException("Failed to get AI response: " + e.getMessage(), e);
+        }
+        long endNanos = System.nanoTime();
+        
+        Long ttfbMs = null;
+        if (firstTokenNanos[0] >= 0) {
+            ttfbTimer.record(firstTokenNanos[0] - startNanos, TimeUnit.NANOSECONDS);
+            ttfbMs = TimeUnit.NANOSECONDS.toMillis(firstTokenNanos[0] - startNanos);
+        }
+        durationTimer.record(endNanos - startNanos, TimeUnit.NANOSECONDS);
+        log.info("AI stream completed: provider={}, model={}, ttfb={}ms, total={}ms", 
+                aiResponse.getProvider(), aiResponse.getModel(), ttfbMs, 
+                TimeUnit.NANOSECONDS.toMillis(endNanos - startNanos));
+        
+        Message assistantMessage = conversationService.saveAssistantMessage(conversation, replyMessageId, aiResponse, ttfbMs);
+        
+        return SendTextMessageResponse.builder()
+                .userMessageId(userMessage.getId())
+                .assistantMessageId(assistantMessage.getId())
+                .replyText(aiResponse.getReplyText())
+                .build();
+    }
+    
+    /**
+     * Start the AI reply stream, resending with full history if the
+     * orchestrator rejected its cached context
+     */
+    private Response openStream(Conversation conversation, Message userMessage, Long replyMessageId) {
+        Response response = aiOrchestratorClient.chatStream(
+                conversationService.buildAiRequest(conversation, userMessage, replyMessageId));
+        if (response.status() != 409) {
+            return response;
+        }
+        response.close();
+        return aiOrchestratorClient.chatStream(
+                conversationService.buildFullHistoryAiRequest(conversation, userMessage, replyMessageId));
+    }
+    
+    /**
+     * Stops forwarding after the first listener failure instead of aborting the stream
+     */
+    private static class SafeListener implements TextMessageStreamListener {
+        
+        private final TextMessageStreamListener delegate;
+        private final Long conversationId;
+        private boolean failed;
+        
+        SafeListener(TextMessageStreamListener delegate, Long conversationId) {
+            this.delegate = delegate;
+            this.conversationId = conversationId;
+        }
+        
+        @Override
+        public void onUserMessage(Message userMessage) {
+            forward(() -> delegate.onUserMessage(userMessage));
+        }
+        
+        @Override
+        public void onToken(String text) {
+            forward(() -> delegate.onToken(text));
+        }
+        
+        private void forward(Runnable call) {
+            if (failed) {
+                return;
+            }
+            try {
+                call.run();
+            } catch (Exception e) {
+                failed = true;
+                log.info("Stream listener failed, finishing reply without it: conversationId={}, reason={}", 
+                        conversationId, e.toString());
+            }
+        }
+    }
+}
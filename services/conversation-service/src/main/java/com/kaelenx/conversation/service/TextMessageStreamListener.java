@@ -0,0 +1,19 @@
+package com.kaelenx.conversation.service;
+
+import com.kaelenx.conversation.entity.Message;
+
+/**
+ * Receives progress of a streamed text message reply
+ */
+public interface TextMessageStreamListener {
+    
+    /**
+     * The user message was saved and the AI request is about to start
+     */
+    void onUserMessage(Message userMessage);
+    
+    /**
+     * A chunk of reply text arrived
+     */
+    void onToken(String text);
+}
@@ -0,0 +1,12 @@
+-- Outbox Event Table
+-- Lifecycle events written in the same transaction as the rows they describe.
+-- OutboxRelay drains it in primary key order and deletes rows once delivered.
+
+CREATE TABLE outbox_event (
+    id BIGINT PRIMARY KEY COMMENT 'Snowflake ID, also used as the event ID',
+    event_type VARCHAR(64) NOT NULL COMMENT 'Event type (e.g., message.sent)',
+    aggregate_id BIGINT NOT NULL COMMENT 'ID of the conversation or message the event describes',
+    payload TEXT NOT NULL COMMENT 'Event payload (JSON)',
+    created_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT 'Creation timestamp'
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci
+COMMENT='Transactional outbox for lifecycle events';
@@ -0,0 +1,81 @@
+package com.kaelenx.conversation.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares how many platform threads blocked streams hold with and without
+ * virtual threads. The virtual-thread case needs a Java 21+ test JVM: run it
+ * with {@code mvn test -P jdk21 -Djdk21.home=<path to a JDK 21>}.
+ */
+class StreamingConfigTest {
+    
+    private static final int STREAMS = 100;
+    
+    @Test
+    void testPlatformThreadsHoldOneThreadPerBlockedStream() throws Exception {
+        int held = platformThreadsHeldByBlockedStreams(false);
+        
+        assertTrue(held >= STREAMS / 2, "Blocked streams held only " + held + " platform threads");
+    }
+    
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void testVirtualThreadsHoldNoPlatformThreadPerBlockedStream() throws Exception {
+        int platform = platformThreadsHeldByBlockedStreams(false);
+        int virtual = platformThreadsHeldByBlockedStreams(true);
+        
+        // Blocked virtual threads unmount; only a few carrier threads remain
+        assertTrue(virtual < STREAMS / 2, "Blocked virtual streams held " + virtual + " platform threads");
+        assertTrue(virtual < platform, "virtual=" + virtual + ", platform=" + platform);
+    }
+    
+    @Test
+    @EnabledForJreRange(max = JRE.JAVA_20)
+    void testVirtualSettingFallsBackToPlatformThreadsBeforeJava21() throws Exception {
+        int held = platformThreadsHeldByBlockedStreams(true);
+        
+        assertTrue(held >= STREAMS / 2, "Blocked streams held only " + held + " platform threads");
+    }
+    
+    /**
+     * Block {@link #STREAMS} streams on the streaming executor and return how
+     * many more live platform threads there are while they wait
+     */
+    private static int platformThreadsHeldByBlockedStreams(boolean virtualThreads) throws Exception {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.threads.virtual.enabled", String.valueOf(virtualThreads));
+        ThreadPoolTaskExecutor executor = new StreamingConfig().streamingExecutor(STREAMS, 0, environment);
+        executor.initialize();
+        CountDownLatch started = new CountDownLatch(STREAMS);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Thread count excludes virtual threads, so this counts platform threads only
+            int before = ManagementFactory.getThreadMXBean().getThreadCount();
+            for (int i = 0; i < STREAMS; i++) {
+                executor.execute(() -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            assertTrue(started.await(10, TimeUnit.SECONDS), "Streams did not all start");
+            return ManagementFactory.getThreadMXBean().getThreadCount() - before;
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.kaelenx.conversation.controller;
+
+import com.kaelenx.conversation.dto.SendTextMessageRequest;
+import com.kaelenx.conversation.dto.SendTextMessageResponse;
+import com.kaelenx.conversation.entity.Message;
+import com.kaelenx.conversation.service.ConversationService;
+import com.kaelenx.conversation.service.StreamingConversationService;
+import com.kaelenx.conversation.service.TextMessageStreamListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationControllerTest {
+    
+    private static final String BODY = "{\"text\":\"Hello\"}";
+    
+    @Mock
+    private ConversationService conversationService;
+    
+    @Mock
+    private StreamingConversationService streamingConversationService;
+    
+    private MockMvc mockMvc;
+    
+    @BeforeEach
+    void setUp() {
+        ConversationController controller = new ConversationController(
+                conversationService, streamingConversationService, new SyncTaskExecutor(), 5000);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+    
+    @Test
+    void testJsonRequestUsesBlockingEndpoint() throws Exception {
+        when(conversationService.sendTextMessage(eq(100L), any(SendTextMessageRequest.class), eq(1L)))
+                .thenReturn(response());
+        
+        mockMvc.perform(post("/v1/conversations/100/messages:text")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.replyText").value("Hello there!"));
+        
+        verifyNoInteractions(streamingConversationService);
+    }
+    
+    @Test
+    void testEventStreamRequestStreamsReply() throws Exception {
+        when(streamingConversationService.streamTextMessage(eq(100L), any(SendTextMessageRequest.class), eq(1L), any()))
+                .thenAnswer(invocation -> {
+                    TextMessageStreamListener listener = invocation.getArgument(3);
+                    listener.onUserMessage(Message.builder().id(2000L).build());
+                    listener.onToken("Hello ");
+                    listener.onToken("there!");
+                    return response();
+                });
+        
+        MvcResult result = mockMvc.perform(post("/v1/conversations/100/messages:text")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content(BODY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        
+        String stream = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        
+        assertTrue(stream.contains("event:start\ndata:{\"userMessageId\":2000}"));
+        assertTrue(stream.indexOf("data:{\"text\":\"Hello \"}") < stream.indexOf("data:{\"text\":\"there!\"}"));
+        assertTrue(stream.contains("event:done\ndata:{\"userMessageId\":2000,\"assistantMessageId\":3000"));
+        verifyNoInteractions(conversationService);
+    }
+    
+    @Test
+    void testStreamFailureIsSentAsErrorEvent() throws Exception {
+        when(streamingConversationService.streamTextMessage(eq(100L), any(SendTextMessageRequest.class), eq(1L), any()))
+                .thenThrow(new RuntimeException("Conversation not found: 100"));
+        
+        MvcResult result = mockMvc.perform(post("/v1/conversations/100/messages:text")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content(BODY))
+                .andReturn();
+        
+        String stream = mockMvc.perform(asyncDispatch(result))
+                .andReturn().getResponse().getContentAsString();
+        
+        assertTrue(stream.contains("event:error\ndata:{\"message\":\"Conversation not found: 100\"}"));
+    }
+    
+    @Test
+    void testFullStreamingPoolIsServiceUnavailable() throws Exception {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // The only worker is busy and there is no queue
+            executor.execute(() -> awaitQuietly(release));
+            mockMvc = MockMvcBuilders.standaloneSetup(new ConversationController(
+                    conversationService, streamingConversationService, executor, 5000)).build();
+            
+            mockMvc.perform(post("/v1/conversations/100/messages:text")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .accept(MediaType.TEXT_EVENT_STREAM)
+                            .content(BODY))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+        
+        verifyNoInteractions(streamingConversationService, conversationService);
+    }
+    
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static SendTextMessageResponse response() {
+        return SendTextMessageResponse.builder()
+                .userMessageId(2000L)
+                .assistantMessageId(3000L)
+                .replyText("Hello there!")
+                .build();
+    }
+}
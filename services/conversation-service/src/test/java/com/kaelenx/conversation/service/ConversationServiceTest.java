@@ -9,13 +9,35 @@ import com.kaelenx.conversation.entity.Conversation;
 import com.kaelenx.conversation.entity.Message;
 import com.kaelenx.conversation.repository.ConversationRepository;
 import com.kaelenx.conversation.repository.MessageRepository;
-import com.kaelenx.common.id.SnowflakeIdGenerator;
+import com.kaelenx.common.events.EventTypes;
+import com.kaelenx.common.id.AbstractSnowflakeIdGenerator;
+import feign.FeignException;
+import feign.Request;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -34,17 +56,25 @@ class ConversationServiceTest {
     private AiOrchestratorClient aiOrchestratorClient;
     
     @Mock
-    private SnowflakeIdGenerator idGenerator;
+    private AbstractSnowflakeIdGenerator idGenerator;
+    
+    @Mock
+    private OutboxService outboxService;
     
     private ObjectMapper objectMapper;
     
+    private PooledTransactionManager transactionManager;
+    
     private ConversationService service;
     
     @BeforeEach
     void setUp() {
         objectMapper = new ObjectMapper();
+        transactionManager = new PooledTransactionManager(2);
         service = new ConversationService(conversationRepository, messageRepository, 
-                aiOrchestratorClient, idGenerator, objectMapper);
+                aiOrchestratorClient, idGenerator, objectMapper, outboxService,
+                new AiContextBuilder(messageRepository, new SimpleMeterRegistry(), AiContextBuilder.MODE_SESSION),
+                new TransactionTemplate(transactionManager));
     }
     
     @Test
@@ -76,6 +106,8 @@ class ConversationServiceTest {
         assertEquals("EASY", captured.getDifficulty());
         assertEquals("ACTIVE", captured.getStatus());
         assertEquals("FREE", captured.getPlanTier());
+        
+        verify(outboxService).append(EventTypes.CONVERSATION_CREATED, 1000L, captured);
     }
     
     @Test
@@ -135,6 +167,108 @@ class ConversationServiceTest {
         assertEquals("Hello! How can I help you?", assistantMessage.getTextContent());
         assertEquals("FINAL", assistantMessage.getStatus());
         assertNotNull(assistantMessage.getProviderTrace());
+        
+        verify(outboxService).append(EventTypes.MESSAGE_SENT, 2000L, userMessage);
+        verify(outboxService).append(EventTypes.MESSAGE_RECEIVED, 3000L, assistantMessage);
+    }
+    
+    @Test
+    void testSendTextMessage_SessionModeSendsOnlyTheNewMessage() {
+        when(conversationRepository.selectById(1000L)).thenReturn(conversation());
+        when(idGenerator.nextId()).thenReturn(2000L, 3000L);
+        when(messageRepository.selectLastHistoryId(1000L, 2000L)).thenReturn(1500L);
+        when(aiOrchestratorClient.chat(any(AiChatRequest.class))).thenReturn(aiResponse());
+        
+        SendTextMessageResponse response = service.sendTextMessage(1000L,
+                SendTextMessageRequest.builder().text("Hello").build(), 1L);
+        
+        ArgumentCaptor<AiChatRequest> captor = ArgumentCaptor.forClass(AiChatRequest.class);
+        verify(aiOrchestratorClient).chat(captor.capture());
+        assertEquals("Hello", captor.getValue().getUserText());
+        assertEquals(1500L, captor.getValue().getContextVersion());
+        assertNull(captor.getValue().getHistory());
+        verify(messageRepository, never()).selectHistory(any(), any());
+        // The reply is saved under the ID the orchestrator cached the turn as
+        assertEquals(3000L, captor.getValue().getReplyMessageId());
+        assertEquals(3000L, response.getAssistantMessageId());
+    }
+    
+    @Test
+    void testSendTextMessage_ConflictResendsFullHistory() {
+        when(conversationRepository.selectById(1000L)).thenReturn(conversation());
+        when(idGenerator.nextId()).thenReturn(2000L, 3000L);
+        when(messageRepository.selectHistory(1000L, 2000L)).thenReturn(List.of(
+                Message.builder().id(1100L).senderRole("USER").textContent("Hi").build(),
+                Message.builder().id(1200L).senderRole("ASSISTANT").textContent("Hi! Where to?").build()));
+        Request feignRequest = Request.create(Request.HttpMethod.POST, "http://ai/internal/ai/chat",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        when(aiOrchestratorClient.chat(any(AiChatRequest.class)))
+                .thenThrow(new FeignException.Conflict("409 Conflict", feignRequest, null, Map.of()))
+                .thenReturn(aiResponse());
+        
+        SendTextMessageResponse response = service.sendTextMessage(1000L,
+                SendTextMessageRequest.builder().text("Hello").build(), 1L);
+        
+        assertEquals("Hello! How can I help you?", response.getReplyText());
+        ArgumentCaptor<AiChatRequest> captor = ArgumentCaptor.forClass(AiChatRequest.class);
+        verify(aiOrchestratorClient, times(2)).chat(captor.capture());
+        AiChatRequest resent = captor.getAllValues().get(1);
+        assertEquals(1200L, resent.getContextVersion());
+        assertEquals(3000L, resent.getReplyMessageId());
+        assertEquals(List.of(new AiChatRequest.HistoryMessage("user", "Hi"),
+                new AiChatRequest.HistoryMessage("assistant", "Hi! Where to?")), resent.getHistory());
+    }
+    
+    @Test
+    void testSendTextMessage_AiFailureMarksUserMessageFailed() {
+        when(conversationRepository.selectById(1000L)).thenReturn(conversation());
+        when(idGenerator.nextId()).thenReturn(2000L);
+        when(aiOrchestratorClient.chat(any(AiChatRequest.class))).thenThrow(new IllegalStateException("AI down"));
+        
+        assertThrows(RuntimeException.class, () -> service.sendTextMessage(1000L,
+                SendTextMessageRequest.builder().text("Hello").build(), 1L));
+        
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messageRepository).updateById(captor.capture());
+        assertEquals(2000L, captor.getValue().getId());
+        assertEquals("FAILED", captor.getValue().getStatus());
+        verify(messageRepository, times(1)).insert(any(Message.class));
+        
+        // Consumers that saw MESSAGE_SENT learn the message failed
+        ArgumentCaptor<Message> failed = ArgumentCaptor.forClass(Message.class);
+        verify(outboxService).append(eq(EventTypes.MESSAGE_FAILED), eq(2000L), failed.capture());
+        assertEquals("FAILED", failed.getValue().getStatus());
+    }
+    
+    @Test
+    void testSendTextMessage_AiCallDoesNotHoldConnection() throws Exception {
+        // Two pooled connections: if the AI call ran inside a transaction, only two turns could wait on it at once
+        int turns = 16;
+        AtomicLong ids = new AtomicLong(2000);
+        CountDownLatch allWaiting = new CountDownLatch(turns);
+        when(conversationRepository.selectById(1000L)).thenReturn(conversation());
+        when(idGenerator.nextId()).thenAnswer(invocation -> ids.incrementAndGet());
+        when(aiOrchestratorClient.chat(any(AiChatRequest.class))).thenAnswer(invocation -> {
+            assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            allWaiting.countDown();
+            assertTrue(allWaiting.await(10, TimeUnit.SECONDS), "Turns did not wait on the AI call together");
+            return aiResponse();
+        });
+        
+        ExecutorService executor = Executors.newFixedThreadPool(turns);
+        try {
+            List<Future<SendTextMessageResponse>> responses = new ArrayList<>();
+            for (int i = 0; i < turns; i++) {
+                responses.add(executor.submit(() -> service.sendTextMessage(1000L,
+                        SendTextMessageRequest.builder().text("Hello").build(), 1L)));
+            }
+            for (Future<SendTextMessageResponse> response : responses) {
+                assertEquals("Hello! How can I help you?", response.get(20, TimeUnit.SECONDS).getReplyText());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2, transactionManager.available());
     }
     
     @Test
@@ -152,4 +286,71 @@ class ConversationServiceTest {
         
         assertTrue(exception.getMessage().contains("Conversation not found"));
     }
+    
+    private static Conversation conversation() {
+        return Conversation.builder()
+                .id(1000L)
+                .userId(1L)
+                .sceneId(1L)
+                .difficulty("EASY")
+                .status("ACTIVE")
+                .planTier("FREE")
+                .build();
+    }
+    
+    /**
+     * Transaction manager that holds one of a fixed number of connections per
+     * transaction and, like Hikari, fails when none frees up in time
+     */
+    private static final class PooledTransactionManager extends AbstractPlatformTransactionManager {
+        
+        private final Semaphore connections;
+        
+        PooledTransactionManager(int poolSize) {
+            this.connections = new Semaphore(poolSize);
+        }
+        
+        int available() {
+            return connections.availablePermits();
+        }
+        
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+        
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            try {
+                if (!connections.tryAcquire(1, TimeUnit.SECONDS)) {
+                    throw new CannotCreateTransactionException("Connection is not available, request timed out");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CannotCreateTransactionException("Interrupted waiting for a connection");
+            }
+        }
+        
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+        
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+        
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            connections.release();
+        }
+    }
+    
+    private static AiChatResponse aiResponse() {
+        return AiChatResponse.builder()
+                .provider("qwen-mock")
+                .model("qwen-turbo")
+                .replyText("Hello! How can I help you?")
+                .latencyMs(150L)
+                .build();
+    }
 }
@@ -0,0 +1,147 @@
+package com.kaelenx.conversation.service;
+
+import com.kaelenx.common.events.EventEnvelope;
+import com.kaelenx.common.events.EventTypes;
+import com.kaelenx.common.events.bus.BlockingWaitStrategy;
+import com.kaelenx.common.events.bus.EventBus;
+import com.kaelenx.common.id.SnowflakeIdGenerator;
+import com.kaelenx.conversation.entity.OutboxEvent;
+import com.kaelenx.conversation.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+    
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+    
+    @Mock
+    private OutboxEventSink sink;
+    
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    
+    private final SnowflakeIdGenerator idGenerator = new SnowflakeIdGenerator(1);
+    
+    private MeterRegistry meterRegistry;
+    
+    private OutboxRelay relay;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        relay = new OutboxRelay(outboxEventRepository, sink, transactionManager, meterRegistry, 2);
+    }
+    
+    @Test
+    void testDrainWalksOutboxWithKeysetCursor() throws Exception {
+        List<OutboxEvent> events = outboxEvents(3);
+        when(outboxEventRepository.selectBatchForRelay(0L, 2)).thenReturn(events.subList(0, 2));
+        when(outboxEventRepository.selectBatchForRelay(events.get(1).getId(), 2)).thenReturn(events.subList(2, 3));
+        
+        int relayed = relay.drain();
+        
+        assertEquals(3, relayed);
+        
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<EventEnvelope<String>>> captor = ArgumentCaptor.forClass(List.class);
+        verify(sink, times(2)).send(captor.capture());
+        EventEnvelope<String> first = captor.getAllValues().get(0).get(0);
+        assertEquals(String.valueOf(events.get(0).getId()), first.getEventId());
+        assertEquals(EventTypes.MESSAGE_SENT, first.getEventType());
+        assertEquals("{\"id\":0}", first.getPayload());
+        assertEquals("conversation-service", first.getSource());
+        assertEquals("100", first.getMetadata().get("aggregateId"));
+        
+        verify(outboxEventRepository).deleteBatchIds(List.of(events.get(0).getId(), events.get(1).getId()));
+        verify(outboxEventRepository).deleteBatchIds(List.of(events.get(2).getId()));
+        assertEquals(3.0, meterRegistry.counter("outbox.relay.events").count());
+        assertEquals(2.0, meterRegistry.counter("outbox.relay.batches").count());
+    }
+    
+    @Test
+    void testSinkFailureKeepsEventsInOutbox() throws Exception {
+        List<OutboxEvent> events = outboxEvents(2);
+        when(outboxEventRepository.selectBatchForRelay(0L, 2)).thenReturn(events);
+        when(outboxEventRepository.selectOldestPendingId()).thenReturn(events.get(0).getId());
+        doThrow(new IllegalStateException("broker down")).when(sink).send(anyList());
+        
+        int relayed = relay.drain();
+        
+        assertEquals(0, relayed);
+        verify(outboxEventRepository, never()).deleteBatchIds(anyCollection());
+        verify(transactionManager).rollback(any());
+        assertEquals(1.0, meterRegistry.counter("outbox.relay.failures").count());
+    }
+    
+    @Test
+    void testFullEventBusRollsBackBatchWithoutWaiting() throws Exception {
+        List<OutboxEvent> events = outboxEvents(2);
+        when(outboxEventRepository.selectBatchForRelay(0L, 2)).thenReturn(events);
+        when(outboxEventRepository.selectOldestPendingId()).thenReturn(events.get(0).getId());
+        CountDownLatch release = new CountDownLatch(1);
+        // One slot, held by a stuck subscriber; a waiting publish would block for a minute
+        EventBus<Object> bus = new EventBus<>(1, new BlockingWaitStrategy(), 60_000);
+        try {
+            bus.subscribe("stuck", (event, sequence, endOfBatch) -> release.await());
+            MeterRegistry busMeterRegistry = new SimpleMeterRegistry();
+            OutboxRelay busRelay = new OutboxRelay(outboxEventRepository, new EventBusOutboxSink(bus),
+                    transactionManager, busMeterRegistry, 2);
+            
+            int relayed = assertTimeoutPreemptively(Duration.ofSeconds(5), busRelay::drain);
+            
+            assertEquals(0, relayed);
+            verify(outboxEventRepository, never()).deleteBatchIds(anyCollection());
+            verify(transactionManager).rollback(any());
+            assertEquals(1.0, busMeterRegistry.counter("outbox.relay.failures").count());
+        } finally {
+            release.countDown();
+            bus.close();
+        }
+    }
+    
+    @Test
+    void testLagIsAgeOfOldestPendingEvent() throws InterruptedException {
+        long oldestId = idGenerator.nextId();
+        Thread.sleep(20);
+        when(outboxEventRepository.selectBatchForRelay(0L, 2)).thenReturn(List.of());
+        when(outboxEventRepository.selectOldestPendingId()).thenReturn(oldestId, (Long) null);
+        
+        relay.drain();
+        assertTrue(relay.getLagMillis() >= 20);
+        assertEquals(relay.getLagMillis(), meterRegistry.get("outbox.relay.lag").gauge().value());
+        
+        relay.drain();
+        assertEquals(0, relay.getLagMillis());
+    }
+    
+    private List<OutboxEvent> outboxEvents(int count) {
+        List<OutboxEvent> events = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            events.add(OutboxEvent.builder()
+                    .id(idGenerator.nextId())
+                    .eventType(EventTypes.MESSAGE_SENT)
+                    .aggregateId(100L + i)
+                    .payload("{\"id\":" + i + "}")
+                    .build());
+        }
+        return events;
+    }
+}
@@ -0,0 +1,219 @@
+package com.kaelenx.conversation.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kaelenx.conversation.client.AiChatRequest;
+import com.kaelenx.conversation.client.AiOrchestratorClient;
+import com.kaelenx.conversation.dto.SendTextMessageRequest;
+import com.kaelenx.conversation.dto.SendTextMessageResponse;
+import com.kaelenx.conversation.entity.Conversation;
+import com.kaelenx.conversation.entity.Message;
+import com.kaelenx.conversation.repository.ConversationRepository;
+import com.kaelenx.conversation.repository.MessageRepository;
+import com.kaelenx.common.events.EventTypes;
+import com.kaelenx.common.id.AbstractSnowflakeIdGenerator;
+import feign.Request;
+import feign.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StreamingConversationServiceTest {
+    
+    private static final String STREAM = """
+            event:token
+            data:{"text":"Hello "}
+            
+            event:token
+            data:{"text":"there!"}
+            
+            event:done
+            data:{"provider":"qwen-mock","model":"qwen-turbo","replyText":"Hello there!","latencyMs":120,"firstTokenMs":80}
+            
+            """;
+    
+    @Mock
+    private ConversationRepository conversationRepository;
+    
+    @Mock
+    private MessageRepository messageRepository;
+    
+    @Mock
+    private AiOrchestratorClient aiOrchestratorClient;
+    
+    @Mock
+    private AbstractSnowflakeIdGenerator idGenerator;
+    
+    @Mock
+    private OutboxService outboxService;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private MeterRegistry meterRegistry;
+    
+    private StreamingConversationService service;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ConversationService conversationService = new ConversationService(conversationRepository, messageRepository,
+                aiOrchestratorClient, idGenerator, objectMapper, outboxService,
+                new AiContextBuilder(messageRepository, meterRegistry, AiContextBuilder.MODE_SESSION),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        service = new StreamingConversationService(conversationService, aiOrchestratorClient, objectMapper, meterRegistry);
+        
+        when(conversationRepository.selectById(100L)).thenReturn(Conversation.builder()
+                .id(100L)
+                .userId(1L)
+                .sceneId(1L)
+                .difficulty("EASY")
+                .planTier("FREE")
+                .build());
+        when(idGenerator.nextId()).thenReturn(2000L, 3000L);
+    }
+    
+    @Test
+    void testStreamForwardsTokensAndSavesReply() throws Exception {
+        when(aiOrchestratorClient.chatStream(any(AiChatRequest.class))).thenReturn(response(200, STREAM));
+        
+        List<String> events = new ArrayList<>();
+        SendTextMessageResponse response = service.streamTextMessage(100L, request(), 1L, listener(events, false));
+        
+        assertEquals(List.of("start:2000", "token:Hello ", "token:there!"), events);
+        assertEquals(2000L, response.getUserMessageId());
+        assertEquals(3000L, response.getAssistantMessageId());
+        assertEquals("Hello there!", response.getReplyText());
+        
+        Message assistantMessage = savedAssistantMessage();
+        assertEquals("Hello there!", assistantMessage.getTextContent());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> trace = objectMapper.readValue(assistantMessage.getProviderTrace(), Map.class);
+        assertEquals(80, trace.get("firstTokenMs"));
+        assertEquals(120, trace.get("latencyMs"));
+        assertNotNull(trace.get("ttfbMs"));
+        
+        assertEquals(1, meterRegistry.timer("conversation.stream.ttfb").count());
+        assertEquals(1, meterRegistry.timer("conversation.stream.duration").count());
+    }
+    
+    @Test
+    void testReplyIsSavedWhenClientDisconnects() throws Exception {
+        when(aiOrchestratorClient.chatStream(any(AiChatRequest.class))).thenReturn(response(200, STREAM));
+        
+        List<String> events = new ArrayList<>();
+        SendTextMessageResponse response = service.streamTextMessage(100L, request(), 1L, listener(events, true));
+        
+        assertEquals(List.of("start:2000", "token:Hello "), events);
+        assertEquals("Hello there!", response.getReplyText());
+        assertEquals("Hello there!", savedAssistantMessage().getTextContent());
+        verify(outboxService).append(eq(EventTypes.MESSAGE_RECEIVED), eq(3000L), any(Message.class));
+    }
+    
+    @Test
+    void testErrorEventFailsWithoutSavingReply() {
+        String stream = "event:token\ndata:{\"text\":\"Hel\"}\n\nevent:error\ndata:{\"message\":\"provider timeout\"}\n\n";
+        when(aiOrchestratorClient.chatStream(any(AiChatRequest.class))).thenReturn(response(200, stream));
+        
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.streamTextMessage(100L, request(), 1L, listener(new ArrayList<>(), false)));
+        
+        assertTrue(e.getMessage().contains("provider timeout"));
+        verify(messageRepository, times(1)).insert(any(Message.class));
+        verify(outboxService, never()).append(eq(EventTypes.MESSAGE_RECEIVED), any(), any());
+        
+        // The user message has no reply; it must not stay in the history
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messageRepository).updateById(captor.capture());
+        assertEquals(2000L, captor.getValue().getId());
+        assertEquals("FAILED", captor.getValue().getStatus());
+        verify(outboxService).append(eq(EventTypes.MESSAGE_FAILED), eq(2000L), any(Message.class));
+    }
+    
+    @Test
+    void testConflictReopensStreamWithFullHistory() throws Exception {
+        when(messageRepository.selectHistory(100L, 2000L)).thenReturn(List.of(
+                Message.builder().id(1100L).senderRole("USER").textContent("Hi").build(),
+                Message.builder().id(1200L).senderRole("ASSISTANT").textContent("Hi! Where to?").build()));
+        when(aiOrchestratorClient.chatStream(any(AiChatRequest.class)))
+                .thenReturn(response(409, ""), response(200, STREAM));
+        
+        SendTextMessageResponse response = service.streamTextMessage(100L, request(), 1L,
+                listener(new ArrayList<>(), false));
+        
+        assertEquals("Hello there!", response.getReplyText());
+        ArgumentCaptor<AiChatRequest> captor = ArgumentCaptor.forClass(AiChatRequest.class);
+        verify(aiOrchestratorClient, times(2)).chatStream(captor.capture());
+        assertNull(captor.getAllValues().get(0).getHistory());
+        assertEquals(2, captor.getAllValues().get(1).getHistory().size());
+        assertEquals(1200L, captor.getAllValues().get(1).getContextVersion());
+        assertEquals(3000L, captor.getAllValues().get(1).getReplyMessageId());
+        assertEquals(1, meterRegistry.get("conversation.ai.context.payload").tag("mode", "fallback").summary().count());
+    }
+    
+    @Test
+    void testTruncatedStreamFails() {
+        when(aiOrchestratorClient.chatStream(any(AiChatRequest.class)))
+                .thenReturn(response(200, "event:token\ndata:{\"text\":\"Hel\"}\n\n"));
+        
+        RuntimeException e = assertThrows(RuntimeException.class,
+                () -> service.streamTextMessage(100L, request(), 1L, listener(new ArrayList<>(), false)));
+        
+        assertTrue(e.getMessage().contains("ended before completion"));
+    }
+    
+    private Message savedAssistantMessage() {
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messageRepository, times(2)).insert(captor.capture());
+        Message assistantMessage = captor.getAllValues().get(1);
+        assertEquals("ASSISTANT", assistantMessage.getSenderRole());
+        return assistantMessage;
+    }
+    
+    private static TextMessageStreamListener listener(List<String> events, boolean disconnectAfterFirstToken) {
+        return new TextMessageStreamListener() {
+            @Override
+            public void onUserMessage(Message userMessage) {
+                events.add("start:" + userMessage.getId());
+            }
+            
+            @Override
+            public void onToken(String text) {
+                if (disconnectAfterFirstToken && events.size() > 1) {
+                    throw new IllegalStateException("Client disconnected");
+                }
+                events.add("token:" + text);
+            }
+        };
+    }
+    
+    private static SendTextMessageRequest request() {
+        return SendTextMessageRequest.builder().text("Hello").build();
+    }
+    
+    private static Response response(int status, String body) {
+        Request request = Request.create(Request.HttpMethod.POST, "http://ai/internal/ai/chat:stream",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        return Response.builder()
+                .status(status)
+                .request(request)
+                .headers(Map.of())
+                .body(body, StandardCharsets.UTF_8)
+                .build();
+    }
+}